@@ -0,0 +1,131 @@
+package com.txl.equipment.calendar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-04 11:00
+ * 年日历
+ * 1. 按每年的某月某日排除整天，与年份无关，如每年的元旦、国庆。
+ * 2. 每个月排除的日期以位图存放(第n位为当月第n天)，查询的复杂度为O(1)，
+ *    查找下一个被包含的时间时按月做位扫描。
+ */
+public class AnnualCalendar extends BaseCalendar {
+
+    static final long serialVersionUID = 7346867105876610961L;
+
+    /** 每个月最多的天数，下标为月份(1为一月) */
+    private static final int[] MAX_DAYS = {0, 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    /** 每个月排除的日期的位图，下标为月份(1为一月) */
+    private int[] excludedDays = new int[13];
+
+    // 1. Constructor
+    public AnnualCalendar() {
+    }
+
+    public AnnualCalendar(Calendar baseCalendar) {
+        super(baseCalendar);
+    }
+
+    public AnnualCalendar(TimeZone timeZone) {
+        super(timeZone);
+    }
+
+    public AnnualCalendar(Calendar baseCalendar, TimeZone timeZone) {
+        super(baseCalendar, timeZone);
+    }
+
+    // 2. Implements
+    @Override
+    protected boolean isTimeIncludedByThis(long timeStamp) {
+        LocalDate date = getLocalDate(getEpochDay(timeStamp));
+        return (excludedDays[date.getMonthValue()] & (1 << date.getDayOfMonth())) == 0;
+    }
+
+    @Override
+    protected long getNextIncludedTimeByThis(long timeStamp) {
+        long epochDay = getEpochDay(timeStamp);
+        LocalDate date = getLocalDate(epochDay);
+        int day = date.getDayOfMonth();
+        if ((excludedDays[date.getMonthValue()] & (1 << day)) == 0) {
+            return timeStamp;
+        }
+
+        // 只剩2月29日被包含时，最多需要看8年
+        int from = day >= 31 ? 0 : -1 << (day + 1);
+        for (int i = 0; i < 12 * 8 + 1; i++) {
+            int len = date.lengthOfMonth();
+            int included = ~excludedDays[date.getMonthValue()] & (int) (((1L << len) - 1L) << 1) & from;
+            if (included != 0) {
+                return getStartOfDay(epochDay + Integer.numberOfTrailingZeros(included) - day);
+            }
+            epochDay += len - day + 1;
+            date = date.withDayOfMonth(1).plusMonths(1);
+            day = 1;
+            from = -1 << 1;
+        }
+        return 0;
+    }
+
+    /** 某月某日是否被排除，月份1为一月 */
+    public boolean isDayExcluded(int month, int dayOfMonth) {
+        checkMonthDay(month, dayOfMonth);
+        return (excludedDays[month] & (1 << dayOfMonth)) != 0;
+    }
+
+    /** 给定时间所在的月日是否被排除 */
+    public boolean isDayExcluded(Date day) {
+        LocalDate date = getLocalDate(getEpochDay(day.getTime()));
+        return isDayExcluded(date.getMonthValue(), date.getDayOfMonth());
+    }
+
+    /** 设置某月某日是否被排除，月份1为一月 */
+    public void setDayExcluded(int month, int dayOfMonth, boolean exclude) {
+        checkMonthDay(month, dayOfMonth);
+        if (exclude) {
+            excludedDays[month] |= 1 << dayOfMonth;
+        } else {
+            excludedDays[month] &= ~(1 << dayOfMonth);
+        }
+    }
+
+    /** 设置给定时间所在的月日是否被排除 */
+    public void setDayExcluded(Date day, boolean exclude) {
+        LocalDate date = getLocalDate(getEpochDay(day.getTime()));
+        setDayExcluded(date.getMonthValue(), date.getDayOfMonth(), exclude);
+    }
+
+    /** 获取排除的月日，年份为1970年之后第一个闰年 */
+    public List<Date> getDaysExcluded() {
+        List<Date> days = new ArrayList<Date>();
+        for (int month = 1; month <= 12; month++) {
+            int bits = excludedDays[month];
+            while (bits != 0) {
+                int dayOfMonth = Integer.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                days.add(new Date(getStartOfDay(LocalDate.of(1972, month, dayOfMonth).toEpochDay())));
+            }
+        }
+        return days;
+    }
+
+    private static void checkMonthDay(int month, int dayOfMonth) {
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Month must be between 1 and 12");
+        }
+        if (dayOfMonth < 1 || dayOfMonth > MAX_DAYS[month]) {
+            throw new IllegalArgumentException("Invalid day of month: " + dayOfMonth);
+        }
+    }
+
+    @Override
+    public Object clone() {
+        AnnualCalendar clone = (AnnualCalendar) super.clone();
+        clone.excludedDays = excludedDays.clone();
+        return clone;
+    }
+}
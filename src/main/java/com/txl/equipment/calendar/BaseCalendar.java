@@ -0,0 +1,178 @@
+package com.txl.equipment.calendar;
+
+import java.time.LocalDate;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-04 09:10
+ * 日历的基础实现
+ * 1. 包含所有时间，可以通过基础日历(baseCalendar)串联，只有自身与基础日历都包含的时间才被包含。
+ * 2. 子类通过isTimeIncludedByThis、getNextIncludedTimeByThis给出自身的规则，串联的处理由本类完成。
+ * 3. 按天的规则统一在日历的时区下换算为本地的纪元日(epoch day)计算，不创建java.util.Calendar。
+ */
+public class BaseCalendar implements Calendar {
+
+    static final long serialVersionUID = 3106623404629760239L;
+
+    /** 一天的毫秒数 */
+    protected static final long MILLIS_IN_DAY = 24L * 60L * 60L * 1000L;
+
+    /** 与基础日历相互推进查找共同包含的时间的最大次数，超过时认为之后不再包含任何时间 */
+    private static final int MAX_CHAIN_ITERATIONS = 10000;
+
+    /** 基础日历 */
+    private Calendar baseCalendar;
+    /** 描述 */
+    private String description;
+    /** 时区 */
+    private TimeZone timeZone;
+
+    // 1. Constructor
+    public BaseCalendar() {
+    }
+
+    public BaseCalendar(Calendar baseCalendar) {
+        setBaseCalendar(baseCalendar);
+    }
+
+    public BaseCalendar(TimeZone timeZone) {
+        setTimeZone(timeZone);
+    }
+
+    public BaseCalendar(Calendar baseCalendar, TimeZone timeZone) {
+        setBaseCalendar(baseCalendar);
+        setTimeZone(timeZone);
+    }
+
+    // 2. Implements
+    public void setBaseCalendar(Calendar baseCalendar) {
+        this.baseCalendar = baseCalendar;
+    }
+
+    public Calendar getBaseCalendar() {
+        return baseCalendar;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /** 获取时区，未设置时为缺省时区 */
+    public TimeZone getTimeZone() {
+        if (timeZone == null) {
+            timeZone = TimeZone.getDefault();
+        }
+        return timeZone;
+    }
+
+    /** 设置时区 */
+    public void setTimeZone(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /** 确定日历是否”包含“给定时间（以毫秒为单位） */
+    public boolean isTimeIncluded(long timeStamp) {
+        if (timeStamp <= 0) {
+            throw new IllegalArgumentException("timeStamp must be greater 0");
+        }
+        return isTimeIncludedByThis(timeStamp)
+                && (baseCalendar == null || baseCalendar.isTimeIncluded(timeStamp));
+    }
+
+    /** 确定给定时间之后日历"包含"的下一个时间，自身与基础日历交替推进，直到双方都包含 */
+    public long getNextIncludedTime(long timeStamp) {
+        if (timeStamp <= 0) {
+            throw new IllegalArgumentException("timeStamp must be greater 0");
+        }
+        long t = timeStamp;
+        for (int i = 0; i < MAX_CHAIN_ITERATIONS; i++) {
+            long own = getNextIncludedTimeByThis(t);
+            if (own <= 0) {
+                return 0;
+            }
+            if (baseCalendar == null) {
+                return own;
+            }
+            long base = baseCalendar.getNextIncludedTime(own);
+            if (base <= 0) {
+                return 0;
+            }
+            if (base == own) {
+                return own;
+            }
+            t = base;
+        }
+        return 0;
+    }
+
+    /** 按自身的规则是否包含给定时间，不考虑基础日历 */
+    protected boolean isTimeIncludedByThis(long timeStamp) {
+        return true;
+    }
+
+    /** 按自身的规则，不早于给定时间的第一个被包含的时间，之后不再包含任何时间时返回0 */
+    protected long getNextIncludedTimeByThis(long timeStamp) {
+        return timeStamp;
+    }
+
+    // 3. Day helper
+    /** 给定时间在日历时区下的本地毫秒数 */
+    protected long toLocalMillis(long timeStamp) {
+        return timeStamp + getTimeZone().getOffset(timeStamp);
+    }
+
+    /** 给定时间在日历时区下的纪元日 */
+    protected long getEpochDay(long timeStamp) {
+        return Math.floorDiv(toLocalMillis(timeStamp), MILLIS_IN_DAY);
+    }
+
+    /** 给定时间在日历时区下当天已过的毫秒数 */
+    protected long getMillisOfDay(long timeStamp) {
+        return Math.floorMod(toLocalMillis(timeStamp), MILLIS_IN_DAY);
+    }
+
+    /** 纪元日对应的星期，1为星期日，与java.util.Calendar一致 */
+    protected static int getDayOfWeek(long epochDay) {
+        // 1970-01-01为星期四
+        return (int) Math.floorMod(epochDay + 4, 7L) + 1;
+    }
+
+    /** 纪元日对应的本地日期 */
+    protected static LocalDate getLocalDate(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /** 纪元日在日历时区下的开始时间 */
+    protected long getStartOfDay(long epochDay) {
+        return getLocalTime(epochDay, 0L);
+    }
+
+    /** 纪元日当天的本地时刻在日历时区下的时间，本地时刻因夏令时不存在时顺延 */
+    protected long getLocalTime(long epochDay, long millisOfDay) {
+        long local = epochDay * MILLIS_IN_DAY + millisOfDay;
+        TimeZone tz = getTimeZone();
+        long guess = local - tz.getOffset(local - tz.getRawOffset());
+        long adjusted = local - tz.getOffset(guess);
+        return adjusted < guess ? guess : adjusted;
+    }
+
+    @Override
+    public Object clone() {
+        try {
+            BaseCalendar clone = (BaseCalendar) super.clone();
+            if (baseCalendar != null) {
+                clone.baseCalendar = (Calendar) baseCalendar.clone();
+            }
+            if (timeZone != null) {
+                clone.timeZone = (TimeZone) timeZone.clone();
+            }
+            return clone;
+        } catch (CloneNotSupportedException ex) {
+            throw new IncompatibleClassChangeError("Not Cloneable.");
+        }
+    }
+}
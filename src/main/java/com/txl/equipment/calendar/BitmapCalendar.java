@@ -0,0 +1,246 @@
+package com.txl.equipment.calendar;
+
+/**
+ * Created by TangXiangLin on 2023-03-04 14:10
+ * 位图日历
+ * 1. 将基础日历链(通过getBaseCalendar串联的所有日历)编译为按分钟的位图，第n位表示第n分钟是否被包含，
+ *    一年约52.7万分钟，位图约65KB。
+ * 2. 位图覆盖从当前时间开始的一段滚动的时间范围(horizon)，范围内的查询只做位运算；
+ *    随着时间推移范围向后滚动，只编译新增的部分；范围之外的查询交给基础日历。
+ * 3. 以分钟为粒度，一分钟是否被包含取决于该分钟开始时刻是否被包含；
+ *    适用于高频触发器，基础日历链变更后需调用rebuild()。
+ * 4. 位图以不可变快照的方式发布，查询不加锁。
+ */
+public class BitmapCalendar extends BaseCalendar {
+
+    static final long serialVersionUID = -2461372926484417829L;
+
+    /** 一分钟的毫秒数 */
+    private static final long MILLIS_IN_MINUTE = 60L * 1000L;
+
+    /** 缺省的时间范围，366天 */
+    public static final long DEFAULT_HORIZON_MILLIS = 366L * MILLIS_IN_DAY;
+
+    /** 位图的字数 */
+    private final int words;
+
+    /** 当前的位图快照 */
+    private transient volatile Snapshot snapshot;
+
+    // 1. Constructor
+    public BitmapCalendar(Calendar baseCalendar) {
+        this(baseCalendar, DEFAULT_HORIZON_MILLIS);
+    }
+
+    public BitmapCalendar(Calendar baseCalendar, long horizonMillis) {
+        super(baseCalendar);
+        if (baseCalendar == null) {
+            throw new IllegalArgumentException("Base calendar cannot be null");
+        }
+        if (horizonMillis < 64L * MILLIS_IN_MINUTE) {
+            throw new IllegalArgumentException("Horizon must be at least 64 minutes");
+        }
+        this.words = (int) ((horizonMillis / MILLIS_IN_MINUTE + 63) / 64);
+    }
+
+    // 2. Implements
+    @Override
+    public void setBaseCalendar(Calendar baseCalendar) {
+        super.setBaseCalendar(baseCalendar);
+        snapshot = null;
+    }
+
+    @Override
+    public boolean isTimeIncluded(long timeStamp) {
+        if (timeStamp <= 0) {
+            throw new IllegalArgumentException("timeStamp must be greater 0");
+        }
+        long minute = timeStamp / MILLIS_IN_MINUTE;
+        Snapshot snap = snapshotFor(minute);
+        if (snap == null) {
+            return getBaseCalendar().isTimeIncluded(timeStamp);
+        }
+        return snap.isSet(minute);
+    }
+
+    @Override
+    public long getNextIncludedTime(long timeStamp) {
+        if (timeStamp <= 0) {
+            throw new IllegalArgumentException("timeStamp must be greater 0");
+        }
+        long minute = timeStamp / MILLIS_IN_MINUTE;
+        Snapshot snap = snapshotFor(minute);
+        if (snap == null) {
+            return getBaseCalendar().getNextIncludedTime(timeStamp);
+        }
+        if (snap.isSet(minute)) {
+            return timeStamp;
+        }
+        long next = snap.nextSetBit(minute + 1);
+        if (next >= 0) {
+            return next * MILLIS_IN_MINUTE;
+        }
+        // 范围内没有被包含的时间，从范围末尾开始交给基础日历
+        return getBaseCalendar().getNextIncludedTime(snap.endMinute() * MILLIS_IN_MINUTE);
+    }
+
+    /** 以当前时间为起点重新编译位图，基础日历链变更后调用 */
+    public synchronized void rebuild() {
+        long startWord = (System.currentTimeMillis() / MILLIS_IN_MINUTE) >>> 6;
+        snapshot = compile(startWord, null);
+    }
+
+    /** 将时间范围的起点滚动到给定时间，只编译新增的部分 */
+    public synchronized void advanceTo(long timeStamp) {
+        Snapshot snap = currentSnapshot();
+        long startWord = (timeStamp / MILLIS_IN_MINUTE) >>> 6;
+        if (startWord > snap.startWord) {
+            snapshot = compile(startWord, snap);
+        }
+    }
+
+    /** 时间范围的起点 */
+    public long getHorizonStart() {
+        return currentSnapshot().startWord * 64 * MILLIS_IN_MINUTE;
+    }
+
+    /** 时间范围的终点(不含) */
+    public long getHorizonEnd() {
+        return currentSnapshot().endMinute() * MILLIS_IN_MINUTE;
+    }
+
+    /** 位图占用的字节数 */
+    public int getBitmapBytes() {
+        return words * 8;
+    }
+
+    /**
+     * 获取覆盖给定分钟的快照，需要时滚动范围
+     * 1. 范围之外的时间返回null，交给基础日历。
+     * 2. 查询的时间晚于范围末尾，且当前时间已越过范围起点至少1/8个范围时，将起点滚动到当前时间，
+     *    不会因为偶发的远期查询丢掉对当前时间的覆盖。
+     */
+    private Snapshot snapshotFor(long minute) {
+        Snapshot snap = currentSnapshot();
+        long word = minute >>> 6;
+        if (word < snap.startWord) {
+            return null;
+        }
+        if (word < snap.startWord + words) {
+            return snap;
+        }
+        long nowWord = (System.currentTimeMillis() / MILLIS_IN_MINUTE) >>> 6;
+        if (nowWord - snap.startWord < words / 8) {
+            return null;
+        }
+        synchronized (this) {
+            snap = snapshot;
+            if (nowWord - snap.startWord >= words / 8) {
+                snap = compile(nowWord, snap);
+                snapshot = snap;
+            }
+        }
+        return word < snap.startWord + words ? snap : null;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot snap = snapshot;
+        if (snap == null) {
+            synchronized (this) {
+                snap = snapshot;
+                if (snap == null) {
+                    rebuild();
+                    snap = snapshot;
+                }
+            }
+        }
+        return snap;
+    }
+
+    /** 编译从startWord开始的位图，与上一个快照重叠的部分直接复制 */
+    private Snapshot compile(long startWord, Snapshot prev) {
+        long[] bits = new long[words];
+        long compileFrom = startWord;
+        if (prev != null) {
+            long prevEnd = prev.startWord + words;
+            if (startWord < prevEnd && startWord >= prev.startWord) {
+                int offset = (int) (startWord - prev.startWord);
+                System.arraycopy(prev.bits, offset, bits, 0, words - offset);
+                compileFrom = prevEnd;
+            }
+        }
+        fill(bits, startWord, compileFrom, startWord + words);
+        return new Snapshot(startWord, bits);
+    }
+
+    /** 按基础日历链逐分钟编译[fromWord, toWord)，被排除的时间段通过getNextIncludedTime一次跳过 */
+    private void fill(long[] bits, long startWord, long fromWord, long toWord) {
+        Calendar base = getBaseCalendar();
+        long minute = Math.max(fromWord << 6, 1L);
+        long endMinute = toWord << 6;
+        while (minute < endMinute) {
+            long t = minute * MILLIS_IN_MINUTE;
+            if (base.isTimeIncluded(t)) {
+                long m = minute - (startWord << 6);
+                bits[(int) (m >>> 6)] |= 1L << m;
+                minute++;
+                continue;
+            }
+            long next = base.getNextIncludedTime(t);
+            if (next <= 0) {
+                break;
+            }
+            long nextMinute = (next + MILLIS_IN_MINUTE - 1) / MILLIS_IN_MINUTE;
+            minute = nextMinute > minute ? nextMinute : minute + 1;
+        }
+    }
+
+    @Override
+    public Object clone() {
+        BitmapCalendar clone = (BitmapCalendar) super.clone();
+        clone.snapshot = null;
+        return clone;
+    }
+
+    /** 不可变的位图快照 */
+    private static final class Snapshot {
+
+        /** 起点所在的字，即起点分钟数除以64 */
+        private final long startWord;
+
+        private final long[] bits;
+
+        Snapshot(long startWord, long[] bits) {
+            this.startWord = startWord;
+            this.bits = bits;
+        }
+
+        boolean isSet(long minute) {
+            long m = minute - (startWord << 6);
+            return (bits[(int) (m >>> 6)] & (1L << m)) != 0;
+        }
+
+        /** 从给定分钟开始第一个被包含的分钟，范围内没有时返回-1 */
+        long nextSetBit(long minute) {
+            long m = minute - (startWord << 6);
+            int i = (int) (m >>> 6);
+            if (i >= bits.length) {
+                return -1;
+            }
+            long word = bits[i] & (-1L << m);
+            while (true) {
+                if (word != 0) {
+                    return (startWord << 6) + ((long) i << 6) + Long.numberOfTrailingZeros(word);
+                }
+                if (++i == bits.length) {
+                    return -1;
+                }
+                word = bits[i];
+            }
+        }
+
+        long endMinute() {
+            return (startWord + bits.length) << 6;
+        }
+    }
+}
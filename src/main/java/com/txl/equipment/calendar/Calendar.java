@@ -22,7 +22,7 @@ public interface Calendar extends Serializable,Cloneable {
     /** 确定日历是否”包含“给定时间（以毫秒为单位） */
     boolean isTimeIncluded(long timeStamp);
 
-    /** 确定给定时间之后日历"包含"的下一个时间（以毫秒为单位） */
+    /** 确定给定时间之后日历"包含"的下一个时间（以毫秒为单位），给定时间被包含时返回其本身，之后不再包含任何时间时返回0 */
     long getNextIncludedTime(long timeStamp);
 
     /** 返回其创建者（如果有）给日历实例的描述,如果未设置描述，则为null。 */
@@ -0,0 +1,148 @@
+package com.txl.equipment.calendar;
+
+import java.util.StringTokenizer;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-04 11:30
+ * 日日历
+ * 1. 排除每天的一个时间段[开始, 结束]，如夜间的设备维护窗口；invertTimeRange为true时只包含该时间段。
+ * 2. 时间段以当天已过的毫秒数存放，查询的复杂度为O(1)。
+ */
+public class DailyCalendar extends BaseCalendar {
+
+    static final long serialVersionUID = -7561220099904944039L;
+
+    private static final String SEPARATOR = ":";
+
+    /** 时间段的开始，当天已过的毫秒数 */
+    private long rangeStartingMillis;
+    /** 时间段的结束，当天已过的毫秒数 */
+    private long rangeEndingMillis;
+    /** 是否反转时间段，即只包含时间段 */
+    private boolean invertTimeRange = false;
+
+    // 1. Constructor
+    /** 时间段的格式为 HH:MM[:SS[:mmm]] */
+    public DailyCalendar(String rangeStartingTime, String rangeEndingTime) {
+        this(null, null, rangeStartingTime, rangeEndingTime);
+    }
+
+    public DailyCalendar(Calendar baseCalendar, String rangeStartingTime, String rangeEndingTime) {
+        this(baseCalendar, null, rangeStartingTime, rangeEndingTime);
+    }
+
+    public DailyCalendar(Calendar baseCalendar, TimeZone timeZone, String rangeStartingTime, String rangeEndingTime) {
+        super(baseCalendar, timeZone);
+        setTimeRange(parseTime(rangeStartingTime), parseTime(rangeEndingTime));
+    }
+
+    public DailyCalendar(int rangeStartingHourOfDay, int rangeStartingMinute, int rangeStartingSecond, int rangeStartingMillis,
+                         int rangeEndingHourOfDay, int rangeEndingMinute, int rangeEndingSecond, int rangeEndingMillis) {
+        super();
+        setTimeRange(toMillisOfDay(rangeStartingHourOfDay, rangeStartingMinute, rangeStartingSecond, rangeStartingMillis),
+                toMillisOfDay(rangeEndingHourOfDay, rangeEndingMinute, rangeEndingSecond, rangeEndingMillis));
+    }
+
+    // 2. Implements
+    @Override
+    protected boolean isTimeIncludedByThis(long timeStamp) {
+        long millisOfDay = getMillisOfDay(timeStamp);
+        boolean inRange = millisOfDay >= rangeStartingMillis && millisOfDay <= rangeEndingMillis;
+        return inRange == invertTimeRange;
+    }
+
+    @Override
+    protected long getNextIncludedTimeByThis(long timeStamp) {
+        long millisOfDay = getMillisOfDay(timeStamp);
+        if (!invertTimeRange) {
+            if (millisOfDay < rangeStartingMillis || millisOfDay > rangeEndingMillis) {
+                return timeStamp;
+            }
+            if (rangeEndingMillis + 1 >= MILLIS_IN_DAY) {
+                // 排除到当天结束，包含的时间从次日开始(次日0点同样被排除时顺延到时间段之后)
+                long nextDay = getEpochDay(timeStamp) + 1;
+                return rangeStartingMillis == 0 ? 0 : getStartOfDay(nextDay);
+            }
+            return getLocalTime(getEpochDay(timeStamp), rangeEndingMillis + 1);
+        }
+
+        if (millisOfDay >= rangeStartingMillis && millisOfDay <= rangeEndingMillis) {
+            return timeStamp;
+        }
+        long day = getEpochDay(timeStamp);
+        if (millisOfDay > rangeEndingMillis) {
+            day++;
+        }
+        return getLocalTime(day, rangeStartingMillis);
+    }
+
+    /** 设置时间段 */
+    public void setTimeRange(long rangeStartingMillisOfDay, long rangeEndingMillisOfDay) {
+        if (rangeStartingMillisOfDay < 0 || rangeEndingMillisOfDay >= MILLIS_IN_DAY) {
+            throw new IllegalArgumentException("Time range must be within a day");
+        }
+        if (rangeStartingMillisOfDay >= rangeEndingMillisOfDay) {
+            throw new IllegalArgumentException("Invalid time range: " + rangeStartingMillisOfDay
+                    + " - " + rangeEndingMillisOfDay);
+        }
+        this.rangeStartingMillis = rangeStartingMillisOfDay;
+        this.rangeEndingMillis = rangeEndingMillisOfDay;
+    }
+
+    public long getRangeStartingMillisOfDay() {
+        return rangeStartingMillis;
+    }
+
+    public long getRangeEndingMillisOfDay() {
+        return rangeEndingMillis;
+    }
+
+    public boolean getInvertTimeRange() {
+        return invertTimeRange;
+    }
+
+    public void setInvertTimeRange(boolean flag) {
+        this.invertTimeRange = flag;
+    }
+
+    /** 解析 HH:MM[:SS[:mmm]] 为当天已过的毫秒数 */
+    private static long parseTime(String time) {
+        StringTokenizer tok = new StringTokenizer(time, SEPARATOR);
+        int count = tok.countTokens();
+        if (count < 2 || count > 4) {
+            throw new IllegalArgumentException("Invalid time string '" + time + "'");
+        }
+        int[] parts = new int[4];
+        for (int i = 0; i < count; i++) {
+            try {
+                parts[i] = Integer.parseInt(tok.nextToken());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid time string '" + time + "'", e);
+            }
+        }
+        return toMillisOfDay(parts[0], parts[1], parts[2], parts[3]);
+    }
+
+    private static long toMillisOfDay(int hourOfDay, int minute, int second, int millis) {
+        if (hourOfDay < 0 || hourOfDay > 23) {
+            throw new IllegalArgumentException("Invalid hour of day: " + hourOfDay);
+        }
+        if (minute < 0 || minute > 59) {
+            throw new IllegalArgumentException("Invalid minute: " + minute);
+        }
+        if (second < 0 || second > 59) {
+            throw new IllegalArgumentException("Invalid second: " + second);
+        }
+        if (millis < 0 || millis > 999) {
+            throw new IllegalArgumentException("Invalid millis: " + millis);
+        }
+        return ((hourOfDay * 60L + minute) * 60L + second) * 1000L + millis;
+    }
+
+    @Override
+    public String toString() {
+        return "DailyCalendar: " + rangeStartingMillis + " - " + rangeEndingMillis
+                + ", inverted: " + invertTimeRange;
+    }
+}
@@ -0,0 +1,106 @@
+package com.txl.equipment.calendar;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.SortedSet;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+/**
+ * Created by TangXiangLin on 2023-03-04 09:40
+ * 节假日日历
+ * 1. 排除指定的日期(整天)，日期以日历时区下的纪元日存放在有序的long数组中。
+ * 2. 查询时二分查找，复杂度为O(log n)；连续多天的假期在查找下一个被包含的时间时一次跳过。
+ */
+public class HolidayCalendar extends BaseCalendar {
+
+    static final long serialVersionUID = -7590908752291814693L;
+
+    /** 排除的纪元日，升序 */
+    private long[] excludedDays = new long[0];
+
+    // 1. Constructor
+    public HolidayCalendar() {
+    }
+
+    public HolidayCalendar(Calendar baseCalendar) {
+        super(baseCalendar);
+    }
+
+    public HolidayCalendar(TimeZone timeZone) {
+        super(timeZone);
+    }
+
+    public HolidayCalendar(Calendar baseCalendar, TimeZone timeZone) {
+        super(baseCalendar, timeZone);
+    }
+
+    // 2. Implements
+    @Override
+    protected boolean isTimeIncludedByThis(long timeStamp) {
+        return Arrays.binarySearch(excludedDays, getEpochDay(timeStamp)) < 0;
+    }
+
+    @Override
+    protected long getNextIncludedTimeByThis(long timeStamp) {
+        long day = getEpochDay(timeStamp);
+        int idx = Arrays.binarySearch(excludedDays, day);
+        if (idx < 0) {
+            return timeStamp;
+        }
+        while (idx + 1 < excludedDays.length && excludedDays[idx + 1] == day + 1) {
+            idx++;
+            day++;
+        }
+        return getStartOfDay(day + 1);
+    }
+
+    /** 排除给定时间所在的日期 */
+    public void addExcludedDate(Date excludedDate) {
+        long day = getEpochDay(excludedDate.getTime());
+        int idx = Arrays.binarySearch(excludedDays, day);
+        if (idx >= 0) {
+            return;
+        }
+        int pos = -idx - 1;
+        long[] days = new long[excludedDays.length + 1];
+        System.arraycopy(excludedDays, 0, days, 0, pos);
+        days[pos] = day;
+        System.arraycopy(excludedDays, pos, days, pos + 1, excludedDays.length - pos);
+        excludedDays = days;
+    }
+
+    /** 不再排除给定时间所在的日期 */
+    public void removeExcludedDate(Date dateToRemove) {
+        int idx = Arrays.binarySearch(excludedDays, getEpochDay(dateToRemove.getTime()));
+        if (idx < 0) {
+            return;
+        }
+        long[] days = new long[excludedDays.length - 1];
+        System.arraycopy(excludedDays, 0, days, 0, idx);
+        System.arraycopy(excludedDays, idx + 1, days, idx, excludedDays.length - idx - 1);
+        excludedDays = days;
+    }
+
+    /** 给定时间所在的日期是否被排除 */
+    public boolean isDateExcluded(Date date) {
+        return Arrays.binarySearch(excludedDays, getEpochDay(date.getTime())) >= 0;
+    }
+
+    /** 获取排除的日期，每个日期为日历时区下当天的开始时间 */
+    public SortedSet<Date> getExcludedDates() {
+        TreeSet<Date> dates = new TreeSet<Date>();
+        for (long day : excludedDays) {
+            dates.add(new Date(getStartOfDay(day)));
+        }
+        return Collections.unmodifiableSortedSet(dates);
+    }
+
+    @Override
+    public Object clone() {
+        HolidayCalendar clone = (HolidayCalendar) super.clone();
+        clone.excludedDays = excludedDays.clone();
+        return clone;
+    }
+}
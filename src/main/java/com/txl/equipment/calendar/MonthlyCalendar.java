@@ -0,0 +1,123 @@
+package com.txl.equipment.calendar;
+
+import java.time.LocalDate;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-04 10:30
+ * 月日历
+ * 1. 按每月的第几天排除整天，缺省不排除任何一天。
+ * 2. 排除的日期以位图存放(第n位为当月第n天)，查询的复杂度为O(1)，
+ *    查找下一个被包含的时间时在当月的位图上做位扫描，当月没有时最多再看一个月。
+ */
+public class MonthlyCalendar extends BaseCalendar {
+
+    static final long serialVersionUID = 419164961091807944L;
+
+    /** 所有日期的位图 */
+    private static final long ALL_DAYS = ((1L << 31) - 1L) << 1;
+
+    /** 排除的日期的位图 */
+    private long excludedDays = 0L;
+
+    // 1. Constructor
+    public MonthlyCalendar() {
+    }
+
+    public MonthlyCalendar(Calendar baseCalendar) {
+        super(baseCalendar);
+    }
+
+    public MonthlyCalendar(TimeZone timeZone) {
+        super(timeZone);
+    }
+
+    public MonthlyCalendar(Calendar baseCalendar, TimeZone timeZone) {
+        super(baseCalendar, timeZone);
+    }
+
+    // 2. Implements
+    @Override
+    protected boolean isTimeIncludedByThis(long timeStamp) {
+        int day = getLocalDate(getEpochDay(timeStamp)).getDayOfMonth();
+        return (excludedDays & (1L << day)) == 0;
+    }
+
+    @Override
+    protected long getNextIncludedTimeByThis(long timeStamp) {
+        if (areAllDaysExcluded()) {
+            return 0;
+        }
+        long epochDay = getEpochDay(timeStamp);
+        LocalDate date = getLocalDate(epochDay);
+        int day = date.getDayOfMonth();
+        if ((excludedDays & (1L << day)) == 0) {
+            return timeStamp;
+        }
+
+        // 当月余下的日期中找，找不到时从下个月1号开始找
+        long from = -1L << (day + 1);
+        for (int i = 0; i < 13; i++) {
+            int len = date.lengthOfMonth();
+            long included = ~excludedDays & (((1L << len) - 1L) << 1) & from;
+            if (included != 0L) {
+                return getStartOfDay(epochDay + Long.numberOfTrailingZeros(included) - day);
+            }
+            epochDay += len - day + 1;
+            date = date.withDayOfMonth(1).plusMonths(1);
+            day = 1;
+            from = -1L << 1;
+        }
+        return 0;
+    }
+
+    /** 当月第几天是否被排除 */
+    public boolean isDayExcluded(int day) {
+        if (day < 1 || day > 31) {
+            throw new IllegalArgumentException("The day parameter must be in the range of 1 to 31");
+        }
+        return (excludedDays & (1L << day)) != 0;
+    }
+
+    /** 设置当月第几天是否被排除 */
+    public void setDayExcluded(int day, boolean exclude) {
+        if (day < 1 || day > 31) {
+            throw new IllegalArgumentException("The day parameter must be in the range of 1 to 31");
+        }
+        if (exclude) {
+            excludedDays |= 1L << day;
+        } else {
+            excludedDays &= ~(1L << day);
+        }
+    }
+
+    /** 获取排除的日期，下标0为当月第1天 */
+    public boolean[] getDaysExcluded() {
+        boolean[] days = new boolean[31];
+        for (int i = 1; i <= 31; i++) {
+            days[i - 1] = isDayExcluded(i);
+        }
+        return days;
+    }
+
+    /** 设置排除的日期，下标0为当月第1天 */
+    public void setDaysExcluded(boolean[] days) {
+        if (days == null) {
+            throw new IllegalArgumentException("The days parameter cannot be null.");
+        }
+        if (days.length < 31) {
+            throw new IllegalArgumentException("The days parameter must have a length of at least 31 elements.");
+        }
+        excludedDays = 0L;
+        for (int i = 1; i <= 31; i++) {
+            if (days[i - 1]) {
+                excludedDays |= 1L << i;
+            }
+        }
+    }
+
+    /** 是否排除了所有日期 */
+    public boolean areAllDaysExcluded() {
+        return (excludedDays & ALL_DAYS) == ALL_DAYS;
+    }
+}
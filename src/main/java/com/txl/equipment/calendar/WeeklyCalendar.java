@@ -0,0 +1,105 @@
+package com.txl.equipment.calendar;
+
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-04 10:05
+ * 周日历
+ * 1. 按星期排除整天，缺省排除星期六和星期日。
+ * 2. 排除的星期以位图存放(第1位为星期日，与java.util.Calendar一致)，查询的复杂度为O(1)。
+ */
+public class WeeklyCalendar extends BaseCalendar {
+
+    static final long serialVersionUID = -6809298821229007586L;
+
+    /** 所有星期的位图 */
+    private static final int ALL_DAYS = 0xFE;
+
+    /** 排除的星期的位图 */
+    private int excludedDays;
+
+    // 1. Constructor
+    public WeeklyCalendar() {
+        this(null, null);
+    }
+
+    public WeeklyCalendar(Calendar baseCalendar) {
+        this(baseCalendar, null);
+    }
+
+    public WeeklyCalendar(TimeZone timeZone) {
+        this(null, timeZone);
+    }
+
+    public WeeklyCalendar(Calendar baseCalendar, TimeZone timeZone) {
+        super(baseCalendar, timeZone);
+        excludedDays = (1 << java.util.Calendar.SUNDAY) | (1 << java.util.Calendar.SATURDAY);
+    }
+
+    // 2. Implements
+    @Override
+    protected boolean isTimeIncludedByThis(long timeStamp) {
+        return (excludedDays & (1 << getDayOfWeek(getEpochDay(timeStamp)))) == 0;
+    }
+
+    @Override
+    protected long getNextIncludedTimeByThis(long timeStamp) {
+        if (areAllDaysExcluded()) {
+            return 0;
+        }
+        long day = getEpochDay(timeStamp);
+        int wday = getDayOfWeek(day);
+        if ((excludedDays & (1 << wday)) == 0) {
+            return timeStamp;
+        }
+        // 将位图平铺为两周，从明天开始找第一个未排除的星期
+        int included = ~excludedDays & ALL_DAYS;
+        int twoWeeks = included | (included << 7);
+        int ahead = Integer.numberOfTrailingZeros(twoWeeks >>> (wday + 1) << (wday + 1)) - wday;
+        return getStartOfDay(day + ahead);
+    }
+
+    /** 星期是否被排除，1为星期日 */
+    public boolean isDayExcluded(int wday) {
+        return (excludedDays & (1 << wday)) != 0;
+    }
+
+    /** 设置星期是否被排除，1为星期日 */
+    public void setDayExcluded(int wday, boolean exclude) {
+        if (wday < java.util.Calendar.SUNDAY || wday > java.util.Calendar.SATURDAY) {
+            throw new IllegalArgumentException("Day of week must be between 1 and 7");
+        }
+        if (exclude) {
+            excludedDays |= 1 << wday;
+        } else {
+            excludedDays &= ~(1 << wday);
+        }
+    }
+
+    /** 获取排除的星期，下标为星期(1为星期日) */
+    public boolean[] getDaysExcluded() {
+        boolean[] days = new boolean[8];
+        for (int i = java.util.Calendar.SUNDAY; i <= java.util.Calendar.SATURDAY; i++) {
+            days[i] = isDayExcluded(i);
+        }
+        return days;
+    }
+
+    /** 设置排除的星期，下标为星期(1为星期日) */
+    public void setDaysExcluded(boolean[] weekDays) {
+        if (weekDays == null) {
+            return;
+        }
+        excludedDays = 0;
+        for (int i = java.util.Calendar.SUNDAY; i <= java.util.Calendar.SATURDAY && i < weekDays.length; i++) {
+            if (weekDays[i]) {
+                excludedDays |= 1 << i;
+            }
+        }
+    }
+
+    /** 是否排除了所有星期 */
+    public boolean areAllDaysExcluded() {
+        return (excludedDays & ALL_DAYS) == ALL_DAYS;
+    }
+}
@@ -0,0 +1,323 @@
+package com.txl.equipment.codec;
+
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.job.Job;
+import com.txl.equipment.job.JobDataMap;
+import com.txl.equipment.job.JobDetailImpl;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.txl.equipment.codec.BinaryEncoder.*;
+import static com.txl.equipment.codec.BinaryJobCodec.*;
+
+/**
+ * Created by TangXiangLin on 2023-03-08 10:20
+ * 二进制解码器
+ * 1. 从ByteBuffer解码，堆内的buffer直接在底层数组上构造字符串。
+ * 2. 字符串表在resetStrings之间保留，与编码器一致；作业任务类按类名缓存。
+ * 3. 数据不完整或格式错误时抛出运行时异常，由调用方包装为JobPersistenceException。
+ * 4. 实现不要求线程安全。
+ */
+final class BinaryDecoder {
+
+    private final ClassLoader classLoader;
+
+    private final List<String> strings = new ArrayList<String>();
+
+    private final Map<String, Class<? extends Job>> jobClasses = new HashMap<String, Class<? extends Job>>();
+
+    private byte[] scratch = new byte[64];
+
+    private ByteBuffer in;
+
+    BinaryDecoder(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    void resetStrings() {
+        strings.clear();
+    }
+
+    /** 解码 [类型][内容] */
+    Object readRecord(ByteBuffer in) throws JobPersistenceException {
+        this.in = in;
+        try {
+            int tag = readByte();
+            switch (tag) {
+                case TAG_JOB_DETAIL:
+                    return readJobDetail();
+                case TAG_SIMPLE_TRIGGER:
+                    return readSimpleTrigger();
+                case TAG_JOB_DATA_MAP:
+                    return readJobDataMap();
+                default:
+                    throw new JobPersistenceException("Unknown record type: " + tag);
+            }
+        } finally {
+            this.in = null;
+        }
+    }
+
+    private JobDetailImpl readJobDetail() throws JobPersistenceException {
+        int flags = readVarInt();
+        JobDetailImpl job = new JobDetailImpl();
+        job.setName(readString());
+        job.setGroup(readInterned());
+        job.setJobClass(loadJobClass(readInterned()));
+        job.setDurability((flags & JOB_DURABLE) != 0);
+        job.setRequestsRecovery((flags & JOB_REQUESTS_RECOVERY) != 0);
+        if ((flags & JOB_HAS_DESCRIPTION) != 0) {
+            job.setDescription(readString());
+        }
+        if ((flags & JOB_HAS_DATA) != 0) {
+            job.setJobDataMap(readJobDataMap());
+        }
+        return job;
+    }
+
+    private SimpleTriggerImpl readSimpleTrigger() throws JobPersistenceException {
+        int flags = readVarInt();
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setName(readString());
+        trigger.setGroup(readInterned());
+        if ((flags & TRIGGER_HAS_JOB) != 0) {
+            trigger.setJobName(readString());
+            trigger.setJobGroup(readInterned());
+        }
+        if ((flags & TRIGGER_HAS_DESCRIPTION) != 0) {
+            trigger.setDescription(readString());
+        }
+        if ((flags & TRIGGER_HAS_CALENDAR) != 0) {
+            trigger.setCalendarName(readInterned());
+        }
+        if ((flags & TRIGGER_HAS_FIRE_INSTANCE_ID) != 0) {
+            trigger.setFireInstanceId(readString());
+        }
+        trigger.setMisfireInstruction(readSignedVarInt());
+        trigger.setPriority(readSignedVarInt());
+        long base = 0L;
+        if ((flags & TRIGGER_HAS_START) != 0) {
+            base = readSignedVarLong();
+            trigger.setStartTime(new Date(base));
+        }
+        if ((flags & TRIGGER_HAS_END) != 0) {
+            trigger.setEndTime(new Date(base + readSignedVarLong()));
+        }
+        if ((flags & TRIGGER_HAS_NEXT) != 0) {
+            trigger.setNextFireTimeMillis(base + readSignedVarLong());
+        }
+        if ((flags & TRIGGER_HAS_PREVIOUS) != 0) {
+            trigger.setPreviousFireTimeMillis(base + readSignedVarLong());
+        }
+        trigger.setRepeatCount(readSignedVarInt());
+        trigger.setRepeatInterval(readVarLong());
+        trigger.setTimesTriggered(readVarInt());
+        if ((flags & TRIGGER_HAS_DATA) != 0) {
+            trigger.setJobDataMap(readJobDataMap());
+        }
+        return trigger;
+    }
+
+    /** 原始类型直接放入对应的槽位，不装箱；解码后的map不带脏污标识 */
+    private JobDataMap readJobDataMap() throws JobPersistenceException {
+        int count = readVarInt();
+        JobDataMap data = new JobDataMap();
+        for (int i = 0; i < count; i++) {
+            String key = readInterned();
+            int tag = readByte();
+            boolean asString = (tag & VALUE_AS_STRING) != 0;
+            switch (tag & ~VALUE_AS_STRING) {
+                case VALUE_NULL:
+                    data.put(key, (Object) null);
+                    break;
+                case VALUE_STRING:
+                    data.put(key, readString());
+                    break;
+                case VALUE_INT:
+                    if (asString) {
+                        data.putAsString(key, readSignedVarInt());
+                    } else {
+                        data.put(key, readSignedVarInt());
+                    }
+                    break;
+                case VALUE_LONG:
+                    if (asString) {
+                        data.putAsString(key, readSignedVarLong());
+                    } else {
+                        data.put(key, readSignedVarLong());
+                    }
+                    break;
+                case VALUE_FLOAT:
+                    if (asString) {
+                        data.putAsString(key, Float.intBitsToFloat(readFixedInt()));
+                    } else {
+                        data.put(key, Float.intBitsToFloat(readFixedInt()));
+                    }
+                    break;
+                case VALUE_DOUBLE:
+                    if (asString) {
+                        data.putAsString(key, Double.longBitsToDouble(readFixedLong()));
+                    } else {
+                        data.put(key, Double.longBitsToDouble(readFixedLong()));
+                    }
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    if (asString) {
+                        data.putAsString(key, (tag & ~VALUE_AS_STRING) == VALUE_TRUE);
+                    } else {
+                        data.put(key, (tag & ~VALUE_AS_STRING) == VALUE_TRUE);
+                    }
+                    break;
+                case VALUE_CHAR:
+                    if (asString) {
+                        data.putAsString(key, (char) readVarInt());
+                    } else {
+                        data.put(key, (char) readVarInt());
+                    }
+                    break;
+                case VALUE_SERIALIZED:
+                    data.put(key, deserialize(key));
+                    break;
+                default:
+                    throw new JobPersistenceException("Unknown value type " + tag + " for job data '" + key + "'");
+            }
+        }
+        data.clearDirtyFlag();
+        return data;
+    }
+
+    private Object deserialize(String key) throws JobPersistenceException {
+        int length = readVarInt();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                    try {
+                        return Class.forName(desc.getName(), false, classLoader);
+                    } catch (ClassNotFoundException e) {
+                        return super.resolveClass(desc);
+                    }
+                }
+            };
+            return ois.readObject();
+        } catch (IOException e) {
+            throw new JobPersistenceException("Unable to deserialize job data value '" + key + "'", e);
+        } catch (ClassNotFoundException e) {
+            throw new JobPersistenceException("Unable to deserialize job data value '" + key + "'", e);
+        }
+    }
+
+    private Class<? extends Job> loadJobClass(String name) throws JobPersistenceException {
+        Class<? extends Job> jobClass = jobClasses.get(name);
+        if (jobClass == null) {
+            try {
+                jobClass = Class.forName(name, false, classLoader).asSubclass(Job.class);
+            } catch (ClassNotFoundException e) {
+                throw new JobPersistenceException("Job class not found: " + name, e);
+            } catch (ClassCastException e) {
+                throw new JobPersistenceException("Class does not implement Job: " + name, e);
+            }
+            jobClasses.put(name, jobClass);
+        }
+        return jobClass;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Primitives.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private int readByte() {
+        return in.get() & 0xFF;
+    }
+
+    private int readVarInt() {
+        int b = in.get();
+        if (b >= 0) {
+            return b;
+        }
+        int v = b & 0x7F;
+        for (int shift = 7; shift < 35; shift += 7) {
+            b = in.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    private long readVarLong() {
+        long v = 0L;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalStateException("Malformed varlong");
+    }
+
+    private int readSignedVarInt() {
+        int v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private long readSignedVarLong() {
+        long v = readVarLong();
+        return (v >>> 1) ^ -(v & 1L);
+    }
+
+    private int readFixedInt() {
+        return (in.get() & 0xFF) | (in.get() & 0xFF) << 8 | (in.get() & 0xFF) << 16 | (in.get() & 0xFF) << 24;
+    }
+
+    private long readFixedLong() {
+        return (readFixedInt() & 0xFFFFFFFFL) | (long) readFixedInt() << 32;
+    }
+
+    private String readString() {
+        int length = readVarInt();
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalStateException("Malformed string length: " + length);
+        }
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            s = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private String readInterned() {
+        int id = readVarInt();
+        if (id != 0) {
+            return strings.get(id - 1);
+        }
+        String s = readString();
+        if (strings.size() < MAX_INTERNED_STRINGS) {
+            strings.add(s);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,430 @@
+package com.txl.equipment.codec;
+
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.job.JobDataMap;
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.key.TypedValueMap;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.txl.equipment.codec.BinaryJobCodec.*;
+
+/**
+ * Created by TangXiangLin on 2023-03-08 09:40
+ * 二进制编码器
+ * 1. 编码到可增长的字节数组，字符串表在reset之间保留，流接口借此在多条记录之间共用字符串表。
+ * 2. 记录编码失败时撤销本条记录加入字符串表的字符串，保证与解码端一致。
+ * 3. 实现不要求线程安全。
+ */
+final class BinaryEncoder {
+
+    /** 编码大记录后保留的缓冲区上限，超过时缩回初始大小 */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    // 作业任务的标志位
+    static final int JOB_DURABLE = 1;
+    static final int JOB_REQUESTS_RECOVERY = 1 << 1;
+    static final int JOB_HAS_DESCRIPTION = 1 << 2;
+    static final int JOB_HAS_DATA = 1 << 3;
+
+    // 触发器的标志位
+    static final int TRIGGER_HAS_JOB = 1;
+    static final int TRIGGER_HAS_DESCRIPTION = 1 << 1;
+    static final int TRIGGER_HAS_CALENDAR = 1 << 2;
+    static final int TRIGGER_HAS_FIRE_INSTANCE_ID = 1 << 3;
+    static final int TRIGGER_HAS_DATA = 1 << 4;
+    static final int TRIGGER_HAS_START = 1 << 5;
+    static final int TRIGGER_HAS_END = 1 << 6;
+    static final int TRIGGER_HAS_NEXT = 1 << 7;
+    static final int TRIGGER_HAS_PREVIOUS = 1 << 8;
+
+    private final int initialCapacity;
+
+    private byte[] buf;
+
+    private int pos;
+
+    /** 字符串表，值为编号 */
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    /** 按编号排列的字符串，用于撤销 */
+    private final List<String> stringOrder = new ArrayList<String>();
+
+    BinaryEncoder(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buf = new byte[initialCapacity];
+    }
+
+    /** 从给定位置开始写，保留字符串表 */
+    void reset(int start) {
+        if (buf.length > MAX_RETAINED_CAPACITY) {
+            buf = new byte[Math.max(initialCapacity, start)];
+        }
+        ensure(start);
+        pos = start;
+    }
+
+    void resetStrings() {
+        strings.clear();
+        stringOrder.clear();
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    int position() {
+        return pos;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Records.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /** 写出 [类型][内容]，失败时撤销加入字符串表的字符串 */
+    void writeRecord(Object record) throws JobPersistenceException {
+        int mark = stringOrder.size();
+        try {
+            if (record instanceof JobDetail) {
+                writeByte(TAG_JOB_DETAIL);
+                writeJobDetail((JobDetail) record);
+            } else if (record instanceof SimpleTriggerImpl) {
+                writeByte(TAG_SIMPLE_TRIGGER);
+                writeSimpleTrigger((SimpleTriggerImpl) record);
+            } else if (record instanceof JobDataMap) {
+                writeByte(TAG_JOB_DATA_MAP);
+                writeJobDataMap((JobDataMap) record);
+            } else {
+                throw new JobPersistenceException("Unsupported record type: "
+                        + (record == null ? "null" : record.getClass().getName()));
+            }
+        } catch (JobPersistenceException e) {
+            rollbackStrings(mark);
+            throw e;
+        } catch (RuntimeException e) {
+            rollbackStrings(mark);
+            throw e;
+        }
+    }
+
+    private void writeJobDetail(JobDetail job) throws JobPersistenceException {
+        JobDataMap data = job.getJobDataMap();
+        boolean hasData = data != null && !data.isEmpty();
+        int flags = 0;
+        if (job.isDurable()) {
+            flags |= JOB_DURABLE;
+        }
+        if (job.requestsRecovery()) {
+            flags |= JOB_REQUESTS_RECOVERY;
+        }
+        if (job.getDescription() != null) {
+            flags |= JOB_HAS_DESCRIPTION;
+        }
+        if (hasData) {
+            flags |= JOB_HAS_DATA;
+        }
+        writeVarInt(flags);
+        writeString(job.getKey().getName());
+        writeInterned(job.getKey().getGroup());
+        writeInterned(job.getJobClass().getName());
+        if (job.getDescription() != null) {
+            writeString(job.getDescription());
+        }
+        if (hasData) {
+            writeJobDataMap(data);
+        }
+    }
+
+    private void writeSimpleTrigger(SimpleTriggerImpl trigger) throws JobPersistenceException {
+        JobDataMap data = trigger.getJobDataMap();
+        boolean hasData = data != null && !data.isEmpty();
+        Date start = trigger.getStartTime();
+        Date end = trigger.getEndTime();
+        long next = trigger.getNextFireTimeMillis();
+        long previous = trigger.getPreviousFireTimeMillis();
+        int flags = 0;
+        if (trigger.getJobName() != null) {
+            flags |= TRIGGER_HAS_JOB;
+        }
+        if (trigger.getDescription() != null) {
+            flags |= TRIGGER_HAS_DESCRIPTION;
+        }
+        if (trigger.getCalendarName() != null) {
+            flags |= TRIGGER_HAS_CALENDAR;
+        }
+        if (trigger.getFireInstanceId() != null) {
+            flags |= TRIGGER_HAS_FIRE_INSTANCE_ID;
+        }
+        if (hasData) {
+            flags |= TRIGGER_HAS_DATA;
+        }
+        if (start != null) {
+            flags |= TRIGGER_HAS_START;
+        }
+        if (end != null) {
+            flags |= TRIGGER_HAS_END;
+        }
+        if (next != OperableTrigger.NO_FIRE_TIME) {
+            flags |= TRIGGER_HAS_NEXT;
+        }
+        if (previous != OperableTrigger.NO_FIRE_TIME) {
+            flags |= TRIGGER_HAS_PREVIOUS;
+        }
+        writeVarInt(flags);
+        writeString(trigger.getName());
+        writeInterned(trigger.getGroup());
+        if (trigger.getJobName() != null) {
+            writeString(trigger.getJobName());
+            writeInterned(trigger.getJobGroup());
+        }
+        if (trigger.getDescription() != null) {
+            writeString(trigger.getDescription());
+        }
+        if (trigger.getCalendarName() != null) {
+            writeInterned(trigger.getCalendarName());
+        }
+        if (trigger.getFireInstanceId() != null) {
+            writeString(trigger.getFireInstanceId());
+        }
+        writeSignedVarInt(trigger.getMisfireInstruction());
+        writeSignedVarInt(trigger.getPriority());
+        // 其它时间以开始时间为基准写差值
+        long base = 0L;
+        if (start != null) {
+            base = start.getTime();
+            writeSignedVarLong(base);
+        }
+        if (end != null) {
+            writeSignedVarLong(end.getTime() - base);
+        }
+        if (next != OperableTrigger.NO_FIRE_TIME) {
+            writeSignedVarLong(next - base);
+        }
+        if (previous != OperableTrigger.NO_FIRE_TIME) {
+            writeSignedVarLong(previous - base);
+        }
+        writeSignedVarInt(trigger.getRepeatCount());
+        writeVarLong(trigger.getRepeatInterval());
+        writeVarInt(trigger.getTimesTriggered());
+        if (hasData) {
+            writeJobDataMap(data);
+        }
+    }
+
+    /** [个数]，之后每项为 [参数名][值类型][值] */
+    private void writeJobDataMap(JobDataMap data) throws JobPersistenceException {
+        Map<String, Object> wrapped = data.getWrappedMap();
+        writeVarInt(wrapped.size());
+        if (wrapped instanceof TypedValueMap) {
+            TypedValueMap values = (TypedValueMap) wrapped;
+            for (int i = 0; i < values.size(); i++) {
+                writeInterned(values.keyAt(i));
+                int kind = values.kindAt(i);
+                if (kind == TypedValueMap.OBJECT) {
+                    writeValue(values.keyAt(i), values.valueAt(i));
+                } else {
+                    writeRaw(kind, values.rawAt(i));
+                }
+            }
+            return;
+        }
+        // 反序列化自旧版本的map
+        for (Map.Entry<String, Object> entry : wrapped.entrySet()) {
+            writeInterned(entry.getKey());
+            writeValue(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void writeRaw(int kind, long raw) {
+        int asString = (kind & TypedValueMap.AS_STRING) != 0 ? VALUE_AS_STRING : 0;
+        switch (kind & ~TypedValueMap.AS_STRING) {
+            case TypedValueMap.INT:
+                writeByte(VALUE_INT | asString);
+                writeSignedVarInt((int) raw);
+                break;
+            case TypedValueMap.LONG:
+                writeByte(VALUE_LONG | asString);
+                writeSignedVarLong(raw);
+                break;
+            case TypedValueMap.FLOAT:
+                writeByte(VALUE_FLOAT | asString);
+                writeFixedInt((int) raw);
+                break;
+            case TypedValueMap.DOUBLE:
+                writeByte(VALUE_DOUBLE | asString);
+                writeFixedLong(raw);
+                break;
+            case TypedValueMap.BOOLEAN:
+                writeByte((raw != 0L ? VALUE_TRUE : VALUE_FALSE) | asString);
+                break;
+            case TypedValueMap.CHAR:
+                writeByte(VALUE_CHAR | asString);
+                writeVarInt((int) raw);
+                break;
+            default:
+                throw new IllegalStateException("Unknown kind: " + kind);
+        }
+    }
+
+    private void writeValue(String key, Object value) throws JobPersistenceException {
+        if (value == null) {
+            writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            writeByte(VALUE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            writeByte(VALUE_INT);
+            writeSignedVarInt(((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            writeByte(VALUE_LONG);
+            writeSignedVarLong(((Long) value).longValue());
+        } else if (value instanceof Float) {
+            writeByte(VALUE_FLOAT);
+            writeFixedInt(Float.floatToRawIntBits(((Float) value).floatValue()));
+        } else if (value instanceof Double) {
+            writeByte(VALUE_DOUBLE);
+            writeFixedLong(Double.doubleToRawLongBits(((Double) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            writeByte(((Boolean) value).booleanValue() ? VALUE_TRUE : VALUE_FALSE);
+        } else if (value instanceof Character) {
+            writeByte(VALUE_CHAR);
+            writeVarInt(((Character) value).charValue());
+        } else if (value instanceof Serializable) {
+            byte[] bytes = serialize(key, value);
+            writeByte(VALUE_SERIALIZED);
+            writeVarInt(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        } else {
+            throw new JobPersistenceException("Job data value '" + key + "' of type "
+                    + value.getClass().getName() + " is not serializable");
+        }
+    }
+
+    private static byte[] serialize(String key, Object value) throws JobPersistenceException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new JobPersistenceException("Unable to serialize job data value '" + key + "'", e);
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Primitives.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    void writeByte(int b) {
+        ensure(pos + 1);
+        buf[pos++] = (byte) b;
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(pos + length);
+        System.arraycopy(bytes, offset, buf, pos, length);
+        pos += length;
+    }
+
+    /** 无符号varint，每字节7位，高位为1表示后面还有 */
+    void writeVarInt(int v) {
+        ensure(pos + 5);
+        while ((v & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    void writeVarLong(long v) {
+        ensure(pos + 10);
+        while ((v & ~0x7FL) != 0L) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    /** zigzag编码后写varint，绝对值小的负数也只占少量字节 */
+    void writeSignedVarInt(int v) {
+        writeVarInt((v << 1) ^ (v >> 31));
+    }
+
+    void writeSignedVarLong(long v) {
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+
+    void writeFixedInt(int v) {
+        ensure(pos + 4);
+        buf[pos++] = (byte) v;
+        buf[pos++] = (byte) (v >>> 8);
+        buf[pos++] = (byte) (v >>> 16);
+        buf[pos++] = (byte) (v >>> 24);
+    }
+
+    void writeFixedLong(long v) {
+        writeFixedInt((int) v);
+        writeFixedInt((int) (v >>> 32));
+    }
+
+    /** [字节数][UTF-8]，ASCII字符串直接逐字符写出，不创建字节数组 */
+    void writeString(String s) {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(i) >= 0x80) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+                return;
+            }
+        }
+        writeVarInt(len);
+        ensure(pos + len);
+        for (int i = 0; i < len; i++) {
+            buf[pos++] = (byte) s.charAt(i);
+        }
+    }
+
+    /** 驻留的字符串：已在字符串表中时写[编号+1]，否则写[0][字符串]并加入字符串表 */
+    void writeInterned(String s) {
+        Integer id = strings.get(s);
+        if (id != null) {
+            writeVarInt(id.intValue() + 1);
+            return;
+        }
+        writeVarInt(0);
+        writeString(s);
+        if (stringOrder.size() < MAX_INTERNED_STRINGS) {
+            strings.put(s, Integer.valueOf(stringOrder.size()));
+            stringOrder.add(s);
+        }
+    }
+
+    private void rollbackStrings(int mark) {
+        for (int i = stringOrder.size() - 1; i >= mark; i--) {
+            strings.remove(stringOrder.remove(i));
+        }
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length * 2));
+        }
+    }
+}
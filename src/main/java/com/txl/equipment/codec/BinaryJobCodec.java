@@ -0,0 +1,164 @@
+package com.txl.equipment.codec;
+
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.job.JobDataMap;
+import com.txl.equipment.job.JobDetailImpl;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by TangXiangLin on 2023-03-08 09:30
+ * 作业任务、触发器及任务参数的二进制编解码
+ * 1. 支持JobDetailImpl、SimpleTriggerImpl、JobDataMap，用于持久化或复制作业存储，比Java默认的序列化更小更快。
+ * 2. 整数以varint编码(有符号数先做zigzag)，时间以开始时间为基准编码差值，可选字段由标志位表示是否存在。
+ * 3. 组名、作业任务类名、日历名、参数名在同一个字符串表中驻留：首次出现时写出字符串并编号，之后只写编号。
+ * 4. 任务参数的值带类型标签，原始类型按原始值编码，以字符串形式放入的值带AS_STRING标志，其它对象使用Java序列化。
+ * 5. ByteBuffer接口：每条记录为 [版本][类型][内容]，字符串表只在记录内有效，记录可以单独解码。
+ * 6. 流接口：流头为 [魔数][版本]，之后每条记录为 [长度][类型][内容]，字符串表在整个流内有效，需按顺序读取。
+ * 7. 实例可以在多个线程中共用，编解码的缓冲区按线程缓存。
+ */
+public class BinaryJobCodec {
+
+    /** 格式版本 */
+    public static final int VERSION = 1;
+
+    /** 流头的魔数 "EQJB" */
+    static final int MAGIC = 0x45514A42;
+
+    // 记录类型
+    static final int TAG_JOB_DETAIL = 1;
+    static final int TAG_SIMPLE_TRIGGER = 2;
+    static final int TAG_JOB_DATA_MAP = 3;
+
+    // 参数值的类型
+    static final int VALUE_NULL = 0;
+    static final int VALUE_STRING = 1;
+    static final int VALUE_INT = 2;
+    static final int VALUE_LONG = 3;
+    static final int VALUE_FLOAT = 4;
+    static final int VALUE_DOUBLE = 5;
+    static final int VALUE_TRUE = 6;
+    static final int VALUE_FALSE = 7;
+    static final int VALUE_CHAR = 8;
+    static final int VALUE_SERIALIZED = 9;
+    /** 以字符串形式放入的原始类型 */
+    static final int VALUE_AS_STRING = 0x10;
+
+    /** 字符串表的最大长度，超过后不再驻留 */
+    static final int MAX_INTERNED_STRINGS = 1 << 16;
+
+    /** 流中单条记录的最大长度 */
+    static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+    private final ClassLoader classLoader;
+
+    private final ThreadLocal<BinaryEncoder> encoders = new ThreadLocal<BinaryEncoder>() {
+        @Override
+        protected BinaryEncoder initialValue() {
+            return new BinaryEncoder(256);
+        }
+    };
+
+    private final ThreadLocal<BinaryDecoder> decoders = new ThreadLocal<BinaryDecoder>() {
+        @Override
+        protected BinaryDecoder initialValue() {
+            return new BinaryDecoder(classLoader);
+        }
+    };
+
+    // 1. Constructor
+    public BinaryJobCodec() {
+        this(defaultClassLoader());
+    }
+
+    /** 解码作业任务时通过给定的类加载器加载作业任务类 */
+    public BinaryJobCodec(ClassLoader classLoader) {
+        if (classLoader == null) {
+            throw new IllegalArgumentException("ClassLoader cannot be null");
+        }
+        this.classLoader = classLoader;
+    }
+
+    // 2. ByteBuffer
+    /** 编码为新的ByteBuffer，返回的buffer可以直接读取 */
+    public ByteBuffer encode(Object record) throws JobPersistenceException {
+        BinaryEncoder encoder = encodeRecord(record);
+        ByteBuffer buffer = ByteBuffer.allocate(encoder.position());
+        buffer.put(encoder.buffer(), 0, encoder.position());
+        buffer.flip();
+        return buffer;
+    }
+
+    /** 编码到给定的ByteBuffer，剩余空间不足时抛出BufferOverflowException，buffer不被修改 */
+    public void encode(Object record, ByteBuffer out) throws JobPersistenceException {
+        BinaryEncoder encoder = encodeRecord(record);
+        if (out.remaining() < encoder.position()) {
+            throw new BufferOverflowException();
+        }
+        out.put(encoder.buffer(), 0, encoder.position());
+    }
+
+    /** 解码一条记录，返回JobDetailImpl、SimpleTriggerImpl或JobDataMap */
+    public Object decode(ByteBuffer in) throws JobPersistenceException {
+        BinaryDecoder decoder = decoders.get();
+        decoder.resetStrings();
+        try {
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new JobPersistenceException("Unsupported codec version: " + version);
+            }
+            return decoder.readRecord(in);
+        } catch (RuntimeException e) {
+            throw new JobPersistenceException("Corrupt record", e);
+        }
+    }
+
+    public JobDetailImpl decodeJobDetail(ByteBuffer in) throws JobPersistenceException {
+        return expect(decode(in), JobDetailImpl.class);
+    }
+
+    public SimpleTriggerImpl decodeSimpleTrigger(ByteBuffer in) throws JobPersistenceException {
+        return expect(decode(in), SimpleTriggerImpl.class);
+    }
+
+    public JobDataMap decodeJobDataMap(ByteBuffer in) throws JobPersistenceException {
+        return expect(decode(in), JobDataMap.class);
+    }
+
+    // 3. Stream
+    /** 创建写入给定输出流的记录流，写出流头 */
+    public JobRecordOutputStream newOutputStream(OutputStream out) throws JobPersistenceException {
+        return new JobRecordOutputStream(out);
+    }
+
+    /** 创建读取给定输入流的记录流，读取并校验流头 */
+    public JobRecordInputStream newInputStream(InputStream in) throws JobPersistenceException {
+        return new JobRecordInputStream(in, classLoader);
+    }
+
+    private BinaryEncoder encodeRecord(Object record) throws JobPersistenceException {
+        BinaryEncoder encoder = encoders.get();
+        encoder.reset(0);
+        encoder.resetStrings();
+        encoder.writeByte(VERSION);
+        encoder.writeRecord(record);
+        return encoder;
+    }
+
+    private static <T> T expect(Object record, Class<T> type) throws JobPersistenceException {
+        if (!type.isInstance(record)) {
+            throw new JobPersistenceException("Expected " + type.getSimpleName() + " but found "
+                    + record.getClass().getSimpleName());
+        }
+        return type.cast(record);
+    }
+
+    private static ClassLoader defaultClassLoader() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader != null ? loader : BinaryJobCodec.class.getClassLoader();
+    }
+}
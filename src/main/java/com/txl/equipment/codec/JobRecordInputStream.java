@@ -0,0 +1,116 @@
+package com.txl.equipment.codec;
+
+import com.txl.equipment.exception.JobPersistenceException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by TangXiangLin on 2023-03-08 11:10
+ * 二进制记录输入流
+ * 1. 创建时读取并校验流头，之后按顺序读取JobRecordOutputStream写出的记录。
+ * 2. 每条记录先整体读入可复用的缓冲区再解码，流结束时返回null，记录不完整时抛出异常。
+ * 3. 不做缓冲，需要时由调用方包装BufferedInputStream；实现不要求线程安全。
+ */
+public class JobRecordInputStream implements Closeable {
+
+    private final InputStream in;
+
+    private final BinaryDecoder decoder;
+
+    private byte[] buf = new byte[256];
+
+    private long recordCount;
+
+    JobRecordInputStream(InputStream in, ClassLoader classLoader) throws JobPersistenceException {
+        this.in = in;
+        this.decoder = new BinaryDecoder(classLoader);
+        byte[] header = new byte[5];
+        try {
+            readFully(header, 5);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Unable to read record stream header", e);
+        }
+        int magic = (header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16 | (header[2] & 0xFF) << 8 | (header[3] & 0xFF);
+        if (magic != BinaryJobCodec.MAGIC) {
+            throw new JobPersistenceException("Not a job record stream");
+        }
+        if ((header[4] & 0xFF) != BinaryJobCodec.VERSION) {
+            throw new JobPersistenceException("Unsupported codec version: " + (header[4] & 0xFF));
+        }
+    }
+
+    /** 读取下一条记录，流结束时返回null */
+    public Object readRecord() throws JobPersistenceException {
+        int length;
+        try {
+            length = readLength();
+            if (length < 0) {
+                return null;
+            }
+            if (length > BinaryJobCodec.MAX_RECORD_LENGTH) {
+                throw new JobPersistenceException("Record too large: " + length);
+            }
+            if (buf.length < length) {
+                buf = new byte[Math.max(length, buf.length * 2)];
+            }
+            readFully(buf, length);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Unable to read record " + recordCount, e);
+        }
+        Object record;
+        try {
+            record = decoder.readRecord(ByteBuffer.wrap(buf, 0, length));
+        } catch (RuntimeException e) {
+            throw new JobPersistenceException("Corrupt record " + recordCount, e);
+        }
+        recordCount++;
+        return record;
+    }
+
+    /** 已读取的记录数 */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /** 读取varint长度前缀，流在记录边界结束时返回-1 */
+    private int readLength() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            return -1;
+        }
+        int v = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            if (shift >= 35) {
+                throw new IOException("Malformed record length");
+            }
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated record length");
+            }
+            v |= (b & 0x7F) << shift;
+        }
+        if (v < 0) {
+            throw new IOException("Malformed record length");
+        }
+        return v;
+    }
+
+    private void readFully(byte[] b, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int r = in.read(b, n, length - n);
+            if (r < 0) {
+                throw new EOFException("Truncated record: expected " + length + " bytes, got " + n);
+            }
+            n += r;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.txl.equipment.codec;
+
+import com.txl.equipment.exception.JobPersistenceException;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Created by TangXiangLin on 2023-03-08 10:50
+ * 二进制记录输出流
+ * 1. 创建时写出流头 [魔数][版本]，之后每条记录写为 [长度][类型][内容]，每条记录只调用一次底层流的write。
+ * 2. 字符串表在整个流内有效，重复出现的组名、类名、参数名只写编号。
+ * 3. 不做缓冲，需要时由调用方包装BufferedOutputStream；实现不要求线程安全。
+ */
+public class JobRecordOutputStream implements Closeable, Flushable {
+
+    /** varint长度前缀的最大字节数 */
+    private static final int LENGTH_PREFIX = 5;
+
+    private final OutputStream out;
+
+    private final BinaryEncoder encoder = new BinaryEncoder(256);
+
+    private long recordCount;
+
+    JobRecordOutputStream(OutputStream out) throws JobPersistenceException {
+        this.out = out;
+        byte[] header = new byte[5];
+        header[0] = (byte) (BinaryJobCodec.MAGIC >>> 24);
+        header[1] = (byte) (BinaryJobCodec.MAGIC >>> 16);
+        header[2] = (byte) (BinaryJobCodec.MAGIC >>> 8);
+        header[3] = (byte) BinaryJobCodec.MAGIC;
+        header[4] = (byte) BinaryJobCodec.VERSION;
+        try {
+            out.write(header);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Unable to write record stream header", e);
+        }
+    }
+
+    /** 写出一条记录：JobDetail、SimpleTriggerImpl或JobDataMap */
+    public void writeRecord(Object record) throws JobPersistenceException {
+        // 内容从LENGTH_PREFIX开始写，长度前缀回填在内容之前
+        encoder.reset(LENGTH_PREFIX);
+        encoder.writeRecord(record);
+        int length = encoder.position() - LENGTH_PREFIX;
+        byte[] buf = encoder.buffer();
+        int start = LENGTH_PREFIX - varIntSize(length);
+        int p = start;
+        int v = length;
+        while ((v & ~0x7F) != 0) {
+            buf[p++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[p] = (byte) v;
+        try {
+            out.write(buf, start, encoder.position() - start);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Unable to write record", e);
+        }
+        recordCount++;
+    }
+
+    /** 已写出的记录数 */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static int varIntSize(int v) {
+        int size = 1;
+        while ((v & ~0x7F) != 0) {
+            v >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
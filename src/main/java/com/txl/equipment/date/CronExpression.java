@@ -0,0 +1,873 @@
+package com.txl.equipment.date;
+
+import java.io.Serializable;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-03 09:15
+ * Cron表达式
+ * 1. 格式为"秒 分 时 日 月 周 [年]"，支持 * ? - , / L W # 及月份、星期的英文缩写，语义与Quartz一致。
+ * 2. 解析时每个字段编译为位图(秒、分、时、日、月、周为long，年为BitSet)，
+ *    计算下一次触发时间时从年到秒逐级做位扫描，不需要逐秒遍历日历。
+ * 3. 日与周的特殊规则(L、W、#)在计算某年某月的可触发日位图时处理。
+ * 4. 实例不可变，时区在创建时确定，可以在多个触发器之间共享。
+ */
+public final class CronExpression implements Serializable, Cloneable {
+
+    private static final long serialVersionUID = 12423409423L;
+
+    private static final int SECOND = 0;
+    private static final int MINUTE = 1;
+    private static final int HOUR = 2;
+    private static final int DAY_OF_MONTH = 3;
+    private static final int MONTH = 4;
+    private static final int DAY_OF_WEEK = 5;
+    private static final int YEAR = 6;
+
+    private static final String[] FIELD_NAMES = {"seconds", "minutes", "hours", "daysOfMonth", "months", "daysOfWeek", "years"};
+    private static final int[] MIN_VALUES = {0, 0, 0, 1, 1, 1, 1970};
+    private static final int[] MAX_VALUES = {59, 59, 23, 31, 12, 7, 2199};
+
+    /** 支持的最大年份 */
+    public static final int MAX_YEAR = 2199;
+
+    /** 每隔7天置位的图案，左移后与当月天数掩码相与得到某个星期几的所有日期 */
+    private static final long WEEKLY_PATTERN = 1L | (1L << 7) | (1L << 14) | (1L << 21) | (1L << 28);
+
+    private static final Map<String, Integer> MONTH_MAP = new HashMap<String, Integer>(20);
+    private static final Map<String, Integer> DAY_MAP = new HashMap<String, Integer>(60);
+
+    static {
+        String[] months = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+        for (int i = 0; i < months.length; i++) {
+            MONTH_MAP.put(months[i], i + 1);
+        }
+        String[] days = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+        for (int i = 0; i < days.length; i++) {
+            DAY_MAP.put(days[i], i + 1);
+        }
+    }
+
+    private final String cronExpression;
+
+    private final TimeZone timeZone;
+
+    private transient ZoneId zoneId;
+
+    private final long seconds;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    /** 允许的年份，null表示不限制 */
+    private final BitSet years;
+
+    /** 是否按星期规则计算可触发日，否则按日规则 */
+    private final boolean dayOfWeekRule;
+    /** L / L-n：当月最后一天(往前偏移n天) */
+    private final boolean lastDayOfMonth;
+    private final int lastDayOffset;
+    /** LW：当月最后一个工作日 */
+    private final boolean lastWeekdayOfMonth;
+    /** nW：离当月第n天最近的工作日 */
+    private final long nearestWeekdays;
+    /** nL：当月最后一个星期n，按星期位存放 */
+    private final long lastDaysOfWeek;
+    /** n#k：当月第k个星期n，位序号为(k-1)*7+(n-1) */
+    private final long nthDaysOfWeek;
+
+    public CronExpression(String cronExpression) throws ParseException {
+        this(cronExpression, TimeZone.getDefault());
+    }
+
+    public CronExpression(String cronExpression, TimeZone timeZone) throws ParseException {
+        if (cronExpression == null) {
+            throw new IllegalArgumentException("cronExpression cannot be null");
+        }
+        this.cronExpression = cronExpression.toUpperCase(Locale.US);
+        this.timeZone = timeZone != null ? (TimeZone) timeZone.clone() : TimeZone.getDefault();
+        this.zoneId = toZoneId(this.timeZone);
+
+        Parser p = new Parser();
+        p.parse(this.cronExpression);
+        this.seconds = p.masks[SECOND];
+        this.minutes = p.masks[MINUTE];
+        this.hours = p.masks[HOUR];
+        this.daysOfMonth = p.masks[DAY_OF_MONTH];
+        this.months = p.masks[MONTH];
+        this.daysOfWeek = p.masks[DAY_OF_WEEK];
+        this.years = p.years;
+        this.dayOfWeekRule = p.dayOfWeekRule;
+        this.lastDayOfMonth = p.lastDayOfMonth;
+        this.lastDayOffset = p.lastDayOffset;
+        this.lastWeekdayOfMonth = p.lastWeekdayOfMonth;
+        this.nearestWeekdays = p.nearestWeekdays;
+        this.lastDaysOfWeek = p.lastDaysOfWeek;
+        this.nthDaysOfWeek = p.nthDaysOfWeek;
+    }
+
+    /** 基于同一表达式的已编译结果创建其他时区的实例 */
+    private CronExpression(CronExpression other, TimeZone timeZone) {
+        this.cronExpression = other.cronExpression;
+        this.timeZone = (TimeZone) timeZone.clone();
+        this.zoneId = toZoneId(this.timeZone);
+        this.seconds = other.seconds;
+        this.minutes = other.minutes;
+        this.hours = other.hours;
+        this.daysOfMonth = other.daysOfMonth;
+        this.months = other.months;
+        this.daysOfWeek = other.daysOfWeek;
+        this.years = other.years;
+        this.dayOfWeekRule = other.dayOfWeekRule;
+        this.lastDayOfMonth = other.lastDayOfMonth;
+        this.lastDayOffset = other.lastDayOffset;
+        this.lastWeekdayOfMonth = other.lastWeekdayOfMonth;
+        this.nearestWeekdays = other.nearestWeekdays;
+        this.lastDaysOfWeek = other.lastDaysOfWeek;
+        this.nthDaysOfWeek = other.nthDaysOfWeek;
+    }
+
+    /** 表达式是否合法 */
+    public static boolean isValidExpression(String cronExpression) {
+        try {
+            new CronExpression(cronExpression);
+        } catch (ParseException pe) {
+            return false;
+        }
+        return true;
+    }
+
+    /** 校验表达式，不合法时抛出异常 */
+    public static void validateExpression(String cronExpression) throws ParseException {
+        new CronExpression(cronExpression);
+    }
+
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    public TimeZone getTimeZone() {
+        return (TimeZone) timeZone.clone();
+    }
+
+    public String getTimeZoneId() {
+        return timeZone.getID();
+    }
+
+    /** 获取指定时区的实例，时区相同(标识及规则都相同)时返回自身 */
+    public CronExpression withTimeZone(TimeZone timeZone) {
+        if (timeZone == null || isSameZone(timeZone, this.timeZone)) {
+            return this;
+        }
+        return new CronExpression(this, timeZone);
+    }
+
+    private ZoneId zone() {
+        ZoneId z = zoneId;
+        if (z == null) {
+            z = toZoneId(timeZone);
+            zoneId = z;
+        }
+        return z;
+    }
+
+    /**
+     * 计算触发时间使用的时区
+     * 1. TimeZone.toZoneId只按标识查找时区，自定义规则的时区(如自行构造的SimpleTimeZone)会得到同名标准时区的规则；
+     *    自定义的时区按其固定偏移计算，不支持自定义的夏令时规则。
+     */
+    private static ZoneId toZoneId(TimeZone timeZone) {
+        if (TimeZone.getTimeZone(timeZone.getID()).hasSameRules(timeZone)) {
+            return timeZone.toZoneId();
+        }
+        if (!timeZone.useDaylightTime()) {
+            return ZoneOffset.ofTotalSeconds(timeZone.getRawOffset() / 1000);
+        }
+        throw new IllegalArgumentException("Time zone '" + timeZone.getID()
+                + "' has custom daylight saving rules, which are not supported");
+    }
+
+    private static boolean isSameZone(TimeZone tz1, TimeZone tz2) {
+        return tz1.getID().equals(tz2.getID()) && tz1.hasSameRules(tz2);
+    }
+
+    /** 给定时间(精确到秒)是否满足表达式 */
+    public boolean isSatisfiedBy(Date date) {
+        long millis = date.getTime() - Math.floorMod(date.getTime(), 1000L);
+        return getTimeBefore(millis + 1L) == millis;
+    }
+
+    /** 给定时间之后下一个满足表达式的时间 */
+    public Date getNextValidTimeAfter(Date date) {
+        return getTimeAfter(date);
+    }
+
+    /** 给定时间之后下一个不满足表达式的时间 */
+    public Date getNextInvalidTimeAfter(Date date) {
+        long millis = date.getTime() - Math.floorMod(date.getTime(), 1000L) + 1000L;
+        for (int i = 0; i < 366 * 24 * 60 * 60; i++) {
+            Date next = getTimeAfter(new Date(millis - 1000L));
+            if (next == null || next.getTime() != millis) {
+                return new Date(millis);
+            }
+            millis += 1000L;
+        }
+        return null;
+    }
+
+    /** 给定时间之后下一个满足表达式的时间，没有时返回null */
+    public Date getTimeAfter(Date afterTime) {
+        long after = afterTime.getTime();
+        long next = getTimeAfter(after);
+        return next < 0 ? null : new Date(next);
+    }
+
+    /** 给定时间(毫秒)之后下一个满足表达式的时间(毫秒)，没有时返回-1 */
+    public long getTimeAfter(long afterMillis) {
+        ZoneId zone = zone();
+        LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(afterMillis), zone).withNano(0).plusSeconds(1);
+        int y = start.getYear();
+        int mo = start.getMonthValue();
+        int d = start.getDayOfMonth();
+        int h = start.getHour();
+        int mi = start.getMinute();
+        int s = start.getSecond();
+
+        while (true) {
+            if (y > MAX_YEAR) {
+                return -1L;
+            }
+            if (years != null) {
+                int ny = years.nextSetBit(y);
+                if (ny < 0) {
+                    return -1L;
+                }
+                if (ny != y) {
+                    y = ny;
+                    mo = 1;
+                    d = 1;
+                    h = 0;
+                    mi = 0;
+                    s = 0;
+                }
+            }
+
+            int nmo = nextSetBit(months, mo);
+            if (nmo < 0) {
+                y++;
+                mo = 1;
+                d = 1;
+                h = 0;
+                mi = 0;
+                s = 0;
+                continue;
+            }
+            if (nmo != mo) {
+                mo = nmo;
+                d = 1;
+                h = 0;
+                mi = 0;
+                s = 0;
+            }
+
+            int nd = nextSetBit(dayMask(y, mo), d);
+            if (nd < 0) {
+                mo++;
+                d = 1;
+                h = 0;
+                mi = 0;
+                s = 0;
+                if (mo > 12) {
+                    y++;
+                    mo = 1;
+                }
+                continue;
+            }
+            if (nd != d) {
+                d = nd;
+                h = 0;
+                mi = 0;
+                s = 0;
+            }
+
+            int nh = nextSetBit(hours, h);
+            if (nh < 0) {
+                d++;
+                h = 0;
+                mi = 0;
+                s = 0;
+                continue;
+            }
+            if (nh != h) {
+                h = nh;
+                mi = 0;
+                s = 0;
+            }
+
+            int nmi = nextSetBit(minutes, mi);
+            if (nmi < 0) {
+                h++;
+                mi = 0;
+                s = 0;
+                continue;
+            }
+            if (nmi != mi) {
+                mi = nmi;
+                s = 0;
+            }
+
+            int ns = nextSetBit(seconds, s);
+            if (ns < 0) {
+                mi++;
+                s = 0;
+                continue;
+            }
+            s = ns;
+
+            long millis = toMillis(y, mo, d, h, mi, s, zone);
+            if (millis <= afterMillis) {
+                s++;
+                continue;
+            }
+            return millis;
+        }
+    }
+
+    /** 给定时间之前最近一个满足表达式的时间，没有时返回null */
+    public Date getTimeBefore(Date beforeTime) {
+        long before = beforeTime.getTime();
+        long prev = getTimeBefore(before);
+        return prev < 0 ? null : new Date(prev);
+    }
+
+    /** 给定时间(毫秒)之前最近一个满足表达式的时间(毫秒)，没有时返回-1 */
+    public long getTimeBefore(long beforeMillis) {
+        ZoneId zone = zone();
+        LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(beforeMillis - 1L), zone).withNano(0);
+        int y = start.getYear();
+        int mo = start.getMonthValue();
+        int d = start.getDayOfMonth();
+        int h = start.getHour();
+        int mi = start.getMinute();
+        int s = start.getSecond();
+
+        while (true) {
+            if (y < MIN_VALUES[YEAR]) {
+                return -1L;
+            }
+            if (years != null) {
+                int py = years.previousSetBit(y);
+                if (py < 0) {
+                    return -1L;
+                }
+                if (py != y) {
+                    y = py;
+                    mo = 12;
+                    d = 31;
+                    h = 23;
+                    mi = 59;
+                    s = 59;
+                }
+            }
+
+            int pmo = prevSetBit(months, mo);
+            if (pmo < 0) {
+                y--;
+                mo = 12;
+                d = 31;
+                h = 23;
+                mi = 59;
+                s = 59;
+                continue;
+            }
+            if (pmo != mo) {
+                mo = pmo;
+                d = 31;
+                h = 23;
+                mi = 59;
+                s = 59;
+            }
+
+            int pd = prevSetBit(dayMask(y, mo), d);
+            if (pd < 0) {
+                mo--;
+                d = 31;
+                h = 23;
+                mi = 59;
+                s = 59;
+                if (mo < 1) {
+                    y--;
+                    mo = 12;
+                }
+                continue;
+            }
+            if (pd != d) {
+                d = pd;
+                h = 23;
+                mi = 59;
+                s = 59;
+            }
+
+            int ph = prevSetBit(hours, h);
+            if (ph < 0) {
+                d--;
+                h = 23;
+                mi = 59;
+                s = 59;
+                continue;
+            }
+            if (ph != h) {
+                h = ph;
+                mi = 59;
+                s = 59;
+            }
+
+            int pmi = prevSetBit(minutes, mi);
+            if (pmi < 0) {
+                h--;
+                mi = 59;
+                s = 59;
+                continue;
+            }
+            if (pmi != mi) {
+                mi = pmi;
+                s = 59;
+            }
+
+            int ps = prevSetBit(seconds, s);
+            if (ps < 0) {
+                mi--;
+                s = 59;
+                continue;
+            }
+            s = ps;
+
+            long millis = toMillis(y, mo, d, h, mi, s, zone);
+            if (millis >= beforeMillis) {
+                s--;
+                continue;
+            }
+            return millis;
+        }
+    }
+
+    /**
+     * 本地时间对应的时间点
+     * 1. 夏令时开始时跳过的本地时间顺延到切换之后。
+     * 2. 夏令时结束时重复的本地时间只取较早的一次，因此每个本地时间最多触发一次。
+     */
+    private static long toMillis(int y, int mo, int d, int h, int mi, int s, ZoneId zone) {
+        return ZonedDateTime.ofLocal(LocalDateTime.of(y, mo, d, h, mi, s), zone, null).toInstant().toEpochMilli();
+    }
+
+    /** 表达式的最后一个触发时间，只有限定了年份时才有 */
+    public Date getFinalFireTime() {
+        if (years == null) {
+            return null;
+        }
+        return getTimeBefore(new Date(ZonedDateTime.of(years.length(), 1, 1, 0, 0, 0, 0, zone())
+                .toInstant().toEpochMilli()));
+    }
+
+    /**
+     * 某年某月可触发日的位图，第n位表示当月第n天
+     * 1. 按日规则：日位图、L、L-n、LW、nW。
+     * 2. 按星期规则：星期位图、nL、n#k。
+     */
+    private long dayMask(int year, int month) {
+        if (month < 1 || month > 12) {
+            return 0L;
+        }
+        LocalDate first = LocalDate.of(year, month, 1);
+        int len = first.lengthOfMonth();
+        long monthMask = ((1L << len) - 1L) << 1;
+        // 当月1号是星期几，1为星期日
+        int firstDow = first.getDayOfWeek().getValue() % 7 + 1;
+
+        long mask;
+        if (!dayOfWeekRule) {
+            mask = daysOfMonth & monthMask;
+            if (lastDayOfMonth) {
+                int d = len - lastDayOffset;
+                if (d >= 1) {
+                    mask |= 1L << d;
+                }
+            }
+            if (lastWeekdayOfMonth) {
+                mask |= 1L << nearestWeekday(len, len, firstDow);
+            }
+            long nw = nearestWeekdays & monthMask;
+            while (nw != 0L) {
+                int n = Long.numberOfTrailingZeros(nw);
+                nw &= nw - 1;
+                mask |= 1L << nearestWeekday(n, len, firstDow);
+            }
+        } else {
+            mask = 0L;
+            long dows = daysOfWeek;
+            while (dows != 0L) {
+                int dow = Long.numberOfTrailingZeros(dows);
+                dows &= dows - 1;
+                mask |= WEEKLY_PATTERN << firstDayOfWeek(dow, firstDow);
+            }
+            mask &= monthMask;
+
+            long ldows = lastDaysOfWeek;
+            while (ldows != 0L) {
+                int dow = Long.numberOfTrailingZeros(ldows);
+                ldows &= ldows - 1;
+                int lastDow = dayOfWeek(len, firstDow);
+                mask |= 1L << (len - (lastDow - dow + 7) % 7);
+            }
+
+            long nths = nthDaysOfWeek;
+            while (nths != 0L) {
+                int bit = Long.numberOfTrailingZeros(nths);
+                nths &= nths - 1;
+                int d = firstDayOfWeek(bit % 7 + 1, firstDow) + 7 * (bit / 7);
+                if (d <= len) {
+                    mask |= 1L << d;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /** 当月第一个星期dow的日期 */
+    private static int firstDayOfWeek(int dow, int firstDow) {
+        return 1 + (dow - firstDow + 7) % 7;
+    }
+
+    /** 当月第day天是星期几，1为星期日 */
+    private static int dayOfWeek(int day, int firstDow) {
+        return (firstDow - 1 + day - 1) % 7 + 1;
+    }
+
+    /** 离当月第day天最近的工作日，不跨月 */
+    private static int nearestWeekday(int day, int len, int firstDow) {
+        int dow = dayOfWeek(day, firstDow);
+        if (dow == 7) {
+            return day == 1 ? day + 2 : day - 1;
+        }
+        if (dow == 1) {
+            return day == len ? day - 2 : day + 1;
+        }
+        return day;
+    }
+
+    private static int nextSetBit(long mask, int from) {
+        if (from > 63) {
+            return -1;
+        }
+        long m = mask & (-1L << from);
+        return m == 0L ? -1 : Long.numberOfTrailingZeros(m);
+    }
+
+    private static int prevSetBit(long mask, int from) {
+        if (from < 0) {
+            return -1;
+        }
+        long m = from >= 63 ? mask : mask & ((2L << from) - 1L);
+        return m == 0L ? -1 : 63 - Long.numberOfLeadingZeros(m);
+    }
+
+    /** 表达式的摘要 */
+    public String getExpressionSummary() {
+        StringBuilder buf = new StringBuilder();
+        buf.append("seconds: ").append(maskToString(seconds)).append("\n");
+        buf.append("minutes: ").append(maskToString(minutes)).append("\n");
+        buf.append("hours: ").append(maskToString(hours)).append("\n");
+        buf.append("daysOfMonth: ").append(dayOfWeekRule ? "?" : maskToString(daysOfMonth)).append("\n");
+        buf.append("months: ").append(maskToString(months)).append("\n");
+        buf.append("daysOfWeek: ").append(dayOfWeekRule ? maskToString(daysOfWeek) : "?").append("\n");
+        buf.append("lastdayOfWeek: ").append(maskToString(lastDaysOfWeek)).append("\n");
+        buf.append("nearestWeekday: ").append(maskToString(nearestWeekdays)).append("\n");
+        buf.append("NthDayOfWeek: ").append(nthDaysOfWeek == 0L ? "" : Long.toBinaryString(nthDaysOfWeek)).append("\n");
+        buf.append("lastdayOfMonth: ").append(lastDayOfMonth).append("\n");
+        buf.append("lastdayOffset: ").append(lastDayOffset).append("\n");
+        buf.append("lastWeekdayOfMonth: ").append(lastWeekdayOfMonth).append("\n");
+        buf.append("years: ").append(years == null ? "*" : years.toString()).append("\n");
+        return buf.toString();
+    }
+
+    private static String maskToString(long mask) {
+        StringBuilder buf = new StringBuilder();
+        while (mask != 0L) {
+            int bit = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            if (buf.length() > 0) {
+                buf.append(",");
+            }
+            buf.append(bit);
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public Object clone() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CronExpression)) {
+            return false;
+        }
+        CronExpression other = (CronExpression) obj;
+        return cronExpression.equals(other.cronExpression) && isSameZone(timeZone, other.timeZone);
+    }
+
+    @Override
+    public int hashCode() {
+        return cronExpression.hashCode() * 31 + timeZone.getID().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return cronExpression;
+    }
+
+    /** 表达式的解析器，将各字段编译为位图 */
+    private static class Parser {
+
+        private final long[] masks = new long[DAY_OF_WEEK + 1];
+        private BitSet years;
+        private boolean dayOfWeekRule;
+        private boolean lastDayOfMonth;
+        private int lastDayOffset;
+        private boolean lastWeekdayOfMonth;
+        private long nearestWeekdays;
+        private long lastDaysOfWeek;
+        private long nthDaysOfWeek;
+
+        /** 日、周字段是否为'?' */
+        private boolean noDayOfMonth;
+        private boolean noDayOfWeek;
+        /** 日、周字段是否为'*' */
+        private boolean allDaysOfMonth;
+        private boolean allDaysOfWeek;
+
+        void parse(String expression) throws ParseException {
+            StringTokenizer exprsTok = new StringTokenizer(expression, " \t", false);
+            int field = SECOND;
+            while (exprsTok.hasMoreTokens() && field <= YEAR) {
+                String expr = exprsTok.nextToken().trim();
+                parseField(expr, field);
+                field++;
+            }
+            if (exprsTok.hasMoreTokens()) {
+                throw new ParseException("Unexpected end of expression.", expression.length());
+            }
+            if (field <= DAY_OF_WEEK) {
+                throw new ParseException("Unexpected end of expression.", expression.length());
+            }
+
+            boolean dayOfMonthSpecified = !noDayOfMonth && !allDaysOfMonth;
+            boolean dayOfWeekSpecified = !noDayOfWeek && !allDaysOfWeek;
+            if (dayOfMonthSpecified && dayOfWeekSpecified) {
+                throw new ParseException(
+                        "Support for specifying both a day-of-week AND a day-of-month parameter is not implemented.", 0);
+            }
+            if (dayOfWeekSpecified) {
+                dayOfWeekRule = true;
+            } else if (!dayOfMonthSpecified) {
+                // 日、周都未限定时每天都触发
+                masks[DAY_OF_MONTH] = fullMask(DAY_OF_MONTH);
+            }
+        }
+
+        private void parseField(String expr, int field) throws ParseException {
+            if (field == YEAR) {
+                if (expr.equals("*")) {
+                    return;
+                }
+                years = new BitSet(MAX_VALUES[YEAR] + 1);
+            }
+
+            if (expr.equals("?")) {
+                if (field != DAY_OF_MONTH && field != DAY_OF_WEEK) {
+                    throw new ParseException("'?' can only be specified for Day-of-Month or Day-of-Week.", 0);
+                }
+                if (field == DAY_OF_MONTH) {
+                    noDayOfMonth = true;
+                } else {
+                    noDayOfWeek = true;
+                }
+                return;
+            }
+            if (expr.equals("*")) {
+                if (field == DAY_OF_MONTH) {
+                    allDaysOfMonth = true;
+                } else if (field == DAY_OF_WEEK) {
+                    allDaysOfWeek = true;
+                }
+            }
+
+            StringTokenizer vTok = new StringTokenizer(expr, ",");
+            while (vTok.hasMoreTokens()) {
+                parseItem(vTok.nextToken(), field);
+            }
+        }
+
+        private void parseItem(String item, int field) throws ParseException {
+            if (field == DAY_OF_MONTH && parseDayOfMonthSpecial(item)) {
+                return;
+            }
+            if (field == DAY_OF_WEEK && parseDayOfWeekSpecial(item)) {
+                return;
+            }
+
+            int min = MIN_VALUES[field];
+            int max = MAX_VALUES[field];
+            int start;
+            int end;
+            int step = 1;
+
+            String range = item;
+            int slash = item.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(item.substring(slash + 1), item);
+                if (step <= 0) {
+                    throw new ParseException("Increment must be larger than 0: " + item, slash);
+                }
+                if (step > max) {
+                    throw new ParseException("Increment > " + max + " : " + item, slash);
+                }
+                range = item.substring(0, slash);
+            }
+
+            if (range.equals("*") || range.isEmpty()) {
+                start = min;
+                end = max;
+            } else {
+                int dash = range.indexOf('-');
+                if (dash > 0) {
+                    start = parseValue(range.substring(0, dash), field, item);
+                    end = parseValue(range.substring(dash + 1), field, item);
+                } else {
+                    start = parseValue(range, field, item);
+                    end = slash >= 0 ? max : start;
+                }
+            }
+
+            // 跨越最大值的范围，如 FRI-MON、22-2
+            int count = end >= start ? end - start : (max - start + 1) + (end - min);
+            for (int i = 0; i <= count; i += step) {
+                int v = start + i;
+                if (v > max) {
+                    v = v - max - 1 + min;
+                }
+                set(field, v);
+            }
+        }
+
+        /** 日字段的 L、L-n、LW、nW */
+        private boolean parseDayOfMonthSpecial(String item) throws ParseException {
+            if (item.equals("L")) {
+                lastDayOfMonth = true;
+                return true;
+            }
+            if (item.equals("LW")) {
+                lastWeekdayOfMonth = true;
+                return true;
+            }
+            if (item.startsWith("L-")) {
+                lastDayOffset = parseNumber(item.substring(2), item);
+                if (lastDayOffset > 30) {
+                    throw new ParseException("Offset from last day must be <= 30", 0);
+                }
+                lastDayOfMonth = true;
+                return true;
+            }
+            if (item.length() > 1 && item.endsWith("W")) {
+                int day = parseNumber(item.substring(0, item.length() - 1), item);
+                if (day < 1 || day > 31) {
+                    throw new ParseException("The 'W' option does not make sense with values larger than 31 (max number of days in a month)", 0);
+                }
+                nearestWeekdays |= 1L << day;
+                return true;
+            }
+            return false;
+        }
+
+        /** 周字段的 L、nL、n#k */
+        private boolean parseDayOfWeekSpecial(String item) throws ParseException {
+            if (item.equals("L")) {
+                set(DAY_OF_WEEK, 7);
+                return true;
+            }
+            if (item.length() > 1 && item.endsWith("L")) {
+                int dow = parseValue(item.substring(0, item.length() - 1), DAY_OF_WEEK, item);
+                lastDaysOfWeek |= 1L << dow;
+                return true;
+            }
+            int hash = item.indexOf('#');
+            if (hash > 0) {
+                int dow = parseValue(item.substring(0, hash), DAY_OF_WEEK, item);
+                int nth = parseNumber(item.substring(hash + 1), item);
+                if (nth < 1 || nth > 5) {
+                    throw new ParseException("A numeric value between 1 and 5 must follow the '#' option", hash);
+                }
+                nthDaysOfWeek |= 1L << ((nth - 1) * 7 + (dow - 1));
+                return true;
+            }
+            return false;
+        }
+
+        private void set(int field, int value) {
+            if (field == YEAR) {
+                years.set(value);
+            } else {
+                masks[field] |= 1L << value;
+            }
+        }
+
+        private static long fullMask(int field) {
+            long mask = 0L;
+            for (int v = MIN_VALUES[field]; v <= MAX_VALUES[field]; v++) {
+                mask |= 1L << v;
+            }
+            return mask;
+        }
+
+        private static int parseValue(String s, int field, String item) throws ParseException {
+            Integer named = null;
+            if (field == MONTH) {
+                named = MONTH_MAP.get(s);
+            } else if (field == DAY_OF_WEEK) {
+                named = DAY_MAP.get(s);
+            }
+            int v = named != null ? named : parseNumber(s, item);
+            if (v < MIN_VALUES[field] || v > MAX_VALUES[field]) {
+                throw new ParseException(FIELD_NAMES[field] + " value out of range ("
+                        + MIN_VALUES[field] + "-" + MAX_VALUES[field] + "): " + item, 0);
+            }
+            return v;
+        }
+
+        private static int parseNumber(String s, String item) throws ParseException {
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException e) {
+                throw new ParseException("Illegal characters for this position: '" + item + "'", 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.txl.equipment.date;
+
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-03 14:30
+ * 编译后的Cron表达式缓存
+ * 1. 以表达式和时区为键，相同的表达式只解析一次，多个Cron触发器共享同一个不可变的CronExpression。
+ * 2. 缓存容量有上限，超出时按最近最少使用(LRU)淘汰，被淘汰的实例仍由持有它的触发器继续使用。
+ * 3. 同一表达式的其他时区实例复用已编译的位图，不需要重新解析。
+ * 4. 时区按标识区分，只缓存规则与TimeZone.getTimeZone(标识)相同的时区；自定义规则的时区(如自行构造的SimpleTimeZone)
+ *    可能与其它时区同名，不放入缓存，每次单独创建。
+ */
+public final class CronExpressionCache {
+
+    /** 缺省的缓存容量 */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static int maxSize = DEFAULT_MAX_SIZE;
+
+    private static long hits = 0;
+
+    private static long misses = 0;
+
+    private static final LinkedHashMap<Key, CronExpression> cache = new LinkedHashMap<Key, CronExpression>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CronExpression> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private CronExpressionCache() {
+    }
+
+    /** 获取编译后的表达式，缓存中没有时解析并放入缓存 */
+    public static CronExpression get(String cronExpression, TimeZone timeZone) throws ParseException {
+        if (cronExpression == null) {
+            throw new IllegalArgumentException("cronExpression cannot be null");
+        }
+        if (timeZone == null) {
+            timeZone = TimeZone.getDefault();
+        }
+        if (!isCacheable(timeZone)) {
+            return new CronExpression(cronExpression, timeZone);
+        }
+        Key key = new Key(cronExpression.toUpperCase(Locale.US), timeZone.getID());
+        CronExpression ce = lookup(key);
+        if (ce != null) {
+            return ce;
+        }
+        // 在锁外解析，并发解析同一表达式时以先放入的为准
+        return putIfAbsent(key, new CronExpression(cronExpression, timeZone));
+    }
+
+    /** 获取编译后的表达式，使用缺省时区 */
+    public static CronExpression get(String cronExpression) throws ParseException {
+        return get(cronExpression, TimeZone.getDefault());
+    }
+
+    /** 获取同一表达式在指定时区的实例 */
+    public static CronExpression withTimeZone(CronExpression cronExpression, TimeZone timeZone) {
+        if (timeZone == null) {
+            return cronExpression;
+        }
+        if (!isCacheable(timeZone)) {
+            return cronExpression.withTimeZone(timeZone);
+        }
+        if (timeZone.getID().equals(cronExpression.getTimeZoneId()) && isCacheable(cronExpression.getTimeZone())) {
+            return cronExpression;
+        }
+        Key key = new Key(cronExpression.getCronExpression(), timeZone.getID());
+        CronExpression ce = lookup(key);
+        if (ce != null) {
+            return ce;
+        }
+        return putIfAbsent(key, cronExpression.withTimeZone(timeZone));
+    }
+
+    /** 时区的规则与同一标识的标准时区相同时才能以标识作为键 */
+    private static boolean isCacheable(TimeZone timeZone) {
+        return TimeZone.getTimeZone(timeZone.getID()).hasSameRules(timeZone);
+    }
+
+    private static CronExpression lookup(Key key) {
+        synchronized (cache) {
+            CronExpression ce = cache.get(key);
+            if (ce != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return ce;
+        }
+    }
+
+    private static CronExpression putIfAbsent(Key key, CronExpression ce) {
+        synchronized (cache) {
+            CronExpression prev = cache.get(key);
+            if (prev != null) {
+                return prev;
+            }
+            cache.put(key, ce);
+            return ce;
+        }
+    }
+
+    /** 设置缓存容量，容量变小时立即淘汰多出的表达式 */
+    public static void setMaxSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Max size must be > 0");
+        }
+        synchronized (cache) {
+            maxSize = size;
+            Iterator<Key> it = cache.keySet().iterator();
+            while (cache.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    public static int getMaxSize() {
+        synchronized (cache) {
+            return maxSize;
+        }
+    }
+
+    /** 缓存中的表达式数量 */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /** 命中次数 */
+    public static long getHitCount() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /** 未命中次数 */
+    public static long getMissCount() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /** 清空缓存 */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /** 缓存的键 */
+    private static final class Key {
+
+        private final String expression;
+
+        private final String timeZoneId;
+
+        private final int hash;
+
+        Key(String expression, String timeZoneId) {
+            this.expression = expression;
+            this.timeZoneId = timeZoneId;
+            this.hash = expression.hashCode() * 31 + timeZoneId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && expression.equals(other.expression) && timeZoneId.equals(other.timeZoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.txl.equipment.exception;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 09:40
+ * 作业存储异常
+ * 1. 作业存储在存储、检索作业任务及触发器时发生的异常
+ */
+public class JobPersistenceException extends SchedulerException {
+
+    private static final long serialVersionUID = -8924958757341995694L;
+
+    public JobPersistenceException(String msg) {
+        super(msg);
+    }
+
+    public JobPersistenceException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,30 @@
+package com.txl.equipment.exception;
+
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.trigger.Trigger;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 09:43
+ * 对象已存在异常
+ * 1. 向作业存储中添加作业任务、触发器或日历时，同名的对象已经存在
+ */
+public class ObjectAlreadyExistsException extends JobPersistenceException {
+
+    private static final long serialVersionUID = -558301282071659896L;
+
+    public ObjectAlreadyExistsException(String msg) {
+        super(msg);
+    }
+
+    public ObjectAlreadyExistsException(JobDetail offendingJob) {
+        super("Unable to store Job : '" + offendingJob.getKey()
+                + "', because one already exists with this identification.");
+    }
+
+    public ObjectAlreadyExistsException(Trigger offendingTrigger) {
+        super("Unable to store Trigger with name: '"
+                + offendingTrigger.getKey().getName() + "' and group: '"
+                + offendingTrigger.getKey().getGroup()
+                + "', because one already exists with this identification.");
+    }
+}
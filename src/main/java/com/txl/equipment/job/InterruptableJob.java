@@ -0,0 +1,14 @@
+package com.txl.equipment.job;
+
+import com.txl.equipment.exception.UnableToInterruptJobException;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 10:12
+ * 可中断的作业任务
+ * 1. 由调度器的interrupt()方法调用，作业任务应尽快结束当前的执行。
+ */
+public interface InterruptableJob extends Job {
+
+    /** 中断作业任务 */
+    void interrupt() throws UnableToInterruptJobException;
+}
@@ -41,7 +41,7 @@ public class JobBuilder {
         job.setJobClass(jobClass);
         job.setDescription(description);
         if(key == null)
-            key = new JobKey(Key.createUniqueName(null), null);
+            key = JobKey.jobKey(Key.createUniqueName(null), null);
         job.setKey(key);
         job.setDurability(durability);
         job.setRequestsRecovery(shouldRecover);
@@ -52,13 +52,13 @@ public class JobBuilder {
 
     /** 作业任务的唯一标识 */
     public JobBuilder withIdentity(String name) {
-        key = new JobKey(name, null);
+        key = JobKey.jobKey(name, null);
         return this;
     }
 
     /** 作业任务的唯一标识 */
     public JobBuilder withIdentity(String name, String group) {
-        key = new JobKey(name, group);
+        key = JobKey.jobKey(name, group);
         return this;
     }
 
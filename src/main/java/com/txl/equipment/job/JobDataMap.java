@@ -1,6 +1,7 @@
 package com.txl.equipment.job;
 
 import com.txl.equipment.key.StringKeyDirtyFlagMap;
+import com.txl.equipment.key.TypedValueMap;
 
 import java.io.Serializable;
 import java.util.Map;
@@ -9,6 +10,7 @@ import java.util.Map;
 /**
  * Created by TangXiangLin on 2023-02-13 11:35
  * 任务数据字符标识map集, 用于保存任务实例中所使用的参数
+ * 1. putAsString放入的数值按原始类型存放，Map视图中表现为字符串，getXxxFromString读取时不需要解析。
  */
 public class JobDataMap extends StringKeyDirtyFlagMap implements Serializable {
 
@@ -28,84 +30,81 @@ public class JobDataMap extends StringKeyDirtyFlagMap implements Serializable {
     }
 
     public void putAsString(String key, boolean value) {
-        String strValue = Boolean.valueOf(value).toString();
-
-        super.put(key, strValue);
+        putRaw(key, TypedValueMap.BOOLEAN | TypedValueMap.AS_STRING, TypedValueMap.toRaw(value));
     }
 
     public void putAsString(String key, Boolean value) {
-        String strValue = value.toString();
-
-        super.put(key, strValue);
+        putAsString(key, value.booleanValue());
     }
 
     public void putAsString(String key, char value) {
-        String strValue = Character.valueOf(value).toString();
-
-        super.put(key, strValue);
+        putRaw(key, TypedValueMap.CHAR | TypedValueMap.AS_STRING, value);
     }
 
     public void putAsString(String key, Character value) {
-        String strValue = value.toString();
-
-        super.put(key, strValue);
+        putAsString(key, value.charValue());
     }
 
     public void putAsString(String key, double value) {
-        String strValue = Double.toString(value);
-
-        super.put(key, strValue);
+        putRaw(key, TypedValueMap.DOUBLE | TypedValueMap.AS_STRING, TypedValueMap.toRaw(value));
     }
 
     public void putAsString(String key, Double value) {
-        String strValue = value.toString();
-
-        super.put(key, strValue);
+        putAsString(key, value.doubleValue());
     }
 
     public void putAsString(String key, float value) {
-        String strValue = Float.toString(value);
-
-        super.put(key, strValue);
+        putRaw(key, TypedValueMap.FLOAT | TypedValueMap.AS_STRING, TypedValueMap.toRaw(value));
     }
 
     public void putAsString(String key, Float value) {
-        String strValue = value.toString();
-
-        super.put(key, strValue);
+        putAsString(key, value.floatValue());
     }
 
     public void putAsString(String key, int value) {
-        String strValue = Integer.valueOf(value).toString();
-
-        super.put(key, strValue);
+        putRaw(key, TypedValueMap.INT | TypedValueMap.AS_STRING, value);
     }
 
     public void putAsString(String key, Integer value) {
-        String strValue = value.toString();
-
-        super.put(key, strValue);
+        putAsString(key, value.intValue());
     }
 
     public void putAsString(String key, long value) {
-        String strValue = Long.valueOf(value).toString();
-
-        super.put(key, strValue);
+        putRaw(key, TypedValueMap.LONG | TypedValueMap.AS_STRING, value);
     }
 
     public void putAsString(String key, Long value) {
-        String strValue = value.toString();
+        putAsString(key, value.longValue());
+    }
 
-        super.put(key, strValue);
+    /**
+     * 获取以字符串形式放入的给定类型的值所在的槽位，不是时返回-1，需要解析字符串
+     */
+    private int indexOfString(String key, int type) {
+        TypedValueMap values = getTypedValues();
+        if (values == null) {
+            return -1;
+        }
+        int i = values.indexOf(key, type);
+        return i >= 0 && (values.kindAt(i) & TypedValueMap.AS_STRING) != 0 ? i : -1;
     }
 
     public int getIntFromString(String key) {
+        int i = indexOfString(key, TypedValueMap.INT);
+        if (i >= 0) {
+            return (int) getTypedValues().rawAt(i);
+        }
         Object obj = get(key);
 
-        return new Integer((String) obj);
+        return Integer.parseInt((String) obj);
     }
 
     public int getIntValue(String key) {
+        TypedValueMap values = getTypedValues();
+        int i = values == null ? -1 : values.indexOf(key, TypedValueMap.INT);
+        if (i >= 0) {
+            return (int) values.rawAt(i);
+        }
         Object obj = get(key);
 
         if(obj instanceof String) {
@@ -116,18 +115,25 @@ public class JobDataMap extends StringKeyDirtyFlagMap implements Serializable {
     }
 
     public Integer getIntegerFromString(String key) {
-        Object obj = get(key);
-
-        return new Integer((String) obj);
+        return Integer.valueOf(getIntFromString(key));
     }
 
     public boolean getBooleanValueFromString(String key) {
+        int i = indexOfString(key, TypedValueMap.BOOLEAN);
+        if (i >= 0) {
+            return getTypedValues().rawAt(i) != 0L;
+        }
         Object obj = get(key);
 
         return Boolean.valueOf((String) obj);
     }
 
     public boolean getBooleanValue(String key) {
+        TypedValueMap values = getTypedValues();
+        int i = values == null ? -1 : values.indexOf(key, TypedValueMap.BOOLEAN);
+        if (i >= 0) {
+            return values.rawAt(i) != 0L;
+        }
         Object obj = get(key);
 
         if(obj instanceof String) {
@@ -138,30 +144,39 @@ public class JobDataMap extends StringKeyDirtyFlagMap implements Serializable {
     }
 
     public Boolean getBooleanFromString(String key) {
-        Object obj = get(key);
-
-        return Boolean.valueOf((String) obj);
+        return Boolean.valueOf(getBooleanValueFromString(key));
     }
 
     public char getCharFromString(String key) {
+        int i = indexOfString(key, TypedValueMap.CHAR);
+        if (i >= 0) {
+            return (char) getTypedValues().rawAt(i);
+        }
         Object obj = get(key);
 
         return ((String) obj).charAt(0);
     }
 
     public Character getCharacterFromString(String key) {
-        Object obj = get(key);
-
-        return ((String) obj).charAt(0);
+        return Character.valueOf(getCharFromString(key));
     }
 
     public double getDoubleValueFromString(String key) {
+        int i = indexOfString(key, TypedValueMap.DOUBLE);
+        if (i >= 0) {
+            return TypedValueMap.toDouble(getTypedValues().rawAt(i));
+        }
         Object obj = get(key);
 
-        return Double.valueOf((String) obj);
+        return Double.parseDouble((String) obj);
     }
 
     public double getDoubleValue(String key) {
+        TypedValueMap values = getTypedValues();
+        int i = values == null ? -1 : values.indexOf(key, TypedValueMap.DOUBLE);
+        if (i >= 0) {
+            return TypedValueMap.toDouble(values.rawAt(i));
+        }
         Object obj = get(key);
 
         if(obj instanceof String) {
@@ -172,18 +187,25 @@ public class JobDataMap extends StringKeyDirtyFlagMap implements Serializable {
     }
 
     public Double getDoubleFromString(String key) {
-        Object obj = get(key);
-
-        return new Double((String) obj);
+        return Double.valueOf(getDoubleValueFromString(key));
     }
 
     public float getFloatValueFromString(String key) {
+        int i = indexOfString(key, TypedValueMap.FLOAT);
+        if (i >= 0) {
+            return TypedValueMap.toFloat(getTypedValues().rawAt(i));
+        }
         Object obj = get(key);
 
-        return new Float((String) obj);
+        return Float.parseFloat((String) obj);
     }
 
     public float getFloatValue(String key) {
+        TypedValueMap values = getTypedValues();
+        int i = values == null ? -1 : values.indexOf(key, TypedValueMap.FLOAT);
+        if (i >= 0) {
+            return TypedValueMap.toFloat(values.rawAt(i));
+        }
         Object obj = get(key);
 
         if(obj instanceof String) {
@@ -194,18 +216,25 @@ public class JobDataMap extends StringKeyDirtyFlagMap implements Serializable {
     }
 
     public Float getFloatFromString(String key) {
-        Object obj = get(key);
-
-        return new Float((String) obj);
+        return Float.valueOf(getFloatValueFromString(key));
     }
 
     public long getLongValueFromString(String key) {
+        int i = indexOfString(key, TypedValueMap.LONG);
+        if (i >= 0) {
+            return getTypedValues().rawAt(i);
+        }
         Object obj = get(key);
 
-        return new Long((String) obj);
+        return Long.parseLong((String) obj);
     }
 
     public long getLongValue(String key) {
+        TypedValueMap values = getTypedValues();
+        int i = values == null ? -1 : values.indexOf(key, TypedValueMap.LONG);
+        if (i >= 0) {
+            return values.rawAt(i);
+        }
         Object obj = get(key);
 
         if(obj instanceof String) {
@@ -216,8 +245,6 @@ public class JobDataMap extends StringKeyDirtyFlagMap implements Serializable {
     }
 
     public Long getLongFromString(String key) {
-        Object obj = get(key);
-
-        return new Long((String) obj);
+        return Long.valueOf(getLongValueFromString(key));
     }
 }
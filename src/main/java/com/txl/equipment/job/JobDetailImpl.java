@@ -92,7 +92,7 @@ public class JobDetailImpl implements Cloneable, Serializable,JobDetail {
         if(key == null) {
             if(getName() == null)
                 return null;
-            key = new JobKey(getName(), getGroup());
+            key = JobKey.jobKey(getName(), getGroup());
         }
         return key;
     }
@@ -102,7 +102,7 @@ public class JobDetailImpl implements Cloneable, Serializable,JobDetail {
             throw new LinkageIllegalArgumentException("Key cannot be null!");
         setName(key.getName());
         setGroup(key.getGroup());
-        this.key = key;
+        this.key = JobKey.intern(key);
     }
 
     public String getDescription() {
@@ -1,6 +1,10 @@
 package com.txl.equipment.job;
 
+import com.txl.equipment.calendar.Calendar;
 import com.txl.equipment.schedule.Scheduler;
+import com.txl.equipment.trigger.Trigger;
+
+import java.util.Date;
 
 /**
  * Created by TangXiangLin on 2023-02-13 14:53
@@ -8,6 +12,52 @@ import com.txl.equipment.schedule.Scheduler;
  */
 public interface JobExecutionContext {
 
+    /** 获取执行作业任务的调度器 */
     Scheduler getScheduler();
 
+    /** 获取触发本次执行的触发器 */
+    Trigger getTrigger();
+
+    /** 获取触发器关联的日历，未关联则为null */
+    Calendar getCalendar();
+
+    /** 本次执行是否为恢复执行 */
+    boolean isRecovering();
+
+    /** 获取作业任务被再次执行的次数 */
+    int getRefireCount();
+
+    /** 获取作业任务描述与触发器合并后的参数，触发器的参数会覆盖作业任务描述中同名的参数 */
+    JobDataMap getMergedJobDataMap();
+
+    /** 获取作业任务描述 */
+    JobDetail getJobDetail();
+
+    /** 获取作业任务实例 */
+    Job getJobInstance();
+
+    /** 获取实际的触发时间 */
+    Date getFireTime();
+
+    /** 获取计划的触发时间 */
+    Date getScheduledFireTime();
+
+    /** 获取上一次的触发时间 */
+    Date getPreviousFireTime();
+
+    /** 获取下一次的触发时间 */
+    Date getNextFireTime();
+
+    /** 获取触发器实例id */
+    String getFireInstanceId();
+
+    /** 获取作业任务执行的返回结果 */
+    Object getResult();
+
+    /** 设置作业任务执行的返回结果 */
+    void setResult(Object result);
+
+    /** 获取作业任务的执行时长(毫秒)，执行完成前为-1 */
+    long getJobRunTime();
+
 }
@@ -0,0 +1,145 @@
+package com.txl.equipment.job;
+
+import com.txl.equipment.calendar.Calendar;
+import com.txl.equipment.schedule.Scheduler;
+import com.txl.equipment.store.TriggerFiredBundle;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.Trigger;
+
+import java.util.Date;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 11:30
+ * 作业任务上下文的实现
+ * 1. 每次触发都会创建新的上下文，作业任务的参数由作业任务描述与触发器的参数合并而成。
+ */
+public class JobExecutionContextImpl implements JobExecutionContext {
+
+    private final transient Scheduler scheduler;
+
+    private final Trigger trigger;
+
+    private final JobDetail jobDetail;
+
+    private final JobDataMap jobDataMap;
+
+    private final transient Job job;
+
+    private final Calendar calendar;
+
+    private final boolean recovering;
+
+    private int numRefires = 0;
+
+    private final Date fireTime;
+
+    private final Date scheduledFireTime;
+
+    private final Date prevFireTime;
+
+    private final Date nextFireTime;
+
+    private long jobRunTime = -1;
+
+    private Object result;
+
+    public JobExecutionContextImpl(Scheduler scheduler, TriggerFiredBundle firedBundle, Job job) {
+        this.scheduler = scheduler;
+        this.trigger = firedBundle.getTrigger();
+        this.calendar = firedBundle.getCalendar();
+        this.jobDetail = firedBundle.getJobDetail();
+        this.job = job;
+        this.recovering = firedBundle.isRecovering();
+        this.fireTime = firedBundle.getFireTime();
+        this.scheduledFireTime = firedBundle.getScheduledFireTime();
+        this.prevFireTime = firedBundle.getPrevFireTime();
+        this.nextFireTime = firedBundle.getNextFireTime();
+
+        this.jobDataMap = new JobDataMap();
+        this.jobDataMap.putAll(jobDetail.getJobDataMap());
+        this.jobDataMap.putAll(trigger.getJobDataMap());
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public Trigger getTrigger() {
+        return trigger;
+    }
+
+    public Calendar getCalendar() {
+        return calendar;
+    }
+
+    public boolean isRecovering() {
+        return recovering;
+    }
+
+    public void incrementRefireCount() {
+        numRefires++;
+    }
+
+    public int getRefireCount() {
+        return numRefires;
+    }
+
+    public JobDataMap getMergedJobDataMap() {
+        return jobDataMap;
+    }
+
+    public JobDetail getJobDetail() {
+        return jobDetail;
+    }
+
+    public Job getJobInstance() {
+        return job;
+    }
+
+    public Date getFireTime() {
+        return fireTime;
+    }
+
+    public Date getScheduledFireTime() {
+        return scheduledFireTime;
+    }
+
+    public Date getPreviousFireTime() {
+        return prevFireTime;
+    }
+
+    public Date getNextFireTime() {
+        return nextFireTime;
+    }
+
+    public String getFireInstanceId() {
+        return ((OperableTrigger) trigger).getFireInstanceId();
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public void setResult(Object result) {
+        this.result = result;
+    }
+
+    public long getJobRunTime() {
+        return jobRunTime;
+    }
+
+    public void setJobRunTime(long jobRunTime) {
+        this.jobRunTime = jobRunTime;
+    }
+
+    @Override
+    public String toString() {
+        return "JobExecutionContext:" + " trigger: '"
+                + getTrigger().getKey() + " job: "
+                + getJobDetail().getKey() + " fireTime: '" + getFireTime()
+                + " scheduledFireTime: " + getScheduledFireTime()
+                + " previousFireTime: '" + getPreviousFireTime()
+                + " nextFireTime: " + getNextFireTime() + " isRecovering: "
+                + isRecovering() + " refireCount: " + getRefireCount();
+    }
+}
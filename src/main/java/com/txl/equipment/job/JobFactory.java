@@ -1,8 +1,26 @@
 package com.txl.equipment.job;
 
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.schedule.Scheduler;
+import com.txl.equipment.store.TriggerFiredBundle;
+
 /**
  * Created by TangXiangLin on 2023-02-13 17:00
  * 任务工厂
+ * 1. 调度器在触发器触发后，通过任务工厂创建作业任务的实例。
+ * 2. 默认通过作业任务类的无参构造方法创建实例，可以通过继承该类定制实例的创建方式。
  */
 public class JobFactory {
+
+    /** 根据触发的作业任务描述，创建作业任务实例 */
+    public Job newJob(TriggerFiredBundle bundle, Scheduler scheduler) throws SchedulerException {
+        JobDetail jobDetail = bundle.getJobDetail();
+        Class<? extends Job> jobClass = jobDetail.getJobClass();
+        try {
+            return jobClass.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new SchedulerException(
+                    "Problem instantiating class '" + jobClass.getName() + "'", e);
+        }
+    }
 }
@@ -1,17 +1,26 @@
 package com.txl.equipment.job;
 
 import com.txl.equipment.key.Key;
+import com.txl.equipment.key.KeyPool;
 
 /**
  * Created by TangXiangLin on 2023-02-13 11:14
  * 触发器的唯一任务详述标识
  * 1. 唯一标识由名称 + 组, 并且同一组中的名称是唯一的。
  * 2. 未指定组时，按默认的组名称，即：DEFAULT
+ * 3. jobKey()及intern()返回驻留的实例，相等的唯一标识共用同一个实例。
  */
 public final class JobKey extends Key<JobKey> {
 
     private static final long serialVersionUID = -6073883950062574010L;
 
+    private static final KeyPool<JobKey> POOL = new KeyPool<JobKey>() {
+        @Override
+        protected JobKey create(String name, String group) {
+            return new JobKey(name, group);
+        }
+    };
+
     public JobKey(String name) {
         super(name, null);
     }
@@ -21,10 +30,15 @@ public final class JobKey extends Key<JobKey> {
     }
 
     public static JobKey jobKey(String name) {
-        return new JobKey(name, null);
+        return POOL.intern(new JobKey(name, null));
     }
 
     public static JobKey jobKey(String name, String group) {
-        return new JobKey(name, group);
+        return POOL.intern(new JobKey(name, group));
+    }
+
+    /** 获取与给定唯一标识相等的驻留实例 */
+    public static JobKey intern(JobKey key) {
+        return POOL.intern(key);
     }
 }
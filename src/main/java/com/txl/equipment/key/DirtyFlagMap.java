@@ -6,6 +6,8 @@ import java.util.*;
 /**
  * Created by TangXiangLin on 2023-02-13 11:27
  * 脏污标识
+ * 1. 除脏污标识外，记录自上次clearDirtyFlag以来放入/修改的键和移除的键，持久化时可以只写出变化的部分。
+ * 2. 通过keySet、values、entrySet及其迭代器的修改同样被记录。
  */
 public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializable {
 
@@ -21,6 +23,12 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
     private boolean dirty = false;
     private Map<K, V> map;
 
+    /** 放入或修改过的键，未修改时为null */
+    private Set<K> changedKeys;
+
+    /** 移除的键，未移除时为null */
+    private Set<K> removedKeys;
+
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      *
@@ -64,6 +72,16 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         map = new HashMap<K, V>(initialCapacity, loadFactor);
     }
 
+    /**
+     * <p>
+     * Create a DirtyFlagMap that 'wraps' the given <code>Map</code>, which
+     * must be empty and must not be used elsewhere.
+     * </p>
+     */
+    protected DirtyFlagMap(final Map<K, V> map) {
+        this.map = map;
+    }
+
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      *
@@ -79,6 +97,8 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
      */
     public void clearDirtyFlag() {
         dirty = false;
+        changedKeys = null;
+        removedKeys = null;
     }
 
     /**
@@ -90,6 +110,62 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         return dirty;
     }
 
+    /**
+     * <p>
+     * Get the keys that were put or modified since the dirty flag was last
+     * cleared, and that are still present in the <code>Map</code>.
+     * </p>
+     *
+     * <p>
+     * If the <code>Map</code> is dirty but both this set and
+     * {@link #getRemovedKeys()} are empty, the changes are unknown (e.g. the
+     * <code>Map</code> was deserialized from an older version) and the whole
+     * <code>Map</code> should be written.
+     * </p>
+     */
+    public Set<K> getDirtyKeys() {
+        return changedKeys == null ? Collections.<K>emptySet() : Collections.unmodifiableSet(changedKeys);
+    }
+
+    /**
+     * <p>
+     * Get the keys that were removed since the dirty flag was last cleared,
+     * and that have not been put again.
+     * </p>
+     */
+    public Set<K> getRemovedKeys() {
+        return removedKeys == null ? Collections.<K>emptySet() : Collections.unmodifiableSet(removedKeys);
+    }
+
+    /**
+     * <p>
+     * Set the 'dirty' flag and record the key as changed, for subclasses that
+     * modify the wrapped Map directly.
+     * </p>
+     */
+    protected void markDirty(final K key) {
+        dirty = true;
+        if (changedKeys == null) {
+            changedKeys = new HashSet<K>();
+        }
+        changedKeys.add(key);
+        if (removedKeys != null) {
+            removedKeys.remove(key);
+        }
+    }
+
+    /** 记录移除的键 */
+    private void markRemoved(final K key) {
+        dirty = true;
+        if (removedKeys == null) {
+            removedKeys = new HashSet<K>();
+        }
+        removedKeys.add(key);
+        if (changedKeys != null) {
+            changedKeys.remove(key);
+        }
+    }
+
     /**
      * <p>
      * Get a direct handle to the underlying Map.
@@ -101,7 +177,9 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
 
     public void clear() {
         if (!map.isEmpty()) {
-            dirty = true;
+            for (K key : map.keySet()) {
+                markRemoved(key);
+            }
         }
         map.clear();
     }
@@ -141,28 +219,31 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
     }
 
     public Set<K> keySet() {
-        return new DirtyFlagSet<K>(map.keySet());
+        return new DirtyFlagKeySet(map.keySet());
     }
 
     public V put(final K key, final V val) {
-        dirty = true;
+        markDirty(key);
 
         return map.put(key, val);
     }
 
     public void putAll(final Map<? extends K, ? extends V> t) {
-        if (!t.isEmpty()) {
-            dirty = true;
+        for (K key : t.keySet()) {
+            markDirty(key);
         }
 
         map.putAll(t);
     }
 
+    @SuppressWarnings("unchecked") // the key was in the map, so it is a K.
     public V remove(final Object key) {
+        int size = map.size();
         V obj = map.remove(key);
 
-        if (obj != null) {
-            dirty = true;
+        // 按大小判断，值为null的键被移除时同样记录
+        if (map.size() != size) {
+            markRemoved((K) key);
         }
 
         return obj;
@@ -173,7 +254,7 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
     }
 
     public Collection<V> values() {
-        return new DirtyFlagCollection<V>(map.values());
+        return new DirtyFlagValues(map.values());
     }
 
     @Override
@@ -182,8 +263,17 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         DirtyFlagMap<K, V> copy;
         try {
             copy = (DirtyFlagMap<K, V>) super.clone();
+            if (changedKeys != null) {
+                copy.changedKeys = new HashSet<K>(changedKeys);
+            }
+            if (removedKeys != null) {
+                copy.removedKeys = new HashSet<K>(removedKeys);
+            }
             if (map instanceof HashMap) {
                 copy.map = (Map<K, V>) ((HashMap<K, V>) map).clone();
+            } else if (map instanceof TypedValueMap) {
+                // 写时复制，副本与原map共用存储直到一方被修改
+                copy.map = (Map<K, V>) ((TypedValueMap) map).clone();
             }
         } catch (CloneNotSupportedException ex) {
             throw new IncompatibleClassChangeError("Not Cloneable.");
@@ -194,9 +284,10 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
 
     /**
      * Wrap a Collection so we can mark the DirtyFlagMap as dirty if
-     * the underlying Collection is modified.
+     * the underlying Collection is modified. Removals go through the
+     * wrapping iterator, which records the key of each removed element.
      */
-    private class DirtyFlagCollection<T> implements Collection<T> {
+    private abstract class DirtyFlagCollection<T> implements Collection<T> {
         private Collection<T> collection;
 
         public DirtyFlagCollection(final Collection<T> c) {
@@ -207,39 +298,43 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
             return collection;
         }
 
-        public Iterator<T> iterator() {
-            return new DirtyFlagIterator<T>(collection.iterator());
-        }
+        public abstract Iterator<T> iterator();
 
         public boolean remove(final Object o) {
-            boolean removed = collection.remove(o);
-            if (removed) {
-                dirty = true;
+            Iterator<T> it = iterator();
+            while (it.hasNext()) {
+                T element = it.next();
+                if (o == null ? element == null : o.equals(element)) {
+                    it.remove();
+                    return true;
+                }
             }
-            return removed;
+            return false;
         }
 
         public boolean removeAll(final Collection<?> c) {
-            boolean changed = collection.removeAll(c);
-            if (changed) {
-                dirty = true;
-            }
-            return changed;
+            return removeIf(c, true);
         }
 
         public boolean retainAll(final Collection<?> c) {
-            boolean changed = collection.retainAll(c);
-            if (changed) {
-                dirty = true;
+            return removeIf(c, false);
+        }
+
+        /** 移除(不)在给定集合中的元素，由迭代器逐个记录移除的键 */
+        private boolean removeIf(final Collection<?> c, final boolean contained) {
+            boolean changed = false;
+            Iterator<T> it = iterator();
+            while (it.hasNext()) {
+                if (c.contains(it.next()) == contained) {
+                    it.remove();
+                    changed = true;
+                }
             }
             return changed;
         }
 
         public void clear() {
-            if (collection.isEmpty() == false) {
-                dirty = true;
-            }
-            collection.clear();
+            DirtyFlagMap.this.clear();
         }
 
         // Pure wrapper methods
@@ -280,7 +375,7 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
      * Wrap a Set so we can mark the DirtyFlagMap as dirty if
      * the underlying Collection is modified.
      */
-    private class DirtyFlagSet<T> extends DirtyFlagCollection<T> implements Set<T> {
+    private abstract class DirtyFlagSet<T> extends DirtyFlagCollection<T> implements Set<T> {
         public DirtyFlagSet(final Set<T> set) {
             super(set);
         }
@@ -290,20 +385,66 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         }
     }
 
+    /**
+     * Wrap the key Set so a single removal records the key directly.
+     */
+    private class DirtyFlagKeySet extends DirtyFlagSet<K> {
+        public DirtyFlagKeySet(final Set<K> set) {
+            super(set);
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new DirtyFlagKeyIterator(getWrappedSet().iterator());
+        }
+
+        @SuppressWarnings("unchecked") // the key was in the map, so it is a K.
+        @Override
+        public boolean remove(final Object o) {
+            boolean removed = getWrappedSet().remove(o);
+            if (removed) {
+                markRemoved((K) o);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Wrap the values Collection, iterating over the entries so that the key
+     * of a removed value is known.
+     */
+    private class DirtyFlagValues extends DirtyFlagCollection<V> {
+        public DirtyFlagValues(final Collection<V> values) {
+            super(values);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new DirtyFlagValueIterator(map.entrySet().iterator());
+        }
+    }
+
     /**
      * Wrap an Iterator so that we can mark the DirtyFlagMap as dirty if an
-     * element is removed.
+     * element is removed, recording the key of the last returned element.
      */
-    private class DirtyFlagIterator<T> implements Iterator<T> {
-        private Iterator<T> iterator;
+    private abstract class DirtyFlagIterator<T, E> implements Iterator<T> {
+        private Iterator<E> iterator;
+        private K lastKey;
 
-        public DirtyFlagIterator(final Iterator<T> iterator) {
+        public DirtyFlagIterator(final Iterator<E> iterator) {
             this.iterator = iterator;
         }
 
+        /** 迭代的元素对应的键 */
+        protected abstract K keyOf(E element);
+
+        /** 迭代的元素转换为返回的元素 */
+        protected abstract T convert(E element);
+
         public void remove() {
-            dirty = true;
             iterator.remove();
+            markRemoved(lastKey);
         }
 
         // Pure wrapper methods
@@ -312,7 +453,42 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         }
 
         public T next() {
-            return iterator.next();
+            // 在next时取键，包装的map移除时可能移动槽位，元素不再对应原来的键
+            E element = iterator.next();
+            lastKey = keyOf(element);
+            return convert(element);
+        }
+    }
+
+    private class DirtyFlagKeyIterator extends DirtyFlagIterator<K, K> {
+        public DirtyFlagKeyIterator(final Iterator<K> iterator) {
+            super(iterator);
+        }
+
+        @Override
+        protected K keyOf(final K element) {
+            return element;
+        }
+
+        @Override
+        protected K convert(final K element) {
+            return element;
+        }
+    }
+
+    private class DirtyFlagValueIterator extends DirtyFlagIterator<V, Map.Entry<K, V>> {
+        public DirtyFlagValueIterator(final Iterator<Map.Entry<K, V>> iterator) {
+            super(iterator);
+        }
+
+        @Override
+        protected K keyOf(final Map.Entry<K, V> element) {
+            return element.getKey();
+        }
+
+        @Override
+        protected V convert(final Map.Entry<K, V> element) {
+            return element.getValue();
         }
     }
 
@@ -332,6 +508,16 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
             return new DirtyFlagMapEntryIterator(getWrappedSet().iterator());
         }
 
+        @SuppressWarnings("unchecked") // the entry was in the map, so its key is a K.
+        @Override
+        public boolean remove(final Object o) {
+            boolean removed = getWrappedSet().remove(o);
+            if (removed) {
+                markRemoved(((Map.Entry<K, V>) o).getKey());
+            }
+            return removed;
+        }
+
         @Override
         public Object[] toArray() {
             return toArray(new Object[super.size()]);
@@ -367,14 +553,19 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
      * Wrap an Iterator over Map.Entry objects so that we can
      * mark the Map as dirty if an element is removed or modified.
      */
-    private class DirtyFlagMapEntryIterator extends DirtyFlagIterator<Map.Entry<K, V>> {
+    private class DirtyFlagMapEntryIterator extends DirtyFlagIterator<Map.Entry<K, V>, Map.Entry<K, V>> {
         public DirtyFlagMapEntryIterator(final Iterator<Map.Entry<K, V>> iterator) {
             super(iterator);
         }
 
         @Override
-        public DirtyFlagMapEntry next() {
-            return new DirtyFlagMapEntry(super.next());
+        protected K keyOf(final Map.Entry<K, V> element) {
+            return element.getKey();
+        }
+
+        @Override
+        protected Map.Entry<K, V> convert(final Map.Entry<K, V> element) {
+            return new DirtyFlagMapEntry(element);
         }
     }
 
@@ -390,7 +581,7 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         }
 
         public V setValue(final V o) {
-            dirty = true;
+            markDirty(entry.getKey());
             return entry.setValue(o);
         }
 
@@ -406,5 +597,9 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         public boolean equals(Object o) {
             return entry.equals(o);
         }
+
+        public int hashCode() {
+            return entry.hashCode();
+        }
     }
 }
@@ -5,6 +5,9 @@ import java.util.UUID;
 
 /**
  * Created by TangXiangLin on 2023-02-13 11:04
+ * 唯一标识
+ * 1. 哈希值在首次使用时计算并缓存，唯一标识不可修改。
+ * 2. 经KeyPool驻留的唯一标识共用实例，比较时先按引用判断。
  */
 public class Key<T>  implements Serializable, Comparable<Key<T>> {
     private static final long serialVersionUID = -7141167957642391350L;
@@ -15,6 +18,8 @@ public class Key<T>  implements Serializable, Comparable<Key<T>> {
     private final String name;
     /** 触发器的组 */
     private final String group;
+    /** 缓存的哈希值，0表示尚未计算(反序列化后重新计算) */
+    private transient int hash;
 
     public Key(String name, String group) {
         if(name == null)
@@ -42,10 +47,14 @@ public class Key<T>  implements Serializable, Comparable<Key<T>> {
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((group == null) ? 0 : group.hashCode());
-        result = prime * result + ((name == null) ? 0 : name.hashCode());
+        int result = hash;
+        if (result == 0) {
+            final int prime = 31;
+            result = 1;
+            result = prime * result + ((group == null) ? 0 : group.hashCode());
+            result = prime * result + ((name == null) ? 0 : name.hashCode());
+            hash = result;
+        }
         return result;
     }
 
@@ -59,6 +68,8 @@ public class Key<T>  implements Serializable, Comparable<Key<T>> {
             return false;
         @SuppressWarnings("unchecked")
         Key<T> other = (Key<T>) obj;
+        if (hashCode() != other.hashCode())
+            return false;
         if (group == null) {
             if (other.group != null)
                 return false;
@@ -73,17 +84,25 @@ public class Key<T>  implements Serializable, Comparable<Key<T>> {
     }
 
     public int compareTo(Key<T> o) {
+        if(this == o)
+            return 0;
+
+        // 同一组的唯一标识通常共用组名的实例，此时跳过组的比较
+        if(group != o.group) {
+            boolean defaultGroup = isDefaultGroup(group);
+            if(defaultGroup != isDefaultGroup(o.group))
+                return defaultGroup ? -1 : 1;
 
-        if(group.equals(DEFAULT_GROUP) && !o.group.equals(DEFAULT_GROUP))
-            return -1;
-        if(!group.equals(DEFAULT_GROUP) && o.group.equals(DEFAULT_GROUP))
-            return 1;
+            int r = group.compareTo(o.group);
+            if(r != 0)
+                return r;
+        }
 
-        int r = group.compareTo(o.getGroup());
-        if(r != 0)
-            return r;
+        return name.compareTo(o.name);
+    }
 
-        return name.compareTo(o.getName());
+    private static boolean isDefaultGroup(String group) {
+        return group == DEFAULT_GROUP || group.equals(DEFAULT_GROUP);
     }
 
     public static String createUniqueName(String group) {
@@ -0,0 +1,84 @@
+package com.txl.equipment.key;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by TangXiangLin on 2023-03-08 16:10
+ * 唯一标识的驻留池
+ * 1. 相等的唯一标识驻留后共用同一个实例，作为索引的键查找时按引用即可判断相等。
+ * 2. 驻留的实例为弱引用，不再使用时可以被回收，回收后的条目在下次驻留时清理。
+ * 3. 池中以一个相等的影子实例作为键，查找时直接用给定的唯一标识，不需要另外分配查找对象。
+ * 4. 线程安全。
+ */
+public abstract class KeyPool<K extends Key<?>> {
+
+    private final ConcurrentHashMap<K, Ref<K>> pool = new ConcurrentHashMap<K, Ref<K>>();
+
+    private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+
+    /** 创建与给定名称、组相等的新实例，作为池中的键 */
+    protected abstract K create(String name, String group);
+
+    /** 获取与给定唯一标识相等的驻留实例，池中没有时驻留给定的实例 */
+    public K intern(K key) {
+        if (key == null) {
+            return null;
+        }
+        Ref<K> ref = pool.get(key);
+        if (ref != null) {
+            K cached = ref.get();
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return internSlow(key);
+    }
+
+    /** 当前驻留的唯一标识数，包括已回收但尚未清理的条目 */
+    public int size() {
+        return pool.size();
+    }
+
+    private K internSlow(K key) {
+        expunge();
+        K shadow = null;
+        for (;;) {
+            Ref<K> ref = pool.get(key);
+            if (ref != null) {
+                K cached = ref.get();
+                if (cached != null) {
+                    return cached;
+                }
+                pool.remove(ref.shadow, ref);
+                continue;
+            }
+            if (shadow == null) {
+                shadow = create(key.getName(), key.getGroup());
+            }
+            if (pool.putIfAbsent(shadow, new Ref<K>(key, shadow, queue)) == null) {
+                return key;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked") // only Ref instances are registered with the queue.
+    private void expunge() {
+        Ref<K> ref;
+        while ((ref = (Ref<K>) queue.poll()) != null) {
+            pool.remove(ref.shadow, ref);
+        }
+    }
+
+    /** 驻留实例的弱引用，持有作为池中键的影子实例以便回收后清理 */
+    private static final class Ref<K> extends WeakReference<K> {
+
+        final K shadow;
+
+        Ref(K key, K shadow, ReferenceQueue<K> queue) {
+            super(key, queue);
+            this.shadow = shadow;
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.txl.equipment.key;
 import com.txl.equipment.key.DirtyFlagMap;
 
 import java.io.Serializable;
+import java.util.Map;
 
 /**
  * Created by TangXiangLin on 2023-02-13 11:29
  * 字符类型的脏污标识
+ * 1. 值存放在TypedValueMap中，按原始类型放入、读取时不装箱；Map接口读取原始类型的值时装箱。
  */
 public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     static final long serialVersionUID = -9076749120524952280L;
@@ -19,15 +21,15 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     private boolean allowsTransientData = false;
 
     public StringKeyDirtyFlagMap() {
-        super();
+        super(new TypedValueMap());
     }
 
     public StringKeyDirtyFlagMap(int initialCapacity) {
-        super(initialCapacity);
+        super(new TypedValueMap(initialCapacity));
     }
 
     public StringKeyDirtyFlagMap(int initialCapacity, float loadFactor) {
-        super(initialCapacity, loadFactor);
+        super(new TypedValueMap(initialCapacity));
     }
 
     @Override
@@ -128,28 +130,57 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     }
 
 
+    /**
+     * 获取按类型存放值的map，反序列化自旧版本(包装HashMap)时返回null
+     */
+    protected TypedValueMap getTypedValues() {
+        Map<String, Object> map = getWrappedMap();
+        return map instanceof TypedValueMap ? (TypedValueMap) map : null;
+    }
+
+    /**
+     * 按原始类型放入，不装箱；旧版本的实例装箱后放入
+     */
+    protected void putRaw(String key, int kind, long raw) {
+        TypedValueMap values = getTypedValues();
+        if (values == null) {
+            super.put(key, TypedValueMap.box(kind, raw));
+            return;
+        }
+        markDirty(key);
+        values.putRaw(key, kind, raw);
+    }
+
+    /**
+     * 获取给定类型的值所在的槽位，值不是该类型时返回-1
+     */
+    private int indexOf(String key, int type) {
+        TypedValueMap values = getTypedValues();
+        return values == null ? -1 : values.indexOf(key, type);
+    }
+
     public void put(String key, int value) {
-        super.put(key, Integer.valueOf(value));
+        putRaw(key, TypedValueMap.INT, value);
     }
 
     public void put(String key, long value) {
-        super.put(key, Long.valueOf(value));
+        putRaw(key, TypedValueMap.LONG, value);
     }
 
     public void put(String key, float value) {
-        super.put(key, Float.valueOf(value));
+        putRaw(key, TypedValueMap.FLOAT, TypedValueMap.toRaw(value));
     }
 
     public void put(String key, double value) {
-        super.put(key, Double.valueOf(value));
+        putRaw(key, TypedValueMap.DOUBLE, TypedValueMap.toRaw(value));
     }
 
     public void put(String key, boolean value) {
-        super.put(key, Boolean.valueOf(value));
+        putRaw(key, TypedValueMap.BOOLEAN, TypedValueMap.toRaw(value));
     }
 
     public void put(String key, char value) {
-        super.put(key, Character.valueOf(value));
+        putRaw(key, TypedValueMap.CHAR, value);
     }
 
     public void put(String key, String value) {
@@ -162,6 +193,10 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     }
 
     public int getInt(String key) {
+        int i = indexOf(key, TypedValueMap.INT);
+        if (i >= 0) {
+            return (int) getTypedValues().rawAt(i);
+        }
         Object obj = get(key);
 
         try {
@@ -174,6 +209,10 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     }
 
     public long getLong(String key) {
+        int i = indexOf(key, TypedValueMap.LONG);
+        if (i >= 0) {
+            return getTypedValues().rawAt(i);
+        }
         Object obj = get(key);
 
         try {
@@ -186,6 +225,10 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     }
 
     public float getFloat(String key) {
+        int i = indexOf(key, TypedValueMap.FLOAT);
+        if (i >= 0) {
+            return TypedValueMap.toFloat(getTypedValues().rawAt(i));
+        }
         Object obj = get(key);
 
         try {
@@ -198,6 +241,10 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     }
 
     public double getDouble(String key) {
+        int i = indexOf(key, TypedValueMap.DOUBLE);
+        if (i >= 0) {
+            return TypedValueMap.toDouble(getTypedValues().rawAt(i));
+        }
         Object obj = get(key);
 
         try {
@@ -210,6 +257,10 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     }
 
     public boolean getBoolean(String key) {
+        int i = indexOf(key, TypedValueMap.BOOLEAN);
+        if (i >= 0) {
+            return getTypedValues().rawAt(i) != 0L;
+        }
         Object obj = get(key);
 
         try {
@@ -222,6 +273,10 @@ public class StringKeyDirtyFlagMap extends DirtyFlagMap<String, Object> {
     }
 
     public char getChar(String key) {
+        int i = indexOf(key, TypedValueMap.CHAR);
+        if (i >= 0) {
+            return (char) getTypedValues().rawAt(i);
+        }
         Object obj = get(key);
 
         try {
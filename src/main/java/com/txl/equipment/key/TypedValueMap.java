@@ -0,0 +1,641 @@
+package com.txl.equipment.key;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+
+/**
+ * Created by TangXiangLin on 2023-03-07 09:30
+ * 按类型存放值的字符键map
+ * 1. 每个键值对占用一个槽位，int、long、float、double、boolean、char以原始位存放在long数组中，
+ *    其余的值存放在Object数组中；按类型存取时不装箱，通过Map接口读取时才装箱(兼容原有的Map视图)。
+ * 2. 以字符串形式放入的原始类型(putAsString)同样按原始位存放并带AS_STRING标志，
+ *    Map视图中表现为字符串，按类型读取时不需要解析。
+ * 3. 槽位按放入顺序紧密排列，键较少时顺序查找(先比较散列值)，超过INDEX_THRESHOLD个时建立开放寻址的索引；
+ *    移除时用最后一个槽位填补空缺。
+ * 4. 写时复制：clone时副本与原map共用槽位数组并都标记为共享，任何一方修改前先复制数组，
+ *    克隆触发器、作业任务时不再复制整个map。
+ * 5. 实现不要求线程安全，与HashMap相同；共用的数组在共享期间不会被修改
+ *    (只有以字符串形式放入的值会在首次读取时缓存等值的字符串)，修改各自的副本不需要额外同步。
+ */
+public final class TypedValueMap extends AbstractMap<String, Object> implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 4031258329765216118L;
+
+    public static final int OBJECT = 0;
+    public static final int INT = 1;
+    public static final int LONG = 2;
+    public static final int FLOAT = 3;
+    public static final int DOUBLE = 4;
+    public static final int BOOLEAN = 5;
+    public static final int CHAR = 6;
+
+    /** 以字符串形式放入的原始类型 */
+    public static final int AS_STRING = 0x10;
+
+    private static final int TYPE_MASK = 0x0F;
+
+    /** 超过该数量时建立索引 */
+    private static final int INDEX_THRESHOLD = 16;
+
+    private static final String[] EMPTY_KEYS = new String[0];
+
+    /** 首次放入时的容量 */
+    private final int initialCapacity;
+
+    private String[] keys = EMPTY_KEYS;
+    private int[] hashes;
+    private byte[] kinds;
+    /** 原始类型的值 */
+    private long[] raws;
+    /** 对象类型的值，以及以字符串形式放入的原始类型的字符串缓存 */
+    private Object[] refs;
+
+    private int size;
+
+    /** 散列槽到槽位的索引，存放槽位下标加一，0为空；键较少时为null */
+    private transient int[] index;
+
+    private transient int modCount;
+
+    /** 槽位数组是否可能与其它map共用，共用时修改前需要先复制 */
+    private transient boolean shared;
+
+    public TypedValueMap() {
+        this(4);
+    }
+
+    public TypedValueMap(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+        this.initialCapacity = Math.max(initialCapacity, 1);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Typed access.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /** 获取键所在的槽位，不存在时返回-1 */
+    public int indexOf(Object key) {
+        if (key != null && !(key instanceof String)) {
+            return -1;
+        }
+        int[] idx = index;
+        if (idx == null) {
+            // 键通常是同一个字符串常量，先按引用比较
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+        }
+        int h = hash(key);
+        if (idx == null) {
+            for (int i = 0; i < size; i++) {
+                if (hashes[i] == h && eq(key, keys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int mask = idx.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int p = idx[slot];
+            if (p == 0) {
+                return -1;
+            }
+            if (hashes[p - 1] == h && eq(key, keys[p - 1])) {
+                return p - 1;
+            }
+        }
+    }
+
+    /** 获取键所在的槽位，值的类型(不论是否以字符串形式放入)与给定类型不同时返回-1 */
+    public int indexOf(Object key, int type) {
+        int i = indexOf(key);
+        return i >= 0 && (kinds[i] & TYPE_MASK) == type ? i : -1;
+    }
+
+    /** 槽位中的键，槽位下标从0到size()-1 */
+    public String keyAt(int i) {
+        return keys[i];
+    }
+
+    /** 槽位中值的类型，带AS_STRING标志 */
+    public int kindAt(int i) {
+        return kinds[i];
+    }
+
+    /** 槽位中原始类型的值 */
+    public long rawAt(int i) {
+        return raws[i];
+    }
+
+    /** 放入原始类型的值，不装箱 */
+    public void putRaw(String key, int kind, long raw) {
+        ensureOwned();
+        int i = indexOf(key);
+        if (i < 0) {
+            i = addSlot(key);
+        }
+        kinds[i] = (byte) kind;
+        raws[i] = raw;
+        refs[i] = null;
+    }
+
+    public static long toRaw(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    public static long toRaw(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    public static long toRaw(boolean value) {
+        return value ? 1L : 0L;
+    }
+
+    public static float toFloat(long raw) {
+        return Float.intBitsToFloat((int) raw);
+    }
+
+    public static double toDouble(long raw) {
+        return Double.longBitsToDouble(raw);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Map.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : valueAt(i);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        ensureOwned();
+        int i = indexOf(key);
+        Object old = null;
+        if (i < 0) {
+            i = addSlot(key);
+        } else {
+            old = valueAt(i);
+        }
+        kinds[i] = OBJECT;
+        raws[i] = 0L;
+        refs[i] = value;
+        return old;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> m) {
+        Map<?, ?> source = m instanceof DirtyFlagMap ? ((DirtyFlagMap<?, ?>) m).getWrappedMap() : m;
+        if (!(source instanceof TypedValueMap)) {
+            super.putAll(m);
+            return;
+        }
+        // 同类型的map直接复制槽位，不装箱
+        TypedValueMap other = (TypedValueMap) source;
+        if (size == 0) {
+            copyFrom(other);
+            return;
+        }
+        ensureOwned();
+        for (int j = 0; j < other.size; j++) {
+            int i = indexOf(other.keys[j]);
+            if (i < 0) {
+                i = addSlot(other.keys[j]);
+            }
+            kinds[i] = other.kinds[j];
+            raws[i] = other.raws[j];
+            refs[i] = other.refs[j];
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        Object old = valueAt(i);
+        removeAt(i);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        if (shared) {
+            keys = EMPTY_KEYS;
+            hashes = null;
+            kinds = null;
+            raws = null;
+            refs = null;
+            shared = false;
+        } else {
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(refs, 0, size, null);
+        }
+        size = 0;
+        index = null;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public TypedValueMap clone() {
+        TypedValueMap copy;
+        try {
+            copy = (TypedValueMap) super.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new IncompatibleClassChangeError("Not Cloneable.");
+        }
+        // 共用槽位数组，任何一方修改前再复制
+        shared = true;
+        copy.shared = true;
+        copy.modCount = 0;
+        return copy;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Internals.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /** 以对象形式获取槽位中的值，原始类型在这里装箱 */
+    public Object valueAt(int i) {
+        int kind = kinds[i];
+        if (kind == OBJECT) {
+            return refs[i];
+        }
+        if ((kind & AS_STRING) != 0) {
+            Object str = refs[i];
+            if (str == null) {
+                str = toString(kind & TYPE_MASK, raws[i]);
+                refs[i] = str;
+            }
+            return str;
+        }
+        return box(kind, raws[i]);
+    }
+
+    /** 将原始类型的值转为对象，以字符串形式放入的转为字符串 */
+    public static Object box(int kind, long raw) {
+        if ((kind & AS_STRING) != 0) {
+            return toString(kind & TYPE_MASK, raw);
+        }
+        switch (kind) {
+            case INT:
+                return Integer.valueOf((int) raw);
+            case LONG:
+                return Long.valueOf(raw);
+            case FLOAT:
+                return Float.valueOf(toFloat(raw));
+            case DOUBLE:
+                return Double.valueOf(toDouble(raw));
+            case BOOLEAN:
+                return Boolean.valueOf(raw != 0L);
+            case CHAR:
+                return Character.valueOf((char) raw);
+            default:
+                throw new IllegalStateException("Unknown kind: " + kind);
+        }
+    }
+
+    /** 与JobDataMap.putAsString原有的转换保持一致 */
+    private static String toString(int type, long raw) {
+        switch (type) {
+            case INT:
+                return Integer.toString((int) raw);
+            case LONG:
+                return Long.toString(raw);
+            case FLOAT:
+                return Float.toString(toFloat(raw));
+            case DOUBLE:
+                return Double.toString(toDouble(raw));
+            case BOOLEAN:
+                return Boolean.toString(raw != 0L);
+            case CHAR:
+                return String.valueOf((char) raw);
+            default:
+                throw new IllegalStateException("Unknown kind: " + type);
+        }
+    }
+
+    private Object setValueAt(int i, Object value) {
+        ensureOwned();
+        Object old = valueAt(i);
+        kinds[i] = OBJECT;
+        raws[i] = 0L;
+        refs[i] = value;
+        return old;
+    }
+
+    /** 当前为空时整体复制另一个map的槽位 */
+    private void copyFrom(TypedValueMap other) {
+        int n = other.size;
+        if (n == 0) {
+            return;
+        }
+        int capacity = Math.max(n, initialCapacity);
+        keys = Arrays.copyOf(other.keys, capacity);
+        hashes = Arrays.copyOf(other.hashes, capacity);
+        kinds = Arrays.copyOf(other.kinds, capacity);
+        raws = Arrays.copyOf(other.raws, capacity);
+        refs = Arrays.copyOf(other.refs, capacity);
+        size = n;
+        index = other.index == null ? null : other.index.clone();
+        shared = false;
+        modCount++;
+    }
+
+    /** 槽位数组与其它map共用时先复制一份 */
+    private void ensureOwned() {
+        if (!shared) {
+            return;
+        }
+        if (keys.length > 0) {
+            keys = keys.clone();
+            hashes = hashes.clone();
+            kinds = kinds.clone();
+            raws = raws.clone();
+            refs = refs.clone();
+        }
+        if (index != null) {
+            index = index.clone();
+        }
+        shared = false;
+    }
+
+    private int addSlot(String key) {
+        if (size == keys.length) {
+            grow();
+        }
+        int i = size++;
+        keys[i] = key;
+        hashes[i] = hash(key);
+        modCount++;
+        if (index != null) {
+            if (size * 2 > index.length) {
+                buildIndex();
+            } else {
+                insertIndex(i);
+            }
+        } else if (size > INDEX_THRESHOLD) {
+            buildIndex();
+        }
+        return i;
+    }
+
+    private void grow() {
+        int capacity = keys.length == 0 ? initialCapacity : keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        hashes = hashes == null ? new int[capacity] : Arrays.copyOf(hashes, capacity);
+        kinds = kinds == null ? new byte[capacity] : Arrays.copyOf(kinds, capacity);
+        raws = raws == null ? new long[capacity] : Arrays.copyOf(raws, capacity);
+        refs = refs == null ? new Object[capacity] : Arrays.copyOf(refs, capacity);
+    }
+
+    /** 移除槽位，用最后一个槽位填补 */
+    private void removeAt(int i) {
+        ensureOwned();
+        int last = size - 1;
+        if (index != null) {
+            deleteIndex(i);
+            if (i != last) {
+                relinkIndex(last, i);
+            }
+        }
+        if (i != last) {
+            keys[i] = keys[last];
+            hashes[i] = hashes[last];
+            kinds[i] = kinds[last];
+            raws[i] = raws[last];
+            refs[i] = refs[last];
+        }
+        keys[last] = null;
+        refs[last] = null;
+        size = last;
+        modCount++;
+    }
+
+    private void buildIndex() {
+        int capacity = Integer.highestOneBit(Math.max(size, INDEX_THRESHOLD) * 4 - 1);
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertIndex(i);
+        }
+    }
+
+    private void insertIndex(int i) {
+        int mask = index.length - 1;
+        int slot = hashes[i] & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = i + 1;
+    }
+
+    private int findIndexSlot(int i) {
+        int mask = index.length - 1;
+        int slot = hashes[i] & mask;
+        while (index[slot] != i + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** 从索引中删除槽位，后面同一探测序列上的项向前移动(不留墓碑) */
+    private void deleteIndex(int i) {
+        int mask = index.length - 1;
+        int hole = findIndexSlot(i);
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            int p = index[j];
+            if (p == 0) {
+                break;
+            }
+            int home = hashes[p - 1] & mask;
+            // home不在(hole, j]之间时可以移到hole
+            boolean stay = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (!stay) {
+                index[hole] = p;
+                hole = j;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    /** 槽位from移动到to时更新索引 */
+    private void relinkIndex(int from, int to) {
+        index[findIndexSlot(from)] = to + 1;
+    }
+
+    private static int hash(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean eq(Object a, Object b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (size > INDEX_THRESHOLD) {
+            buildIndex();
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            int i = indexOf(e.getKey());
+            return i >= 0 && eq(valueAt(i), e.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            removeAt(indexOf(((Map.Entry<?, ?>) o).getKey()));
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            TypedValueMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int cursor;
+
+        private int lastReturned = -1;
+
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public Entry<String, Object> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (cursor >= size) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor++;
+            return new SlotEntry(lastReturned);
+        }
+
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // 最后一个槽位移到了lastReturned，下次从这里继续
+            removeAt(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class SlotEntry implements Map.Entry<String, Object> {
+
+        private final int i;
+
+        SlotEntry(int i) {
+            this.i = i;
+        }
+
+        public String getKey() {
+            return keys[i];
+        }
+
+        public Object getValue() {
+            return valueAt(i);
+        }
+
+        public Object setValue(Object value) {
+            return setValueAt(i, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return eq(getKey(), e.getKey()) && eq(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            Object key = getKey();
+            Object value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
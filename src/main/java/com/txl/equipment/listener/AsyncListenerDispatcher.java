@@ -0,0 +1,242 @@
+package com.txl.equipment.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Created by TangXiangLin on 2023-03-06 14:30
+ * 监听器异步通知
+ * 1. 监听器的回调(作业任务执行完毕、触发器完成、调度器事件等)写入有界的环形队列，由专门的通知线程执行，
+ *    较慢的监听器(如审计日志)不再阻塞触发线程和作业任务线程；能否决作业任务执行的回调不经过本类，仍然同步调用。
+ * 2. 每个通知线程有自己的队列，同一个监听器的事件总是进入同一个队列，保证同一个监听器收到事件的顺序。
+ * 3. 队列已满时按溢出策略处理：BLOCK等待队列有空位，DROP_OLDEST丢弃最早的事件，RUN_INLINE在调用线程中直接通知
+ *    (该事件可能早于队列中同一个监听器的事件到达)。
+ * 4. 通知线程内再次发出的事件在队列已满时直接执行，不会等待自己。
+ */
+public class AsyncListenerDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncListenerDispatcher.class);
+
+    /** 缺省的队列容量 */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    /** 队列空闲时通知线程的最长等待时间(纳秒) */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** BLOCK策略下写入方的最长等待时间(纳秒) */
+    private static final long MAX_BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** 队列溢出策略 */
+    public enum OverflowPolicy {
+        /** 等待队列有空位 */
+        BLOCK,
+        /** 丢弃最早的事件 */
+        DROP_OLDEST,
+        /** 在调用线程中直接通知 */
+        RUN_INLINE
+    }
+
+    private final Worker[] workers;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private volatile boolean shutdown = false;
+
+    /** 丢弃的事件数 */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /** 因队列已满而在调用线程中执行的事件数 */
+    private final AtomicLong inlineCount = new AtomicLong();
+
+    // 1. Constructor
+    public AsyncListenerDispatcher(String name) {
+        this(name, 1, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /** 队列容量向上取为2的幂 */
+    public AsyncListenerDispatcher(String name, int threadCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be > 0");
+        }
+        if (queueCapacity < 2) {
+            throw new IllegalArgumentException("Queue capacity must be > 1");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Overflow policy cannot be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+        int capacity = Integer.highestOneBit(queueCapacity - 1) << 1;
+        this.workers = new Worker[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            workers[i] = new Worker(name + "_ListenerDispatcher-" + i, new ListenerEventRing(capacity));
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    // 2. 通知
+    /** 将监听器的事件交给通知线程，已停止时在调用线程中直接通知 */
+    public void dispatch(Object listener, Runnable event) {
+        if (shutdown) {
+            event.run();
+            return;
+        }
+        Worker worker = workers[(System.identityHashCode(listener) & Integer.MAX_VALUE) % workers.length];
+        if (!worker.ring.offer(event) && !handleOverflow(worker, event)) {
+            return;
+        }
+        if (shutdown) {
+            // 与停止并发写入的事件，通知线程可能已经退出，由调用线程取完
+            drain(worker);
+        } else if (worker.parked) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /** 队列已满时按溢出策略处理，事件已写入队列时返回true */
+    private boolean handleOverflow(Worker worker, Runnable event) {
+        if (Thread.currentThread() instanceof Worker) {
+            inlineCount.incrementAndGet();
+            event.run();
+            return false;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                long parkNanos = 1000L;
+                while (!worker.ring.offer(event)) {
+                    if (shutdown) {
+                        event.run();
+                        return false;
+                    }
+                    LockSupport.unpark(worker);
+                    LockSupport.parkNanos(this, parkNanos);
+                    parkNanos = Math.min(parkNanos << 1, MAX_BLOCK_PARK_NANOS);
+                }
+                return true;
+            case DROP_OLDEST:
+                while (!worker.ring.offer(event)) {
+                    if (worker.ring.poll() != null && droppedCount.incrementAndGet() % 1000 == 1) {
+                        logger.warn("Listener event queue of " + worker.getName()
+                                + " is full, dropped " + droppedCount.get() + " events so far.");
+                    }
+                }
+                return true;
+            default:
+                inlineCount.incrementAndGet();
+                event.run();
+                return false;
+        }
+    }
+
+    /** 停止通知线程，队列中剩余的事件执行完毕后返回；之后的事件在调用线程中直接通知 */
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        if (Thread.currentThread() instanceof Worker) {
+            return;
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            drain(worker);
+        }
+    }
+
+    /** 在调用线程中执行队列中剩余的事件 */
+    private void drain(Worker worker) {
+        Runnable event;
+        while ((event = worker.ring.poll()) != null) {
+            worker.runEvent(event);
+        }
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getThreadCount() {
+        return workers.length;
+    }
+
+    /** 队列中等待通知的事件数(近似值) */
+    public int getPendingCount() {
+        int pending = 0;
+        for (Worker worker : workers) {
+            pending += worker.ring.size();
+        }
+        return pending;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getInlineCount() {
+        return inlineCount.get();
+    }
+
+    /** 通知线程，依次执行自己队列中的事件 */
+    private final class Worker extends Thread {
+
+        private final ListenerEventRing ring;
+
+        /** 是否因队列为空而等待，写入方据此决定是否唤醒 */
+        private volatile boolean parked = false;
+
+        Worker(String name, ListenerEventRing ring) {
+            super(name);
+            this.ring = ring;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable event = ring.poll();
+                if (event != null) {
+                    runEvent(event);
+                    continue;
+                }
+                if (shutdown) {
+                    // 停止标志之后写入的事件在调用线程中执行，再取一次即可取完
+                    while ((event = ring.poll()) != null) {
+                        runEvent(event);
+                    }
+                    return;
+                }
+                parked = true;
+                event = ring.poll();
+                if (event == null && !shutdown) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+                if (event != null) {
+                    runEvent(event);
+                }
+            }
+        }
+
+        private void runEvent(Runnable event) {
+            try {
+                event.run();
+            } catch (Throwable t) {
+                logger.error("Listener notification threw an unhandled exception.", t);
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.txl.equipment.listener;
 import com.txl.equipment.exception.LinkageIllegalArgumentException;
 import com.txl.equipment.job.JobKey;
 import com.txl.equipment.job.JobListener;
+import com.txl.equipment.key.Key;
 import com.txl.equipment.matcher.EverythingMatcher;
 import com.txl.equipment.matcher.Matcher;
 import com.txl.equipment.schedule.SchedulerListener;
@@ -12,24 +13,46 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by TangXiangLin on 2023-02-15 12:05
  * 缺省的监听器管理实现
+ * 1. 每个监听器的匹配器在变更时编译为一个判断(见MatcherCompiler)，触发时直接使用编译结果。
+ * 2. 监听器及其匹配器保存在不可修改的快照中，通过volatile引用发布；注册、移除等写操作很少，
+ *    在写锁内复制出新的快照，每次触发时的读操作不加锁、不复制。
+ * 3. 按作业任务标识、触发器标识缓存匹配的监听器，触发时只查一次缓存；缓存项记录快照的版本号，
+ *    注册表修改后版本号变化，旧的缓存项在下一次查询时重新计算。缓存项数量超过上限时清空。
  */
 public class DefaultListenerManager implements ListenerManager {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultListenerManager.class);
 
-    protected final Map<String, JobListener> globalJobListeners = new LinkedHashMap<String, JobListener>(10);
+    /** 作业任务监听器的快照 */
+    protected volatile ListenerRegistry<JobListener, JobKey> jobListeners = ListenerRegistry.empty();
 
-    protected final Map<String, TriggerListener> globalTriggerListeners = new LinkedHashMap<String, TriggerListener>(10);
+    /** 触发器监听器的快照 */
+    protected volatile ListenerRegistry<TriggerListener, TriggerKey> triggerListeners = ListenerRegistry.empty();
 
-    protected final Map<String, List<Matcher<JobKey>>> globalJobListenersMatchers = new LinkedHashMap<String, List<Matcher<JobKey>>>(10);
+    /** 调度器监听器的快照 */
+    protected volatile List<SchedulerListener> schedulerListeners = Collections.emptyList();
 
-    protected final Map<String, List<Matcher<TriggerKey>>> globalTriggerListenersMatchers = new LinkedHashMap<String, List<Matcher<TriggerKey>>>(10);
+    /** 缺省的缓存项数量上限 */
+    public static final int DEFAULT_MAX_CACHED_KEYS = 1 << 18;
 
-    protected final ArrayList<SchedulerListener> schedulerListeners = new ArrayList<SchedulerListener>(10);
+    /** 按作业任务标识缓存的匹配的监听器 */
+    protected final ConcurrentHashMap<JobKey, Resolved<JobListener>> jobListenersByKey =
+            new ConcurrentHashMap<JobKey, Resolved<JobListener>>(1024);
+
+    /** 按触发器标识缓存的匹配的监听器 */
+    protected final ConcurrentHashMap<TriggerKey, Resolved<TriggerListener>> triggerListenersByKey =
+            new ConcurrentHashMap<TriggerKey, Resolved<TriggerListener>>(1024);
+
+    /** 缓存项数量上限 */
+    private volatile int maxCachedKeys = DEFAULT_MAX_CACHED_KEYS;
+
+    /** 写锁，只在修改快照时持有 */
+    protected final Object writeLock = new Object();
 
 
     public void addJobListener(JobListener jobListener) {
@@ -41,15 +64,14 @@ public class DefaultListenerManager implements ListenerManager {
             throw new LinkageIllegalArgumentException("Add JobListener To Schedule Name Cannot Be Empty.");
         }
 
-        synchronized (globalJobListeners){
-            globalJobListeners.put(jobListener.gerName(),jobListener);
-            LinkedList<Matcher<JobKey>> matchersL = new LinkedList<Matcher<JobKey>>();
-            if(matcher != null){
-                matchersL.add(matcher);
-            } else {
-              matchersL.add(EverythingMatcher.allJobs());
-            }
-            globalJobListenersMatchers.put(jobListener.gerName(), matchersL);
+        List<Matcher<JobKey>> matchersL = new ArrayList<Matcher<JobKey>>(1);
+        if(matcher != null){
+            matchersL.add(matcher);
+        } else {
+            matchersL.add(EverythingMatcher.allJobs());
+        }
+        synchronized (writeLock){
+            jobListeners = jobListeners.put(jobListener.gerName(), jobListener, matchersL);
             logger.info("Add JobListener To Schedule Success.");
         }
 
@@ -64,15 +86,14 @@ public class DefaultListenerManager implements ListenerManager {
             throw new LinkageIllegalArgumentException("Add JobListener To Schedule Name Cannot Be Empty.");
         }
 
-        synchronized (globalJobListeners) {
-            globalJobListeners.put(jobListener.gerName(), jobListener);
-            LinkedList<Matcher<JobKey>> matchersL = new  LinkedList<Matcher<JobKey>>();
-            if(matchers != null && matchers.size() > 0) {
-                matchersL.addAll(matchers);
-            } else {
-                matchersL.add(EverythingMatcher.allJobs());
-            }
-            globalJobListenersMatchers.put(jobListener.gerName(), matchersL);
+        List<Matcher<JobKey>> matchersL = new ArrayList<Matcher<JobKey>>();
+        if(matchers != null && matchers.size() > 0) {
+            matchersL.addAll(matchers);
+        } else {
+            matchersL.add(EverythingMatcher.allJobs());
+        }
+        synchronized (writeLock) {
+            jobListeners = jobListeners.put(jobListener.gerName(), jobListener, matchersL);
             logger.info("Add JobListener To Schedule Success.");
         }
 
@@ -83,13 +104,15 @@ public class DefaultListenerManager implements ListenerManager {
             throw new LinkageIllegalArgumentException("Add Matcher JobKey is not acceptable Null.");
         }
 
-        synchronized (globalJobListeners) {
-            List<Matcher<JobKey>> matchers = globalJobListenersMatchers.get(listenerName);
+        synchronized (writeLock) {
+            List<Matcher<JobKey>> matchers = jobListeners.getMatchers(listenerName);
             if(matchers == null){
                 logger.error("Add Matcher JobKey To ListenerManager Failed.");
                 return false;
             }
-            matchers.add(matcher);
+            List<Matcher<JobKey>> matchersL = new ArrayList<Matcher<JobKey>>(matchers);
+            matchersL.add(matcher);
+            jobListeners = jobListeners.withMatchers(listenerName, matchersL);
             logger.info("Add Matcher JobKey To ListenerManager Success.");
             return true;
         }
@@ -99,27 +122,34 @@ public class DefaultListenerManager implements ListenerManager {
         if(matcher == null){
             throw new LinkageIllegalArgumentException("Remove Matcher JobKey is not acceptable Null.");
         }
-        synchronized (globalJobListeners) {
-            List<Matcher<JobKey>> matchers = globalJobListenersMatchers.get(listenerName);
+        synchronized (writeLock) {
+            List<Matcher<JobKey>> matchers = jobListeners.getMatchers(listenerName);
             if(matchers == null){
                 logger.error("Remove Matcher JobKey From ListenerManager Failed.");
                 return false;
             }
+            List<Matcher<JobKey>> matchersL = new ArrayList<Matcher<JobKey>>(matchers);
+            boolean removed = matchersL.remove(matcher);
+            if (removed) {
+                jobListeners = jobListeners.withMatchers(listenerName, matchersL);
+            }
             logger.info("Remove Matcher JobKey From ListenerManager Success.");
-            return matchers.remove(matcher);
+            return removed;
         }
     }
 
+    public Matcher<JobKey> getJobListenerMatcher(String listenerName) {
+        return jobListeners.getMatcher(listenerName);
+    }
+
     public List<Matcher<JobKey>> getJobListenerMatchers(String listenerName) {
-        synchronized (globalJobListeners) {
-            List<Matcher<JobKey>> matchers = globalJobListenersMatchers.get(listenerName);
-            if(matchers == null){
-                logger.error("Get Matcher JobKey From ListenerManager is Null.");
-                return null;
-            }
-            logger.info("Get Matcher JobKey From ListenerManager is {}",matchers.size());
-            return Collections.unmodifiableList(matchers);
+        List<Matcher<JobKey>> matchers = jobListeners.getMatchers(listenerName);
+        if(matchers == null){
+            logger.debug("Get Matcher JobKey From ListenerManager is Null.");
+            return null;
         }
+        logger.debug("Get Matcher JobKey From ListenerManager is {}",matchers.size());
+        return matchers;
     }
 
     public boolean setJobListenerMatchers(String listenerName, List<Matcher<JobKey>> matchers) {
@@ -127,34 +157,39 @@ public class DefaultListenerManager implements ListenerManager {
             throw new IllegalArgumentException("Set Matcher JobKey To ListenerManager is not acceptable Null.");
         }
 
-        synchronized (globalJobListeners) {
-            List<Matcher<JobKey>> oldMatchers = globalJobListenersMatchers.get(listenerName);
-            if(oldMatchers == null){
+        synchronized (writeLock) {
+            ListenerRegistry<JobListener, JobKey> registry = jobListeners.withMatchers(listenerName, matchers);
+            if(registry == null){
                 logger.error("Set Matcher JobKey To ListenerManager is Failed.");
                 return false;
             }
+            jobListeners = registry;
             logger.info("Set Matcher JobKey To ListenerManager is success.");
-            globalJobListenersMatchers.put(listenerName, matchers);
             return true;
         }
     }
 
     public boolean removeJobListener(String name) {
-        synchronized (globalJobListeners) {
-            return (globalJobListeners.remove(name) != null);
+        synchronized (writeLock) {
+            ListenerRegistry<JobListener, JobKey> registry = jobListeners.remove(name);
+            if (registry == null) {
+                return false;
+            }
+            jobListeners = registry;
+            return true;
         }
     }
 
     public List<JobListener> getJobListeners() {
-        synchronized (globalJobListeners) {
-            return Collections.unmodifiableList(new LinkedList<JobListener>(globalJobListeners.values()));
-        }
+        return jobListeners.getListeners();
+    }
+
+    public List<JobListener> getJobListeners(JobKey jobKey) {
+        return resolve(jobListeners, jobListenersByKey, jobKey);
     }
 
     public JobListener getJobListener(String name) {
-        synchronized (globalJobListeners) {
-            return globalJobListeners.get(name);
-        }
+        return jobListeners.getListener(name);
     }
 
     public void addTriggerListener(TriggerListener triggerListener, Matcher<TriggerKey> ... matchers) {
@@ -168,16 +203,14 @@ public class DefaultListenerManager implements ListenerManager {
                     "Add TriggerListener To ListenerManager name cannot be empty.");
         }
 
-        synchronized (globalTriggerListeners) {
-            globalTriggerListeners.put(triggerListener.gerName(), triggerListener);
-
-            LinkedList<Matcher<TriggerKey>> matchersL = new  LinkedList<Matcher<TriggerKey>>();
-            if(matchers != null && matchers.size() > 0) {
-                matchersL.addAll(matchers);
-            } else {
-                matchersL.add(EverythingMatcher.allTriggers());
-            }
-            globalTriggerListenersMatchers.put(triggerListener.gerName(), matchersL);
+        List<Matcher<TriggerKey>> matchersL = new ArrayList<Matcher<TriggerKey>>();
+        if(matchers != null && matchers.size() > 0) {
+            matchersL.addAll(matchers);
+        } else {
+            matchersL.add(EverythingMatcher.allTriggers());
+        }
+        synchronized (writeLock) {
+            triggerListeners = triggerListeners.put(triggerListener.gerName(), triggerListener, matchersL);
             logger.info("Add TriggerListener To ListenerManager success.");
         }
     }
@@ -197,11 +230,9 @@ public class DefaultListenerManager implements ListenerManager {
                     "Add TriggerListener To ListenerManager name cannot be empty.");
         }
 
-        synchronized (globalTriggerListeners) {
-            globalTriggerListeners.put(triggerListener.gerName(), triggerListener);
-            List<Matcher<TriggerKey>> matchers = new LinkedList<Matcher<TriggerKey>>();
-            matchers.add(matcher);
-            globalTriggerListenersMatchers.put(triggerListener.gerName(), matchers);
+        synchronized (writeLock) {
+            triggerListeners = triggerListeners.put(triggerListener.gerName(), triggerListener,
+                    Collections.singletonList(matcher));
             logger.info("Add TriggerListener && matcher To ListenerManager success.");
         }
     }
@@ -212,13 +243,15 @@ public class DefaultListenerManager implements ListenerManager {
                     "Add TriggerListener && matcher To ListenerManager not acceptable matcher is Null.");
         }
 
-        synchronized (globalTriggerListeners) {
-            List<Matcher<TriggerKey>> matchers = globalTriggerListenersMatchers.get(listenerName);
+        synchronized (writeLock) {
+            List<Matcher<TriggerKey>> matchers = triggerListeners.getMatchers(listenerName);
             if(matchers == null){
                 logger.error("Add TriggerListener && matcher To ListenerManager Failed.");
                 return false;
             }
-            matchers.add(matcher);
+            List<Matcher<TriggerKey>> matchersL = new ArrayList<Matcher<TriggerKey>>(matchers);
+            matchersL.add(matcher);
+            triggerListeners = triggerListeners.withMatchers(listenerName, matchersL);
             logger.info("Add TriggerListener && matcher To ListenerManager Success.");
             return true;
         }
@@ -231,27 +264,34 @@ public class DefaultListenerManager implements ListenerManager {
         }
 
 
-        synchronized (globalTriggerListeners) {
-            List<Matcher<TriggerKey>> matchers = globalTriggerListenersMatchers.get(listenerName);
+        synchronized (writeLock) {
+            List<Matcher<TriggerKey>> matchers = triggerListeners.getMatchers(listenerName);
             if(matchers == null){
                 logger.error("Remove TriggerListener && matcher From ListenerManager Failed.");
                 return false;
             }
+            List<Matcher<TriggerKey>> matchersL = new ArrayList<Matcher<TriggerKey>>(matchers);
+            boolean removed = matchersL.remove(matcher);
+            if (removed) {
+                triggerListeners = triggerListeners.withMatchers(listenerName, matchersL);
+            }
             logger.info("Remove TriggerListener && matcher From ListenerManager Success.");
-            return matchers.remove(matcher);
+            return removed;
         }
     }
 
+    public Matcher<TriggerKey> getTriggerListenerMatcher(String listenerName) {
+        return triggerListeners.getMatcher(listenerName);
+    }
+
     public List<Matcher<TriggerKey>> getTriggerListenerMatchers(String listenerName) {
-        synchronized (globalTriggerListeners) {
-            List<Matcher<TriggerKey>> matchers = globalTriggerListenersMatchers.get(listenerName);
-            if(matchers == null){
-                logger.error("Get TriggerListenerMatchers From ListenerManager is Null.");
-                return null;
-            }
-            logger.error("Get TriggerListenerMatchers From ListenerManager is {}.",matchers.size());
-            return Collections.unmodifiableList(matchers);
+        List<Matcher<TriggerKey>> matchers = triggerListeners.getMatchers(listenerName);
+        if(matchers == null){
+            logger.debug("Get TriggerListenerMatchers From ListenerManager is Null.");
+            return null;
         }
+        logger.debug("Get TriggerListenerMatchers From ListenerManager is {}.",matchers.size());
+        return matchers;
     }
 
     public boolean setTriggerListenerMatchers(String listenerName, List<Matcher<TriggerKey>> matchers)  {
@@ -261,53 +301,116 @@ public class DefaultListenerManager implements ListenerManager {
         }
 
 
-        synchronized (globalTriggerListeners) {
-            List<Matcher<TriggerKey>> oldMatchers = globalTriggerListenersMatchers.get(listenerName);
-            if(oldMatchers == null){
+        synchronized (writeLock) {
+            ListenerRegistry<TriggerListener, TriggerKey> registry = triggerListeners.withMatchers(listenerName, matchers);
+            if(registry == null){
                 logger.error("Set TriggerListenerMatchers To ListenerManager Failed.");
                 return false;
             }
-            globalTriggerListenersMatchers.put(listenerName, matchers);
+            triggerListeners = registry;
             logger.info("Set TriggerListenerMatchers To ListenerManager Success.");
             return true;
         }
     }
 
     public boolean removeTriggerListener(String name) {
-        synchronized (globalTriggerListeners) {
-            return (globalTriggerListeners.remove(name) != null);
+        synchronized (writeLock) {
+            ListenerRegistry<TriggerListener, TriggerKey> registry = triggerListeners.remove(name);
+            if (registry == null) {
+                return false;
+            }
+            triggerListeners = registry;
+            return true;
         }
     }
 
 
     public List<TriggerListener> getTriggerListeners() {
-        synchronized (globalTriggerListeners) {
-            return Collections.unmodifiableList(new LinkedList<TriggerListener>(globalTriggerListeners.values()));
-        }
+        return triggerListeners.getListeners();
+    }
+
+    public List<TriggerListener> getTriggerListeners(TriggerKey triggerKey) {
+        return resolve(triggerListeners, triggerListenersByKey, triggerKey);
     }
 
     public TriggerListener getTriggerListener(String name) {
-        synchronized (globalTriggerListeners) {
-            return globalTriggerListeners.get(name);
-        }
+        return triggerListeners.getListener(name);
     }
 
 
     public void addSchedulerListener(SchedulerListener schedulerListener) {
-        synchronized (schedulerListeners) {
-            schedulerListeners.add(schedulerListener);
+        synchronized (writeLock) {
+            List<SchedulerListener> copy = new ArrayList<SchedulerListener>(schedulerListeners);
+            copy.add(schedulerListener);
+            schedulerListeners = Collections.unmodifiableList(copy);
         }
     }
 
     public boolean removeSchedulerListener(SchedulerListener schedulerListener) {
-        synchronized (schedulerListeners) {
-            return schedulerListeners.remove(schedulerListener);
+        synchronized (writeLock) {
+            List<SchedulerListener> copy = new ArrayList<SchedulerListener>(schedulerListeners);
+            if (!copy.remove(schedulerListener)) {
+                return false;
+            }
+            schedulerListeners = Collections.unmodifiableList(copy);
+            return true;
         }
     }
 
     public List<SchedulerListener> getSchedulerListeners() {
-        synchronized (schedulerListeners) {
-            return Collections.unmodifiableList(new ArrayList<SchedulerListener>(schedulerListeners));
+        return schedulerListeners;
+    }
+
+    /** 缓存项数量上限，0表示不缓存 */
+    public int getMaxCachedKeys() {
+        return maxCachedKeys;
+    }
+
+    public void setMaxCachedKeys(int maxCachedKeys) {
+        if (maxCachedKeys < 0) {
+            throw new IllegalArgumentException("Max cached keys must not be negative");
+        }
+        this.maxCachedKeys = maxCachedKeys;
+        jobListenersByKey.clear();
+        triggerListenersByKey.clear();
+    }
+
+    /** 当前的缓存项数量 */
+    public int getCachedKeyCount() {
+        return jobListenersByKey.size() + triggerListenersByKey.size();
+    }
+
+    /** 从缓存中获取匹配的监听器，缓存项不存在或版本号过期时按快照重新计算 */
+    private <L, K extends Key<?>> List<L> resolve(ListenerRegistry<L, K> registry,
+                                                  ConcurrentHashMap<K, Resolved<L>> cache, K key) {
+        if (registry.isMatchAll()) {
+            return registry.getListeners();
+        }
+        Resolved<L> resolved = cache.get(key);
+        if (resolved != null && resolved.version == registry.getVersion()) {
+            return resolved.listeners;
+        }
+        List<L> listeners = registry.match(key);
+        int max = maxCachedKeys;
+        if (max > 0) {
+            if (resolved == null && cache.size() >= max) {
+                cache.clear();
+            }
+            cache.put(key, new Resolved<L>(registry.getVersion(), listeners));
+        }
+        return listeners;
+    }
+
+    /** 缓存项，某个版本的注册表中匹配给定唯一标识的监听器 */
+    protected static final class Resolved<L> {
+
+        final long version;
+
+        final List<L> listeners;
+
+        Resolved(long version, List<L> listeners) {
+            this.version = version;
+            this.listeners = listeners;
         }
     }
 }
@@ -0,0 +1,90 @@
+package com.txl.equipment.listener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Created by TangXiangLin on 2023-03-06 14:00
+ * 监听器事件环形队列
+ * 1. 有界、无锁，容量为2的幂；多个触发线程写入，由一个通知线程取出(MPSC)。
+ * 2. 每个槽位带有序号，写入方通过CAS占用队尾，取出方通过CAS推进队头；
+ *    队头同样使用CAS，因此队列满时写入方也可以取出最早的事件将其丢弃。
+ */
+final class ListenerEventRing {
+
+    private final Runnable[] buffer;
+
+    /** 槽位的序号，等于下标时可写入，等于下标加一时可取出 */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong tail = new AtomicLong();
+
+    ListenerEventRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of 2: " + capacity);
+        }
+        this.buffer = new Runnable[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** 写入事件，队列已满时返回false */
+    boolean offer(Runnable event) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = event;
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /** 取出最早的事件，队列为空时返回null */
+    Runnable poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Runnable event = buffer[index];
+                    buffer[index] = null;
+                    sequences.lazySet(index, pos + mask + 1);
+                    return event;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /** 队列中的事件数(近似值) */
+    int size() {
+        long size = tail.get() - head.get();
+        return size < 0 ? 0 : (int) Math.min(size, buffer.length);
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+}
@@ -46,12 +46,18 @@ public interface ListenerManager {
     /** 根据名称获取匹配器集合 */
     List<Matcher<JobKey>> getJobListenerMatchers(String listenerName);
 
+    /** 根据名称获取编译后的匹配器(任一匹配器匹配即匹配)，监听器未注册匹配器时返回null */
+    Matcher<JobKey> getJobListenerMatcher(String listenerName);
+
     /** 根据名称移除作业任务监听器 */
     boolean removeJobListener(String name);
 
     /** 获取所有作业任务监听器 */
     List<JobListener> getJobListeners();
 
+    /** 获取匹配给定作业任务标识的作业任务监听器，触发时调用，返回的列表不可修改 */
+    List<JobListener> getJobListeners(JobKey jobKey);
+
     /** 根据名称获取作业任务监听器 */
     JobListener getJobListener(String name);
 
@@ -83,12 +89,18 @@ public interface ListenerManager {
     /** 根据名称获取匹配器集合 */
     List<Matcher<TriggerKey>> getTriggerListenerMatchers( String listenerName);
 
+    /** 根据名称获取编译后的匹配器(任一匹配器匹配即匹配)，监听器未注册匹配器时返回null */
+    Matcher<TriggerKey> getTriggerListenerMatcher(String listenerName);
+
     /** 根据名称移除作业触发器监听器 */
     boolean removeTriggerListener(String name);
 
     /** 获取所有触发器监听器 */
     List<TriggerListener> getTriggerListeners();
 
+    /** 获取匹配给定触发器标识的触发器监听器，触发时调用，返回的列表不可修改 */
+    List<TriggerListener> getTriggerListeners(TriggerKey triggerKey);
+
     /** 根据名称获取触发器监听器 */
     TriggerListener getTriggerListener(String name);
 
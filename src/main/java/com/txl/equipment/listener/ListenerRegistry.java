@@ -0,0 +1,151 @@
+package com.txl.equipment.listener;
+
+import com.txl.equipment.key.Key;
+import com.txl.equipment.matcher.Matcher;
+import com.txl.equipment.matcher.MatcherCompiler;
+
+import java.util.*;
+
+/**
+ * Created by TangXiangLin on 2023-03-06 09:30
+ * 监听器注册表快照
+ * 1. 保存按名称注册的监听器及其匹配器，快照不可修改；注册、移除监听器或修改匹配器时复制出新的快照(写时复制)，
+ *    由监听器管理通过volatile引用发布。
+ * 2. 监听器列表、编译后的匹配器在创建快照时准备好，触发时读取快照不加锁、不复制。
+ * 3. 每个快照带有递增的版本号，按唯一标识缓存的匹配结果以版本号判断是否过期。
+ */
+final class ListenerRegistry<L, K extends Key<?>> {
+
+    private static final ListenerRegistry<?, ?> EMPTY = new ListenerRegistry<Object, Key<?>>(
+            new LinkedHashMap<String, Entry<Object, Key<?>>>(), 0L);
+
+    /** 版本号，每次修改加一 */
+    private final long version;
+
+    /** 按名称索引的监听器，保持注册顺序 */
+    private final Map<String, Entry<L, K>> entries;
+
+    /** 所有的监听器 */
+    private final List<L> listeners;
+
+    /** 按注册顺序排列的监听器，触发时遍历 */
+    private final Entry<L, K>[] entryArray;
+
+    /** 是否所有监听器都匹配所有的唯一标识 */
+    private final boolean matchAll;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ListenerRegistry(LinkedHashMap<String, Entry<L, K>> entries, long version) {
+        this.version = version;
+        this.entries = Collections.unmodifiableMap(entries);
+        this.entryArray = entries.values().toArray(new Entry[entries.size()]);
+        List<L> list = new ArrayList<L>(entryArray.length);
+        boolean all = true;
+        for (Entry<L, K> entry : entryArray) {
+            list.add(entry.listener);
+            all &= MatcherCompiler.isAlwaysTrue(entry.compiled);
+        }
+        this.listeners = Collections.unmodifiableList(list);
+        this.matchAll = all;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <L, K extends Key<?>> ListenerRegistry<L, K> empty() {
+        return (ListenerRegistry<L, K>) EMPTY;
+    }
+
+    /** 注册或替换监听器，返回新的快照 */
+    ListenerRegistry<L, K> put(String name, L listener, List<Matcher<K>> matchers) {
+        LinkedHashMap<String, Entry<L, K>> copy = new LinkedHashMap<String, Entry<L, K>>(entries);
+        copy.put(name, new Entry<L, K>(listener, matchers));
+        return new ListenerRegistry<L, K>(copy, version + 1);
+    }
+
+    /** 替换监听器的匹配器，返回新的快照，监听器不存在时返回null */
+    ListenerRegistry<L, K> withMatchers(String name, List<Matcher<K>> matchers) {
+        Entry<L, K> entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        LinkedHashMap<String, Entry<L, K>> copy = new LinkedHashMap<String, Entry<L, K>>(entries);
+        copy.put(name, new Entry<L, K>(entry.listener, matchers));
+        return new ListenerRegistry<L, K>(copy, version + 1);
+    }
+
+    /** 移除监听器，返回新的快照，监听器不存在时返回null */
+    ListenerRegistry<L, K> remove(String name) {
+        if (!entries.containsKey(name)) {
+            return null;
+        }
+        LinkedHashMap<String, Entry<L, K>> copy = new LinkedHashMap<String, Entry<L, K>>(entries);
+        copy.remove(name);
+        return new ListenerRegistry<L, K>(copy, version + 1);
+    }
+
+    L getListener(String name) {
+        Entry<L, K> entry = entries.get(name);
+        return entry == null ? null : entry.listener;
+    }
+
+    /** 获取监听器的匹配器，监听器不存在时返回null */
+    List<Matcher<K>> getMatchers(String name) {
+        Entry<L, K> entry = entries.get(name);
+        return entry == null ? null : entry.matchers;
+    }
+
+    /** 获取监听器编译后的匹配器，监听器不存在时返回null */
+    Matcher<K> getMatcher(String name) {
+        Entry<L, K> entry = entries.get(name);
+        return entry == null ? null : entry.compiled;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /** 是否所有监听器都匹配所有的唯一标识，此时不需要按唯一标识缓存 */
+    boolean isMatchAll() {
+        return matchAll;
+    }
+
+    List<L> getListeners() {
+        return listeners;
+    }
+
+    /** 获取匹配给定唯一标识的监听器，所有监听器都匹配时直接返回全部监听器 */
+    List<L> match(K key) {
+        if (matchAll) {
+            return listeners;
+        }
+        List<L> matched = null;
+        for (int i = 0; i < entryArray.length; i++) {
+            if (entryArray[i].compiled.isMatch(key)) {
+                if (matched == null) {
+                    matched = new ArrayList<L>(entryArray.length - i);
+                }
+                matched.add(entryArray[i].listener);
+            }
+        }
+        if (matched == null) {
+            return Collections.emptyList();
+        }
+        // 全部匹配时共用监听器列表，减少缓存占用的内存
+        return matched.size() == entryArray.length ? listeners : Collections.unmodifiableList(matched);
+    }
+
+    /** 监听器及其匹配器 */
+    private static final class Entry<L, K extends Key<?>> {
+
+        final L listener;
+
+        final List<Matcher<K>> matchers;
+
+        final Matcher<K> compiled;
+
+        Entry(L listener, List<Matcher<K>> matchers) {
+            this.listener = listener;
+            this.matchers = Collections.unmodifiableList(new ArrayList<Matcher<K>>(matchers));
+            this.compiled = MatcherCompiler.compileAny(matchers);
+        }
+    }
+}
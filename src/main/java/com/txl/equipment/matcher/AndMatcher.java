@@ -0,0 +1,58 @@
+package com.txl.equipment.matcher;
+
+import com.txl.equipment.key.Key;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 14:20
+ * 与匹配器
+ * 1. 两个匹配器都匹配时匹配。
+ * 2. 多层嵌套的组合匹配器在使用前可通过MatcherCompiler编译为一个扁平的判断。
+ */
+public class AndMatcher<T extends Key<?>> implements Matcher<T> {
+
+    private static final long serialVersionUID = 4697276220890670941L;
+
+    protected final Matcher<T> leftOperand;
+    protected final Matcher<T> rightOperand;
+
+    protected AndMatcher(Matcher<T> leftOperand, Matcher<T> rightOperand) {
+        if (leftOperand == null || rightOperand == null)
+            throw new IllegalArgumentException("Two non-null operands required!");
+        this.leftOperand = leftOperand;
+        this.rightOperand = rightOperand;
+    }
+
+    public static <U extends Key<?>> AndMatcher<U> and(Matcher<U> leftOperand, Matcher<U> rightOperand) {
+        return new AndMatcher<U>(leftOperand, rightOperand);
+    }
+
+    public boolean isMatch(T key) {
+        return leftOperand.isMatch(key) && rightOperand.isMatch(key);
+    }
+
+    public Matcher<T> getLeftOperand() {
+        return leftOperand;
+    }
+
+    public Matcher<T> getRightOperand() {
+        return rightOperand;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof AndMatcher))
+            return false;
+        AndMatcher<?> other = (AndMatcher<?>) obj;
+        return leftOperand.equals(other.leftOperand) && rightOperand.equals(other.rightOperand);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * leftOperand.hashCode() + rightOperand.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + leftOperand + " AND " + rightOperand + ")";
+    }
+}
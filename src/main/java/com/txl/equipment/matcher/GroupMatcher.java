@@ -1,9 +1,112 @@
 package com.txl.equipment.matcher;
 
+import com.txl.equipment.job.JobKey;
 import com.txl.equipment.key.Key;
+import com.txl.equipment.trigger.TriggerKey;
 
 /**
  * Created by TangXiangLin on 2023-02-14 09:49
+ * 组名匹配器
+ * 1. 按唯一标识的组名进行匹配，支持相等、前缀、后缀、包含四种操作符。
+ * 2. 设备分组按"plant1.line3.pump"的层级命名时，可用前缀匹配整棵子树，作业存储通过组名前缀树查找，不扫描所有的唯一标识。
+ * 3. 未指定组名时匹配所有的组。
  */
-public class  GroupMatcher<T extends Key<?>> {
+public class GroupMatcher<T extends Key<?>> extends StringMatcher<T> {
+
+    private static final long serialVersionUID = -3275767650469343849L;
+
+    protected GroupMatcher(String compareTo, StringOperatorName compareWith) {
+        super(compareTo, compareWith);
+    }
+
+    /** 组名相同的匹配器 */
+    public static <T extends Key<T>> GroupMatcher<T> groupEquals(String compareTo) {
+        return new GroupMatcher<T>(checkGroup(compareTo), StringOperatorName.EQUALS);
+    }
+
+    public static GroupMatcher<JobKey> jobGroupEquals(String compareTo) {
+        return GroupMatcher.groupEquals(compareTo);
+    }
+
+    public static GroupMatcher<TriggerKey> triggerGroupEquals(String compareTo) {
+        return GroupMatcher.groupEquals(compareTo);
+    }
+
+    /** 组名以给定值开头的匹配器 */
+    public static <T extends Key<T>> GroupMatcher<T> groupStartsWith(String compareTo) {
+        return new GroupMatcher<T>(checkGroup(compareTo), StringOperatorName.STARTS_WITH);
+    }
+
+    public static GroupMatcher<JobKey> jobGroupStartsWith(String compareTo) {
+        return GroupMatcher.groupStartsWith(compareTo);
+    }
+
+    public static GroupMatcher<TriggerKey> triggerGroupStartsWith(String compareTo) {
+        return GroupMatcher.groupStartsWith(compareTo);
+    }
+
+    /** 组名以给定值结尾的匹配器 */
+    public static <T extends Key<T>> GroupMatcher<T> groupEndsWith(String compareTo) {
+        return new GroupMatcher<T>(checkGroup(compareTo), StringOperatorName.ENDS_WITH);
+    }
+
+    public static GroupMatcher<JobKey> jobGroupEndsWith(String compareTo) {
+        return GroupMatcher.groupEndsWith(compareTo);
+    }
+
+    public static GroupMatcher<TriggerKey> triggerGroupEndsWith(String compareTo) {
+        return GroupMatcher.groupEndsWith(compareTo);
+    }
+
+    /** 组名包含给定值的匹配器 */
+    public static <T extends Key<T>> GroupMatcher<T> groupContains(String compareTo) {
+        return new GroupMatcher<T>(checkGroup(compareTo), StringOperatorName.CONTAINS);
+    }
+
+    public static GroupMatcher<JobKey> jobGroupContains(String compareTo) {
+        return GroupMatcher.groupContains(compareTo);
+    }
+
+    public static GroupMatcher<TriggerKey> triggerGroupContains(String compareTo) {
+        return GroupMatcher.groupContains(compareTo);
+    }
+
+    /** 匹配所有组的匹配器 */
+    public static <T extends Key<T>> GroupMatcher<T> anyGroup() {
+        return new GroupMatcher<T>("", StringOperatorName.ANYTHING);
+    }
+
+    public static GroupMatcher<JobKey> anyJobGroup() {
+        return GroupMatcher.anyGroup();
+    }
+
+    public static GroupMatcher<TriggerKey> anyTriggerGroup() {
+        return GroupMatcher.anyGroup();
+    }
+
+    private static String checkGroup(String compareTo) {
+        if(compareTo == null)
+            throw new IllegalArgumentException("Group cannot be null.");
+        return compareTo;
+    }
+
+    @Override
+    protected String getValue(T key) {
+        return key.getGroup();
+    }
+
+    /** 是否匹配所有的组 */
+    public boolean isAnyGroup() {
+        return compareWith == StringOperatorName.ANYTHING;
+    }
+
+    /** 组名是否匹配 */
+    public boolean isMatchGroup(String group) {
+        return group != null && compareWith.evaluate(group, compareTo);
+    }
+
+    @Override
+    public String toString() {
+        return "GroupMatcher " + compareWith + " '" + (isAnyGroup() ? "*" : compareTo) + "'";
+    }
 }
@@ -0,0 +1,53 @@
+package com.txl.equipment.matcher;
+
+import com.txl.equipment.key.Key;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 14:00
+ * 唯一标识匹配器
+ * 1. 唯一标识(组名和名称)相等时匹配，是开销最小的匹配器，组合匹配器编译时排在最前。
+ */
+public class KeyMatcher<T extends Key<?>> implements Matcher<T> {
+
+    private static final long serialVersionUID = 1230009869074992437L;
+
+    /** 比较的唯一标识 */
+    protected final T compareTo;
+
+    protected KeyMatcher(T compareTo) {
+        if (compareTo == null)
+            throw new IllegalArgumentException("Key cannot be null.");
+        this.compareTo = compareTo;
+    }
+
+    /** 唯一标识相等的匹配器 */
+    public static <U extends Key<?>> KeyMatcher<U> keyEquals(U compareTo) {
+        return new KeyMatcher<U>(compareTo);
+    }
+
+    public boolean isMatch(T key) {
+        return compareTo.equals(key);
+    }
+
+    /** 获取比较的唯一标识 */
+    public T getCompareToValue() {
+        return compareTo;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof KeyMatcher))
+            return false;
+        return compareTo.equals(((KeyMatcher<?>) obj).compareTo);
+    }
+
+    @Override
+    public int hashCode() {
+        return compareTo.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "KeyMatcher '" + compareTo + "'";
+    }
+}
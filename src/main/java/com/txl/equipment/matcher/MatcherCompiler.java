@@ -0,0 +1,409 @@
+package com.txl.equipment.matcher;
+
+import com.txl.equipment.key.Key;
+
+import java.util.*;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 15:00
+ * 匹配器编译
+ * 1. 监听器的匹配器在每次触发时对每个监听器都要判断一次，开销与触发频率乘以监听器数量成正比，
+ *    因此在匹配器变更时编译一次，触发时只执行编译后的判断。
+ * 2. 编译时将嵌套的与、或展开为一层，去掉重复的操作数；恒真、恒假的分支直接短路
+ *    (如EverythingMatcher、ANYTHING操作符、双重否定)。
+ * 3. 操作数按开销排序，唯一标识相等排在最前，其次是字符串相等，再次是前缀、后缀、包含，组合匹配器及自定义匹配器排在最后；
+ *    或运算中多个唯一标识相等、组名相等的匹配器合并为一次哈希查找。
+ * 4. 编译结果不可修改，可在多个线程间共享。
+ */
+public final class MatcherCompiler {
+
+    /** 或运算中同类相等判断达到该数量时合并为哈希查找 */
+    private static final int SET_THRESHOLD = 2;
+
+    private MatcherCompiler() {
+    }
+
+    /** 编译匹配器 */
+    public static <T extends Key<?>> Matcher<T> compile(Matcher<T> matcher) {
+        if (matcher == null)
+            throw new IllegalArgumentException("Matcher cannot be null.");
+        return normalize(matcher);
+    }
+
+    /** 编译任一匹配即匹配的一组匹配器，为空时不匹配任何唯一标识 */
+    public static <T extends Key<?>> Matcher<T> compileAny(Collection<? extends Matcher<T>> matchers) {
+        if (matchers == null)
+            throw new IllegalArgumentException("Matchers cannot be null.");
+        List<Matcher<T>> operands = new ArrayList<Matcher<T>>(matchers.size());
+        for (Matcher<T> matcher : matchers) {
+            flatten(matcher, false, operands);
+        }
+        return build(false, operands);
+    }
+
+    /** 匹配器是否恒真 */
+    public static boolean isAlwaysTrue(Matcher<?> matcher) {
+        return matcher instanceof Constant && ((Constant<?>) matcher).value;
+    }
+
+    /** 匹配器是否恒假 */
+    public static boolean isAlwaysFalse(Matcher<?> matcher) {
+        return matcher instanceof Constant && !((Constant<?>) matcher).value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Key<?>> Matcher<T> normalize(Matcher<T> matcher) {
+        if (matcher instanceof Constant || matcher instanceof All || matcher instanceof Any
+                || matcher instanceof None || matcher instanceof KeySet || matcher instanceof GroupSet) {
+            return matcher;
+        }
+        if (matcher instanceof EverythingMatcher) {
+            return (Matcher<T>) Constant.TRUE;
+        }
+        if (matcher instanceof StringMatcher
+                && ((StringMatcher<T>) matcher).getCompareWithOperator() == StringMatcher.StringOperatorName.ANYTHING) {
+            return (Matcher<T>) Constant.TRUE;
+        }
+        if (matcher instanceof AndMatcher || matcher instanceof OrMatcher) {
+            boolean and = matcher instanceof AndMatcher;
+            List<Matcher<T>> operands = new ArrayList<Matcher<T>>();
+            flatten(matcher, and, operands);
+            return build(and, operands);
+        }
+        if (matcher instanceof NotMatcher) {
+            Matcher<T> operand = normalize(((NotMatcher<T>) matcher).getOperand());
+            if (operand instanceof Constant) {
+                return (Matcher<T>) (((Constant<T>) operand).value ? Constant.FALSE : Constant.TRUE);
+            }
+            if (operand instanceof None) {
+                return ((None<T>) operand).operand;
+            }
+            return new None<T>(operand);
+        }
+        return matcher;
+    }
+
+    /** 展开同类的嵌套运算，and为true时展开与运算，否则展开或运算 */
+    @SuppressWarnings("unchecked")
+    private static <T extends Key<?>> void flatten(Matcher<T> matcher, boolean and, List<Matcher<T>> out) {
+        if (and && matcher instanceof AndMatcher) {
+            flatten(((AndMatcher<T>) matcher).getLeftOperand(), true, out);
+            flatten(((AndMatcher<T>) matcher).getRightOperand(), true, out);
+            return;
+        }
+        if (!and && matcher instanceof OrMatcher) {
+            flatten(((OrMatcher<T>) matcher).getLeftOperand(), false, out);
+            flatten(((OrMatcher<T>) matcher).getRightOperand(), false, out);
+            return;
+        }
+        Matcher<T> normalized = normalize(matcher);
+        if (and && normalized instanceof All) {
+            out.addAll(Arrays.asList(((All<T>) normalized).operands));
+        } else if (!and && normalized instanceof Any) {
+            out.addAll(Arrays.asList(((Any<T>) normalized).operands));
+        } else {
+            out.add(normalized);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Key<?>> Matcher<T> build(boolean and, List<Matcher<T>> operands) {
+        Set<Matcher<T>> unique = new LinkedHashSet<Matcher<T>>();
+        for (Matcher<T> operand : operands) {
+            if (operand instanceof Constant) {
+                if (((Constant<T>) operand).value != and) {
+                    // 与运算遇到恒假、或运算遇到恒真，整个运算短路
+                    return operand;
+                }
+                continue;
+            }
+            unique.add(operand);
+        }
+        if (unique.isEmpty()) {
+            return (Matcher<T>) (and ? Constant.TRUE : Constant.FALSE);
+        }
+
+        List<Matcher<T>> list = new ArrayList<Matcher<T>>(unique);
+        if (!and) {
+            list = mergeEquals(list);
+        }
+        if (list.size() == 1) {
+            return list.get(0);
+        }
+        Collections.sort(list, new Comparator<Matcher<T>>() {
+            public int compare(Matcher<T> m1, Matcher<T> m2) {
+                return cost(m1) - cost(m2);
+            }
+        });
+        Matcher<T>[] array = toArray(list);
+        return and ? new All<T>(array) : new Any<T>(array);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T extends Key<?>> Matcher<T>[] toArray(List<Matcher<T>> list) {
+        return list.toArray(new Matcher[list.size()]);
+    }
+
+    /** 将或运算中的唯一标识相等、组名相等合并为哈希查找 */
+    @SuppressWarnings("unchecked")
+    private static <T extends Key<?>> List<Matcher<T>> mergeEquals(List<Matcher<T>> operands) {
+        Set<Object> keys = new HashSet<Object>();
+        Set<String> groups = new HashSet<String>();
+        for (Matcher<T> operand : operands) {
+            if (operand.getClass() == KeyMatcher.class) {
+                keys.add(((KeyMatcher<T>) operand).getCompareToValue());
+            } else if (isGroupEquals(operand)) {
+                groups.add(((GroupMatcher<T>) operand).getCompareToValue());
+            }
+        }
+        if (keys.size() < SET_THRESHOLD && groups.size() < SET_THRESHOLD) {
+            return operands;
+        }
+
+        List<Matcher<T>> merged = new ArrayList<Matcher<T>>();
+        for (Matcher<T> operand : operands) {
+            if (keys.size() >= SET_THRESHOLD && operand.getClass() == KeyMatcher.class) {
+                continue;
+            }
+            if (groups.size() >= SET_THRESHOLD && isGroupEquals(operand)) {
+                continue;
+            }
+            merged.add(operand);
+        }
+        if (keys.size() >= SET_THRESHOLD) {
+            merged.add(new KeySet<T>(keys));
+        }
+        if (groups.size() >= SET_THRESHOLD) {
+            merged.add(new GroupSet<T>(groups));
+        }
+        return merged;
+    }
+
+    private static boolean isGroupEquals(Matcher<?> matcher) {
+        return matcher.getClass() == GroupMatcher.class
+                && ((GroupMatcher<?>) matcher).getCompareWithOperator() == StringMatcher.StringOperatorName.EQUALS;
+    }
+
+    /** 操作数的开销，数值越小越先判断 */
+    private static int cost(Matcher<?> matcher) {
+        if (matcher instanceof KeyMatcher || matcher instanceof KeySet) {
+            return 0;
+        }
+        if (matcher instanceof GroupSet) {
+            return 1;
+        }
+        if (matcher instanceof StringMatcher) {
+            return ((StringMatcher<?>) matcher).getCompareWithOperator() == StringMatcher.StringOperatorName.EQUALS ? 1 : 2;
+        }
+        if (matcher instanceof None) {
+            return cost(((None<?>) matcher).operand) + 1;
+        }
+        if (matcher instanceof All || matcher instanceof Any) {
+            return 4;
+        }
+        return 5;
+    }
+
+    /** 恒真或恒假 */
+    private static final class Constant<T extends Key<?>> implements Matcher<T> {
+
+        private static final long serialVersionUID = 3425066932475283457L;
+
+        static final Constant<?> TRUE = new Constant<Key<?>>(true);
+        static final Constant<?> FALSE = new Constant<Key<?>>(false);
+
+        private final boolean value;
+
+        private Constant(boolean value) {
+            this.value = value;
+        }
+
+        public boolean isMatch(T key) {
+            return value;
+        }
+
+        private Object readResolve() {
+            return value ? TRUE : FALSE;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Constant && ((Constant<?>) obj).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value ? 1231 : 1237;
+        }
+
+        @Override
+        public String toString() {
+            return value ? "TRUE" : "FALSE";
+        }
+    }
+
+    /** 扁平的与运算 */
+    private static final class All<T extends Key<?>> implements Matcher<T> {
+
+        private static final long serialVersionUID = -6408843401367936497L;
+
+        private final Matcher<T>[] operands;
+
+        All(Matcher<T>[] operands) {
+            this.operands = operands;
+        }
+
+        public boolean isMatch(T key) {
+            for (Matcher<T> operand : operands) {
+                if (!operand.isMatch(key)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof All && Arrays.equals(operands, ((All<?>) obj).operands);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(operands);
+        }
+
+        @Override
+        public String toString() {
+            return "ALL" + Arrays.toString(operands);
+        }
+    }
+
+    /** 扁平的或运算 */
+    private static final class Any<T extends Key<?>> implements Matcher<T> {
+
+        private static final long serialVersionUID = 5071318412305624918L;
+
+        private final Matcher<T>[] operands;
+
+        Any(Matcher<T>[] operands) {
+            this.operands = operands;
+        }
+
+        public boolean isMatch(T key) {
+            for (Matcher<T> operand : operands) {
+                if (operand.isMatch(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Any && Arrays.equals(operands, ((Any<?>) obj).operands);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(operands);
+        }
+
+        @Override
+        public String toString() {
+            return "ANY" + Arrays.toString(operands);
+        }
+    }
+
+    /** 非运算 */
+    private static final class None<T extends Key<?>> implements Matcher<T> {
+
+        private static final long serialVersionUID = 1764236522150405270L;
+
+        private final Matcher<T> operand;
+
+        None(Matcher<T> operand) {
+            this.operand = operand;
+        }
+
+        public boolean isMatch(T key) {
+            return !operand.isMatch(key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof None && operand.equals(((None<?>) obj).operand);
+        }
+
+        @Override
+        public int hashCode() {
+            return ~operand.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + operand;
+        }
+    }
+
+    /** 唯一标识属于给定集合 */
+    private static final class KeySet<T extends Key<?>> implements Matcher<T> {
+
+        private static final long serialVersionUID = -1559012464358101476L;
+
+        private final Set<Object> keys;
+
+        KeySet(Set<Object> keys) {
+            this.keys = keys;
+        }
+
+        public boolean isMatch(T key) {
+            return key != null && keys.contains(key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof KeySet && keys.equals(((KeySet<?>) obj).keys);
+        }
+
+        @Override
+        public int hashCode() {
+            return keys.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "KEY IN " + keys;
+        }
+    }
+
+    /** 组名属于给定集合 */
+    private static final class GroupSet<T extends Key<?>> implements Matcher<T> {
+
+        private static final long serialVersionUID = 2981606428722315707L;
+
+        private final Set<String> groups;
+
+        GroupSet(Set<String> groups) {
+            this.groups = groups;
+        }
+
+        public boolean isMatch(T key) {
+            return key != null && groups.contains(key.getGroup());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof GroupSet && groups.equals(((GroupSet<?>) obj).groups);
+        }
+
+        @Override
+        public int hashCode() {
+            return groups.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "GROUP IN " + groups;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.txl.equipment.matcher;
+
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.key.Key;
+import com.txl.equipment.trigger.TriggerKey;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 14:10
+ * 名称匹配器
+ * 1. 按唯一标识的名称进行匹配，支持相等、前缀、后缀、包含四种操作符。
+ */
+public class NameMatcher<T extends Key<?>> extends StringMatcher<T> {
+
+    private static final long serialVersionUID = -33104959459613480L;
+
+    protected NameMatcher(String compareTo, StringOperatorName compareWith) {
+        super(compareTo, compareWith);
+    }
+
+    /** 名称相同的匹配器 */
+    public static <T extends Key<?>> NameMatcher<T> nameEquals(String compareTo) {
+        return new NameMatcher<T>(compareTo, StringOperatorName.EQUALS);
+    }
+
+    public static NameMatcher<JobKey> jobNameEquals(String compareTo) {
+        return NameMatcher.nameEquals(compareTo);
+    }
+
+    public static NameMatcher<TriggerKey> triggerNameEquals(String compareTo) {
+        return NameMatcher.nameEquals(compareTo);
+    }
+
+    /** 名称以给定值开头的匹配器 */
+    public static <T extends Key<?>> NameMatcher<T> nameStartsWith(String compareTo) {
+        return new NameMatcher<T>(compareTo, StringOperatorName.STARTS_WITH);
+    }
+
+    public static NameMatcher<JobKey> jobNameStartsWith(String compareTo) {
+        return NameMatcher.nameStartsWith(compareTo);
+    }
+
+    public static NameMatcher<TriggerKey> triggerNameStartsWith(String compareTo) {
+        return NameMatcher.nameStartsWith(compareTo);
+    }
+
+    /** 名称以给定值结尾的匹配器 */
+    public static <T extends Key<?>> NameMatcher<T> nameEndsWith(String compareTo) {
+        return new NameMatcher<T>(compareTo, StringOperatorName.ENDS_WITH);
+    }
+
+    public static NameMatcher<JobKey> jobNameEndsWith(String compareTo) {
+        return NameMatcher.nameEndsWith(compareTo);
+    }
+
+    public static NameMatcher<TriggerKey> triggerNameEndsWith(String compareTo) {
+        return NameMatcher.nameEndsWith(compareTo);
+    }
+
+    /** 名称包含给定值的匹配器 */
+    public static <T extends Key<?>> NameMatcher<T> nameContains(String compareTo) {
+        return new NameMatcher<T>(compareTo, StringOperatorName.CONTAINS);
+    }
+
+    public static NameMatcher<JobKey> jobNameContains(String compareTo) {
+        return NameMatcher.nameContains(compareTo);
+    }
+
+    public static NameMatcher<TriggerKey> triggerNameContains(String compareTo) {
+        return NameMatcher.nameContains(compareTo);
+    }
+
+    @Override
+    protected String getValue(T key) {
+        return key.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "NameMatcher " + compareWith + " '" + compareTo + "'";
+    }
+}
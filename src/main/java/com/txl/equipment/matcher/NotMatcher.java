@@ -0,0 +1,50 @@
+package com.txl.equipment.matcher;
+
+import com.txl.equipment.key.Key;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 14:30
+ * 非匹配器
+ * 1. 给定的匹配器不匹配时匹配。
+ */
+public class NotMatcher<T extends Key<?>> implements Matcher<T> {
+
+    private static final long serialVersionUID = -2856769076151741391L;
+
+    protected final Matcher<T> operand;
+
+    protected NotMatcher(Matcher<T> operand) {
+        if (operand == null)
+            throw new IllegalArgumentException("Non-null operand required!");
+        this.operand = operand;
+    }
+
+    public static <U extends Key<?>> NotMatcher<U> not(Matcher<U> operand) {
+        return new NotMatcher<U>(operand);
+    }
+
+    public boolean isMatch(T key) {
+        return !operand.isMatch(key);
+    }
+
+    public Matcher<T> getOperand() {
+        return operand;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof NotMatcher))
+            return false;
+        return operand.equals(((NotMatcher<?>) obj).operand);
+    }
+
+    @Override
+    public int hashCode() {
+        return ~operand.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "NOT " + operand;
+    }
+}
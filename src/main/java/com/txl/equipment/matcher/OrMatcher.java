@@ -0,0 +1,58 @@
+package com.txl.equipment.matcher;
+
+import com.txl.equipment.key.Key;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 14:25
+ * 或匹配器
+ * 1. 任一匹配器匹配时匹配。
+ * 2. 多层嵌套的组合匹配器在使用前可通过MatcherCompiler编译为一个扁平的判断。
+ */
+public class OrMatcher<T extends Key<?>> implements Matcher<T> {
+
+    private static final long serialVersionUID = -2867392824539403712L;
+
+    protected final Matcher<T> leftOperand;
+    protected final Matcher<T> rightOperand;
+
+    protected OrMatcher(Matcher<T> leftOperand, Matcher<T> rightOperand) {
+        if (leftOperand == null || rightOperand == null)
+            throw new IllegalArgumentException("Two non-null operands required!");
+        this.leftOperand = leftOperand;
+        this.rightOperand = rightOperand;
+    }
+
+    public static <U extends Key<?>> OrMatcher<U> or(Matcher<U> leftOperand, Matcher<U> rightOperand) {
+        return new OrMatcher<U>(leftOperand, rightOperand);
+    }
+
+    public boolean isMatch(T key) {
+        return leftOperand.isMatch(key) || rightOperand.isMatch(key);
+    }
+
+    public Matcher<T> getLeftOperand() {
+        return leftOperand;
+    }
+
+    public Matcher<T> getRightOperand() {
+        return rightOperand;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof OrMatcher))
+            return false;
+        OrMatcher<?> other = (OrMatcher<?>) obj;
+        return leftOperand.equals(other.leftOperand) && rightOperand.equals(other.rightOperand);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * leftOperand.hashCode() + rightOperand.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + leftOperand + " OR " + rightOperand + ")";
+    }
+}
@@ -0,0 +1,105 @@
+package com.txl.equipment.matcher;
+
+import com.txl.equipment.key.Key;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 09:30
+ * 字符串匹配器
+ * 1. 按唯一标识的某个字符串属性(组名、名称)与给定的值比较，比较方式由操作符决定。
+ * 2. 子类通过getValue提供参与比较的属性。
+ */
+public abstract class StringMatcher<T extends Key<?>> implements Matcher<T> {
+
+    private static final long serialVersionUID = -2757924162611145836L;
+
+    /** 字符串操作符 */
+    public enum StringOperatorName {
+
+        /** 相等 */
+        EQUALS {
+            @Override
+            public boolean evaluate(String value, String compareTo) {
+                return value.equals(compareTo);
+            }
+        },
+
+        /** 以给定的值开头，如按"plant1.line3."匹配整个产线下的分组 */
+        STARTS_WITH {
+            @Override
+            public boolean evaluate(String value, String compareTo) {
+                return value.startsWith(compareTo);
+            }
+        },
+
+        /** 以给定的值结尾 */
+        ENDS_WITH {
+            @Override
+            public boolean evaluate(String value, String compareTo) {
+                return value.endsWith(compareTo);
+            }
+        },
+
+        /** 包含给定的值 */
+        CONTAINS {
+            @Override
+            public boolean evaluate(String value, String compareTo) {
+                return value.contains(compareTo);
+            }
+        },
+
+        /** 匹配任意值 */
+        ANYTHING {
+            @Override
+            public boolean evaluate(String value, String compareTo) {
+                return true;
+            }
+        };
+
+        public abstract boolean evaluate(String value, String compareTo);
+    }
+
+    /** 比较的值 */
+    protected final String compareTo;
+
+    /** 操作符 */
+    protected final StringOperatorName compareWith;
+
+    protected StringMatcher(String compareTo, StringOperatorName compareWith) {
+        if (compareTo == null)
+            throw new IllegalArgumentException("CompareTo value cannot be null!");
+        if (compareWith == null)
+            throw new IllegalArgumentException("CompareWith operator cannot be null!");
+        this.compareTo = compareTo;
+        this.compareWith = compareWith;
+    }
+
+    /** 获取唯一标识中参与比较的属性 */
+    protected abstract String getValue(T key);
+
+    public boolean isMatch(T key) {
+        return key != null && compareWith.evaluate(getValue(key), compareTo);
+    }
+
+    /** 获取比较的值 */
+    public String getCompareToValue() {
+        return compareTo;
+    }
+
+    /** 获取操作符 */
+    public StringOperatorName getCompareWithOperator() {
+        return compareWith;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj.getClass() != getClass())
+            return false;
+        StringMatcher<?> other = (StringMatcher<?>) obj;
+        return compareWith == other.compareWith && compareTo.equals(other.compareTo);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * compareTo.hashCode() + compareWith.hashCode();
+    }
+}
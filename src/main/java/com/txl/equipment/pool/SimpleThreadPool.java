@@ -0,0 +1,199 @@
+package com.txl.equipment.pool;
+
+import com.txl.equipment.exception.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 11:10
+ * 固定大小的线程池
+ * 1. 线程池中的线程数固定，所有线程都忙碌时runInThread()阻塞。
+ */
+public class SimpleThreadPool implements ThreadPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimpleThreadPool.class);
+
+    /** 线程数 */
+    private int count = -1;
+    /** 线程的优先级 */
+    private int prio = Thread.NORM_PRIORITY;
+    /** 是否为守护线程 */
+    private boolean makeThreadsDaemons = false;
+    /** 线程名称前缀 */
+    private String threadNamePrefix;
+    /** 调度器的名称 */
+    private String schedulerInstanceName;
+
+    private final Object nextRunnableLock = new Object();
+    /** 正在执行任务的线程数 */
+    private int busyCount = 0;
+    private volatile boolean isShutdown = false;
+    private ThreadPoolExecutor executor;
+
+    public SimpleThreadPool() {
+    }
+
+    public SimpleThreadPool(int threadCount, int threadPriority) {
+        setThreadCount(threadCount);
+        setThreadPriority(threadPriority);
+    }
+
+    public int getPoolSize() {
+        return getThreadCount();
+    }
+
+    public void setThreadCount(int count) {
+        this.count = count;
+    }
+
+    public int getThreadCount() {
+        return count;
+    }
+
+    public void setThreadPriority(int prio) {
+        this.prio = prio;
+    }
+
+    public int getThreadPriority() {
+        return prio;
+    }
+
+    public void setThreadNamePrefix(String prfx) {
+        this.threadNamePrefix = prfx;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setMakeThreadsDaemons(boolean makeThreadsDaemons) {
+        this.makeThreadsDaemons = makeThreadsDaemons;
+    }
+
+    public boolean isMakeThreadsDaemons() {
+        return makeThreadsDaemons;
+    }
+
+    public void setInstanceId(String schedInstId) {
+    }
+
+    public void setInstanceName(String schedName) {
+        schedulerInstanceName = schedName;
+    }
+
+    public void initialize() throws SchedulerException {
+        if (executor != null) {
+            return;
+        }
+        if (count <= 0) {
+            throw new SchedulerException("Thread count must be > 0");
+        }
+        if (prio <= 0 || prio > 9) {
+            throw new SchedulerException("Thread priority must be > 0 and <= 9");
+        }
+        if (threadNamePrefix == null) {
+            threadNamePrefix = schedulerInstanceName + "_Worker";
+        }
+
+        executor = new ThreadPoolExecutor(count, count, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory());
+        executor.prestartAllCoreThreads();
+        logger.info("SimpleThreadPool initialized with {} threads.", count);
+    }
+
+    public void shutdown(boolean waitForJobsToComplete) {
+        synchronized (nextRunnableLock) {
+            isShutdown = true;
+            nextRunnableLock.notifyAll();
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (waitForJobsToComplete) {
+            try {
+                while (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                    logger.debug("Waiting for thread pool to finish running jobs.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            executor.shutdownNow();
+        }
+        logger.debug("Shutdown of threadpool complete.");
+    }
+
+    public boolean runInThread(final Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+
+        synchronized (nextRunnableLock) {
+            while (busyCount >= count && !isShutdown) {
+                try {
+                    nextRunnableLock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            if (isShutdown) {
+                return false;
+            }
+            busyCount++;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        makeAvailable();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            makeAvailable();
+            return false;
+        }
+        return true;
+    }
+
+    public int blockForAvailableThreads() {
+        synchronized (nextRunnableLock) {
+            while (busyCount >= count && !isShutdown) {
+                try {
+                    nextRunnableLock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            return count - busyCount;
+        }
+    }
+
+    private void makeAvailable() {
+        synchronized (nextRunnableLock) {
+            busyCount--;
+            nextRunnableLock.notifyAll();
+        }
+    }
+
+    /** 工作线程工厂 */
+    private class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, threadNamePrefix + "-" + threadNumber.getAndIncrement());
+            t.setPriority(prio);
+            t.setDaemon(makeThreadsDaemons);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.txl.equipment.pool;
+
+import com.txl.equipment.exception.SchedulerException;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 11:02
+ * 线程池
+ * 1. 调度器通过线程池执行被触发的作业任务。
+ * 2. 调度线程在获取触发器之前调用blockForAvailableThreads()，确定本批次最多可以获取的触发器数量。
+ */
+public interface ThreadPool {
+
+    /** 在可用的线程中执行任务，没有可用的线程时阻塞，线程池已停止时返回false */
+    boolean runInThread(Runnable runnable);
+
+    /** 阻塞直到有可用的线程，返回当前可用的线程数 */
+    int blockForAvailableThreads();
+
+    /** 初始化线程池 */
+    void initialize() throws SchedulerException;
+
+    /** 停止线程池 */
+    void shutdown(boolean waitForJobsToComplete);
+
+    /** 获取线程池的大小 */
+    int getPoolSize();
+
+    /** 设置调度器的实例id */
+    void setInstanceId(String schedInstId);
+
+    /** 设置调度器的名称 */
+    void setInstanceName(String schedName);
+}
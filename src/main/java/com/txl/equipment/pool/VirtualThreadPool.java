@@ -0,0 +1,355 @@
+package com.txl.equipment.pool;
+
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.schedule.JobRunShell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by TangXiangLin on 2023-03-02 09:30
+ * 虚拟线程池
+ * 1. 每个被触发的作业任务在一个新的虚拟线程中执行，适用于阻塞在设备I/O(Modbus-over-TCP、串口网关等)上的作业任务，
+ *    大量并发阻塞的作业任务不再需要同样数量的操作系统线程。
+ * 2. 运行环境不支持虚拟线程(JDK 21以下)时，退化为按需创建的守护线程池。
+ * 3. maxConcurrency限制同时执行的作业任务总数，调度线程据此确定一个批次最多获取的触发器数量。
+ * 4. 可以按作业任务分组限制并发数，超出限制的作业任务进入分组的等待队列，不阻塞调度线程，也不占用maxConcurrency；
+ *    分组中的作业任务执行完毕后，队列中的作业任务取得分组的名额，再等到有空闲的并发数时开始执行。
+ */
+public class VirtualThreadPool implements ThreadPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPool.class);
+
+    /** 缺省的最大并发数 */
+    public static final int DEFAULT_MAX_CONCURRENCY = 10000;
+
+    /** 同时执行的作业任务总数上限 */
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    /** 未单独配置的分组的并发数上限，0表示不限制 */
+    private int defaultGroupConcurrency = 0;
+    /** 线程名称前缀 */
+    private String threadNamePrefix;
+    /** 调度器的名称 */
+    private String schedulerInstanceName;
+
+    /** 按作业任务分组配置的并发数上限 */
+    private final ConcurrentHashMap<String, Integer> groupConcurrency = new ConcurrentHashMap<String, Integer>();
+    /** 限制了并发数的作业任务分组 */
+    private final ConcurrentHashMap<String, GroupGate> groupGates = new ConcurrentHashMap<String, GroupGate>();
+
+    private final Object nextRunnableLock = new Object();
+    /** 正在执行的任务数 */
+    private int busyCount = 0;
+    /** 已取得分组的名额、等待空闲并发数的分组，由nextRunnableLock保护 */
+    private final ArrayDeque<GroupGate> readyGates = new ArrayDeque<GroupGate>();
+    /** 所有分组等待队列中及正在从队列提交到执行器的作业任务数，由nextRunnableLock保护 */
+    private int queuedCount = 0;
+    private volatile boolean isShutdown = false;
+    private ExecutorService executor;
+    /** 是否使用了虚拟线程 */
+    private boolean virtual;
+
+    public VirtualThreadPool() {
+    }
+
+    public VirtualThreadPool(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+    }
+
+    public int getPoolSize() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setDefaultGroupConcurrency(int defaultGroupConcurrency) {
+        this.defaultGroupConcurrency = defaultGroupConcurrency;
+    }
+
+    public int getDefaultGroupConcurrency() {
+        return defaultGroupConcurrency;
+    }
+
+    /** 设置作业任务分组的并发数上限，0表示不限制，需在线程池初始化之前设置 */
+    public void setGroupConcurrency(String group, int permits) {
+        if (group == null) {
+            throw new IllegalArgumentException("Group cannot be null");
+        }
+        if (permits < 0) {
+            throw new IllegalArgumentException("Group concurrency must be >= 0");
+        }
+        groupConcurrency.put(group, permits);
+        groupGates.remove(group);
+    }
+
+    public void setThreadNamePrefix(String prfx) {
+        this.threadNamePrefix = prfx;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    /** 是否使用了虚拟线程，初始化之后有效 */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public void setInstanceId(String schedInstId) {
+    }
+
+    public void setInstanceName(String schedName) {
+        schedulerInstanceName = schedName;
+    }
+
+    public void initialize() throws SchedulerException {
+        if (executor != null) {
+            return;
+        }
+        if (maxConcurrency <= 0) {
+            throw new SchedulerException("Max concurrency must be > 0");
+        }
+        if (defaultGroupConcurrency < 0) {
+            throw new SchedulerException("Default group concurrency must be >= 0");
+        }
+        if (threadNamePrefix == null) {
+            threadNamePrefix = schedulerInstanceName + "_Worker";
+        }
+
+        executor = newVirtualThreadExecutor();
+        virtual = executor != null;
+        if (!virtual) {
+            executor = Executors.newCachedThreadPool(new WorkerThreadFactory());
+        }
+        logger.info("VirtualThreadPool initialized, virtual threads: {}, max concurrency: {}.", virtual, maxConcurrency);
+    }
+
+    /** 通过反射创建虚拟线程执行器，运行环境不支持时返回null */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (Exception e) {
+            logger.debug("Virtual threads not available, falling back to platform threads.");
+            return null;
+        }
+    }
+
+    public void shutdown(boolean waitForJobsToComplete) {
+        synchronized (nextRunnableLock) {
+            isShutdown = true;
+            nextRunnableLock.notifyAll();
+            if (waitForJobsToComplete) {
+                // 分组队列中的作业任务仍需提交到执行器
+                while (queuedCount > 0 && executor != null) {
+                    try {
+                        nextRunnableLock.wait(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            int discarded = 0;
+            for (GroupGate gate : groupGates.values()) {
+                discarded += gate.waiting.size();
+                gate.waiting.clear();
+                gate.ready = false;
+            }
+            readyGates.clear();
+            queuedCount -= discarded;
+            if (discarded > 0) {
+                logger.info("Discarding {} jobs waiting for their group concurrency limit.", discarded);
+            }
+        }
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (waitForJobsToComplete) {
+            try {
+                while (!executor.awaitTermination(2, TimeUnit.SECONDS)) {
+                    logger.debug("Waiting for thread pool to finish running jobs.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            executor.shutdownNow();
+        }
+        logger.debug("Shutdown of threadpool complete.");
+    }
+
+    public boolean runInThread(final Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+
+        GroupGate gate = getGroupGate(runnable);
+        synchronized (nextRunnableLock) {
+            while (true) {
+                if (isShutdown) {
+                    return false;
+                }
+                if (gate != null && (gate.running >= gate.limit || !gate.waiting.isEmpty())) {
+                    // 分组已满(或前面还有排队的作业任务)时进入分组的队列，不占用总并发数
+                    gate.waiting.add(runnable);
+                    queuedCount++;
+                    return true;
+                }
+                if (busyCount < maxConcurrency) {
+                    break;
+                }
+                try {
+                    nextRunnableLock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            busyCount++;
+            if (gate != null) {
+                gate.running++;
+            }
+        }
+
+        return execute(gate, runnable);
+    }
+
+    /** 提交到执行器，执行完毕后归还并发数及分组的名额 */
+    private boolean execute(final GroupGate gate, final Runnable runnable) {
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        makeAvailable(gate);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            makeAvailable(gate);
+            return false;
+        }
+    }
+
+    public int blockForAvailableThreads() {
+        synchronized (nextRunnableLock) {
+            while (busyCount >= maxConcurrency && !isShutdown) {
+                try {
+                    nextRunnableLock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            return maxConcurrency - busyCount;
+        }
+    }
+
+    private void makeAvailable(GroupGate gate) {
+        List<GroupGate> gates = null;
+        List<Runnable> runnables = null;
+        synchronized (nextRunnableLock) {
+            busyCount--;
+            if (gate != null) {
+                gate.running--;
+                if (!gate.waiting.isEmpty() && !gate.ready) {
+                    gate.ready = true;
+                    readyGates.add(gate);
+                }
+            }
+            // 分组队列中取得名额的作业任务优先使用空闲的并发数
+            while (busyCount < maxConcurrency && !readyGates.isEmpty()) {
+                GroupGate next = readyGates.peek();
+                if (gates == null) {
+                    gates = new ArrayList<GroupGate>();
+                    runnables = new ArrayList<Runnable>();
+                }
+                gates.add(next);
+                runnables.add(next.waiting.poll());
+                next.running++;
+                busyCount++;
+                if (next.waiting.isEmpty() || next.running >= next.limit) {
+                    next.ready = false;
+                    readyGates.poll();
+                }
+            }
+            nextRunnableLock.notifyAll();
+        }
+        if (gates != null) {
+            for (int i = 0; i < gates.size(); i++) {
+                if (!execute(gates.get(i), runnables.get(i))) {
+                    logger.error("Job dropped from the group queue, the thread pool is shut down.");
+                }
+            }
+            synchronized (nextRunnableLock) {
+                queuedCount -= gates.size();
+                nextRunnableLock.notifyAll();
+            }
+        }
+    }
+
+    /** 获取作业任务所在分组的并发限制，不限制并发时返回null */
+    private GroupGate getGroupGate(Runnable runnable) {
+        if (!(runnable instanceof JobRunShell)) {
+            return null;
+        }
+        String group = ((JobRunShell) runnable).getJobDetail().getKey().getGroup();
+
+        GroupGate gate = groupGates.get(group);
+        if (gate != null) {
+            return gate;
+        }
+
+        Integer permits = groupConcurrency.get(group);
+        int limit = permits != null ? permits : defaultGroupConcurrency;
+        if (limit <= 0) {
+            return null;
+        }
+        gate = new GroupGate(limit);
+        GroupGate prev = groupGates.putIfAbsent(group, gate);
+        return prev != null ? prev : gate;
+    }
+
+    /** 作业任务分组的并发限制，除limit外的字段由nextRunnableLock保护 */
+    private static final class GroupGate {
+        final int limit;
+        /** 正在执行的作业任务数 */
+        int running;
+        /** 等待分组名额的作业任务 */
+        final ArrayDeque<Runnable> waiting = new ArrayDeque<Runnable>();
+        /** 是否在readyGates中 */
+        boolean ready;
+
+        GroupGate(int limit) {
+            this.limit = limit;
+        }
+    }
+
+    /** 不支持虚拟线程时的工作线程工厂 */
+    private class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, threadNamePrefix + "-" + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
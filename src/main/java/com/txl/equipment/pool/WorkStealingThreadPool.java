@@ -0,0 +1,318 @@
+package com.txl.equipment.pool;
+
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.schedule.JobRunShell;
+import com.txl.equipment.trigger.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by TangXiangLin on 2023-03-02 14:20
+ * 按优先级分道的工作窃取线程池
+ * 1. 每个工作线程持有自己的双端队列，按触发器优先级分为高(> 5)、普通(= 5)、低(< 5)三条通道。
+ * 2. 工作线程按通道从高到低取任务：先从自己队列的头部取，再从其他工作线程队列的尾部窃取，
+ *    因此排队中的高优先级作业任务(如告警联动)总是先于低优先级作业任务(如例行轮询)开始执行。
+ * 3. 除正在执行的任务外，还允许queueCapacity个任务排队，突发时由通道重新排序。
+ */
+public class WorkStealingThreadPool implements ThreadPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkStealingThreadPool.class);
+
+    private static final int LANE_HIGH = 0;
+
+    private static final int LANE_NORMAL = 1;
+
+    private static final int LANE_LOW = 2;
+
+    private static final int LANE_COUNT = 3;
+
+    /** 线程数 */
+    private int count = -1;
+    /** 排队的任务数上限，小于0时与线程数相同 */
+    private int queueCapacity = -1;
+    /** 线程的优先级 */
+    private int prio = Thread.NORM_PRIORITY;
+    /** 是否为守护线程 */
+    private boolean makeThreadsDaemons = false;
+    /** 线程名称前缀 */
+    private String threadNamePrefix;
+    /** 调度器的名称 */
+    private String schedulerInstanceName;
+
+    private final Object nextRunnableLock = new Object();
+    /** 排队及正在执行的任务数 */
+    private int busyCount = 0;
+    private volatile boolean isShutdown = false;
+
+    /** 空闲工作线程等待的锁 */
+    private final Object idleLock = new Object();
+    /** 排队中的任务数 */
+    private final AtomicInteger queued = new AtomicInteger(0);
+    /** 轮询选择接收任务的工作线程 */
+    private final AtomicInteger nextWorker = new AtomicInteger(0);
+    private WorkerThread[] workers;
+
+    public WorkStealingThreadPool() {
+    }
+
+    public WorkStealingThreadPool(int threadCount, int threadPriority) {
+        setThreadCount(threadCount);
+        setThreadPriority(threadPriority);
+    }
+
+    public int getPoolSize() {
+        return getThreadCount();
+    }
+
+    public void setThreadCount(int count) {
+        this.count = count;
+    }
+
+    public int getThreadCount() {
+        return count;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setThreadPriority(int prio) {
+        this.prio = prio;
+    }
+
+    public int getThreadPriority() {
+        return prio;
+    }
+
+    public void setThreadNamePrefix(String prfx) {
+        this.threadNamePrefix = prfx;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public void setMakeThreadsDaemons(boolean makeThreadsDaemons) {
+        this.makeThreadsDaemons = makeThreadsDaemons;
+    }
+
+    public boolean isMakeThreadsDaemons() {
+        return makeThreadsDaemons;
+    }
+
+    public void setInstanceId(String schedInstId) {
+    }
+
+    public void setInstanceName(String schedName) {
+        schedulerInstanceName = schedName;
+    }
+
+    public void initialize() throws SchedulerException {
+        if (workers != null) {
+            return;
+        }
+        if (count <= 0) {
+            throw new SchedulerException("Thread count must be > 0");
+        }
+        if (prio <= 0 || prio > 9) {
+            throw new SchedulerException("Thread priority must be > 0 and <= 9");
+        }
+        if (queueCapacity < 0) {
+            queueCapacity = count;
+        }
+        if (threadNamePrefix == null) {
+            threadNamePrefix = schedulerInstanceName + "_Worker";
+        }
+
+        workers = new WorkerThread[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new WorkerThread(i);
+        }
+        for (WorkerThread worker : workers) {
+            worker.start();
+        }
+        logger.info("WorkStealingThreadPool initialized with {} threads.", count);
+    }
+
+    public void shutdown(boolean waitForJobsToComplete) {
+        synchronized (nextRunnableLock) {
+            isShutdown = true;
+            nextRunnableLock.notifyAll();
+        }
+        if (workers == null) {
+            return;
+        }
+
+        if (!waitForJobsToComplete) {
+            // 丢弃排队中的任务
+            for (WorkerThread worker : workers) {
+                for (Lane lane : worker.lanes) {
+                    while (lane.jobs.pollFirst() != null) {
+                        queued.decrementAndGet();
+                        makeAvailable();
+                    }
+                }
+            }
+        }
+        synchronized (idleLock) {
+            idleLock.notifyAll();
+        }
+
+        if (waitForJobsToComplete) {
+            boolean interrupted = false;
+            for (WorkerThread worker : workers) {
+                while (worker.isAlive()) {
+                    try {
+                        worker.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.debug("Shutdown of threadpool complete.");
+    }
+
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+
+        synchronized (nextRunnableLock) {
+            while (busyCount >= count + queueCapacity && !isShutdown) {
+                try {
+                    nextRunnableLock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            if (isShutdown) {
+                return false;
+            }
+            busyCount++;
+        }
+
+        WorkerThread worker = workers[(nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length];
+        queued.incrementAndGet();
+        worker.lanes[laneOf(runnable)].jobs.offerLast(runnable);
+        synchronized (idleLock) {
+            idleLock.notify();
+        }
+        return true;
+    }
+
+    public int blockForAvailableThreads() {
+        synchronized (nextRunnableLock) {
+            while (busyCount >= count + queueCapacity && !isShutdown) {
+                try {
+                    nextRunnableLock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            return count + queueCapacity - busyCount;
+        }
+    }
+
+    private void makeAvailable() {
+        synchronized (nextRunnableLock) {
+            busyCount--;
+            nextRunnableLock.notifyAll();
+        }
+    }
+
+    /** 根据触发器的优先级选择通道 */
+    private static int laneOf(Runnable runnable) {
+        if (!(runnable instanceof JobRunShell)) {
+            return LANE_NORMAL;
+        }
+        int priority = ((JobRunShell) runnable).getTrigger().getPriority();
+        if (priority > Trigger.DEFAULT_PRIORITY) {
+            return LANE_HIGH;
+        }
+        if (priority < Trigger.DEFAULT_PRIORITY) {
+            return LANE_LOW;
+        }
+        return LANE_NORMAL;
+    }
+
+    /** 按通道从高到低，先取自己队列的头部，再窃取其他工作线程队列的尾部 */
+    private Runnable nextRunnable(WorkerThread self) {
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            Runnable r = self.lanes[lane].jobs.pollFirst();
+            if (r != null) {
+                return r;
+            }
+            for (int i = 1; i < workers.length; i++) {
+                WorkerThread victim = workers[(self.index + i) % workers.length];
+                r = victim.lanes[lane].jobs.pollLast();
+                if (r != null) {
+                    return r;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** 工作线程的一个优先级通道 */
+    private static final class Lane {
+        final ConcurrentLinkedDeque<Runnable> jobs = new ConcurrentLinkedDeque<Runnable>();
+    }
+
+    /** 工作线程 */
+    private class WorkerThread extends Thread {
+
+        private final int index;
+
+        private final Lane[] lanes = new Lane[LANE_COUNT];
+
+        WorkerThread(int index) {
+            super(threadNamePrefix + "-" + (index + 1));
+            this.index = index;
+            for (int i = 0; i < LANE_COUNT; i++) {
+                lanes[i] = new Lane();
+            }
+            setPriority(prio);
+            setDaemon(makeThreadsDaemons);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable runnable = nextRunnable(this);
+                if (runnable == null) {
+                    if (isShutdown && queued.get() == 0) {
+                        break;
+                    }
+                    synchronized (idleLock) {
+                        if (queued.get() == 0 && !isShutdown) {
+                            try {
+                                idleLock.wait(500);
+                            } catch (InterruptedException ignore) {
+                            }
+                        }
+                    }
+                    continue;
+                }
+
+                queued.decrementAndGet();
+                try {
+                    runnable.run();
+                } catch (Throwable e) {
+                    logger.error("Error while executing the Runnable: ", e);
+                } finally {
+                    makeAvailable();
+                }
+            }
+            logger.debug("WorkerThread is shut down.");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.txl.equipment.schedule;
+
+import com.txl.equipment.date.CronExpression;
+import com.txl.equipment.date.CronExpressionCache;
+import com.txl.equipment.date.DateBuilder;
+import com.txl.equipment.exception.LinkageIllegalArgumentException;
+import com.txl.equipment.trigger.CronTrigger;
+import com.txl.equipment.trigger.CronTriggerImpl;
+import com.txl.equipment.trigger.MutableTrigger;
+import com.txl.equipment.trigger.Trigger;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-03 11:05
+ * Cron调度器构造者
+ * 1. 构建出一个基于Cron表达式触发器进行调度的调度器
+ */
+public class CronScheduleBuilder extends ScheduleBuilder<CronTrigger> {
+
+    /** Cron表达式 */
+    private CronExpression cronExpression;
+    /** 触发器适配策略 */
+    private int misfireInstruction = CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY;
+
+    // 1. Constructor
+    protected CronScheduleBuilder(CronExpression cronExpression) {
+        if (cronExpression == null) {
+            throw new NullPointerException("cronExpression cannot be null");
+        }
+        this.cronExpression = cronExpression;
+    }
+
+    // 2. Builder
+    /** 根据表达式构建，表达式不合法时抛出异常 */
+    public static CronScheduleBuilder cronSchedule(String cronExpression) {
+        try {
+            return cronSchedule(CronExpressionCache.get(cronExpression));
+        } catch (ParseException e) {
+            throw new LinkageIllegalArgumentException("CronExpression '" + cronExpression + "' is invalid.", e);
+        }
+    }
+
+    /** 根据已确认合法的表达式构建 */
+    public static CronScheduleBuilder cronScheduleNonvalidatedExpression(String cronExpression) throws ParseException {
+        return cronSchedule(CronExpressionCache.get(cronExpression));
+    }
+
+    /** 根据编译后的表达式构建 */
+    public static CronScheduleBuilder cronSchedule(CronExpression cronExpression) {
+        return new CronScheduleBuilder(cronExpression);
+    }
+
+    /** 每天的指定时分 */
+    public static CronScheduleBuilder dailyAtHourAndMinute(int hour, int minute) {
+        DateBuilder.validateHour(hour);
+        DateBuilder.validateMinute(minute);
+        return cronSchedule(String.format("0 %d %d ? * *", minute, hour));
+    }
+
+    /** 每周指定几天的时分 */
+    public static CronScheduleBuilder atHourAndMinuteOnGivenDaysOfWeek(int hour, int minute, Integer... daysOfWeek) {
+        if (daysOfWeek == null || daysOfWeek.length == 0) {
+            throw new LinkageIllegalArgumentException("You must specify at least one day of week.");
+        }
+        for (int dayOfWeek : daysOfWeek) {
+            DateBuilder.validateDayOfWeek(dayOfWeek);
+        }
+        DateBuilder.validateHour(hour);
+        DateBuilder.validateMinute(minute);
+
+        StringBuilder cronExpression = new StringBuilder(String.format("0 %d %d ? * %d", minute, hour, daysOfWeek[0]));
+        for (int i = 1; i < daysOfWeek.length; i++) {
+            cronExpression.append(",").append(daysOfWeek[i]);
+        }
+        return cronSchedule(cronExpression.toString());
+    }
+
+    /** 每周某天的时分 */
+    public static CronScheduleBuilder weeklyOnDayAndHourAndMinute(int dayOfWeek, int hour, int minute) {
+        DateBuilder.validateDayOfWeek(dayOfWeek);
+        DateBuilder.validateHour(hour);
+        DateBuilder.validateMinute(minute);
+        return cronSchedule(String.format("0 %d %d ? * %d", minute, hour, dayOfWeek));
+    }
+
+    /** 每月某天的时分 */
+    public static CronScheduleBuilder monthlyOnDayAndHourAndMinute(int dayOfMonth, int hour, int minute) {
+        DateBuilder.validateDayOfMonth(dayOfMonth);
+        DateBuilder.validateHour(hour);
+        DateBuilder.validateMinute(minute);
+        return cronSchedule(String.format("0 %d %d %d * ?", minute, hour, dayOfMonth));
+    }
+
+    /** 时区 */
+    public CronScheduleBuilder inTimeZone(TimeZone timezone) {
+        cronExpression = CronExpressionCache.withTimeZone(cronExpression, timezone);
+        return this;
+    }
+
+    /** 触发器适配策略 */
+    public CronScheduleBuilder withMisfireHandlingInstructionIgnoreMisfires() {
+        misfireInstruction = Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY;
+        return this;
+    }
+
+    /** 触发器适配策略 */
+    public CronScheduleBuilder withMisfireHandlingInstructionDoNothing() {
+        misfireInstruction = CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING;
+        return this;
+    }
+
+    /** 触发器适配策略 */
+    public CronScheduleBuilder withMisfireHandlingInstructionFireAndProceed() {
+        misfireInstruction = CronTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW;
+        return this;
+    }
+
+    @Override
+    public MutableTrigger build() {
+        CronTriggerImpl ct = new CronTriggerImpl();
+        ct.setCronExpression(cronExpression);
+        ct.setTimeZone(cronExpression.getTimeZone());
+        ct.setMisfireInstruction(misfireInstruction);
+        return ct;
+    }
+}
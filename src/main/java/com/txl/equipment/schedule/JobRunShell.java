@@ -0,0 +1,135 @@
+package com.txl.equipment.schedule;
+
+import com.txl.equipment.exception.JobExecutionException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.Job;
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.job.JobExecutionContextImpl;
+import com.txl.equipment.store.TriggerFiredBundle;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 14:05
+ * 作业任务的执行外壳
+ * 1. 由调度线程在触发器触发后创建，交给线程池执行。
+ * 2. 负责通知监听器、执行作业任务，并在执行完毕后将触发器的执行指令反馈给作业存储。
+ */
+public class JobRunShell implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobRunShell.class);
+
+    protected final StdScheduler scheduler;
+
+    protected final TriggerFiredBundle firedTriggerBundle;
+
+    protected JobExecutionContextImpl jec = null;
+
+    public JobRunShell(StdScheduler scheduler, TriggerFiredBundle bndle) {
+        this.scheduler = scheduler;
+        this.firedTriggerBundle = bndle;
+    }
+
+    /** 创建作业任务实例及其上下文 */
+    public void initialize() throws SchedulerException {
+        Job job;
+        JobDetail jobDetail = firedTriggerBundle.getJobDetail();
+
+        try {
+            job = scheduler.getJobFactory().newJob(firedTriggerBundle, scheduler);
+        } catch (SchedulerException se) {
+            scheduler.notifySchedulerListenersError(
+                    "An error occured instantiating job to be executed. job= '" + jobDetail.getKey() + "'", se);
+            throw se;
+        } catch (Throwable ncdfe) {
+            SchedulerException se = new SchedulerException(
+                    "Problem instantiating class '" + jobDetail.getJobClass().getName() + "' - ", ncdfe);
+            scheduler.notifySchedulerListenersError(
+                    "An error occured instantiating job to be executed. job= '" + jobDetail.getKey() + "'", se);
+            throw se;
+        }
+
+        this.jec = new JobExecutionContextImpl(scheduler, firedTriggerBundle, job);
+    }
+
+    /** 获取触发的触发器 */
+    public OperableTrigger getTrigger() {
+        return firedTriggerBundle.getTrigger();
+    }
+
+    /** 获取触发的作业任务描述 */
+    public JobDetail getJobDetail() {
+        return firedTriggerBundle.getJobDetail();
+    }
+
+    public void run() {
+        try {
+            OperableTrigger trigger = (OperableTrigger) jec.getTrigger();
+            JobDetail jobDetail = jec.getJobDetail();
+
+            do {
+                JobExecutionException jobExEx = null;
+                Job job = jec.getJobInstance();
+
+                // 通知触发器监听器，触发器监听器可以否决本次执行
+                if (scheduler.notifyTriggerListenersFired(jec)) {
+                    scheduler.notifyJobListenersWasVetoed(jec);
+                    Trigger.CompletedExecutionInstruction instCode = trigger.executionComplete(jec, null);
+                    scheduler.notifyJobStoreJobVetoed(trigger, jobDetail, instCode);
+                    break;
+                }
+
+                scheduler.notifyJobListenersToBeExecuted(jec);
+
+                long startTime = System.currentTimeMillis();
+                long endTime;
+
+                try {
+                    logger.debug("Calling execute on job " + jobDetail.getKey());
+                    job.execute(jec);
+                    endTime = System.currentTimeMillis();
+                } catch (JobExecutionException jee) {
+                    endTime = System.currentTimeMillis();
+                    jobExEx = jee;
+                    logger.info("Job " + jobDetail.getKey() + " threw a JobExecutionException: ", jobExEx);
+                } catch (Throwable e) {
+                    endTime = System.currentTimeMillis();
+                    logger.error("Job " + jobDetail.getKey() + " threw an unhandled Exception: ", e);
+                    SchedulerException se = new SchedulerException("Job threw an unhandled exception.", e);
+                    scheduler.notifySchedulerListenersError("Job (" + jobDetail.getKey()
+                            + " threw an exception.", se);
+                    jobExEx = new JobExecutionException(se, false);
+                }
+
+                jec.setJobRunTime(endTime - startTime);
+
+                scheduler.notifyJobListenersWasExecuted(jec, jobExEx);
+
+                Trigger.CompletedExecutionInstruction instCode = Trigger.CompletedExecutionInstruction.NOOP;
+                try {
+                    instCode = trigger.executionComplete(jec, jobExEx);
+                } catch (Exception e) {
+                    SchedulerException se = new SchedulerException(
+                            "Trigger threw an unhandled exception.", e);
+                    scheduler.notifySchedulerListenersError(
+                            "Please report this error to the equipment-linkage developers.", se);
+                }
+
+                scheduler.notifyTriggerListenersComplete(jec, instCode);
+
+                // 作业任务要求立即再次执行
+                if (instCode == Trigger.CompletedExecutionInstruction.RE_EXECUTE_JOB) {
+                    jec.incrementRefireCount();
+                    continue;
+                }
+
+                scheduler.notifyJobStoreJobComplete(trigger, jobDetail, instCode);
+                break;
+            } while (true);
+        } finally {
+            scheduler.removeExecutingJob(jec);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.txl.equipment.schedule;
 
+import com.txl.equipment.calendar.Calendar;
 import com.txl.equipment.exception.SchedulerException;
 import com.txl.equipment.exception.UnableToInterruptJobException;
 import com.txl.equipment.job.*;
@@ -1,7 +1,27 @@
 package com.txl.equipment.schedule;
 
+import com.txl.equipment.key.StringKeyDirtyFlagMap;
+
+import java.io.Serializable;
+import java.util.Map;
+
 /**
  * Created by TangXiangLin on 2023-02-13 16:43
+ * 调度器上下文
+ * 1. 保存调度器范围内共享的数据，作业任务可以通过JobExecutionContext获取调度器后访问
  */
-public class SchedulerContext {
+public class SchedulerContext extends StringKeyDirtyFlagMap implements Serializable {
+
+    private static final long serialVersionUID = -6659641334616491764L;
+
+    public SchedulerContext() {
+        super(15);
+    }
+
+    public SchedulerContext(Map<?, ?> map) {
+        this();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> mapTyped = (Map<String, Object>)map;
+        putAll(mapTyped);
+    }
 }
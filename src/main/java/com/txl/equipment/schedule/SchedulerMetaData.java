@@ -1,7 +1,110 @@
 package com.txl.equipment.schedule;
 
+import java.io.Serializable;
+import java.util.Date;
+
 /**
  * Created by TangXiangLin on 2023-02-13 16:57
+ * 调度器元数据
+ * 1. 描述调度器实例的状态与配置，由Scheduler.getMetaData()获取
  */
-public class SchedulerMetaData {
+public class SchedulerMetaData implements Serializable {
+
+    private static final long serialVersionUID = 4203690002633917647L;
+
+    /** 调度器名称 */
+    private final String schedName;
+    /** 调度器实例id */
+    private final String schedInst;
+    /** 调度器实现类 */
+    private final Class<?> schedClass;
+    /** 是否已启动 */
+    private final boolean started;
+    /** 是否处于待机模式 */
+    private final boolean isInStandbyMode;
+    /** 是否已停止 */
+    private final boolean shutdown;
+    /** 启动的时间 */
+    private final Date startTime;
+    /** 已执行的作业任务数 */
+    private final int numJobsExecuted;
+    /** 作业存储实现类 */
+    private final Class<?> jsClass;
+    /** 线程池实现类 */
+    private final Class<?> tpClass;
+    /** 线程池大小 */
+    private final int tpSize;
+
+    public SchedulerMetaData(String schedName, String schedInst, Class<?> schedClass,
+                             boolean started, boolean isInStandbyMode, boolean shutdown,
+                             Date startTime, int numJobsExecuted,
+                             Class<?> jsClass, Class<?> tpClass, int tpSize) {
+        this.schedName = schedName;
+        this.schedInst = schedInst;
+        this.schedClass = schedClass;
+        this.started = started;
+        this.isInStandbyMode = isInStandbyMode;
+        this.shutdown = shutdown;
+        this.startTime = startTime;
+        this.numJobsExecuted = numJobsExecuted;
+        this.jsClass = jsClass;
+        this.tpClass = tpClass;
+        this.tpSize = tpSize;
+    }
+
+    public String getSchedulerName() {
+        return schedName;
+    }
+
+    public String getSchedulerInstanceId() {
+        return schedInst;
+    }
+
+    public Class<?> getSchedulerClass() {
+        return schedClass;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean isInStandbyMode() {
+        return isInStandbyMode;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public Date getRunningSince() {
+        return startTime;
+    }
+
+    public int getNumberOfJobsExecuted() {
+        return numJobsExecuted;
+    }
+
+    public Class<?> getJobStoreClass() {
+        return jsClass;
+    }
+
+    public Class<?> getThreadPoolClass() {
+        return tpClass;
+    }
+
+    public int getThreadPoolSize() {
+        return tpSize;
+    }
+
+    @Override
+    public String toString() {
+        return "Scheduler '" + schedName + "' with instanceId '" + schedInst + "'"
+                + "  Scheduler class: '" + schedClass.getName() + "'"
+                + "  Running since: " + (startTime == null ? "never" : startTime)
+                + "  Currently in standby mode: " + isInStandbyMode
+                + "  Shutdown: " + shutdown
+                + "  Number of jobs executed: " + numJobsExecuted
+                + "  Using thread pool '" + tpClass.getName() + "' - with " + tpSize + " threads."
+                + "  Using job-store '" + jsClass.getName() + "'";
+    }
 }
@@ -0,0 +1,380 @@
+package com.txl.equipment.schedule;
+
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.pool.ThreadPool;
+import com.txl.equipment.store.JobStore;
+import com.txl.equipment.store.TriggerFiredBundle;
+import com.txl.equipment.store.TriggerFiredResult;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 13:20
+ * 调度线程
+ * 1. 调度器中唯一的定时线程，循环从作业存储中批量获取即将触发的触发器。
+ * 2. 一个批次最多获取maxBatchSize个触发器，且不超过线程池中可用的线程数；
+ *    批次中的触发器，触发时间都在第一个触发器之后batchTimeWindow(毫秒)以内。
+ * 3. 等到批次中第一个触发器的触发时间后，通过作业存储完成触发，并按优先级从高到低将作业任务交给线程池执行。
+ * 4. 等待期间调度数据发生变化，且出现了更早的触发时间，则释放已获取的触发器重新获取。
+ */
+public class SchedulerThread extends Thread {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchedulerThread.class);
+
+    /** 按触发器优先级从高到低排序 */
+    private static final Comparator<OperableTrigger> PRIORITY_COMPARATOR = new Comparator<OperableTrigger>() {
+        public int compare(OperableTrigger t1, OperableTrigger t2) {
+            return t2.getPriority() - t1.getPriority();
+        }
+    };
+
+    private final StdScheduler scheduler;
+
+    private final JobStore jobStore;
+
+    private final ThreadPool threadPool;
+
+    private final Object sigLock = new Object();
+
+    private boolean signaled;
+
+    private long signaledNextFireTime;
+
+    private boolean paused;
+
+    private final AtomicBoolean halted;
+
+    private final Random random = new Random(System.currentTimeMillis());
+
+    /** 没有触发器时的空闲等待时间(毫秒) */
+    private long idleWaitTime = StdScheduler.DEFAULT_IDLE_WAIT_TIME;
+
+    /** 一个批次最多获取的触发器数量 */
+    private int maxBatchSize = StdScheduler.DEFAULT_MAX_BATCH_SIZE;
+
+    /** 批次的时间窗口(毫秒) */
+    private long batchTimeWindow = StdScheduler.DEFAULT_BATCH_TIME_WINDOW;
+
+    SchedulerThread(StdScheduler scheduler, JobStore jobStore, ThreadPool threadPool) {
+        super(scheduler.getSchedulerName() + "_SchedulerThread");
+        this.scheduler = scheduler;
+        this.jobStore = jobStore;
+        this.threadPool = threadPool;
+        this.paused = true;
+        this.halted = new AtomicBoolean(false);
+    }
+
+    void setIdleWaitTime(long waitTime) {
+        this.idleWaitTime = waitTime;
+    }
+
+    void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    void setBatchTimeWindow(long batchTimeWindow) {
+        this.batchTimeWindow = batchTimeWindow;
+    }
+
+    private long getRandomizedIdleWaitTime() {
+        return idleWaitTime - random.nextInt((int) (idleWaitTime * 0.2));
+    }
+
+    /** 暂停或恢复调度线程 */
+    void togglePause(boolean pause) {
+        synchronized (sigLock) {
+            paused = pause;
+
+            if (paused) {
+                signalSchedulingChange(0);
+            } else {
+                sigLock.notifyAll();
+            }
+        }
+    }
+
+    /** 停止调度线程 */
+    void halt(boolean wait) {
+        synchronized (sigLock) {
+            halted.set(true);
+
+            if (paused) {
+                sigLock.notifyAll();
+            } else {
+                signalSchedulingChange(0);
+            }
+        }
+
+        if (wait) {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        join();
+                        break;
+                    } catch (InterruptedException ignore) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    /** 通知调度线程调度数据发生了变化 */
+    void signalSchedulingChange(long candidateNewNextFireTime) {
+        synchronized (sigLock) {
+            signaled = true;
+            signaledNextFireTime = candidateNewNextFireTime;
+            sigLock.notifyAll();
+        }
+    }
+
+    private void clearSignaledSchedulingChange() {
+        synchronized (sigLock) {
+            signaled = false;
+            signaledNextFireTime = 0;
+        }
+    }
+
+    private boolean isScheduleChanged() {
+        synchronized (sigLock) {
+            return signaled;
+        }
+    }
+
+    private long getSignaledNextFireTime() {
+        synchronized (sigLock) {
+            return signaledNextFireTime;
+        }
+    }
+
+    @Override
+    public void run() {
+        int acquiresFailed = 0;
+
+        while (!halted.get()) {
+            try {
+                synchronized (sigLock) {
+                    while (paused && !halted.get()) {
+                        try {
+                            sigLock.wait(1000L);
+                        } catch (InterruptedException ignore) {
+                        }
+                        acquiresFailed = 0;
+                    }
+
+                    if (halted.get()) {
+                        break;
+                    }
+                }
+
+                // 连续获取失败时退避，避免作业存储异常时空转
+                if (acquiresFailed > 1) {
+                    try {
+                        Thread.sleep(Math.min(acquiresFailed * 100L, 15000L));
+                    } catch (Exception ignore) {
+                    }
+                }
+
+                int availThreadCount = threadPool.blockForAvailableThreads();
+                if (availThreadCount <= 0) {
+                    continue;
+                }
+
+                List<OperableTrigger> triggers;
+                long now = System.currentTimeMillis();
+
+                clearSignaledSchedulingChange();
+                try {
+                    triggers = jobStore.acquireNextTriggers(
+                            now + idleWaitTime, Math.min(availThreadCount, maxBatchSize), batchTimeWindow);
+                    acquiresFailed = 0;
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("batch acquisition of " + (triggers == null ? 0 : triggers.size()) + " triggers");
+                    }
+                } catch (JobPersistenceException jpe) {
+                    if (acquiresFailed == 0) {
+                        scheduler.notifySchedulerListenersError(
+                                "An error occurred while scanning for the next triggers to fire.", jpe);
+                    }
+                    if (acquiresFailed < Integer.MAX_VALUE) {
+                        acquiresFailed++;
+                    }
+                    continue;
+                } catch (RuntimeException e) {
+                    if (acquiresFailed == 0) {
+                        logger.error("schedulerThreadLoop: RuntimeException " + e.getMessage(), e);
+                    }
+                    if (acquiresFailed < Integer.MAX_VALUE) {
+                        acquiresFailed++;
+                    }
+                    continue;
+                }
+
+                if (triggers != null && !triggers.isEmpty()) {
+                    now = System.currentTimeMillis();
+                    long triggerTime = triggers.get(0).getNextFireTimeMillis();
+                    long timeUntilTrigger = triggerTime - now;
+                    while (timeUntilTrigger > 2) {
+                        synchronized (sigLock) {
+                            if (halted.get()) {
+                                break;
+                            }
+                            if (!isCandidateNewTimeEarlierWithinReason(triggerTime)) {
+                                try {
+                                    now = System.currentTimeMillis();
+                                    timeUntilTrigger = triggerTime - now;
+                                    if (timeUntilTrigger >= 1) {
+                                        sigLock.wait(timeUntilTrigger);
+                                    }
+                                } catch (InterruptedException ignore) {
+                                }
+                            }
+                        }
+                        if (releaseIfScheduleChangedSignificantly(triggers, triggerTime)) {
+                            break;
+                        }
+                        now = System.currentTimeMillis();
+                        timeUntilTrigger = triggerTime - now;
+                    }
+
+                    // 等待期间触发器已全部释放
+                    if (triggers.isEmpty()) {
+                        continue;
+                    }
+
+                    List<TriggerFiredResult> res;
+                    synchronized (sigLock) {
+                        if (halted.get()) {
+                            releaseTriggers(triggers);
+                            break;
+                        }
+                    }
+                    // 批次中的触发器都已到期，按优先级从高到低交给线程池，稳定排序保持同优先级的触发时间顺序
+                    Collections.sort(triggers, PRIORITY_COMPARATOR);
+                    try {
+                        res = jobStore.triggersFired(triggers);
+                    } catch (JobPersistenceException jpe) {
+                        scheduler.notifySchedulerListenersError(
+                                "An error occurred while firing triggers '" + triggers + "'", jpe);
+                        releaseTriggers(triggers);
+                        continue;
+                    }
+
+                    for (TriggerFiredResult result : res) {
+                        TriggerFiredBundle bndle = result.getTriggerFiredBundle();
+                        Exception exception = result.getException();
+
+                        if (exception != null) {
+                            logger.error("Exception while firing triggers " + triggers, exception);
+                            continue;
+                        }
+
+                        // 触发器已被删除、暂停或其日历已被删除
+                        if (bndle == null) {
+                            continue;
+                        }
+
+                        JobRunShell shell = new JobRunShell(scheduler, bndle);
+                        try {
+                            shell.initialize();
+                        } catch (SchedulerException se) {
+                            jobStore.triggeredJobComplete(bndle.getTrigger(), bndle.getJobDetail(),
+                                    Trigger.CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR);
+                            continue;
+                        }
+
+                        scheduler.addExecutingJob(shell);
+                        if (!threadPool.runInThread(shell)) {
+                            logger.error("ThreadPool.runInThread() return false!");
+                            scheduler.removeExecutingJob(shell);
+                            jobStore.triggeredJobComplete(bndle.getTrigger(), bndle.getJobDetail(),
+                                    Trigger.CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR);
+                        }
+                    }
+
+                    continue;
+                }
+
+                long now2 = System.currentTimeMillis();
+                long waitTime = now2 + getRandomizedIdleWaitTime();
+                long timeUntilContinue = waitTime - now2;
+                synchronized (sigLock) {
+                    try {
+                        if (!halted.get() && !isScheduleChanged()) {
+                            sigLock.wait(timeUntilContinue);
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            } catch (RuntimeException re) {
+                logger.error("Runtime error occurred in main trigger firing loop.", re);
+            }
+        }
+        logger.debug("SchedulerThread '" + getName() + "' halted.");
+    }
+
+    /** 等待期间调度数据变化，出现了更早的触发时间时释放已获取的触发器 */
+    private boolean releaseIfScheduleChangedSignificantly(List<OperableTrigger> acquiredTriggers, long triggerTime) {
+        if (isCandidateNewTimeEarlierWithinReason(triggerTime)) {
+            releaseTriggers(acquiredTriggers);
+            acquiredTriggers.clear();
+            return true;
+        }
+        return false;
+    }
+
+    private void releaseTriggers(List<OperableTrigger> acquiredTriggers) {
+        for (OperableTrigger trigger : acquiredTriggers) {
+            jobStore.releaseAcquiredTrigger(trigger);
+        }
+    }
+
+    /**
+     * 新的触发时间是否足够早，值得释放已获取的触发器
+     * 1. 释放并重新获取触发器是有开销的，距离已获取的触发器触发时间很近时不值得释放。
+     */
+    private boolean isCandidateNewTimeEarlierWithinReason(long oldTime) {
+        synchronized (sigLock) {
+            if (!isScheduleChanged()) {
+                return false;
+            }
+
+            boolean earlier = false;
+            if (getSignaledNextFireTime() == 0) {
+                earlier = true;
+            } else if (getSignaledNextFireTime() < oldTime) {
+                earlier = true;
+            }
+
+            if (earlier) {
+                long diff = oldTime - System.currentTimeMillis();
+                if (diff < 7L) {
+                    earlier = false;
+                }
+            }
+
+            if (!earlier) {
+                clearSignaledSchedulingChange();
+            }
+            return earlier;
+        }
+    }
+}
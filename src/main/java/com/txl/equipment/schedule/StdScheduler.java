@@ -0,0 +1,1247 @@
+package com.txl.equipment.schedule;
+
+import com.txl.equipment.calendar.Calendar;
+import com.txl.equipment.exception.JobExecutionException;
+import com.txl.equipment.exception.ObjectAlreadyExistsException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.exception.UnableToInterruptJobException;
+import com.txl.equipment.job.*;
+import com.txl.equipment.key.Key;
+import com.txl.equipment.listener.AsyncListenerDispatcher;
+import com.txl.equipment.listener.DefaultListenerManager;
+import com.txl.equipment.listener.ListenerManager;
+import com.txl.equipment.matcher.GroupMatcher;
+import com.txl.equipment.pool.ThreadPool;
+import com.txl.equipment.store.JobStore;
+import com.txl.equipment.store.SchedulerSignaler;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.Trigger;
+import com.txl.equipment.trigger.TriggerBuilder;
+import com.txl.equipment.trigger.TriggerKey;
+import com.txl.equipment.trigger.TriggerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 15:10
+ * 标准的调度器实现
+ * 1. 作业任务描述、触发器、日历保存在作业存储(JobStore)中。
+ * 2. 由唯一的调度线程(SchedulerThread)批量获取即将触发的触发器，触发后交给线程池(ThreadPool)执行。
+ * 3. 调度器创建后处于待机模式，调用start()后才开始触发。
+ */
+public class StdScheduler implements Scheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StdScheduler.class);
+
+    /** 缺省的空闲等待时间(毫秒) */
+    public static final long DEFAULT_IDLE_WAIT_TIME = 30L * 1000L;
+
+    /** 缺省的批次最大触发器数量 */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /** 缺省的批次时间窗口(毫秒) */
+    public static final long DEFAULT_BATCH_TIME_WINDOW = 0L;
+
+    /** 调度器名称 */
+    private final String schedulerName;
+
+    /** 调度器实例id */
+    private final String schedulerInstanceId;
+
+    private final JobStore jobStore;
+
+    private final ThreadPool threadPool;
+
+    private final SchedulerThread schedThread;
+
+    private final SchedulerContext context = new SchedulerContext();
+
+    private final DefaultListenerManager listenerManager = new DefaultListenerManager();
+
+    private final Map<String, JobRunShell> executingJobs = new ConcurrentHashMap<String, JobRunShell>();
+
+    private final AtomicInteger numJobsFired = new AtomicInteger(0);
+
+    private volatile JobFactory jobFactory = new JobFactory();
+
+    /** 监听器的异步通知，为null时在触发线程、作业任务线程中同步通知 */
+    private volatile AsyncListenerDispatcher listenerDispatcher;
+
+    private volatile Date initialStart = null;
+
+    private volatile boolean closed = false;
+
+    private volatile boolean shuttingDown = false;
+
+    public StdScheduler(String schedulerName, String schedulerInstanceId,
+                        JobStore jobStore, ThreadPool threadPool) throws SchedulerException {
+        if (jobStore == null) {
+            throw new SchedulerException("JobStore cannot be null.");
+        }
+        if (threadPool == null) {
+            throw new SchedulerException("ThreadPool cannot be null.");
+        }
+        this.schedulerName = schedulerName;
+        this.schedulerInstanceId = schedulerInstanceId;
+        this.jobStore = jobStore;
+        this.threadPool = threadPool;
+
+        threadPool.setInstanceName(schedulerName);
+        threadPool.setInstanceId(schedulerInstanceId);
+        threadPool.initialize();
+        jobStore.initialize(new StdSchedulerSignaler());
+
+        this.schedThread = new SchedulerThread(this, jobStore, threadPool);
+        this.schedThread.start();
+
+        logger.info("Scheduler '" + schedulerName + "' initialized, currently in standby mode.");
+    }
+
+    // 1. 调度线程配置
+    /** 设置没有触发器时的空闲等待时间(毫秒) */
+    public void setIdleWaitTime(long idleWaitTime) {
+        if (idleWaitTime < 1000L) {
+            throw new IllegalArgumentException("Idle wait time must be >= 1000 ms.");
+        }
+        schedThread.setIdleWaitTime(idleWaitTime);
+    }
+
+    /** 设置一个批次最多获取的触发器数量 */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be >= 1.");
+        }
+        schedThread.setMaxBatchSize(maxBatchSize);
+    }
+
+    /** 设置批次的时间窗口(毫秒)，允许提前触发的最大时长 */
+    public void setBatchTimeWindow(long batchTimeWindow) {
+        if (batchTimeWindow < 0L) {
+            throw new IllegalArgumentException("Batch time window must be >= 0.");
+        }
+        schedThread.setBatchTimeWindow(batchTimeWindow);
+    }
+
+    public JobStore getJobStore() {
+        return jobStore;
+    }
+
+    public ThreadPool getThreadPool() {
+        return threadPool;
+    }
+
+    public JobFactory getJobFactory() {
+        return jobFactory;
+    }
+
+    // 2. 调度器状态
+    public String getSchedulerName() {
+        return schedulerName;
+    }
+
+    public String getSchedulerInstanceId() {
+        return schedulerInstanceId;
+    }
+
+    public SchedulerContext getContext() {
+        return context;
+    }
+
+    public void start() throws SchedulerException {
+        if (shuttingDown || closed) {
+            throw new SchedulerException("The Scheduler cannot be restarted after shutdown() has been called.");
+        }
+
+        notifySchedulerListenersStarting();
+
+        if (initialStart == null) {
+            initialStart = new Date();
+            jobStore.schedulerStarted();
+        } else {
+            jobStore.schedulerResumed();
+        }
+
+        schedThread.togglePause(false);
+
+        logger.info("Scheduler " + schedulerName + "_$_" + schedulerInstanceId + " started.");
+
+        notifySchedulerListenersStarted();
+    }
+
+    public void startDelayed(final int seconds) throws SchedulerException {
+        if (shuttingDown || closed) {
+            throw new SchedulerException("The Scheduler cannot be restarted after shutdown() has been called.");
+        }
+
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(seconds * 1000L);
+                } catch (InterruptedException ignore) {
+                }
+                try {
+                    start();
+                } catch (SchedulerException se) {
+                    logger.error("Unable to start scheduler after startup delay.", se);
+                }
+            }
+        }, schedulerName + "_DelayedStarter");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public boolean isStarted() {
+        return !shuttingDown && !closed && !schedThread.isPaused() && initialStart != null;
+    }
+
+    public void standby() {
+        jobStore.schedulerPaused();
+        schedThread.togglePause(true);
+        logger.info("Scheduler " + schedulerName + "_$_" + schedulerInstanceId + " paused.");
+        notifySchedulerListenersInStandbyMode();
+    }
+
+    public boolean isInStandbyMode() {
+        return schedThread.isPaused();
+    }
+
+    public void shutdown() {
+        shutdown(false);
+    }
+
+    public void shutdown(boolean waitForJobsToComplete) {
+        if (shuttingDown || closed) {
+            return;
+        }
+
+        shuttingDown = true;
+
+        logger.info("Scheduler " + schedulerName + "_$_" + schedulerInstanceId + " shutting down.");
+
+        standby();
+
+        schedThread.halt(waitForJobsToComplete);
+
+        notifySchedulerListenersShuttingdown();
+
+        threadPool.shutdown(waitForJobsToComplete);
+
+        closed = true;
+
+        jobStore.shutdown();
+
+        notifySchedulerListenersShutdown();
+
+        AsyncListenerDispatcher dispatcher = listenerDispatcher;
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+
+        logger.info("Scheduler " + schedulerName + "_$_" + schedulerInstanceId + " shutdown complete.");
+    }
+
+    public boolean isShutdown() {
+        return closed;
+    }
+
+    /** 校验调度器状态，调度器停止后不能再进行调度 */
+    private void validateState() throws SchedulerException {
+        if (isShutdown()) {
+            throw new SchedulerException("The Scheduler has been shutdown.");
+        }
+    }
+
+    public SchedulerMetaData getMetaData() {
+        return new SchedulerMetaData(schedulerName, schedulerInstanceId, getClass(),
+                isStarted(), isInStandbyMode(), isShutdown(), initialStart, numJobsFired.get(),
+                jobStore.getClass(), threadPool.getClass(), threadPool.getPoolSize());
+    }
+
+    public List<JobExecutionContext> getCurrentlyExecutingJobs() {
+        List<JobExecutionContext> jobs = new ArrayList<JobExecutionContext>(executingJobs.size());
+        for (JobRunShell shell : executingJobs.values()) {
+            jobs.add(shell.jec);
+        }
+        return Collections.unmodifiableList(jobs);
+    }
+
+    public void setJobFactory(JobFactory factory) throws SchedulerException {
+        if (factory == null) {
+            throw new IllegalArgumentException("JobFactory cannot be set to null!");
+        }
+        logger.info("JobFactory set to: " + factory);
+        this.jobFactory = factory;
+    }
+
+    public ListenerManager getListenerManager() {
+        return listenerManager;
+    }
+
+    /**
+     * 设置监听器的异步通知，为null时恢复同步通知
+     * 1. 能否决作业任务执行的回调(triggerFired、vetoJobExecution)始终同步调用。
+     * 2. 原有的异步通知停止前会通知完队列中剩余的事件；调度器停止时同样如此。
+     */
+    public void setListenerDispatcher(AsyncListenerDispatcher dispatcher) {
+        AsyncListenerDispatcher old = this.listenerDispatcher;
+        this.listenerDispatcher = dispatcher;
+        if (old != null && old != dispatcher) {
+            old.shutdown();
+        }
+    }
+
+    public AsyncListenerDispatcher getListenerDispatcher() {
+        return listenerDispatcher;
+    }
+
+    // 3. 作业任务及触发器的调度
+    public Date scheduleJob(JobDetail jobDetail, Trigger trigger) throws SchedulerException {
+        validateState();
+
+        if (jobDetail == null) {
+            throw new SchedulerException("JobDetail cannot be null");
+        }
+        if (trigger == null) {
+            throw new SchedulerException("Trigger cannot be null");
+        }
+        if (jobDetail.getKey() == null) {
+            throw new SchedulerException("Job's key cannot be null");
+        }
+        if (jobDetail.getJobClass() == null) {
+            throw new SchedulerException("Job's class cannot be null");
+        }
+
+        OperableTrigger trig = toOperableTrigger(trigger);
+
+        if (trigger.getJobKey() == null) {
+            trig.setJobKey(jobDetail.getKey());
+        } else if (!trigger.getJobKey().equals(jobDetail.getKey())) {
+            throw new SchedulerException("Trigger does not reference given job!");
+        }
+
+        trig.validate();
+
+        Date ft = computeFirstFireTime(trig);
+
+        jobStore.storeJobAndTrigger(jobDetail, trig);
+        notifySchedulerListenersJobAdded(jobDetail);
+        notifySchedulerThread(trigger.getNextFireTime().getTime());
+        notifySchedulerListenersScheduled(trigger);
+
+        return ft;
+    }
+
+    public Date scheduleJob(Trigger trigger) throws SchedulerException {
+        validateState();
+
+        if (trigger == null) {
+            throw new SchedulerException("Trigger cannot be null");
+        }
+
+        OperableTrigger trig = toOperableTrigger(trigger);
+        trig.validate();
+
+        Date ft = computeFirstFireTime(trig);
+
+        jobStore.storeTrigger(trig, false);
+        notifySchedulerThread(trigger.getNextFireTime().getTime());
+        notifySchedulerListenersScheduled(trigger);
+
+        return ft;
+    }
+
+    public void scheduleJobs(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws SchedulerException {
+        validateState();
+
+        for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+            JobDetail job = e.getKey();
+            if (job == null) {
+                continue;
+            }
+            Set<? extends Trigger> triggers = e.getValue();
+            if (triggers == null) {
+                continue;
+            }
+            if (!job.isDurable() && triggers.isEmpty()) {
+                throw new SchedulerException("A job defined with no triggers must be durable.");
+            }
+            if (job.getJobClass() == null) {
+                throw new SchedulerException("Job's class cannot be null");
+            }
+
+            for (Trigger trigger : triggers) {
+                OperableTrigger opt = toOperableTrigger(trigger);
+                opt.setJobKey(job.getKey());
+                opt.validate();
+                computeFirstFireTime(opt);
+            }
+        }
+
+        jobStore.storeJobsAndTriggers(triggersAndJobs, replace);
+        notifySchedulerThread(0L);
+        for (JobDetail job : triggersAndJobs.keySet()) {
+            notifySchedulerListenersJobAdded(job);
+        }
+    }
+
+    public void scheduleJob(JobDetail jobDetail, Set<? extends Trigger> triggersForJob, boolean replace)
+            throws SchedulerException {
+        Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new HashMap<JobDetail, Set<? extends Trigger>>();
+        triggersAndJobs.put(jobDetail, triggersForJob);
+        scheduleJobs(triggersAndJobs, replace);
+    }
+
+    public boolean unscheduleJob(TriggerKey triggerKey) throws SchedulerException {
+        validateState();
+
+        if (jobStore.removeTrigger(triggerKey)) {
+            notifySchedulerThread(0L);
+            notifySchedulerListenersUnscheduled(triggerKey);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean unscheduleJobs(List<TriggerKey> triggerKeys) throws SchedulerException {
+        validateState();
+
+        boolean result = jobStore.removeTriggers(triggerKeys);
+        notifySchedulerThread(0L);
+        for (TriggerKey key : triggerKeys) {
+            notifySchedulerListenersUnscheduled(key);
+        }
+        return result;
+    }
+
+    public Date rescheduleJob(TriggerKey triggerKey, Trigger newTrigger) throws SchedulerException {
+        validateState();
+
+        if (triggerKey == null) {
+            throw new IllegalArgumentException("triggerKey cannot be null");
+        }
+        if (newTrigger == null) {
+            throw new IllegalArgumentException("newTrigger cannot be null");
+        }
+
+        OperableTrigger trig = toOperableTrigger(newTrigger);
+        Trigger oldTrigger = getTrigger(triggerKey);
+        if (oldTrigger == null) {
+            return null;
+        }
+        trig.setJobKey(oldTrigger.getJobKey());
+        trig.validate();
+
+        Date ft;
+        if (trig.getNextFireTime() != null) {
+            ft = trig.getNextFireTime();
+        } else {
+            ft = computeFirstFireTime(trig);
+        }
+
+        if (jobStore.replaceTrigger(triggerKey, trig)) {
+            notifySchedulerThread(newTrigger.getNextFireTime().getTime());
+            notifySchedulerListenersUnscheduled(triggerKey);
+            notifySchedulerListenersScheduled(newTrigger);
+        } else {
+            return null;
+        }
+
+        return ft;
+    }
+
+    public void addJob(JobDetail jobDetail, boolean replace) throws SchedulerException {
+        addJob(jobDetail, replace, false);
+    }
+
+    public void addJob(JobDetail jobDetail, boolean replace, boolean storeNonDurableWhileAwaitingScheduling)
+            throws SchedulerException {
+        validateState();
+
+        if (!storeNonDurableWhileAwaitingScheduling && !jobDetail.isDurable()) {
+            throw new SchedulerException("Jobs added with no trigger must be durable.");
+        }
+
+        jobStore.storeJob(jobDetail, replace);
+        notifySchedulerThread(0L);
+        notifySchedulerListenersJobAdded(jobDetail);
+    }
+
+    public boolean deleteJob(JobKey jobKey) throws SchedulerException {
+        validateState();
+
+        boolean result = false;
+
+        List<? extends Trigger> triggers = getTriggersOfJob(jobKey);
+        for (Trigger trigger : triggers) {
+            if (!unscheduleJob(trigger.getKey())) {
+                throw new SchedulerException("Unable to unschedule trigger ["
+                        + trigger.getKey() + "] while deleting job [" + jobKey + "]");
+            }
+            result = true;
+        }
+
+        result = jobStore.removeJob(jobKey) || result;
+        if (result) {
+            notifySchedulerThread(0L);
+            notifySchedulerListenersJobDeleted(jobKey);
+        }
+        return result;
+    }
+
+    public boolean deleteJobs(List<JobKey> jobKeys) throws SchedulerException {
+        validateState();
+
+        boolean result = jobStore.removeJobs(jobKeys);
+        notifySchedulerThread(0L);
+        for (JobKey key : jobKeys) {
+            notifySchedulerListenersJobDeleted(key);
+        }
+        return result;
+    }
+
+    public void triggerJob(JobKey jobKey) throws SchedulerException {
+        triggerJob(jobKey, null);
+    }
+
+    public void triggerJob(JobKey jobKey, JobDataMap data) throws SchedulerException {
+        validateState();
+
+        OperableTrigger trig = (OperableTrigger) TriggerBuilder.newTrigger()
+                .withIdentity(newTriggerId(), Scheduler.DEFAULT_GROUP)
+                .forJob(jobKey)
+                .build();
+        trig.computeFirstFireTime(null);
+        if (data != null) {
+            trig.setJobDataMap(data);
+        }
+
+        boolean collision = true;
+        while (collision) {
+            try {
+                jobStore.storeTrigger(trig, false);
+                collision = false;
+            } catch (ObjectAlreadyExistsException oaee) {
+                trig.setKey(new TriggerKey(newTriggerId(), Scheduler.DEFAULT_GROUP));
+            }
+        }
+
+        notifySchedulerThread(trig.getNextFireTime().getTime());
+        notifySchedulerListenersScheduled(trig);
+    }
+
+    public void pauseJob(JobKey jobKey) throws SchedulerException {
+        validateState();
+
+        jobStore.pauseJob(jobKey);
+        notifySchedulerThread(0L);
+        notifySchedulerListenersPausedJob(jobKey);
+    }
+
+    public void pauseJobs(GroupMatcher<JobKey> matcher) throws SchedulerException {
+        validateState();
+
+        if (matcher == null) {
+            matcher = GroupMatcher.jobGroupEquals(Scheduler.DEFAULT_GROUP);
+        }
+
+        Collection<String> pausedGroups = jobStore.pauseJobs(matcher);
+        notifySchedulerThread(0L);
+        for (String pausedGroup : pausedGroups) {
+            notifySchedulerListenersPausedJobs(pausedGroup);
+        }
+    }
+
+    public void pauseTrigger(TriggerKey triggerKey) throws SchedulerException {
+        validateState();
+
+        jobStore.pauseTrigger(triggerKey);
+        notifySchedulerThread(0L);
+        notifySchedulerListenersPausedTrigger(triggerKey);
+    }
+
+    public void pauseTriggers(GroupMatcher<TriggerKey> matcher) throws SchedulerException {
+        validateState();
+
+        if (matcher == null) {
+            matcher = GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_GROUP);
+        }
+
+        Collection<String> pausedGroups = jobStore.pauseTriggers(matcher);
+        notifySchedulerThread(0L);
+        for (String pausedGroup : pausedGroups) {
+            notifySchedulerListenersPausedTriggers(pausedGroup);
+        }
+    }
+
+    public void resumeJob(JobKey jobKey) throws SchedulerException {
+        validateState();
+
+        jobStore.resumeJob(jobKey);
+        notifySchedulerThread(0L);
+        notifySchedulerListenersResumedJob(jobKey);
+    }
+
+    public void resumeJobs(GroupMatcher<JobKey> matcher) throws SchedulerException {
+        validateState();
+
+        if (matcher == null) {
+            matcher = GroupMatcher.jobGroupEquals(Scheduler.DEFAULT_GROUP);
+        }
+
+        Collection<String> resumedGroups = jobStore.resumeJobs(matcher);
+        notifySchedulerThread(0L);
+        for (String pausedGroup : resumedGroups) {
+            notifySchedulerListenersResumedJobs(pausedGroup);
+        }
+    }
+
+    public void resumeTrigger(TriggerKey triggerKey) throws SchedulerException {
+        validateState();
+
+        jobStore.resumeTrigger(triggerKey);
+        notifySchedulerThread(0L);
+        notifySchedulerListenersResumedTrigger(triggerKey);
+    }
+
+    public void resumeTriggers(GroupMatcher<TriggerKey> matcher) throws SchedulerException {
+        validateState();
+
+        if (matcher == null) {
+            matcher = GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_GROUP);
+        }
+
+        Collection<String> pausedGroups = jobStore.resumeTriggers(matcher);
+        notifySchedulerThread(0L);
+        for (String pausedGroup : pausedGroups) {
+            notifySchedulerListenersResumedTriggers(pausedGroup);
+        }
+    }
+
+    public void pauseAll() throws SchedulerException {
+        validateState();
+
+        jobStore.pauseAll();
+        notifySchedulerThread(0L);
+        notifySchedulerListenersPausedTriggers(null);
+    }
+
+    public void resumeAll() throws SchedulerException {
+        validateState();
+
+        jobStore.resumeAll();
+        notifySchedulerThread(0L);
+        notifySchedulerListenersResumedTriggers(null);
+    }
+
+    // 4. 调度数据的检索
+    public List<String> getJobGroupNames() throws SchedulerException {
+        validateState();
+        return jobStore.getJobGroupNames();
+    }
+
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) throws SchedulerException {
+        validateState();
+
+        if (matcher == null) {
+            matcher = GroupMatcher.jobGroupEquals(Scheduler.DEFAULT_GROUP);
+        }
+        return jobStore.getJobKeys(matcher);
+    }
+
+    public List<? extends Trigger> getTriggersOfJob(JobKey jobKey) throws SchedulerException {
+        validateState();
+        return jobStore.getTriggersForJob(jobKey);
+    }
+
+    public List<String> getTriggerGroupNames() throws SchedulerException {
+        validateState();
+        return jobStore.getTriggerGroupNames();
+    }
+
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) throws SchedulerException {
+        validateState();
+
+        if (matcher == null) {
+            matcher = GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_GROUP);
+        }
+        return jobStore.getTriggerKeys(matcher);
+    }
+
+    public Set<String> getPausedTriggerGroups() throws SchedulerException {
+        validateState();
+        return jobStore.getPausedTriggerGroups();
+    }
+
+    public JobDetail getJobDetail(JobKey jobKey) throws SchedulerException {
+        validateState();
+        return jobStore.retrieveJob(jobKey);
+    }
+
+    public Trigger getTrigger(TriggerKey triggerKey) throws SchedulerException {
+        validateState();
+        return jobStore.retrieveTrigger(triggerKey);
+    }
+
+    public Trigger.TriggerState getTriggerState(TriggerKey triggerKey) throws SchedulerException {
+        validateState();
+        return jobStore.getTriggerState(triggerKey);
+    }
+
+    public void resetTriggerFromErrorState(TriggerKey triggerKey) throws SchedulerException {
+        validateState();
+        jobStore.resetTriggerFromErrorState(triggerKey);
+    }
+
+    public void addCalendar(String calName, Calendar calendar, boolean replace, boolean updateTriggers)
+            throws SchedulerException {
+        validateState();
+        jobStore.storeCalendar(calName, calendar, replace, updateTriggers);
+    }
+
+    public boolean deleteCalendar(String calName) throws SchedulerException {
+        validateState();
+        return jobStore.removeCalendar(calName);
+    }
+
+    public Calendar getCalendar(String calName) throws SchedulerException {
+        validateState();
+        return jobStore.retrieveCalendar(calName);
+    }
+
+    public List<String> getCalendarNames() throws SchedulerException {
+        validateState();
+        return jobStore.getCalendarNames();
+    }
+
+    public boolean interrupt(JobKey jobKey) throws UnableToInterruptJobException {
+        boolean interrupted = false;
+
+        for (JobRunShell shell : executingJobs.values()) {
+            JobExecutionContext jec = shell.jec;
+            JobDetail jobDetail = jec.getJobDetail();
+            if (jobKey.equals(jobDetail.getKey())) {
+                Job job = jec.getJobInstance();
+                if (job instanceof InterruptableJob) {
+                    ((InterruptableJob) job).interrupt();
+                    interrupted = true;
+                } else {
+                    throw new UnableToInterruptJobException(
+                            "Job " + jobDetail.getKey() + " can not be interrupted, since it does not implement "
+                                    + InterruptableJob.class.getName());
+                }
+            }
+        }
+
+        return interrupted;
+    }
+
+    public boolean interrupt(String fireInstanceId) throws UnableToInterruptJobException {
+        JobRunShell shell = executingJobs.get(fireInstanceId);
+        if (shell == null) {
+            return false;
+        }
+
+        Job job = shell.jec.getJobInstance();
+        if (job instanceof InterruptableJob) {
+            ((InterruptableJob) job).interrupt();
+            return true;
+        }
+        throw new UnableToInterruptJobException(
+                "Job " + shell.jec.getJobDetail().getKey() + " can not be interrupted, since it does not implement "
+                        + InterruptableJob.class.getName());
+    }
+
+    public boolean checkExists(JobKey jobKey) throws SchedulerException {
+        validateState();
+        return jobStore.checkExists(jobKey);
+    }
+
+    public boolean checkExists(TriggerKey triggerKey) throws SchedulerException {
+        validateState();
+        return jobStore.checkExists(triggerKey);
+    }
+
+    public void clear() throws SchedulerException {
+        validateState();
+
+        jobStore.clearAllSchedulingData();
+        notifySchedulerListenersUnscheduled(null);
+    }
+
+    // 5. 内部方法
+    private OperableTrigger toOperableTrigger(Trigger trigger) throws SchedulerException {
+        if (!(trigger instanceof OperableTrigger)) {
+            throw new SchedulerException("Trigger '" + trigger.getKey() + "' is not an OperableTrigger.");
+        }
+        return (OperableTrigger) trigger;
+    }
+
+    /** 根据触发器关联的日历计算首次触发时间 */
+    private Date computeFirstFireTime(OperableTrigger trig) throws SchedulerException {
+        Calendar cal = null;
+        if (trig.getCalendarName() != null) {
+            cal = jobStore.retrieveCalendar(trig.getCalendarName());
+            if (cal == null) {
+                throw new SchedulerException("Calendar not found: " + trig.getCalendarName());
+            }
+        }
+        Date ft = trig.computeFirstFireTime(cal);
+        if (ft == null) {
+            throw new SchedulerException("Based on configured schedule, the given trigger '"
+                    + trig.getKey() + "' will never fire.");
+        }
+        return ft;
+    }
+
+    private String newTriggerId() {
+        return "MT_" + Key.createUniqueName(Scheduler.DEFAULT_GROUP);
+    }
+
+    /** 通知调度线程调度数据发生了变化 */
+    protected void notifySchedulerThread(long candidateNewNextFireTime) {
+        schedThread.signalSchedulingChange(candidateNewNextFireTime);
+    }
+
+    void addExecutingJob(JobRunShell shell) {
+        executingJobs.put(shell.getTrigger().getFireInstanceId(), shell);
+    }
+
+    void removeExecutingJob(JobExecutionContext jec) {
+        if (jec != null) {
+            executingJobs.remove(jec.getFireInstanceId());
+        }
+    }
+
+    void removeExecutingJob(JobRunShell shell) {
+        executingJobs.remove(shell.getTrigger().getFireInstanceId());
+    }
+
+    /** 作业任务执行完毕，更新作业存储 */
+    protected void notifyJobStoreJobComplete(OperableTrigger trigger, JobDetail detail,
+                                             Trigger.CompletedExecutionInstruction instCode) {
+        numJobsFired.incrementAndGet();
+        jobStore.triggeredJobComplete(trigger, detail, instCode);
+        notifySchedulerThread(0L);
+    }
+
+    /** 作业任务被否决执行，更新作业存储 */
+    protected void notifyJobStoreJobVetoed(OperableTrigger trigger, JobDetail detail,
+                                           Trigger.CompletedExecutionInstruction instCode) {
+        jobStore.triggeredJobComplete(trigger, detail, instCode);
+        notifySchedulerThread(0L);
+    }
+
+    // 6. 监听器的通知
+    /** 通知监听器，开启异步通知时交给通知线程，否则在当前线程中通知 */
+    private void notifyListener(Object listener, Runnable notification) {
+        AsyncListenerDispatcher dispatcher = listenerDispatcher;
+        if (dispatcher == null) {
+            notification.run();
+        } else {
+            dispatcher.dispatch(listener, notification);
+        }
+    }
+
+    /** 通知触发器监听器触发器已触发，返回作业任务是否被否决执行 */
+    boolean notifyTriggerListenersFired(JobExecutionContext jec) {
+        boolean vetoedExecution = false;
+
+        Trigger trigger = jec.getTrigger();
+        for (TriggerListener tl : listenerManager.getTriggerListeners(trigger.getKey())) {
+            try {
+                tl.triggerFired(trigger, jec);
+                if (tl.vetoJobExecution(trigger, jec)) {
+                    vetoedExecution = true;
+                }
+            } catch (Exception e) {
+                notifySchedulerListenersError("TriggerListener '" + tl.gerName()
+                        + "' threw exception: " + e.getMessage(), new SchedulerException(e));
+            }
+        }
+
+        return vetoedExecution;
+    }
+
+    /** 通知触发器监听器触发器误触发 */
+    void notifyTriggerListenersMisfired(final Trigger trigger) {
+        for (final TriggerListener tl : listenerManager.getTriggerListeners(trigger.getKey())) {
+            notifyListener(tl, new Runnable() {
+                public void run() {
+                    try {
+                        tl.triggerMisfired(trigger);
+                    } catch (Exception e) {
+                        notifySchedulerListenersError("TriggerListener '" + tl.gerName()
+                                + "' threw exception: " + e.getMessage(), new SchedulerException(e));
+                    }
+                }
+            });
+        }
+    }
+
+    /** 通知触发器监听器作业任务已执行完毕 */
+    void notifyTriggerListenersComplete(final JobExecutionContext jec, final Trigger.CompletedExecutionInstruction instCode) {
+        for (final TriggerListener tl : listenerManager.getTriggerListeners(jec.getTrigger().getKey())) {
+            notifyListener(tl, new Runnable() {
+                public void run() {
+                    try {
+                        tl.triggerComplete(jec.getTrigger(), jec, instCode);
+                    } catch (Exception e) {
+                        notifySchedulerListenersError("TriggerListener '" + tl.gerName()
+                                + "' threw exception: " + e.getMessage(), new SchedulerException(e));
+                    }
+                }
+            });
+        }
+    }
+
+    /** 通知作业任务监听器作业任务即将执行 */
+    void notifyJobListenersToBeExecuted(final JobExecutionContext jec) {
+        for (final JobListener jl : listenerManager.getJobListeners(jec.getJobDetail().getKey())) {
+            notifyListener(jl, new Runnable() {
+                public void run() {
+                    try {
+                        jl.jobToBeExecuted(jec);
+                    } catch (Exception e) {
+                        notifySchedulerListenersError("JobListener '" + jl.gerName()
+                                + "' threw exception: " + e.getMessage(), new SchedulerException(e));
+                    }
+                }
+            });
+        }
+    }
+
+    /** 通知作业任务监听器作业任务被否决执行 */
+    void notifyJobListenersWasVetoed(final JobExecutionContext jec) {
+        for (final JobListener jl : listenerManager.getJobListeners(jec.getJobDetail().getKey())) {
+            notifyListener(jl, new Runnable() {
+                public void run() {
+                    try {
+                        jl.jobExecutionVetoed(jec);
+                    } catch (Exception e) {
+                        notifySchedulerListenersError("JobListener '" + jl.gerName()
+                                + "' threw exception: " + e.getMessage(), new SchedulerException(e));
+                    }
+                }
+            });
+        }
+    }
+
+    /** 通知作业任务监听器作业任务已执行 */
+    void notifyJobListenersWasExecuted(final JobExecutionContext jec, final JobExecutionException je) {
+        for (final JobListener jl : listenerManager.getJobListeners(jec.getJobDetail().getKey())) {
+            notifyListener(jl, new Runnable() {
+                public void run() {
+                    try {
+                        jl.jobWasExecuted(jec, je);
+                    } catch (Exception e) {
+                        notifySchedulerListenersError("JobListener '" + jl.gerName()
+                                + "' threw exception: " + e.getMessage(), new SchedulerException(e));
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersError(final String msg, final SchedulerException se) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.schedulerError(msg, se);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of error: ", e);
+                        logger.error("  Original error (for notification) was: " + msg, se);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersScheduled(final Trigger trigger) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.jobScheduled(trigger);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of scheduled job."
+                                + "  Triger=" + trigger.getKey(), e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersUnscheduled(final TriggerKey triggerKey) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        if (triggerKey == null) {
+                            sl.schedulingDataCleared();
+                        } else {
+                            sl.jobUnscheduled(triggerKey);
+                        }
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of unscheduled job."
+                                + "  Triger=" + (triggerKey == null ? "ALL DATA" : triggerKey), e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersFinalized(final Trigger trigger) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.triggerFinalized(trigger);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of finalized trigger."
+                                + "  Triger=" + trigger.getKey(), e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersPausedTrigger(final TriggerKey triggerKey) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.triggerPaused(triggerKey);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of paused trigger: " + triggerKey, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersPausedTriggers(final String group) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.triggersPaused(group);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of paused trigger group." + group, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersResumedTrigger(final TriggerKey key) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.triggerResumed(key);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of resumed trigger: " + key, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersResumedTriggers(final String group) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.triggersResumed(group);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of resumed group: " + group, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersPausedJob(final JobKey key) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.jobPaused(key);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of paused job: " + key, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersPausedJobs(final String group) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.jobsPaused(group);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of paused job group: " + group, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersResumedJob(final JobKey key) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.jobResumed(key);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of resumed job: " + key, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersResumedJobs(final String group) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.jobsResumed(group);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of resumed job group: " + group, e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersInStandbyMode() {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.schedulerInStandbyMode();
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of inStandByMode.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersStarted() {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.schedulerStarted();
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of startup.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersStarting() {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.schedulerStarting();
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of startup.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersShutdown() {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.schedulerShutdown();
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of shutdown.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersShuttingdown() {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.schedulerShuttingdown();
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of shutdown.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersJobAdded(final JobDetail jobDetail) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.jobAdded(jobDetail);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of JobAdded.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    void notifySchedulerListenersJobDeleted(final JobKey jobKey) {
+        for (final SchedulerListener sl : listenerManager.getSchedulerListeners()) {
+            notifyListener(sl, new Runnable() {
+                public void run() {
+                    try {
+                        sl.jobDeleted(jobKey);
+                    } catch (Exception e) {
+                        logger.error("Error while notifying SchedulerListener of JobDeleted.", e);
+                    }
+                }
+            });
+        }
+    }
+
+    /** 作业存储的信号，转发给调度线程及监听器 */
+    private class StdSchedulerSignaler implements SchedulerSignaler {
+
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+            StdScheduler.this.notifyTriggerListenersMisfired(trigger);
+        }
+
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+            StdScheduler.this.notifySchedulerListenersFinalized(trigger);
+        }
+
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+            StdScheduler.this.notifySchedulerListenersJobDeleted(jobKey);
+        }
+
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+            notifySchedulerThread(candidateNewNextFireTime);
+        }
+
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+            StdScheduler.this.notifySchedulerListenersError(string, jpe);
+        }
+    }
+}
@@ -0,0 +1,1247 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.calendar.Calendar;
+import com.txl.equipment.codec.BinaryJobCodec;
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.exception.ObjectAlreadyExistsException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.matcher.GroupMatcher;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+import com.txl.equipment.trigger.Trigger;
+import com.txl.equipment.trigger.TriggerKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Created by TangXiangLin on 2023-03-10 10:30
+ * 基于文件的持久化作业存储
+ * 1. 内存中的数据结构与RAMJobStore相同；作业任务、触发器、日历、暂停分组的每次变化都以变化后的完整状态
+ *    (如触发器的触发时间及存储状态)追加到预写日志(WriteAheadLog)，重放时后写的记录覆盖先写的记录。
+ * 2. 修改数据的方法在存储锁内写入日志缓冲区，释放存储锁后等待记录落盘再返回，并发的修改由同一次fsync提交；
+ *    syncOnCommit为false时不等待落盘，由写线程按flushIntervalMillis周期提交。
+ *    变更未能写入日志(不能编码、日志写入失败)时修改数据的方法抛出JobPersistenceException，不会当作已持久化返回。
+ * 3. 当前日志分段超过snapshotLogSize或每隔snapshotIntervalMillis，在后台生成快照：先切换日志分段，再分批在存储锁内
+ *    编码所有数据写入快照文件，完成后删除之前的分段及快照。快照期间的修改写入新的分段，恢复时覆盖快照中较旧的状态。
+ * 4. initialize时从最新的快照及其后的日志分段恢复，最后一个分段末尾不完整的记录(写入时崩溃)被截断。
+ * 5. 已获取、阻塞等临时状态不记录，恢复后按等待或暂停处理；作业任务及SimpleTriggerImpl按BinaryJobCodec编码，
+ *    其它触发器及日历使用Java序列化。
+ * 6. 作业任务及触发器的记录以定长的记录头开始(是否持久/下一次触发时间、优先级等及标识)，之后才是完整的编码。
+ *    快照通过FileChannel.map映射到内存，恢复时只读取记录头建立索引(MappedJobWrapper、MappedTriggerWrapper)，
+ *    作业任务描述及触发器在首次访问时才解码，调度器启动后即可获取触发器；尚未解码的记录在下一次快照中原样复制。
+ */
+public class FileJobStore extends RAMJobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileJobStore.class);
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final String SNAPSHOT_TEMP_SUFFIX = ".tmp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** 快照格式版本 */
+    static final int SNAPSHOT_VERSION = 2;
+
+    // 记录类型
+    static final int REC_JOB = 1;
+    static final int REC_JOB_REMOVED = 2;
+    static final int REC_TRIGGER = 3;
+    static final int REC_TRIGGER_REMOVED = 4;
+    static final int REC_CALENDAR = 5;
+    static final int REC_CALENDAR_REMOVED = 6;
+    static final int REC_TRIGGER_GROUP_PAUSE = 7;
+    static final int REC_JOB_GROUP_PAUSE = 8;
+    static final int REC_SNAPSHOT_BEGIN = 9;
+    static final int REC_SNAPSHOT_END = 10;
+
+    // 触发器的编码方式
+    private static final int FORMAT_CODEC = 0;
+    private static final int FORMAT_SERIALIZED = 1;
+
+    // 作业任务记录头中的标志
+    private static final int JOB_DURABLE = 1;
+    private static final int JOB_CONCURRENT_EXECUTION_DISALLOWED = 2;
+
+    /** 触发器记录中状态的位置，原样复制记录时改写 */
+    private static final int TRIGGER_STATE_OFFSET = 1;
+
+    /** 生成快照时每次持有存储锁编码的触发器数 */
+    private static final int SNAPSHOT_BATCH_SIZE = 1024;
+
+    private final BinaryJobCodec codec = new BinaryJobCodec();
+
+    /** 在存储锁内编码日志记录 */
+    private final RecordBuffer record = new RecordBuffer();
+
+    private String directory;
+
+    private boolean syncOnCommit = true;
+
+    private long flushIntervalMillis = 10L;
+
+    private long snapshotLogSize = 64L * 1024 * 1024;
+
+    private long snapshotIntervalMillis = 10L * 60 * 1000;
+
+    private boolean mapSnapshot = true;
+
+    private File dir;
+
+    /** 恢复完成后创建，恢复期间为null，变更方法不写日志 */
+    private volatile WriteAheadLog wal;
+
+    /** 第一次未能写入日志的变更，在存储锁内设置 */
+    private volatile JobPersistenceException logFailure;
+
+    private ScheduledExecutorService snapshotExecutor;
+
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+    /** 同一时间只生成一个快照 */
+    private final Object snapshotLock = new Object();
+
+    /** 未能删除的文件(Windows上仍被映射的快照不能删除)，每次生成快照后重试，由snapshotLock保护 */
+    private final List<File> undeletedFiles = new ArrayList<File>();
+
+    public FileJobStore() {
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    /** 日志及快照所在的目录，不存在时创建 */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public boolean isSyncOnCommit() {
+        return syncOnCommit;
+    }
+
+    /** 修改数据的方法是否等待记录落盘再返回，缺省为true */
+    public void setSyncOnCommit(boolean syncOnCommit) {
+        this.syncOnCommit = syncOnCommit;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /** 不等待落盘时写线程提交的周期(毫秒) */
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        if (flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("Flush interval must be larger than 0");
+        }
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public long getSnapshotLogSize() {
+        return snapshotLogSize;
+    }
+
+    /** 当前日志分段超过该字节数时生成快照 */
+    public void setSnapshotLogSize(long snapshotLogSize) {
+        if (snapshotLogSize < 1) {
+            throw new IllegalArgumentException("Snapshot log size must be larger than 0");
+        }
+        this.snapshotLogSize = snapshotLogSize;
+    }
+
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    /** 定期生成快照的周期(毫秒)，0表示只按日志大小生成 */
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        if (snapshotIntervalMillis < 0) {
+            throw new IllegalArgumentException("Snapshot interval cannot be negative");
+        }
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    public boolean isMapSnapshot() {
+        return mapSnapshot;
+    }
+
+    /** 恢复时是否将快照映射到内存并延迟解码，缺省为true；为false时按顺序读取并解码全部记录 */
+    public void setMapSnapshot(boolean mapSnapshot) {
+        this.mapSnapshot = mapSnapshot;
+    }
+
+    @Override
+    public void initialize(SchedulerSignaler schedSignaler) throws SchedulerException {
+        super.initialize(schedSignaler);
+        if (directory == null) {
+            throw new JobPersistenceException("FileJobStore directory is not configured");
+        }
+        dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new JobPersistenceException("Cannot create FileJobStore directory " + dir.getAbsolutePath());
+        }
+
+        long start = System.currentTimeMillis();
+        long nextSegment;
+        synchronized (lock) {
+            nextSegment = recover();
+        }
+        try {
+            wal = new WriteAheadLog(dir, nextSegment, syncOnCommit, flushIntervalMillis);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Cannot open write-ahead log in " + dir.getAbsolutePath(), e);
+        }
+        logger.info("FileJobStore recovered " + getNumberOfJobs() + " jobs and " + getNumberOfTriggers()
+                + " triggers from " + dir.getAbsolutePath() + " in " + (System.currentTimeMillis() - start) + " ms.");
+
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "JobStore_Snapshot");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        if (snapshotIntervalMillis > 0) {
+            snapshotExecutor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    WriteAheadLog log = wal;
+                    if (log != null && log.segmentSize() > 0) {
+                        snapshotQuietly();
+                    }
+                }
+            }, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            try {
+                snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        WriteAheadLog log = wal;
+        if (log != null) {
+            synchronized (lock) {
+                wal = null;
+            }
+            log.close();
+        }
+        super.shutdown();
+    }
+
+    /**
+     * 生成快照并删除之前的日志分段
+     * 1. 通常由后台线程调用，也可以在批量导入等大量修改之后直接调用。
+     * 2. 快照改名后先将目录落盘，再删除之前的分段及快照，崩溃后至少保留其中一份。
+     */
+    public void snapshot() throws JobPersistenceException {
+        synchronized (snapshotLock) {
+            WriteAheadLog log = wal;
+            if (log == null) {
+                throw new JobPersistenceException("FileJobStore is not initialized");
+            }
+            long start = System.currentTimeMillis();
+            long boundary;
+            try {
+                synchronized (lock) {
+                    boundary = log.rollover();
+                }
+            } catch (IOException e) {
+                throw new JobPersistenceException("Failed to roll over write-ahead log", e);
+            }
+
+            File tmp = new File(dir, SNAPSHOT_PREFIX + boundary + SNAPSHOT_TEMP_SUFFIX);
+            File target = snapshotFile(dir, boundary);
+            int count;
+            try {
+                count = writeSnapshot(tmp);
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                WriteAheadLog.syncDirectory(dir);
+            } catch (IOException e) {
+                tmp.delete();
+                throw new JobPersistenceException("Failed to write snapshot " + target.getAbsolutePath(), e);
+            }
+
+            retryUndeletedFiles();
+            for (Long segment : WriteAheadLog.listSegments(dir)) {
+                if (segment < boundary) {
+                    deleteFile(WriteAheadLog.segmentFile(dir, segment));
+                }
+            }
+            for (Long snapshot : WriteAheadLog.listNumbered(dir, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+                if (snapshot < boundary) {
+                    deleteFile(snapshotFile(dir, snapshot));
+                }
+            }
+            logger.info("FileJobStore snapshot of " + count + " records written in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+
+    /**
+     * 删除不再需要的日志分段或快照，调用方需持有snapshotLock或正在恢复(此时不会生成快照)
+     * 1. 恢复时映射的快照在其中的记录全部解码、映射被回收之前，Windows上不能删除，记录下来之后重试；
+     *    重新启动恢复时也会删除最新快照之前的快照。
+     */
+    private void deleteFile(File file) {
+        if (!file.delete() && file.exists()) {
+            logger.warn("Cannot delete " + file.getAbsolutePath()
+                    + ", it may still be memory-mapped. Retrying after the next snapshot.");
+            undeletedFiles.add(file);
+        }
+    }
+
+    private void retryUndeletedFiles() {
+        for (Iterator<File> it = undeletedFiles.iterator(); it.hasNext(); ) {
+            File file = it.next();
+            if (file.delete() || !file.exists()) {
+                logger.info("Deleted " + file.getAbsolutePath());
+                it.remove();
+            }
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (JobPersistenceException e) {
+            reportFailure("Failed to write FileJobStore snapshot", e);
+        } finally {
+            snapshotScheduled.set(false);
+        }
+    }
+
+    /**
+     * 写出快照文件，返回记录数
+     * 1. 快照是模糊的：切换分段之后写出期间的修改同时记录在新的分段中，恢复时重放即可得到一致的状态。
+     * 2. 触发器分批在存储锁内编码，锁外写入文件，不会长时间阻塞调度线程。
+     */
+    private int writeSnapshot(File file) throws IOException, JobPersistenceException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            OutputStream out = new BufferedOutputStream(fos, 256 * 1024);
+            CRC32 crc = new CRC32();
+            RecordBuffer buf = new RecordBuffer();
+            int count = 0;
+
+            buf.begin(REC_SNAPSHOT_BEGIN);
+            buf.data.writeInt(SNAPSHOT_VERSION);
+            buf.writeTo(out, crc);
+
+            // 暂停的分组及日历数量较少，一次在存储锁内编码
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            synchronized (lock) {
+                for (String group : pausedTriggerGroups) {
+                    encodeGroupPause(buf, REC_TRIGGER_GROUP_PAUSE, group, true);
+                    buf.writeTo(chunk, crc);
+                    count++;
+                }
+                for (String group : pausedJobGroups) {
+                    encodeGroupPause(buf, REC_JOB_GROUP_PAUSE, group, true);
+                    buf.writeTo(chunk, crc);
+                    count++;
+                }
+                for (Map.Entry<String, Calendar> e : calendarsByName.entrySet()) {
+                    encodeCalendar(buf, e.getKey(), e.getValue());
+                    buf.writeTo(chunk, crc);
+                    count++;
+                }
+            }
+            chunk.writeTo(out);
+
+            // 存储中的作业任务描述不会被修改，只会被替换，可以在锁外编码；尚未解码的记录原样复制
+            for (JobWrapper jw : jobsByKey.values()) {
+                encodeJob(buf, jw);
+                buf.writeTo(out, crc);
+                count++;
+            }
+
+            List<TriggerWrapper> triggers = new ArrayList<TriggerWrapper>(triggersByKey.values());
+            for (int from = 0; from < triggers.size(); from += SNAPSHOT_BATCH_SIZE) {
+                int to = Math.min(from + SNAPSHOT_BATCH_SIZE, triggers.size());
+                chunk.reset();
+                synchronized (lock) {
+                    for (int i = from; i < to; i++) {
+                        TriggerWrapper tw = triggers.get(i);
+                        // 已经删除的触发器，其包装(及堆外记录)可能已被重用
+                        if (triggersByKey.get(tw.key) != tw) {
+                            continue;
+                        }
+                        encodeTrigger(buf, tw);
+                        buf.writeTo(chunk, crc);
+                        count++;
+                    }
+                }
+                chunk.writeTo(out);
+            }
+
+            buf.begin(REC_SNAPSHOT_END);
+            buf.data.writeInt(count);
+            buf.writeTo(out, crc);
+            out.flush();
+            fos.getFD().sync();
+            return count;
+        } finally {
+            fos.close();
+        }
+    }
+
+    // 恢复
+    /** 从快照及日志分段重建存储，返回新日志分段的编号，调用方需持有存储锁 */
+    private long recover() throws JobPersistenceException {
+        for (File f : dir.listFiles()) {
+            if (f.getName().startsWith(SNAPSHOT_PREFIX) && f.getName().endsWith(SNAPSHOT_TEMP_SUFFIX)) {
+                f.delete();
+            }
+        }
+
+        long first = 1;
+        List<Long> snapshots = WriteAheadLog.listNumbered(dir, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (!snapshots.isEmpty()) {
+            first = snapshots.get(snapshots.size() - 1);
+            // 上次运行中未能删除的快照
+            for (int i = 0; i < snapshots.size() - 1; i++) {
+                deleteFile(snapshotFile(dir, snapshots.get(i)));
+            }
+            loadSnapshot(snapshotFile(dir, first));
+        }
+
+        long next = first;
+        List<Long> segments = WriteAheadLog.listSegments(dir);
+        for (int i = 0; i < segments.size(); i++) {
+            long segment = segments.get(i);
+            File file = WriteAheadLog.segmentFile(dir, segment);
+            if (segment < first) {
+                // 生成快照后未能删除的分段
+                deleteFile(file);
+                continue;
+            }
+            try {
+                long end = WriteAheadLog.readRecords(file, new WriteAheadLog.RecordHandler() {
+                    public void handle(ByteBuffer payload) throws JobPersistenceException {
+                        replay(payload);
+                    }
+                });
+                if (end < file.length()) {
+                    if (i < segments.size() - 1) {
+                        throw new JobPersistenceException("Corrupt write-ahead log segment " + file.getAbsolutePath()
+                                + " at offset " + end);
+                    }
+                    logger.warn("Discarding " + (file.length() - end) + " bytes of incomplete records at the end of "
+                            + file.getAbsolutePath());
+                    WriteAheadLog.truncate(file, end);
+                }
+            } catch (IOException e) {
+                throw new JobPersistenceException("Failed to read write-ahead log segment " + file.getAbsolutePath(), e);
+            }
+            next = segment + 1;
+        }
+        return next;
+    }
+
+    private void loadSnapshot(File file) throws JobPersistenceException {
+        if (mapSnapshot && file.length() <= Integer.MAX_VALUE) {
+            loadMappedSnapshot(file);
+        } else {
+            readSnapshot(file);
+        }
+    }
+
+    /** 按顺序读取并重放快照中的全部记录 */
+    private void readSnapshot(File file) throws JobPersistenceException {
+        final int[] state = new int[2];
+        try {
+            long end = WriteAheadLog.readRecords(file, new WriteAheadLog.RecordHandler() {
+                public void handle(ByteBuffer payload) throws JobPersistenceException {
+                    int type = payload.get(payload.position());
+                    if (type == REC_SNAPSHOT_BEGIN) {
+                        payload.get();
+                        int version = payload.getInt();
+                        if (version != SNAPSHOT_VERSION) {
+                            throw new JobPersistenceException("Unsupported snapshot version: " + version);
+                        }
+                    } else if (type == REC_SNAPSHOT_END) {
+                        payload.get();
+                        state[0] = 1;
+                        state[1] = payload.getInt();
+                    } else {
+                        replay(payload);
+                    }
+                }
+            });
+            if (state[0] == 0 || end != file.length()) {
+                throw new JobPersistenceException("Incomplete snapshot " + file.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            throw new JobPersistenceException("Failed to read snapshot " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 映射快照文件，按记录头建立作业任务及触发器的索引
+     * 1. 扫描时校验每条记录的CRC，记录的内容在解码前一直引用映射的内存，文件删除后映射仍然有效。
+     * 2. 启用堆外触发器时触发器直接解码写入堆外的记录表，只有作业任务延迟解码。
+     */
+    private void loadMappedSnapshot(File file) throws JobPersistenceException {
+        ByteBuffer map;
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new JobPersistenceException("Failed to map snapshot " + file.getAbsolutePath(), e);
+        }
+
+        CRC32 crc = new CRC32();
+        boolean begun = false;
+        boolean ended = false;
+        int position = 0;
+        int limit = map.limit();
+        while (position + WriteAheadLog.HEADER_SIZE <= limit && !ended) {
+            int length = map.getInt(position);
+            int checksum = map.getInt(position + 4);
+            int start = position + WriteAheadLog.HEADER_SIZE;
+            if (length < 1 || length > limit - start) {
+                break;
+            }
+            ByteBuffer record = map.duplicate();
+            record.limit(start + length).position(start);
+            record = record.slice();
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            position = start + length;
+
+            int type = record.get(0);
+            if (!begun) {
+                if (type != REC_SNAPSHOT_BEGIN || record.getInt(1) != SNAPSHOT_VERSION) {
+                    throw new JobPersistenceException("Unsupported snapshot " + file.getAbsolutePath());
+                }
+                begun = true;
+            } else if (type == REC_SNAPSHOT_END) {
+                ended = true;
+            } else if (type == REC_JOB) {
+                restoreMappedJob(record);
+            } else if (type == REC_TRIGGER && !isUseOffHeapTriggers()) {
+                restoreMappedTrigger(record);
+            } else {
+                replay(record);
+            }
+        }
+        if (!ended || position != limit) {
+            throw new JobPersistenceException("Incomplete snapshot " + file.getAbsolutePath());
+        }
+    }
+
+    private void restoreMappedJob(ByteBuffer record) {
+        ByteBuffer in = record.duplicate();
+        in.position(1);
+        int flags = in.get();
+        JobKey key = new JobKey(readString(in), readString(in));
+        restoreJob(new MappedJobWrapper(key, allocateJobId(), codec, record, in.position(),
+                (flags & JOB_DURABLE) != 0, (flags & JOB_CONCURRENT_EXECUTION_DISALLOWED) != 0));
+    }
+
+    private void restoreMappedTrigger(ByteBuffer record) {
+        ByteBuffer in = record.duplicate();
+        in.position(1);
+        int state = in.get();
+        int format = in.get();
+        long nextFireTime = in.getLong();
+        int priority = in.getInt();
+        int misfireInstruction = in.getInt();
+        TriggerKey key = new TriggerKey(readString(in), readString(in));
+        JobKey jobKey = new JobKey(readString(in), readString(in));
+        String calendarName = readString(in);
+        JobWrapper jw = jobsByKey.get(jobKey);
+        if (jw == null) {
+            logger.debug("Skipping trigger " + key + " of missing job " + jobKey);
+            return;
+        }
+        restoreTrigger(new MappedTriggerWrapper(key, jobKey, allocateTriggerId(), jw.id, codec, record, format,
+                in.position(), nextFireTime, priority, misfireInstruction, calendarName), state);
+    }
+
+    /** 重放一条记录，调用方需持有存储锁 */
+    private void replay(ByteBuffer in) throws JobPersistenceException {
+        int type = in.get();
+        switch (type) {
+            case REC_JOB:
+                in.get();
+                readString(in);
+                readString(in);
+                storeJob(codec.decodeJobDetail(in), true);
+                break;
+            case REC_JOB_REMOVED:
+                removeJob(new JobKey(readString(in), readString(in)));
+                break;
+            case REC_TRIGGER: {
+                int state = in.get();
+                int format = in.get();
+                // 跳过记录头中的调度属性及标识
+                in.position(in.position() + 16);
+                for (int i = 0; i < 5; i++) {
+                    readString(in);
+                }
+                OperableTrigger trigger = decodeTrigger(codec, format, in);
+                if (!checkExists(trigger.getJobKey())) {
+                    // 模糊快照中作业任务晚于触发器删除，之后的日志会删除该触发器
+                    logger.debug("Skipping trigger " + trigger.getKey() + " of missing job " + trigger.getJobKey());
+                    break;
+                }
+                storeTrigger(trigger, true);
+                restoreTriggerState(trigger.getKey(), state);
+                break;
+            }
+            case REC_TRIGGER_REMOVED:
+                removeTrigger(new TriggerKey(readString(in), readString(in)), false);
+                break;
+            case REC_CALENDAR: {
+                String name = readString(in);
+                calendarsByName.put(name, (Calendar) deserialize(in));
+                break;
+            }
+            case REC_CALENDAR_REMOVED:
+                calendarsByName.remove(readString(in));
+                break;
+            case REC_TRIGGER_GROUP_PAUSE: {
+                String group = readString(in);
+                if (in.get() != 0) {
+                    pausedTriggerGroups.add(group);
+                } else {
+                    pausedTriggerGroups.remove(group);
+                }
+                break;
+            }
+            case REC_JOB_GROUP_PAUSE: {
+                String group = readString(in);
+                if (in.get() != 0) {
+                    pausedJobGroups.add(group);
+                } else {
+                    pausedJobGroups.remove(group);
+                }
+                break;
+            }
+            default:
+                throw new JobPersistenceException("Unknown FileJobStore record type: " + type);
+        }
+    }
+
+    // 变更记录，在存储锁内调用
+    @Override
+    protected void triggerChanged(TriggerWrapper tw) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            encodeTrigger(record, tw);
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log trigger " + tw.key, e);
+        }
+    }
+
+    @Override
+    protected void triggerRemoved(TriggerKey triggerKey) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            record.begin(REC_TRIGGER_REMOVED);
+            writeString(record.data, triggerKey.getName());
+            writeString(record.data, triggerKey.getGroup());
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log removal of trigger " + triggerKey, e);
+        }
+    }
+
+    @Override
+    protected void jobChanged(JobWrapper jw) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            encodeJob(record, jw);
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log job " + jw.key, e);
+        }
+    }
+
+    @Override
+    protected void jobRemoved(JobKey jobKey) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            record.begin(REC_JOB_REMOVED);
+            writeString(record.data, jobKey.getName());
+            writeString(record.data, jobKey.getGroup());
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log removal of job " + jobKey, e);
+        }
+    }
+
+    @Override
+    protected void calendarChanged(String name, Calendar calendar) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            encodeCalendar(record, name, calendar);
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log calendar " + name, e);
+        }
+    }
+
+    @Override
+    protected void calendarRemoved(String name) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            record.begin(REC_CALENDAR_REMOVED);
+            writeString(record.data, name);
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log removal of calendar " + name, e);
+        }
+    }
+
+    @Override
+    protected void triggerGroupPauseChanged(String group, boolean paused) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            encodeGroupPause(record, REC_TRIGGER_GROUP_PAUSE, group, paused);
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log trigger group " + group, e);
+        }
+    }
+
+    @Override
+    protected void jobGroupPauseChanged(String group, boolean paused) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            encodeGroupPause(record, REC_JOB_GROUP_PAUSE, group, paused);
+            append();
+        } catch (Exception e) {
+            logFailed("Failed to log job group " + group, e);
+        }
+    }
+
+    private void append() throws IOException {
+        wal.append(record.buffer(), record.size());
+    }
+
+    /**
+     * 变更未能写入日志，内存中的数据与日志不再一致
+     * 1. 之后所有修改数据的方法都抛出该异常，直到重新启动从日志恢复；写入日志的失败(如磁盘故障)本身也不会自行恢复。
+     */
+    private void logFailed(String msg, Exception e) {
+        logger.error(msg, e);
+        if (logFailure == null) {
+            logFailure = e instanceof JobPersistenceException
+                    ? (JobPersistenceException) e : new JobPersistenceException(msg, e);
+        }
+    }
+
+    /**
+     * 修改内存中的数据之前确认可以编码，编码失败时不做修改
+     * 1. 作业任务、触发器的参数或日历不能序列化是最常见的失败，提前检查后只剩写入日志本身的失败。
+     */
+    private void checkEncodable(Object obj) throws JobPersistenceException {
+        if (wal == null) {
+            return;
+        }
+        if (obj instanceof JobDetail || obj.getClass() == SimpleTriggerImpl.class) {
+            codec.encode(obj);
+            return;
+        }
+        try {
+            serialize(new DataOutputStream(new ByteArrayOutputStream()), obj);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Cannot persist " + obj + ", it is not serializable", e);
+        }
+    }
+
+    /**
+     * 修改内存中的数据之前确认变更仍能写入日志
+     * 1. 日志已失败时拒绝修改，内存中的数据保持不变(如triggersFired不会推进触发时间、阻塞同一作业任务的其它触发器)。
+     * 2. 嵌套调用(如removeJob中的removeTrigger)持有存储锁，已由最外层的调用检查，不再检查，避免修改到一半时抛出。
+     */
+    private void checkWritable() throws JobPersistenceException {
+        if (wal == null || Thread.holdsLock(lock)) {
+            return;
+        }
+        if (logFailure != null) {
+            throw new JobPersistenceException("Job store changes are no longer persisted", logFailure);
+        }
+    }
+
+    /**
+     * 等待本次修改写入的记录落盘，在存储锁外调用
+     * 1. 嵌套调用(如removeJob中的removeTrigger)持有存储锁，不等待，由最外层的调用等待。
+     * 2. 等待到目前为止追加的所有记录，其中可能包含其它线程的记录，由同一次fsync提交。
+     * 3. 变更未能写入日志时抛出异常，调用方不会把只存在于内存中的修改当作已持久化。
+     */
+    private void commit() throws JobPersistenceException {
+        WriteAheadLog log = wal;
+        if (log == null || Thread.holdsLock(lock)) {
+            return;
+        }
+        if (logFailure != null) {
+            throw new JobPersistenceException("Job store changes are no longer persisted", logFailure);
+        }
+        if (syncOnCommit) {
+            try {
+                log.await(log.appendedPosition());
+            } catch (IOException e) {
+                throw new JobPersistenceException("Failed to persist job store changes", e);
+            }
+        }
+        if (log.segmentSize() >= snapshotLogSize && snapshotScheduled.compareAndSet(false, true)) {
+            try {
+                snapshotExecutor.execute(new Runnable() {
+                    public void run() {
+                        snapshotQuietly();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 存储正在停止
+                snapshotScheduled.set(false);
+            }
+        }
+    }
+
+    /** 接口上不能抛出JobPersistenceException的方法(triggeredJobComplete)，提交失败时通知调度器 */
+    private void commitQuietly() {
+        try {
+            commit();
+        } catch (JobPersistenceException e) {
+            reportFailure("Failed to persist job store changes", e);
+        }
+    }
+
+    private void reportFailure(String msg, Exception e) {
+        logger.error(msg, e);
+        if (signaler != null) {
+            signaler.notifySchedulerListenersError(msg, e instanceof JobPersistenceException
+                    ? (JobPersistenceException) e : new JobPersistenceException(msg, e));
+        }
+    }
+
+    // 编码
+    private void encodeJob(RecordBuffer buf, JobWrapper jw) throws IOException, JobPersistenceException {
+        if (jw instanceof MappedJobWrapper) {
+            ByteBuffer raw = ((MappedJobWrapper) jw).undecodedRecord();
+            if (raw != null) {
+                buf.reset();
+                writeBuffer(buf.data, raw);
+                return;
+            }
+        }
+        JobDetail job = jw.getJobDetail();
+        int flags = 0;
+        if (job.isDurable()) {
+            flags |= JOB_DURABLE;
+        }
+        if (job.isConcurrentExectionDisallowed()) {
+            flags |= JOB_CONCURRENT_EXECUTION_DISALLOWED;
+        }
+        buf.begin(REC_JOB);
+        buf.data.writeByte(flags);
+        writeString(buf.data, jw.key.getName());
+        writeString(buf.data, jw.key.getGroup());
+        writeBuffer(buf.data, codec.encode(job));
+    }
+
+    private void encodeTrigger(RecordBuffer buf, TriggerWrapper tw) throws IOException, JobPersistenceException {
+        if (tw instanceof MappedTriggerWrapper) {
+            ByteBuffer raw = ((MappedTriggerWrapper) tw).undecodedRecord();
+            if (raw != null) {
+                // 未解码的触发器只有状态可能变化
+                buf.reset();
+                writeBuffer(buf.data, raw);
+                buf.buffer()[TRIGGER_STATE_OFFSET] = (byte) persistentState(tw.state);
+                return;
+            }
+        }
+        OperableTrigger trigger = tw.getTrigger();
+        buf.begin(REC_TRIGGER);
+        buf.data.writeByte(persistentState(tw.state));
+        boolean simple = trigger.getClass() == SimpleTriggerImpl.class;
+        buf.data.writeByte(simple ? FORMAT_CODEC : FORMAT_SERIALIZED);
+        buf.data.writeLong(trigger.getNextFireTimeMillis());
+        buf.data.writeInt(trigger.getPriority());
+        buf.data.writeInt(trigger.getMisfireInstruction());
+        writeString(buf.data, tw.key.getName());
+        writeString(buf.data, tw.key.getGroup());
+        writeString(buf.data, tw.jobKey.getName());
+        writeString(buf.data, tw.jobKey.getGroup());
+        writeString(buf.data, trigger.getCalendarName());
+        if (simple) {
+            writeBuffer(buf.data, codec.encode(trigger));
+        } else {
+            serialize(buf.data, trigger);
+        }
+    }
+
+    /** 解码触发器记录中的触发器 */
+    static OperableTrigger decodeTrigger(BinaryJobCodec codec, int format, ByteBuffer in) throws JobPersistenceException {
+        return format == FORMAT_CODEC ? codec.decodeSimpleTrigger(in) : (OperableTrigger) deserialize(in);
+    }
+
+    private static void encodeCalendar(RecordBuffer buf, String name, Calendar calendar) throws IOException {
+        buf.begin(REC_CALENDAR);
+        writeString(buf.data, name);
+        serialize(buf.data, calendar);
+    }
+
+    private static void encodeGroupPause(RecordBuffer buf, int type, String group, boolean paused) throws IOException {
+        buf.begin(type);
+        writeString(buf.data, group);
+        buf.data.writeByte(paused ? 1 : 0);
+    }
+
+    /** 已获取、阻塞等状态在重启后没有意义，记录为等待或暂停 */
+    static int persistentState(int state) {
+        switch (state) {
+            case TriggerWrapper.STATE_ACQUIRED:
+            case TriggerWrapper.STATE_EXECUTING:
+            case TriggerWrapper.STATE_BLOCKED:
+                return TriggerWrapper.STATE_WAITING;
+            case TriggerWrapper.STATE_PAUSED_BLOCKED:
+                return TriggerWrapper.STATE_PAUSED;
+            default:
+                return state;
+        }
+    }
+
+    private static void writeBuffer(DataOutputStream out, ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.write(bytes);
+        }
+    }
+
+    /** 字符串以 [长度][UTF-8] 编码，null的长度为-1 */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            s = new String(bytes, UTF_8);
+        }
+        return s;
+    }
+
+    private static void serialize(DataOutputStream out, Object obj) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(obj);
+        oos.flush();
+    }
+
+    private static Object deserialize(ByteBuffer in) throws JobPersistenceException {
+        try {
+            byte[] bytes = new byte[in.remaining()];
+            in.get(bytes);
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            return ois.readObject();
+        } catch (IOException e) {
+            throw new JobPersistenceException("Corrupt serialized record", e);
+        } catch (ClassNotFoundException e) {
+            throw new JobPersistenceException("Cannot load class of serialized record", e);
+        }
+    }
+
+    static File snapshotFile(File dir, long number) {
+        return new File(dir, String.format("%s%016d%s", SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+    }
+
+    /** 可重用的记录缓冲区 */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        final DataOutputStream data = new DataOutputStream(this);
+
+        RecordBuffer() {
+            super(256);
+        }
+
+        void begin(int type) throws IOException {
+            reset();
+            data.writeByte(type);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        /** 按日志的记录格式写出当前记录 */
+        void writeTo(OutputStream out, CRC32 crc) throws IOException {
+            WriteAheadLog.writeRecord(out, buf, count, crc);
+        }
+    }
+
+    // 修改数据的方法先确认日志可写，在释放存储锁后等待记录落盘
+    @Override
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        checkWritable();
+        super.clearAllSchedulingData();
+        commit();
+    }
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        checkWritable();
+        checkEncodable(newJob);
+        checkEncodable(newTrigger);
+        // 作业任务及触发器由同一次落盘提交
+        synchronized (lock) {
+            super.storeJobAndTrigger(newJob, newTrigger);
+        }
+        commit();
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws JobPersistenceException {
+        checkWritable();
+        for (Map.Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+            checkEncodable(e.getKey());
+            for (Trigger trigger : e.getValue()) {
+                checkEncodable(trigger);
+            }
+        }
+        super.storeJobsAndTriggers(triggersAndJobs, replace);
+        commit();
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting)
+            throws ObjectAlreadyExistsException, JobPersistenceException {
+        checkWritable();
+        checkEncodable(newJob);
+        super.storeJob(newJob, replaceExisting);
+        commit();
+    }
+
+    @Override
+    public boolean removeJob(JobKey jobKey) throws JobPersistenceException {
+        checkWritable();
+        boolean found = super.removeJob(jobKey);
+        commit();
+        return found;
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        checkWritable();
+        boolean allFound = super.removeJobs(jobKeys);
+        commit();
+        return allFound;
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        checkWritable();
+        boolean allFound = super.removeTriggers(triggerKeys);
+        commit();
+        return allFound;
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        checkWritable();
+        checkEncodable(newTrigger);
+        super.storeTrigger(newTrigger, replaceExisting);
+        commit();
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        checkWritable();
+        boolean found = super.removeTrigger(triggerKey);
+        commit();
+        return found;
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        checkWritable();
+        checkEncodable(newTrigger);
+        boolean found = super.replaceTrigger(triggerKey, newTrigger);
+        commit();
+        return found;
+    }
+
+    @Override
+    public void resetTriggerFromErrorState(TriggerKey triggerKey) throws JobPersistenceException {
+        checkWritable();
+        super.resetTriggerFromErrorState(triggerKey);
+        commit();
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+            throws ObjectAlreadyExistsException, JobPersistenceException {
+        checkWritable();
+        checkEncodable(calendar);
+        super.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+        commit();
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        checkWritable();
+        boolean removed = super.removeCalendar(calName);
+        commit();
+        return removed;
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        checkWritable();
+        super.pauseTrigger(triggerKey);
+        commit();
+    }
+
+    @Override
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        checkWritable();
+        List<String> pausedGroups = super.pauseTriggers(matcher);
+        commit();
+        return pausedGroups;
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) throws JobPersistenceException {
+        checkWritable();
+        super.pauseJob(jobKey);
+        commit();
+    }
+
+    @Override
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        checkWritable();
+        List<String> pausedGroups = super.pauseJobs(matcher);
+        commit();
+        return pausedGroups;
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        checkWritable();
+        super.resumeTrigger(triggerKey);
+        commit();
+    }
+
+    @Override
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        checkWritable();
+        List<String> groups = super.resumeTriggers(matcher);
+        commit();
+        return groups;
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) throws JobPersistenceException {
+        checkWritable();
+        super.resumeJob(jobKey);
+        commit();
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        checkWritable();
+        Collection<String> resumedGroups = super.resumeJobs(matcher);
+        commit();
+        return resumedGroups;
+    }
+
+    @Override
+    public void pauseAll() throws JobPersistenceException {
+        checkWritable();
+        super.pauseAll();
+        commit();
+    }
+
+    @Override
+    public void resumeAll() throws JobPersistenceException {
+        checkWritable();
+        super.resumeAll();
+        commit();
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) throws JobPersistenceException {
+        checkWritable();
+        // 作业任务执行前触发记录已落盘，重启后不会再次触发同一次触发
+        List<TriggerFiredResult> results = super.triggersFired(firedTriggers);
+        commit();
+        return results;
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+                                     Trigger.CompletedExecutionInstruction triggerInstCode) {
+        super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+        commitQuietly();
+    }
+}
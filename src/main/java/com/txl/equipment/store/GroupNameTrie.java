@@ -0,0 +1,112 @@
+package com.txl.equipment.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by TangXiangLin on 2023-03-05 10:00
+ * 组名前缀树
+ * 1. 按字符保存所有的组名，前缀查询只访问以该前缀开头的分支，复杂度与前缀长度及匹配的组数有关，与组的总数无关。
+ * 2. 组名被移除后沿路径回收空的节点。
+ * 3. 实现不要求线程安全，调用方需持有存储锁。
+ */
+class GroupNameTrie {
+
+    private final Node root = new Node();
+
+    private int size;
+
+    /** 加入组名，已存在时返回false */
+    boolean add(String group) {
+        Node node = root;
+        for (int i = 0; i < group.length(); i++) {
+            node = node.child(group.charAt(i), true);
+        }
+        if (node.group != null) {
+            return false;
+        }
+        node.group = group;
+        size++;
+        return true;
+    }
+
+    /** 移除组名，不存在时返回false */
+    boolean remove(String group) {
+        Node[] path = new Node[group.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < group.length(); i++) {
+            node = node.child(group.charAt(i), false);
+            if (node == null) {
+                return false;
+            }
+            path[i + 1] = node;
+        }
+        if (node.group == null) {
+            return false;
+        }
+        node.group = null;
+        size--;
+        for (int i = group.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].children.remove(group.charAt(i - 1));
+        }
+        return true;
+    }
+
+    /** 获取以给定前缀开头的所有组名 */
+    List<String> withPrefix(String prefix) {
+        List<String> groups = new ArrayList<String>();
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i), false);
+        }
+        if (node != null) {
+            collect(node, groups);
+        }
+        return groups;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static void collect(Node node, List<String> groups) {
+        if (node.group != null) {
+            groups.add(node.group);
+        }
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                collect(child, groups);
+            }
+        }
+    }
+
+    private static final class Node {
+
+        /** 以该节点结尾的组名，不是组名时为null */
+        String group;
+
+        Map<Character, Node> children;
+
+        Node child(char c, boolean create) {
+            if (children == null) {
+                if (!create) {
+                    return null;
+                }
+                children = new HashMap<Character, Node>(4);
+            }
+            Node child = children.get(c);
+            if (child == null && create) {
+                child = new Node();
+                children.put(c, child);
+            }
+            return child;
+        }
+
+        boolean isEmpty() {
+            return group == null && (children == null || children.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.txl.equipment.store;
+
+/**
+ * Created by TangXiangLin on 2023-03-09 10:00
+ * 存储内部编号的分配器
+ * 1. 编号从1开始连续分配，释放的编号优先重用，编号的范围与存储中对象的最大数量相当。
+ * 2. 实现不要求线程安全，调用方需持有存储锁。
+ */
+final class IdAllocator {
+
+    private long next = 1L;
+
+    private long[] free = new long[16];
+
+    private int freeCount;
+
+    long allocate() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        return next++;
+    }
+
+    void release(long id) {
+        if (freeCount == free.length) {
+            long[] grown = new long[free.length * 2];
+            System.arraycopy(free, 0, grown, 0, freeCount);
+            free = grown;
+        }
+        free[freeCount++] = id;
+    }
+
+    /** 已分配过的最大编号 */
+    long maxId() {
+        return next - 1;
+    }
+}
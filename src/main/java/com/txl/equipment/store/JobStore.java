@@ -0,0 +1,178 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.calendar.Calendar;
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.exception.ObjectAlreadyExistsException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.matcher.GroupMatcher;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.Trigger;
+import com.txl.equipment.trigger.TriggerKey;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 09:35
+ * 作业存储
+ * 1. 为调度器提供作业任务描述、触发器、日历的存储与检索。
+ * 2. 调度线程通过acquireNextTriggers()批量获取即将触发的触发器，通过triggersFired()完成触发。
+ * 3. 作业存储的实现必须是线程安全的。
+ */
+public interface JobStore {
+
+    /** 调度器初始化时调用，提供调度器信号 */
+    void initialize(SchedulerSignaler signaler) throws SchedulerException;
+
+    /** 调度器启动 */
+    void schedulerStarted() throws SchedulerException;
+
+    /** 调度器待机 */
+    void schedulerPaused();
+
+    /** 调度器从待机中恢复 */
+    void schedulerResumed();
+
+    /** 调度器停止，释放作业存储持有的资源 */
+    void shutdown();
+
+    /** 存储作业任务描述及触发器 */
+    void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException;
+
+    /** 批量存储作业任务描述及其触发器集 */
+    void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace) throws JobPersistenceException;
+
+    /** 存储作业任务描述 */
+    void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException, JobPersistenceException;
+
+    /** 移除作业任务描述及其关联的触发器 */
+    boolean removeJob(JobKey jobKey) throws JobPersistenceException;
+
+    /** 批量移除作业任务描述 */
+    boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException;
+
+    /** 检索作业任务描述 */
+    JobDetail retrieveJob(JobKey jobKey) throws JobPersistenceException;
+
+    /** 存储触发器 */
+    void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws ObjectAlreadyExistsException, JobPersistenceException;
+
+    /** 移除触发器，触发器关联的非持久作业任务没有其它触发器时一并移除 */
+    boolean removeTrigger(TriggerKey triggerKey) throws JobPersistenceException;
+
+    /** 批量移除触发器 */
+    boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException;
+
+    /** 替换触发器，新的触发器必须关联同一个作业任务 */
+    boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException;
+
+    /** 检索触发器 */
+    OperableTrigger retrieveTrigger(TriggerKey triggerKey) throws JobPersistenceException;
+
+    /** 作业任务是否存在 */
+    boolean checkExists(JobKey jobKey) throws JobPersistenceException;
+
+    /** 触发器是否存在 */
+    boolean checkExists(TriggerKey triggerKey) throws JobPersistenceException;
+
+    /** 清除所有的作业任务、触发器和日历 */
+    void clearAllSchedulingData() throws JobPersistenceException;
+
+    /** 存储日历 */
+    void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+            throws ObjectAlreadyExistsException, JobPersistenceException;
+
+    /** 移除日历，日历被触发器引用时不能移除 */
+    boolean removeCalendar(String calName) throws JobPersistenceException;
+
+    /** 检索日历 */
+    Calendar retrieveCalendar(String calName) throws JobPersistenceException;
+
+    /** 获取作业任务的数量 */
+    int getNumberOfJobs() throws JobPersistenceException;
+
+    /** 获取触发器的数量 */
+    int getNumberOfTriggers() throws JobPersistenceException;
+
+    /** 获取日历的数量 */
+    int getNumberOfCalendars() throws JobPersistenceException;
+
+    /** 根据组名匹配器获取作业任务标识 */
+    Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) throws JobPersistenceException;
+
+    /** 根据组名匹配器获取触发器标识 */
+    Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException;
+
+    /** 获取所有作业任务的组名 */
+    List<String> getJobGroupNames() throws JobPersistenceException;
+
+    /** 获取所有触发器的组名 */
+    List<String> getTriggerGroupNames() throws JobPersistenceException;
+
+    /** 获取所有日历的名称 */
+    List<String> getCalendarNames() throws JobPersistenceException;
+
+    /** 获取作业任务关联的所有触发器 */
+    List<OperableTrigger> getTriggersForJob(JobKey jobKey) throws JobPersistenceException;
+
+    /** 获取触发器的状态 */
+    Trigger.TriggerState getTriggerState(TriggerKey triggerKey) throws JobPersistenceException;
+
+    /** 将触发器从错误状态中恢复 */
+    void resetTriggerFromErrorState(TriggerKey triggerKey) throws JobPersistenceException;
+
+    /** 暂停触发器 */
+    void pauseTrigger(TriggerKey triggerKey) throws JobPersistenceException;
+
+    /** 暂停匹配组中的触发器，返回被暂停的组名 */
+    Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException;
+
+    /** 暂停作业任务的所有触发器 */
+    void pauseJob(JobKey jobKey) throws JobPersistenceException;
+
+    /** 暂停匹配组中的作业任务，返回被暂停的组名 */
+    Collection<String> pauseJobs(GroupMatcher<JobKey> groupMatcher) throws JobPersistenceException;
+
+    /** 恢复触发器 */
+    void resumeTrigger(TriggerKey triggerKey) throws JobPersistenceException;
+
+    /** 恢复匹配组中的触发器，返回被恢复的组名 */
+    Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException;
+
+    /** 获取所有已暂停的触发器组名 */
+    Set<String> getPausedTriggerGroups() throws JobPersistenceException;
+
+    /** 恢复作业任务的所有触发器 */
+    void resumeJob(JobKey jobKey) throws JobPersistenceException;
+
+    /** 恢复匹配组中的作业任务，返回被恢复的组名 */
+    Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException;
+
+    /** 暂停所有触发器 */
+    void pauseAll() throws JobPersistenceException;
+
+    /** 恢复所有触发器 */
+    void resumeAll() throws JobPersistenceException;
+
+    /**
+     * 批量获取即将触发的触发器
+     * 1. 只获取下一次触发时间不晚于noLaterThan的触发器，最多maxCount个。
+     * 2. 第一个触发器确定后，只获取触发时间在其之后timeWindow(毫秒)以内的触发器。
+     * 3. 获取的触发器按触发时间及优先级排序。
+     */
+    List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) throws JobPersistenceException;
+
+    /** 释放已获取但不再触发的触发器 */
+    void releaseAcquiredTrigger(OperableTrigger trigger);
+
+    /** 已获取的触发器即将触发，更新触发器的状态，并返回执行作业任务所需的数据 */
+    List<TriggerFiredResult> triggersFired(List<OperableTrigger> triggers) throws JobPersistenceException;
+
+    /** 作业任务执行完毕，根据触发器的执行指令更新作业存储 */
+    void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+                              Trigger.CompletedExecutionInstruction triggerInstCode);
+}
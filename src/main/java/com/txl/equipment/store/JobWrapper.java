@@ -0,0 +1,68 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.job.JobKey;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 10:18
+ * 内存作业存储中作业任务描述的包装
+ * 1. 存储为每个作业任务分配内部编号，存储内部按编号引用作业任务，唯一标识只在接口上使用。
+ * 2. 存储通过getJobDetail访问作业任务描述；从快照恢复时(MappedJobWrapper)作业任务描述在首次访问时才解码。
+ */
+class JobWrapper {
+
+    /** 作业任务的唯一标识 */
+    final JobKey key;
+
+    /** 存储分配的内部编号 */
+    final long id;
+
+    /** 作业任务的触发器，按触发器的内部编号索引，仅在存储锁内访问 */
+    final LongObjectHashMap<TriggerWrapper> triggers = new LongObjectHashMap<TriggerWrapper>(1);
+
+    /** 作业任务描述，写操作在存储锁内进行，读操作可以不加锁 */
+    private volatile JobDetail jobDetail;
+
+    JobWrapper(JobDetail jobDetail, long id) {
+        this.jobDetail = jobDetail;
+        this.key = jobDetail.getKey();
+        this.id = id;
+    }
+
+    /** 供延迟加载作业任务描述的子类使用 */
+    protected JobWrapper(JobKey key, long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    JobDetail getJobDetail() {
+        return jobDetail;
+    }
+
+    /** 替换作业任务描述，调用方需持有存储锁 */
+    void setJobDetail(JobDetail jobDetail) {
+        this.jobDetail = jobDetail;
+    }
+
+    boolean isDurable() {
+        return getJobDetail().isDurable();
+    }
+
+    boolean isConcurrentExectionDisallowed() {
+        return getJobDetail().isConcurrentExectionDisallowed();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof JobWrapper) {
+            JobWrapper jw = (JobWrapper) obj;
+            return jw.key.equals(this.key);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+}
@@ -0,0 +1,122 @@
+package com.txl.equipment.store;
+
+import java.util.Arrays;
+
+/**
+ * Created by TangXiangLin on 2023-03-09 09:45
+ * 以long为元素的开放寻址哈希集合
+ * 1. 与LongObjectHashMap相同的布局：线性探测，0保留为空槽位，移除时前移后续条目。
+ * 2. 实现不要求线程安全，调用方需持有存储锁。
+ */
+final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 2;
+
+    private long[] elements;
+
+    private int mask;
+
+    private int size;
+
+    LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        elements = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    boolean contains(long e) {
+        for (int i = slot(e); ; i = (i + 1) & mask) {
+            long k = elements[i];
+            if (k == e) {
+                return e != 0L;
+            }
+            if (k == 0L) {
+                return false;
+            }
+        }
+    }
+
+    /** 加入元素，已存在时返回false */
+    boolean add(long e) {
+        LongObjectHashMap.checkKey(e);
+        int i = slot(e);
+        for (; elements[i] != 0L; i = (i + 1) & mask) {
+            if (elements[i] == e) {
+                return false;
+            }
+        }
+        elements[i] = e;
+        if (++size * 2 > elements.length) {
+            rehash(elements.length << 1);
+        }
+        return true;
+    }
+
+    /** 移除元素，不存在时返回false */
+    boolean remove(long e) {
+        if (e == 0L) {
+            return false;
+        }
+        for (int i = slot(e); elements[i] != 0L; i = (i + 1) & mask) {
+            if (elements[i] == e) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(elements, 0L);
+            size = 0;
+        }
+    }
+
+    private void shiftBack(int i) {
+        int hole = i;
+        for (int j = (i + 1) & mask; elements[j] != 0L; j = (j + 1) & mask) {
+            int home = slot(elements[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                elements[hole] = elements[j];
+                hole = j;
+            }
+        }
+        elements[hole] = 0L;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = elements;
+        elements = new long[capacity];
+        mask = capacity - 1;
+        for (long e : old) {
+            if (e != 0L) {
+                int j = slot(e);
+                while (elements[j] != 0L) {
+                    j = (j + 1) & mask;
+                }
+                elements[j] = e;
+            }
+        }
+    }
+
+    private int slot(long e) {
+        return LongObjectHashMap.mix(e) & mask;
+    }
+}
@@ -0,0 +1,172 @@
+package com.txl.equipment.store;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Created by TangXiangLin on 2023-03-09 09:30
+ * 以long为键的开放寻址哈希表
+ * 1. 键与值分别存放在两个数组中，线性探测，不装箱、不为每个条目创建节点对象。
+ * 2. 键0保留为空槽位，存储分配的编号从1开始。
+ * 3. 移除时将后续探测链上的条目前移(backward shift)，不使用删除标记。
+ * 4. 实现不要求线程安全，调用方需持有存储锁。
+ */
+final class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 2;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int mask;
+
+    private int size;
+
+    LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongObjectHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        long[] keys = this.keys;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return (V) values[i];
+            }
+            if (k == 0L) {
+                return null;
+            }
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /** 放入键值，返回原来的值；值不能为null */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        checkKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        int i = slot(key);
+        for (; keys[i] != 0L; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        if (key == 0L) {
+            return null;
+        }
+        for (int i = slot(key); keys[i] != 0L; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /** 将所有的值加入给定的集合 */
+    @SuppressWarnings("unchecked")
+    void valuesTo(Collection<? super V> out) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0L) {
+                out.add((V) values[i]);
+            }
+        }
+    }
+
+    /** 移除槽位i的条目，并将探测链上后续的条目前移填补空位 */
+    private void shiftBack(int i) {
+        int hole = i;
+        for (int j = (i + 1) & mask; keys[j] != 0L; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            // 条目的初始槽位不在(hole, j]之间时可以移到空位上
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = 0L;
+        values[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k != 0L) {
+                int j = slot(k);
+                while (keys[j] != 0L) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = k;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long key) {
+        return mix(key) & mask;
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static void checkKey(long key) {
+        if (key == 0L) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+}
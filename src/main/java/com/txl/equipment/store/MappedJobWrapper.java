@@ -0,0 +1,86 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.codec.BinaryJobCodec;
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.job.JobKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Created by TangXiangLin on 2023-03-13 10:00
+ * 从内存映射的快照恢复的作业任务包装
+ * 1. 恢复时只读取记录头(标识、是否持久、是否允许并发执行)，作业任务描述(类加载、任务参数)在首次访问时才从快照中解码。
+ * 2. 解码或替换作业任务描述后不再引用快照。
+ */
+final class MappedJobWrapper extends JobWrapper {
+
+    private final BinaryJobCodec codec;
+
+    private final int bodyOffset;
+
+    private final boolean durable;
+
+    private final boolean concurrentExectionDisallowed;
+
+    /** 快照中的记录，解码后为null */
+    private volatile ByteBuffer record;
+
+    /** record为快照中整条记录的内容，bodyOffset为作业任务描述编码在记录中的位置 */
+    MappedJobWrapper(JobKey key, long id, BinaryJobCodec codec, ByteBuffer record, int bodyOffset,
+                     boolean durable, boolean concurrentExectionDisallowed) {
+        super(key, id);
+        this.codec = codec;
+        this.record = record;
+        this.bodyOffset = bodyOffset;
+        this.durable = durable;
+        this.concurrentExectionDisallowed = concurrentExectionDisallowed;
+    }
+
+    @Override
+    JobDetail getJobDetail() {
+        JobDetail jobDetail = super.getJobDetail();
+        if (jobDetail != null) {
+            return jobDetail;
+        }
+        synchronized (this) {
+            // setJobDetail在同一监视器内先设置作业任务描述再清除记录
+            jobDetail = super.getJobDetail();
+            ByteBuffer r = record;
+            if (jobDetail == null && r != null) {
+                ByteBuffer in = r.duplicate();
+                in.position(bodyOffset);
+                try {
+                    jobDetail = codec.decodeJobDetail(in);
+                } catch (JobPersistenceException e) {
+                    throw new IllegalStateException("Cannot decode job " + key + " from snapshot", e);
+                }
+                setJobDetail(jobDetail);
+            }
+            return jobDetail;
+        }
+    }
+
+    /** 与解码互斥，解码不会读到已清除的记录 */
+    @Override
+    synchronized void setJobDetail(JobDetail jobDetail) {
+        super.setJobDetail(jobDetail);
+        record = null;
+    }
+
+    /** 尚未解码时返回快照中的记录，否则返回null */
+    ByteBuffer undecodedRecord() {
+        ByteBuffer r = record;
+        return r == null ? null : r.duplicate();
+    }
+
+    @Override
+    boolean isDurable() {
+        return record != null ? durable : super.isDurable();
+    }
+
+    @Override
+    boolean isConcurrentExectionDisallowed() {
+        return record != null ? concurrentExectionDisallowed : super.isConcurrentExectionDisallowed();
+    }
+}
@@ -0,0 +1,112 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.codec.BinaryJobCodec;
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.TriggerKey;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Created by TangXiangLin on 2023-03-13 10:30
+ * 从内存映射的快照恢复的触发器包装
+ * 1. 恢复时只读取记录头(标识、下一次触发时间、优先级、误触发策略、日历名称)，足以加入等待触发的索引；
+ *    触发器在首次通过getTrigger访问(获取、触发、误触发等)时才从快照中解码。
+ * 2. 解码后触发器保存在堆内，之后与TriggerWrapper相同，修改直接作用在该触发器上，不再引用快照。
+ */
+final class MappedTriggerWrapper extends TriggerWrapper {
+
+    private final BinaryJobCodec codec;
+
+    private final int format;
+
+    private final int bodyOffset;
+
+    private final long nextFireTime;
+
+    private final int priority;
+
+    private final int misfireInstruction;
+
+    private final String calendarName;
+
+    /** 快照中的记录，解码后为null */
+    private ByteBuffer record;
+
+    private volatile OperableTrigger trigger;
+
+    /** record为快照中整条记录的内容，bodyOffset为触发器编码在记录中的位置 */
+    MappedTriggerWrapper(TriggerKey key, JobKey jobKey, long id, long jobId, BinaryJobCodec codec,
+                         ByteBuffer record, int format, int bodyOffset,
+                         long nextFireTime, int priority, int misfireInstruction, String calendarName) {
+        super(key, jobKey, id, jobId);
+        this.codec = codec;
+        this.record = record;
+        this.format = format;
+        this.bodyOffset = bodyOffset;
+        this.nextFireTime = nextFireTime;
+        this.priority = priority;
+        this.misfireInstruction = misfireInstruction;
+        this.calendarName = calendarName;
+    }
+
+    /** 尚未解码时返回快照中的记录，否则返回null */
+    synchronized ByteBuffer undecodedRecord() {
+        return record == null ? null : record.duplicate();
+    }
+
+    @Override
+    OperableTrigger getTrigger() {
+        OperableTrigger t = trigger;
+        if (t != null) {
+            return t;
+        }
+        synchronized (this) {
+            if (trigger == null) {
+                ByteBuffer in = record.duplicate();
+                in.position(bodyOffset);
+                try {
+                    trigger = FileJobStore.decodeTrigger(codec, format, in);
+                } catch (JobPersistenceException e) {
+                    throw new IllegalStateException("Cannot decode trigger " + key + " from snapshot", e);
+                }
+                record = null;
+            }
+            return trigger;
+        }
+    }
+
+    @Override
+    OperableTrigger copyTrigger() {
+        return (OperableTrigger) getTrigger().clone();
+    }
+
+    @Override
+    long getNextFireTimeMillis() {
+        OperableTrigger t = trigger;
+        return t != null ? t.getNextFireTimeMillis() : nextFireTime;
+    }
+
+    @Override
+    int getPriority() {
+        OperableTrigger t = trigger;
+        return t != null ? t.getPriority() : priority;
+    }
+
+    @Override
+    int getMisfireInstruction() {
+        OperableTrigger t = trigger;
+        return t != null ? t.getMisfireInstruction() : misfireInstruction;
+    }
+
+    @Override
+    String getCalendarName() {
+        return calendarName;
+    }
+
+    @Override
+    void setFireInstanceId(String fireInstanceId) {
+        getTrigger().setFireInstanceId(fireInstanceId);
+    }
+}
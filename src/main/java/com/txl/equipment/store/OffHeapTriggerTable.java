@@ -0,0 +1,156 @@
+package com.txl.equipment.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Created by TangXiangLin on 2023-03-09 14:00
+ * 堆外的触发器调度状态表
+ * 1. 每个触发器占一条定长记录，按存储分配的内部编号定位，编号连续且释放后重用，表的大小与触发器的最大数量相当。
+ * 2. 记录保存在直接内存(ByteBuffer.allocateDirect)的分块中，扩容时只追加新的分块，已有的记录不移动、不复制。
+ * 3. 时间以毫秒保存，开始/结束时间为空时保存OperableTrigger.NO_FIRE_TIME。
+ * 4. 实现不要求线程安全，调用方需持有存储锁。
+ */
+final class OffHeapTriggerTable {
+
+    static final int RECORD_SIZE = 64;
+
+    private static final int NEXT_FIRE_TIME = 0;
+
+    private static final int PREVIOUS_FIRE_TIME = 8;
+
+    private static final int START_TIME = 16;
+
+    private static final int END_TIME = 24;
+
+    private static final int REPEAT_INTERVAL = 32;
+
+    private static final int REPEAT_COUNT = 40;
+
+    private static final int TIMES_TRIGGERED = 44;
+
+    private static final int PRIORITY = 48;
+
+    private static final int MISFIRE_INSTRUCTION = 52;
+
+    private static final int FLAGS = 56;
+
+    static final int FLAG_VOLATILE = 1;
+
+    /** 每个分块的记录数，分块大小为1MB */
+    private static final int CHUNK_SHIFT = 14;
+
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+
+    private int chunkCount;
+
+    /** 保证给定编号的记录可用，编号从1开始 */
+    void ensureCapacity(long id) {
+        int chunk = chunkOf(id);
+        while (chunk >= chunkCount) {
+            if (chunkCount == chunks.length) {
+                ByteBuffer[] grown = new ByteBuffer[chunks.length * 2];
+                System.arraycopy(chunks, 0, grown, 0, chunkCount);
+                chunks = grown;
+            }
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /** 已分配的直接内存字节数 */
+    long capacityBytes() {
+        return (long) chunkCount * CHUNK_RECORDS * RECORD_SIZE;
+    }
+
+    long getNextFireTime(long id) {
+        return chunks[chunkOf(id)].getLong(offset(id, NEXT_FIRE_TIME));
+    }
+
+    void setNextFireTime(long id, long millis) {
+        chunks[chunkOf(id)].putLong(offset(id, NEXT_FIRE_TIME), millis);
+    }
+
+    long getPreviousFireTime(long id) {
+        return chunks[chunkOf(id)].getLong(offset(id, PREVIOUS_FIRE_TIME));
+    }
+
+    void setPreviousFireTime(long id, long millis) {
+        chunks[chunkOf(id)].putLong(offset(id, PREVIOUS_FIRE_TIME), millis);
+    }
+
+    long getStartTime(long id) {
+        return chunks[chunkOf(id)].getLong(offset(id, START_TIME));
+    }
+
+    void setStartTime(long id, long millis) {
+        chunks[chunkOf(id)].putLong(offset(id, START_TIME), millis);
+    }
+
+    long getEndTime(long id) {
+        return chunks[chunkOf(id)].getLong(offset(id, END_TIME));
+    }
+
+    void setEndTime(long id, long millis) {
+        chunks[chunkOf(id)].putLong(offset(id, END_TIME), millis);
+    }
+
+    long getRepeatInterval(long id) {
+        return chunks[chunkOf(id)].getLong(offset(id, REPEAT_INTERVAL));
+    }
+
+    void setRepeatInterval(long id, long interval) {
+        chunks[chunkOf(id)].putLong(offset(id, REPEAT_INTERVAL), interval);
+    }
+
+    int getRepeatCount(long id) {
+        return chunks[chunkOf(id)].getInt(offset(id, REPEAT_COUNT));
+    }
+
+    void setRepeatCount(long id, int count) {
+        chunks[chunkOf(id)].putInt(offset(id, REPEAT_COUNT), count);
+    }
+
+    int getTimesTriggered(long id) {
+        return chunks[chunkOf(id)].getInt(offset(id, TIMES_TRIGGERED));
+    }
+
+    void setTimesTriggered(long id, int times) {
+        chunks[chunkOf(id)].putInt(offset(id, TIMES_TRIGGERED), times);
+    }
+
+    int getPriority(long id) {
+        return chunks[chunkOf(id)].getInt(offset(id, PRIORITY));
+    }
+
+    void setPriority(long id, int priority) {
+        chunks[chunkOf(id)].putInt(offset(id, PRIORITY), priority);
+    }
+
+    int getMisfireInstruction(long id) {
+        return chunks[chunkOf(id)].getInt(offset(id, MISFIRE_INSTRUCTION));
+    }
+
+    void setMisfireInstruction(long id, int instruction) {
+        chunks[chunkOf(id)].putInt(offset(id, MISFIRE_INSTRUCTION), instruction);
+    }
+
+    int getFlags(long id) {
+        return chunks[chunkOf(id)].getInt(offset(id, FLAGS));
+    }
+
+    void setFlags(long id, int flags) {
+        chunks[chunkOf(id)].putInt(offset(id, FLAGS), flags);
+    }
+
+    private static int chunkOf(long id) {
+        return (int) ((id - 1) >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(long id, int field) {
+        return ((int) (id - 1) & CHUNK_MASK) * RECORD_SIZE + field;
+    }
+}
@@ -0,0 +1,119 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.job.JobDataMap;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+
+import java.util.Date;
+
+/**
+ * Created by TangXiangLin on 2023-03-09 14:30
+ * 调度状态保存在堆外的触发器包装
+ * 1. 仅用于SimpleTriggerImpl：触发时间、开始/结束时间、重复次数及间隔、已触发次数、优先级、误触发策略保存在OffHeapTriggerTable中。
+ * 2. 堆内只保留标识、状态及不常用的属性(描述、日历名称、作业数据)，触发器对象仅在需要时物化。
+ * 3. 触发器实例的fireInstanceId不在存储中保留，获取触发器时设置在返回的副本上。
+ */
+final class OffHeapTriggerWrapper extends TriggerWrapper {
+
+    private final OffHeapTriggerTable table;
+
+    private final String description;
+
+    private final String calendarName;
+
+    /** 作业数据，为空时不保存 */
+    private final JobDataMap jobDataMap;
+
+    OffHeapTriggerWrapper(OffHeapTriggerTable table, SimpleTriggerImpl trigger, long id, long jobId) {
+        super(trigger.getKey(), trigger.getJobKey(), id, jobId);
+        this.table = table;
+        this.description = trigger.getDescription();
+        this.calendarName = trigger.getCalendarName();
+        JobDataMap data = trigger.getJobDataMap();
+        this.jobDataMap = data.isEmpty() ? null : (JobDataMap) data.clone();
+        table.ensureCapacity(id);
+        table.setFlags(id, trigger.isVolatility() ? OffHeapTriggerTable.FLAG_VOLATILE : 0);
+        writeBack(trigger);
+    }
+
+    /** 是否可以保存在堆外，子类可能有额外的状态，只接受SimpleTriggerImpl本身 */
+    static boolean isSupported(OperableTrigger trigger) {
+        return trigger.getClass() == SimpleTriggerImpl.class;
+    }
+
+    /** 物化触发器，每次返回新的实例 */
+    @Override
+    OperableTrigger getTrigger() {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setKey(key);
+        trigger.setJobKey(jobKey);
+        trigger.setDescription(description);
+        trigger.setCalendarName(calendarName);
+        if (jobDataMap != null) {
+            trigger.setJobDataMap((JobDataMap) jobDataMap.clone());
+        }
+        trigger.setVolatility((table.getFlags(id) & OffHeapTriggerTable.FLAG_VOLATILE) != 0);
+        trigger.setMisfireInstruction(table.getMisfireInstruction(id));
+        trigger.setPriority(table.getPriority(id));
+        long start = table.getStartTime(id);
+        if (start != OperableTrigger.NO_FIRE_TIME) {
+            trigger.setStartTime(new Date(start));
+        }
+        long end = table.getEndTime(id);
+        if (end != OperableTrigger.NO_FIRE_TIME) {
+            trigger.setEndTime(new Date(end));
+        }
+        trigger.setRepeatCount(table.getRepeatCount(id));
+        trigger.setRepeatInterval(table.getRepeatInterval(id));
+        trigger.setTimesTriggered(table.getTimesTriggered(id));
+        trigger.setNextFireTimeMillis(table.getNextFireTime(id));
+        trigger.setPreviousFireTimeMillis(table.getPreviousFireTime(id));
+        return trigger;
+    }
+
+    /** 写回调度状态，描述、日历名称、作业数据在存储中不会修改 */
+    @Override
+    void writeBack(OperableTrigger trigger) {
+        SimpleTriggerImpl st = (SimpleTriggerImpl) trigger;
+        table.setNextFireTime(id, st.getNextFireTimeMillis());
+        table.setPreviousFireTime(id, st.getPreviousFireTimeMillis());
+        Date start = st.getStartTime();
+        table.setStartTime(id, start == null ? OperableTrigger.NO_FIRE_TIME : start.getTime());
+        Date end = st.getEndTime();
+        table.setEndTime(id, end == null ? OperableTrigger.NO_FIRE_TIME : end.getTime());
+        table.setRepeatInterval(id, st.getRepeatInterval());
+        table.setRepeatCount(id, st.getRepeatCount());
+        table.setTimesTriggered(id, st.getTimesTriggered());
+        table.setPriority(id, st.getPriority());
+        table.setMisfireInstruction(id, st.getMisfireInstruction());
+    }
+
+    @Override
+    OperableTrigger copyTrigger() {
+        return getTrigger();
+    }
+
+    @Override
+    long getNextFireTimeMillis() {
+        return table.getNextFireTime(id);
+    }
+
+    @Override
+    int getPriority() {
+        return table.getPriority(id);
+    }
+
+    @Override
+    int getMisfireInstruction() {
+        return table.getMisfireInstruction(id);
+    }
+
+    @Override
+    String getCalendarName() {
+        return calendarName;
+    }
+
+    @Override
+    void setFireInstanceId(String fireInstanceId) {
+    }
+}
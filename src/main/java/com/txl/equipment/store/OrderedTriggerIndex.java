@@ -0,0 +1,56 @@
+package com.txl.equipment.store;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Created by TangXiangLin on 2023-03-01 09:50
+ * 基于跳表的触发器索引
+ * 1. 加入、移出、取出的复杂度都是O(log n)，适用于触发时间分布较分散的场景。
+ * 2. 排序使用加入时记录在TriggerWrapper上的触发时间及优先级，在索引中时记录不变。
+ */
+class OrderedTriggerIndex implements TriggerIndex {
+
+    private final ConcurrentSkipListSet<TriggerWrapper> timeTriggers =
+            new ConcurrentSkipListSet<TriggerWrapper>(new RAMJobStore.TriggerWrapperComparator());
+
+    public boolean add(TriggerWrapper tw) {
+        if (tw.inOrderedIndex) {
+            return false;
+        }
+        tw.snapshotSchedule();
+        tw.inOrderedIndex = true;
+        return timeTriggers.add(tw);
+    }
+
+    public void addAll(Collection<TriggerWrapper> tws) {
+        for (TriggerWrapper tw : tws) {
+            add(tw);
+        }
+    }
+
+    public boolean remove(TriggerWrapper tw) {
+        if (!tw.inOrderedIndex) {
+            return false;
+        }
+        tw.inOrderedIndex = false;
+        return timeTriggers.remove(tw);
+    }
+
+    public TriggerWrapper pollFirst() {
+        TriggerWrapper tw = timeTriggers.pollFirst();
+        if (tw != null) {
+            tw.inOrderedIndex = false;
+        }
+        return tw;
+    }
+
+    public boolean isEmpty() {
+        return timeTriggers.isEmpty();
+    }
+
+    /** 跳表的size()需要遍历，仅用于统计 */
+    public int size() {
+        return timeTriggers.size();
+    }
+}
@@ -0,0 +1,1283 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.calendar.Calendar;
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.exception.ObjectAlreadyExistsException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.JobDataMap;
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.matcher.GroupMatcher;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+import com.txl.equipment.trigger.Trigger;
+import com.txl.equipment.trigger.TriggerKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 10:30
+ * 内存作业存储
+ * 1. 作业任务描述、触发器、日历都保存在内存中，调度器停止后数据丢失。
+ * 2. 等待触发的触发器保存在按下一次触发时间排序的索引中，调度线程从中批量获取即将触发的触发器。
+ *    缺省使用跳表，复杂度O(log n)；触发间隔很短、触发器数量很多时可以切换为分层时间轮，加入、到期的复杂度O(1)。
+ * 3. 按触发器标识、作业任务标识、分组建立哈希索引，查询复杂度O(1)；写操作在存储锁内进行，查询操作不加锁；
+ *    存储中的作业任务、触发器会在锁内原地修改，复制它们(retrieveJob、retrieveTrigger)仍需持有存储锁。
+ * 4. 组名另外保存在前缀树中，按前缀匹配分组(如暂停"plant1.line3."下的所有设备)时只访问匹配的分组。
+ * 5. 可以将SimpleTriggerImpl的调度状态保存在堆外的定长记录中，堆内只保留标识、状态等，触发器对象在需要时物化。
+ * 6. 作业任务、触发器、日历、暂停的分组发生变化时在存储锁内调用对应的变更方法(triggerChanged等)，
+ *    本类中为空实现，持久化的子类(如FileJobStore)据此记录变化。
+ */
+public class RAMJobStore implements JobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RAMJobStore.class);
+
+    private static final AtomicLong ftrCtr = new AtomicLong(System.currentTimeMillis());
+
+    protected final ConcurrentHashMap<JobKey, JobWrapper> jobsByKey = new ConcurrentHashMap<JobKey, JobWrapper>(1000);
+
+    protected final ConcurrentHashMap<TriggerKey, TriggerWrapper> triggersByKey = new ConcurrentHashMap<TriggerKey, TriggerWrapper>(1000);
+
+    protected final ConcurrentHashMap<String, ConcurrentHashMap<JobKey, JobWrapper>> jobsByGroup = new ConcurrentHashMap<String, ConcurrentHashMap<JobKey, JobWrapper>>(25);
+
+    protected final ConcurrentHashMap<String, ConcurrentHashMap<TriggerKey, TriggerWrapper>> triggersByGroup = new ConcurrentHashMap<String, ConcurrentHashMap<TriggerKey, TriggerWrapper>>(25);
+
+    /** 作业任务组名的前缀树，用于按前缀匹配分组 */
+    protected final GroupNameTrie jobGroupTrie = new GroupNameTrie();
+
+    /** 触发器组名的前缀树，用于按前缀匹配分组 */
+    protected final GroupNameTrie triggerGroupTrie = new GroupNameTrie();
+
+    /** 按内部编号索引的作业任务，仅在存储锁内访问；作业任务的触发器按内部编号记录在JobWrapper上 */
+    final LongObjectHashMap<JobWrapper> jobsById = new LongObjectHashMap<JobWrapper>(1000);
+
+    private final IdAllocator jobIds = new IdAllocator();
+
+    private final IdAllocator triggerIds = new IdAllocator();
+
+    /** 堆外的触发器调度状态表，未启用时为null */
+    private OffHeapTriggerTable offHeapTriggers;
+
+    /** 等待触发的触发器，索引中的触发器不允许修改下一次触发时间及优先级，修改前必须先移出 */
+    protected TriggerIndex timeTriggers = new OrderedTriggerIndex();
+
+    protected final ConcurrentHashMap<String, Calendar> calendarsByName = new ConcurrentHashMap<String, Calendar>(25);
+
+    protected final Object lock = new Object();
+
+    protected final Set<String> pausedTriggerGroups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    protected final Set<String> pausedJobGroups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** 被阻塞(不允许并发执行且正在执行)的作业任务的内部编号，仅在存储锁内访问 */
+    final LongHashSet blockedJobs = new LongHashSet();
+
+    /** 误触发的阈值(毫秒)，触发时间晚于计划时间超过该值时按误触发处理 */
+    protected long misfireThreshold = 5000L;
+
+    protected SchedulerSignaler signaler;
+
+    public RAMJobStore() {
+    }
+
+    public void initialize(SchedulerSignaler schedSignaler) throws SchedulerException {
+        this.signaler = schedSignaler;
+        logger.info("RAMJobStore initialized.");
+    }
+
+    public void schedulerStarted() {
+    }
+
+    public void schedulerPaused() {
+    }
+
+    public void schedulerResumed() {
+    }
+
+    public void shutdown() {
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    public void setMisfireThreshold(long misfireThreshold) {
+        if (misfireThreshold < 1) {
+            throw new IllegalArgumentException("Misfire threshold must be larger than 0");
+        }
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    /**
+     * 是否使用分层时间轮索引等待触发的触发器
+     * 1. 适用于大量短间隔触发器(如毫秒级轮询)的场景，已有的触发器会迁移到新的索引中。
+     */
+    public void setUseTimingWheel(boolean useTimingWheel) {
+        synchronized (lock) {
+            if (useTimingWheel == isUseTimingWheel()) {
+                return;
+            }
+            TriggerIndex index = useTimingWheel ? new TimingWheelTriggerIndex() : new OrderedTriggerIndex();
+            TriggerWrapper tw;
+            while ((tw = timeTriggers.pollFirst()) != null) {
+                index.add(tw);
+            }
+            timeTriggers = index;
+        }
+    }
+
+    public boolean isUseTimingWheel() {
+        synchronized (lock) {
+            return timeTriggers instanceof TimingWheelTriggerIndex;
+        }
+    }
+
+    /**
+     * 是否将SimpleTriggerImpl的调度状态保存在堆外
+     * 1. 适用于触发器数量很多的场景，减少堆内的对象数及GC扫描的范围；获取、触发时需要物化触发器对象。
+     * 2. 必须在存储触发器之前设置。
+     */
+    public void setUseOffHeapTriggers(boolean useOffHeapTriggers) {
+        synchronized (lock) {
+            if (useOffHeapTriggers == isUseOffHeapTriggers()) {
+                return;
+            }
+            if (!triggersByKey.isEmpty()) {
+                throw new IllegalStateException("Off-heap triggers must be configured before any trigger is stored");
+            }
+            offHeapTriggers = useOffHeapTriggers ? new OffHeapTriggerTable() : null;
+        }
+    }
+
+    public boolean isUseOffHeapTriggers() {
+        synchronized (lock) {
+            return offHeapTriggers != null;
+        }
+    }
+
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        synchronized (lock) {
+            List<String> lst = getTriggerGroupNames();
+            for (String group: lst) {
+                for (TriggerKey key: getTriggerKeys(GroupMatcher.triggerGroupEquals(group))) {
+                    removeTrigger(key);
+                }
+            }
+            lst = getJobGroupNames();
+            for (String group: lst) {
+                for (JobKey key: getJobKeys(GroupMatcher.jobGroupEquals(group))) {
+                    removeJob(key);
+                }
+            }
+            for (String name : calendarsByName.keySet()) {
+                calendarRemoved(name);
+            }
+            for (String group : pausedTriggerGroups) {
+                triggerGroupPauseChanged(group, false);
+            }
+            for (String group : pausedJobGroups) {
+                jobGroupPauseChanged(group, false);
+            }
+            calendarsByName.clear();
+            pausedTriggerGroups.clear();
+            pausedJobGroups.clear();
+            blockedJobs.clear();
+        }
+    }
+
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        storeJob(newJob, false);
+        storeTrigger(newTrigger, false);
+    }
+
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws JobPersistenceException {
+        synchronized (lock) {
+            if (!replace) {
+                for (Map.Entry<JobDetail, Set<? extends Trigger>> e: triggersAndJobs.entrySet()) {
+                    if (checkExists(e.getKey().getKey()))
+                        throw new ObjectAlreadyExistsException(e.getKey());
+                    for (Trigger trigger: e.getValue()) {
+                        if (checkExists(trigger.getKey()))
+                            throw new ObjectAlreadyExistsException(trigger);
+                    }
+                }
+            }
+            for (Map.Entry<JobDetail, Set<? extends Trigger>> e: triggersAndJobs.entrySet()) {
+                storeJob(e.getKey(), true);
+                for (Trigger trigger: e.getValue()) {
+                    storeTrigger((OperableTrigger) trigger, true);
+                }
+            }
+        }
+    }
+
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException, JobPersistenceException {
+        JobDetail copy = (JobDetail) newJob.clone();
+
+        synchronized (lock) {
+            JobWrapper orig = jobsByKey.get(copy.getKey());
+            if (orig != null && !replaceExisting) {
+                throw new ObjectAlreadyExistsException(newJob);
+            }
+
+            if (orig == null) {
+                JobWrapper jw = new JobWrapper(copy, jobIds.allocate());
+                indexJob(jw);
+                jobChanged(jw);
+            } else {
+                orig.setJobDetail(copy);
+                jobChanged(orig);
+            }
+        }
+    }
+
+    public boolean removeJob(JobKey jobKey) throws JobPersistenceException {
+        boolean found = false;
+
+        synchronized (lock) {
+            for (TriggerWrapper tw: getTriggerWrappersForJob(jobKey)) {
+                removeTrigger(tw.key, true);
+                found = true;
+            }
+
+            // 非持久的作业任务可能随最后一个触发器一起移除
+            JobWrapper jw = jobsByKey.get(jobKey);
+            if (jw != null) {
+                unindexJob(jw);
+                found = true;
+            }
+        }
+
+        return found;
+    }
+
+    /** 从所有索引中移除作业任务，调用方需持有存储锁 */
+    private void unindexJob(JobWrapper jw) {
+        jobsByKey.remove(jw.key);
+        jobsById.remove(jw.id);
+        blockedJobs.remove(jw.id);
+        jobIds.release(jw.id);
+        jobRemoved(jw.key);
+        ConcurrentHashMap<JobKey, JobWrapper> grpMap = jobsByGroup.get(jw.key.getGroup());
+        if (grpMap != null) {
+            grpMap.remove(jw.key);
+            if (grpMap.isEmpty()) {
+                jobsByGroup.remove(jw.key.getGroup());
+                jobGroupTrie.remove(jw.key.getGroup());
+            }
+        }
+    }
+
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        boolean allFound = true;
+
+        synchronized (lock) {
+            for (JobKey key: jobKeys)
+                allFound = removeJob(key) && allFound;
+        }
+
+        return allFound;
+    }
+
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        boolean allFound = true;
+
+        synchronized (lock) {
+            for (TriggerKey key: triggerKeys)
+                allFound = removeTrigger(key) && allFound;
+        }
+
+        return allFound;
+    }
+
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        synchronized (lock) {
+            // 保存在堆外时记录由给定的触发器写入，不需要先复制
+            boolean offHeap = offHeapTriggers != null && OffHeapTriggerWrapper.isSupported(newTrigger);
+            OperableTrigger copy = offHeap ? newTrigger : (OperableTrigger) newTrigger.clone();
+
+            if (triggersByKey.get(copy.getKey()) != null) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newTrigger);
+                }
+
+                removeTrigger(newTrigger.getKey(), false);
+            }
+
+            JobWrapper jw = jobsByKey.get(copy.getJobKey());
+            if (jw == null) {
+                throw new JobPersistenceException("The job (" + newTrigger.getJobKey()
+                        + ") referenced by the trigger does not exist.");
+            }
+
+            TriggerWrapper tw = offHeap
+                    ? new OffHeapTriggerWrapper(offHeapTriggers, (SimpleTriggerImpl) copy, triggerIds.allocate(), jw.id)
+                    : new TriggerWrapper(copy, triggerIds.allocate(), jw.id);
+            indexTrigger(tw, jw);
+
+            if (pausedTriggerGroups.contains(newTrigger.getKey().getGroup())
+                    || pausedJobGroups.contains(newTrigger.getJobKey().getGroup())) {
+                tw.state = TriggerWrapper.STATE_PAUSED;
+                if (blockedJobs.contains(tw.jobId)) {
+                    tw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+                }
+            } else if (blockedJobs.contains(tw.jobId)) {
+                tw.state = TriggerWrapper.STATE_BLOCKED;
+            } else {
+                timeTriggers.add(tw);
+            }
+            triggerChanged(tw);
+        }
+    }
+
+    public boolean removeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        return removeTrigger(triggerKey, true);
+    }
+
+    /** removeOrphanedJob为false时不移除失去触发器的非持久作业任务 */
+    boolean removeTrigger(TriggerKey key, boolean removeOrphanedJob) {
+        boolean found;
+
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(key);
+            found = (tw != null);
+            if (found) {
+                unindexTrigger(tw);
+                timeTriggers.remove(tw);
+                triggerRemoved(key);
+
+                if (removeOrphanedJob) {
+                    JobWrapper jw = jobsById.get(tw.jobId);
+                    if (jw != null && jw.triggers.isEmpty() && !jw.isDurable()) {
+                        unindexJob(jw);
+                        signaler.notifySchedulerListenersJobDeleted(jw.key);
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        boolean found;
+
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            found = (tw != null);
+
+            if (found) {
+                if (!tw.jobKey.equals(newTrigger.getJobKey())) {
+                    throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
+                }
+
+                // 移出索引后内部编号会被重用，先取出原触发器
+                OperableTrigger oldTrigger = tw.getTrigger();
+                unindexTrigger(tw);
+                timeTriggers.remove(tw);
+                triggerRemoved(triggerKey);
+
+                try {
+                    storeTrigger(newTrigger, false);
+                } catch (JobPersistenceException jpe) {
+                    storeTrigger(oldTrigger, false);
+                    throw jpe;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /** 将作业任务加入标识、分组、内部编号索引，调用方需持有存储锁 */
+    private void indexJob(JobWrapper jw) {
+        ConcurrentHashMap<JobKey, JobWrapper> grpMap = jobsByGroup.get(jw.key.getGroup());
+        if (grpMap == null) {
+            grpMap = new ConcurrentHashMap<JobKey, JobWrapper>(100);
+            jobsByGroup.put(jw.key.getGroup(), grpMap);
+            jobGroupTrie.add(jw.key.getGroup());
+        }
+        grpMap.put(jw.key, jw);
+        jobsByKey.put(jw.key, jw);
+        jobsById.put(jw.id, jw);
+    }
+
+    /** 将触发器加入标识、分组、作业任务索引，调用方需持有存储锁 */
+    private void indexTrigger(TriggerWrapper tw, JobWrapper jw) {
+        ConcurrentHashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(tw.key.getGroup());
+        if (grpMap == null) {
+            grpMap = new ConcurrentHashMap<TriggerKey, TriggerWrapper>(100);
+            triggersByGroup.put(tw.key.getGroup(), grpMap);
+            triggerGroupTrie.add(tw.key.getGroup());
+        }
+        grpMap.put(tw.key, tw);
+
+        jw.triggers.put(tw.id, tw);
+        triggersByKey.put(tw.key, tw);
+    }
+
+    /** 将触发器移出标识、分组、作业任务索引，调用方需持有存储锁 */
+    private void unindexTrigger(TriggerWrapper tw) {
+        triggersByKey.remove(tw.key);
+
+        ConcurrentHashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(tw.key.getGroup());
+        if (grpMap != null) {
+            grpMap.remove(tw.key);
+            if (grpMap.isEmpty()) {
+                triggersByGroup.remove(tw.key.getGroup());
+                triggerGroupTrie.remove(tw.key.getGroup());
+            }
+        }
+
+        JobWrapper jw = jobsById.get(tw.jobId);
+        if (jw != null) {
+            jw.triggers.remove(tw.id);
+        }
+        triggerIds.release(tw.id);
+    }
+
+    public JobDetail retrieveJob(JobKey jobKey) {
+        synchronized (lock) {
+            JobWrapper jw = jobsByKey.get(jobKey);
+            return (jw != null) ? (JobDetail) jw.getJobDetail().clone() : null;
+        }
+    }
+
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) {
+        // triggersFired在锁内原地更新触发器，堆外的记录在触发器删除后会被重用，均需在存储锁内复制
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            return (tw != null) ? tw.copyTrigger() : null;
+        }
+    }
+
+    public boolean checkExists(JobKey jobKey) {
+        return jobsByKey.containsKey(jobKey);
+    }
+
+    public boolean checkExists(TriggerKey triggerKey) {
+        return triggersByKey.containsKey(triggerKey);
+    }
+
+    public Trigger.TriggerState getTriggerState(TriggerKey triggerKey) {
+        TriggerWrapper tw = triggersByKey.get(triggerKey);
+
+        if (tw == null) {
+            return Trigger.TriggerState.NONE;
+        }
+
+        int state = tw.state;
+        if (state == TriggerWrapper.STATE_COMPLETE) {
+            return Trigger.TriggerState.COMPLETE;
+        }
+        if (state == TriggerWrapper.STATE_PAUSED) {
+            return Trigger.TriggerState.PAUSED;
+        }
+        if (state == TriggerWrapper.STATE_PAUSED_BLOCKED) {
+            return Trigger.TriggerState.PAUSED;
+        }
+        if (state == TriggerWrapper.STATE_BLOCKED) {
+            return Trigger.TriggerState.BLOCKED;
+        }
+        if (state == TriggerWrapper.STATE_ERROR) {
+            return Trigger.TriggerState.ERROR;
+        }
+        return Trigger.TriggerState.NORMAL;
+    }
+
+    public void resetTriggerFromErrorState(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null) {
+                return;
+            }
+            if (tw.state != TriggerWrapper.STATE_ERROR) {
+                return;
+            }
+
+            if (pausedTriggerGroups.contains(triggerKey.getGroup())) {
+                tw.state = TriggerWrapper.STATE_PAUSED;
+            } else {
+                tw.state = TriggerWrapper.STATE_WAITING;
+                timeTriggers.add(tw);
+            }
+            triggerChanged(tw);
+        }
+    }
+
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+            throws ObjectAlreadyExistsException, JobPersistenceException {
+        calendar = (Calendar) calendar.clone();
+
+        synchronized (lock) {
+            Object obj = calendarsByName.get(name);
+
+            if (obj != null && !replaceExisting) {
+                throw new ObjectAlreadyExistsException("Calendar with name '" + name + "' already exists.");
+            } else if (obj != null) {
+                calendarsByName.remove(name);
+            }
+
+            calendarsByName.put(name, calendar);
+            calendarChanged(name, calendar);
+
+            if (obj != null && updateTriggers) {
+                for (TriggerWrapper tw : getTriggerWrappersForCalendar(name)) {
+                    OperableTrigger trig = tw.getTrigger();
+                    boolean removed = timeTriggers.remove(tw);
+
+                    trig.updateWithNewCalendar(calendar, getMisfireThreshold());
+                    tw.writeBack(trig);
+                    triggerChanged(tw);
+
+                    if (removed) {
+                        timeTriggers.add(tw);
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        int numRefs = 0;
+
+        synchronized (lock) {
+            for (TriggerWrapper trigger : triggersByKey.values()) {
+                String tcalName = trigger.getCalendarName();
+                if (tcalName != null && tcalName.equals(calName)) {
+                    numRefs++;
+                }
+            }
+
+            if (numRefs > 0) {
+                throw new JobPersistenceException("Calender cannot be removed if it referenced by a Trigger!");
+            }
+
+            if (calendarsByName.remove(calName) == null) {
+                return false;
+            }
+            calendarRemoved(calName);
+            return true;
+        }
+    }
+
+    public Calendar retrieveCalendar(String calName) {
+        Calendar cal = calendarsByName.get(calName);
+        if (cal != null)
+            return (Calendar) cal.clone();
+        return null;
+    }
+
+    public int getNumberOfJobs() {
+        return jobsByKey.size();
+    }
+
+    public int getNumberOfTriggers() {
+        return triggersByKey.size();
+    }
+
+    public int getNumberOfCalendars() {
+        return calendarsByName.size();
+    }
+
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
+        Set<JobKey> outList = null;
+        switch (matcher.getCompareWithOperator()) {
+            case ANYTHING:
+                outList = new HashSet<JobKey>(jobsByKey.keySet());
+                break;
+            case EQUALS:
+                ConcurrentHashMap<JobKey, JobWrapper> grpMap = jobsByGroup.get(matcher.getCompareToValue());
+                if (grpMap != null) {
+                    outList = new HashSet<JobKey>(grpMap.keySet());
+                }
+                break;
+            default:
+                synchronized (lock) {
+                    outList = new HashSet<JobKey>();
+                    for (String group : getMatchingGroups(matcher, jobsByGroup.keySet(), jobGroupTrie)) {
+                        outList.addAll(jobsByGroup.get(group).keySet());
+                    }
+                }
+        }
+
+        return outList == null ? java.util.Collections.<JobKey>emptySet() : outList;
+    }
+
+    public List<String> getCalendarNames() {
+        return new LinkedList<String>(calendarsByName.keySet());
+    }
+
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
+        Set<TriggerKey> outList = null;
+        switch (matcher.getCompareWithOperator()) {
+            case ANYTHING:
+                outList = new HashSet<TriggerKey>(triggersByKey.keySet());
+                break;
+            case EQUALS:
+                ConcurrentHashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(matcher.getCompareToValue());
+                if (grpMap != null) {
+                    outList = new HashSet<TriggerKey>(grpMap.keySet());
+                }
+                break;
+            default:
+                synchronized (lock) {
+                    outList = new HashSet<TriggerKey>();
+                    for (String group : getMatchingGroups(matcher, triggersByGroup.keySet(), triggerGroupTrie)) {
+                        outList.addAll(triggersByGroup.get(group).keySet());
+                    }
+                }
+        }
+
+        return outList == null ? Collections.<TriggerKey>emptySet() : outList;
+    }
+
+    /**
+     * 获取匹配的组名，调用方需持有存储锁
+     * 1. 前缀匹配通过组名前缀树查找，后缀、包含匹配遍历组名，都不遍历唯一标识。
+     */
+    private List<String> getMatchingGroups(GroupMatcher<?> matcher, Set<String> groups, GroupNameTrie trie) {
+        switch (matcher.getCompareWithOperator()) {
+            case EQUALS:
+                return groups.contains(matcher.getCompareToValue())
+                        ? Collections.singletonList(matcher.getCompareToValue()) : Collections.<String>emptyList();
+            case STARTS_WITH:
+                return trie.withPrefix(matcher.getCompareToValue());
+            default:
+                List<String> matched = new ArrayList<String>();
+                for (String group : groups) {
+                    if (matcher.isMatchGroup(group)) {
+                        matched.add(group);
+                    }
+                }
+                return matched;
+        }
+    }
+
+    public List<String> getJobGroupNames() {
+        return new LinkedList<String>(jobsByGroup.keySet());
+    }
+
+    public List<String> getTriggerGroupNames() {
+        return new LinkedList<String>(triggersByGroup.keySet());
+    }
+
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) {
+        ArrayList<OperableTrigger> trigList = new ArrayList<OperableTrigger>();
+
+        synchronized (lock) {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                trigList.add(tw.copyTrigger());
+            }
+        }
+
+        return trigList;
+    }
+
+    /** 调用方需持有存储锁 */
+    protected ArrayList<TriggerWrapper> getTriggerWrappersForJob(JobKey jobKey) {
+        JobWrapper jw = jobsByKey.get(jobKey);
+        return jw == null ? new ArrayList<TriggerWrapper>() : getTriggerWrappersForJob(jw);
+    }
+
+    /** 调用方需持有存储锁 */
+    ArrayList<TriggerWrapper> getTriggerWrappersForJob(JobWrapper jw) {
+        ArrayList<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>(jw.triggers.size());
+        jw.triggers.valuesTo(trigList);
+        return trigList;
+    }
+
+    protected ArrayList<TriggerWrapper> getTriggerWrappersForCalendar(String calName) {
+        ArrayList<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>();
+
+        synchronized (lock) {
+            for (TriggerWrapper tw : triggersByKey.values()) {
+                String tcalName = tw.getCalendarName();
+                if (tcalName != null && tcalName.equals(calName)) {
+                    trigList.add(tw);
+                }
+            }
+        }
+
+        return trigList;
+    }
+
+    public void pauseTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+
+            if (tw == null) {
+                return;
+            }
+            if (tw.state == TriggerWrapper.STATE_COMPLETE) {
+                return;
+            }
+
+            if (tw.state == TriggerWrapper.STATE_BLOCKED) {
+                tw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+            } else {
+                tw.state = TriggerWrapper.STATE_PAUSED;
+            }
+
+            timeTriggers.remove(tw);
+            triggerChanged(tw);
+        }
+    }
+
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        List<String> pausedGroups;
+        synchronized (lock) {
+            pausedGroups = new LinkedList<String>();
+
+            if (matcher.getCompareWithOperator() == GroupMatcher.StringOperatorName.EQUALS) {
+                // 组名相同时即使分组还不存在也记录为暂停，之后加入该组的触发器直接暂停
+                if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
+                    pausedGroups.add(matcher.getCompareToValue());
+                }
+            } else {
+                for (String group : getMatchingGroups(matcher, triggersByGroup.keySet(), triggerGroupTrie)) {
+                    if (pausedTriggerGroups.add(group)) {
+                        pausedGroups.add(group);
+                    }
+                }
+            }
+
+            for (String pausedGroup : pausedGroups) {
+                triggerGroupPauseChanged(pausedGroup, true);
+                Set<TriggerKey> keys = getTriggerKeys(GroupMatcher.triggerGroupEquals(pausedGroup));
+                for (TriggerKey key: keys) {
+                    pauseTrigger(key);
+                }
+            }
+        }
+
+        return pausedGroups;
+    }
+
+    public void pauseJob(JobKey jobKey) throws JobPersistenceException {
+        synchronized (lock) {
+            for (TriggerWrapper tw: getTriggerWrappersForJob(jobKey)) {
+                pauseTrigger(tw.key);
+            }
+        }
+    }
+
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        List<String> pausedGroups = new LinkedList<String>();
+        synchronized (lock) {
+            if (matcher.getCompareWithOperator() == GroupMatcher.StringOperatorName.EQUALS) {
+                // 组名相同时即使分组还不存在也记录为暂停，之后加入该组的触发器直接暂停
+                if (pausedJobGroups.add(matcher.getCompareToValue())) {
+                    pausedGroups.add(matcher.getCompareToValue());
+                }
+            } else {
+                for (String group : getMatchingGroups(matcher, jobsByGroup.keySet(), jobGroupTrie)) {
+                    if (pausedJobGroups.add(group)) {
+                        pausedGroups.add(group);
+                    }
+                }
+            }
+
+            for (String groupName : pausedGroups) {
+                jobGroupPauseChanged(groupName, true);
+                for (JobKey jobKey: getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
+                    for (TriggerWrapper tw: getTriggerWrappersForJob(jobKey)) {
+                        pauseTrigger(tw.key);
+                    }
+                }
+            }
+        }
+
+        return pausedGroups;
+    }
+
+    public void resumeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+
+            if (tw == null) {
+                return;
+            }
+
+            if (tw.state != TriggerWrapper.STATE_PAUSED && tw.state != TriggerWrapper.STATE_PAUSED_BLOCKED) {
+                return;
+            }
+
+            if (blockedJobs.contains(tw.jobId)) {
+                tw.state = TriggerWrapper.STATE_BLOCKED;
+            } else {
+                tw.state = TriggerWrapper.STATE_WAITING;
+            }
+
+            applyMisfire(tw);
+
+            if (tw.state == TriggerWrapper.STATE_WAITING) {
+                timeTriggers.add(tw);
+            }
+            triggerChanged(tw);
+        }
+    }
+
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        Set<String> groups = new HashSet<String>();
+
+        synchronized (lock) {
+            Set<TriggerKey> keys = getTriggerKeys(matcher);
+
+            for (TriggerKey triggerKey: keys) {
+                groups.add(triggerKey.getGroup());
+                if (triggersByKey.get(triggerKey) != null) {
+                    String jobGroup = triggersByKey.get(triggerKey).jobKey.getGroup();
+                    if (pausedJobGroups.contains(jobGroup)) {
+                        continue;
+                    }
+                }
+                resumeTrigger(triggerKey);
+            }
+
+            if (matcher.getCompareWithOperator() == GroupMatcher.StringOperatorName.EQUALS) {
+                if (pausedTriggerGroups.remove(matcher.getCompareToValue())) {
+                    triggerGroupPauseChanged(matcher.getCompareToValue(), false);
+                }
+            } else {
+                for (Iterator<String> it = pausedTriggerGroups.iterator(); it.hasNext(); ) {
+                    String group = it.next();
+                    if (matcher.isMatchGroup(group)) {
+                        it.remove();
+                        triggerGroupPauseChanged(group, false);
+                    }
+                }
+            }
+        }
+
+        return new ArrayList<String>(groups);
+    }
+
+    public void resumeJob(JobKey jobKey) throws JobPersistenceException {
+        synchronized (lock) {
+            for (TriggerWrapper tw: getTriggerWrappersForJob(jobKey)) {
+                resumeTrigger(tw.key);
+            }
+        }
+    }
+
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        Set<String> resumedGroups = new HashSet<String>();
+        synchronized (lock) {
+            Set<JobKey> keys = getJobKeys(matcher);
+
+            for (String pausedJobGroup : pausedJobGroups) {
+                if (matcher.isMatchGroup(pausedJobGroup)) {
+                    resumedGroups.add(pausedJobGroup);
+                }
+            }
+
+            for (String resumedGroup : resumedGroups) {
+                pausedJobGroups.remove(resumedGroup);
+                jobGroupPauseChanged(resumedGroup, false);
+            }
+
+            for (JobKey key: keys) {
+                for (TriggerWrapper tw: getTriggerWrappersForJob(key)) {
+                    resumeTrigger(tw.key);
+                }
+            }
+        }
+        return resumedGroups;
+    }
+
+    public void pauseAll() throws JobPersistenceException {
+        synchronized (lock) {
+            List<String> names = getTriggerGroupNames();
+
+            for (String name: names) {
+                pauseTriggers(GroupMatcher.triggerGroupEquals(name));
+            }
+        }
+    }
+
+    public void resumeAll() throws JobPersistenceException {
+        synchronized (lock) {
+            for (String group : pausedJobGroups) {
+                jobGroupPauseChanged(group, false);
+            }
+            pausedJobGroups.clear();
+            resumeTriggers(GroupMatcher.anyTriggerGroup());
+        }
+    }
+
+    public Set<String> getPausedTriggerGroups() {
+        return new HashSet<String>(pausedTriggerGroups);
+    }
+
+    /** 触发器是否误触发，误触发时根据触发器的适配策略更新触发器 */
+    protected boolean applyMisfire(TriggerWrapper tw) {
+        long misfireTime = System.currentTimeMillis();
+        if (getMisfireThreshold() > 0) {
+            misfireTime -= getMisfireThreshold();
+        }
+
+        long tnft = tw.getNextFireTimeMillis();
+        if (tnft == OperableTrigger.NO_FIRE_TIME || tnft > misfireTime
+                || tw.getMisfireInstruction() == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return false;
+        }
+
+        Calendar cal = null;
+        if (tw.getCalendarName() != null) {
+            cal = retrieveCalendar(tw.getCalendarName());
+        }
+
+        signaler.notifyTriggerListenersMisfired(tw.copyTrigger());
+
+        OperableTrigger trig = tw.getTrigger();
+        trig.updateAfterMisfire(cal);
+        tw.writeBack(trig);
+
+        if (trig.getNextFireTimeMillis() == OperableTrigger.NO_FIRE_TIME) {
+            tw.state = TriggerWrapper.STATE_COMPLETE;
+            signaler.notifySchedulerListenersFinalized(trig);
+            synchronized (lock) {
+                timeTriggers.remove(tw);
+            }
+        } else if (tnft == trig.getNextFireTimeMillis()) {
+            return false;
+        }
+
+        triggerChanged(tw);
+        return true;
+    }
+
+    protected String getFiredTriggerRecordId() {
+        return String.valueOf(ftrCtr.incrementAndGet());
+    }
+
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        synchronized (lock) {
+            List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+            LongHashSet acquiredJobsForNoConcurrentExec = null;
+            List<TriggerWrapper> excludedTriggers = null;
+            long batchEnd = noLaterThan;
+
+            if (timeTriggers.isEmpty())
+                return result;
+
+            while (true) {
+                TriggerWrapper tw = timeTriggers.pollFirst();
+                if (tw == null)
+                    break;
+
+                long nft = tw.getNextFireTimeMillis();
+                if (nft == OperableTrigger.NO_FIRE_TIME) {
+                    continue;
+                }
+
+                if (applyMisfire(tw)) {
+                    if (tw.getNextFireTimeMillis() != OperableTrigger.NO_FIRE_TIME) {
+                        timeTriggers.add(tw);
+                    }
+                    continue;
+                }
+
+                if (nft > batchEnd) {
+                    timeTriggers.add(tw);
+                    break;
+                }
+
+                // 不允许并发执行的作业任务，同一批次中只获取其一个触发器
+                if (jobsById.get(tw.jobId).isConcurrentExectionDisallowed()) {
+                    if (acquiredJobsForNoConcurrentExec == null) {
+                        acquiredJobsForNoConcurrentExec = new LongHashSet();
+                    }
+                    if (!acquiredJobsForNoConcurrentExec.add(tw.jobId)) {
+                        if (excludedTriggers == null) {
+                            excludedTriggers = new ArrayList<TriggerWrapper>();
+                        }
+                        excludedTriggers.add(tw);
+                        continue;
+                    }
+                }
+
+                tw.state = TriggerWrapper.STATE_ACQUIRED;
+                String fireInstanceId = getFiredTriggerRecordId();
+                tw.setFireInstanceId(fireInstanceId);
+                OperableTrigger trig = tw.copyTrigger();
+                trig.setFireInstanceId(fireInstanceId);
+                if (result.isEmpty()) {
+                    batchEnd = Math.max(nft, System.currentTimeMillis()) + timeWindow;
+                }
+                result.add(trig);
+                if (result.size() == maxCount)
+                    break;
+            }
+
+            if (excludedTriggers != null)
+                timeTriggers.addAll(excludedTriggers);
+            return result;
+        }
+    }
+
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        synchronized (lock) {
+            TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+            if (tw != null && tw.state == TriggerWrapper.STATE_ACQUIRED) {
+                tw.state = TriggerWrapper.STATE_WAITING;
+                timeTriggers.add(tw);
+            }
+        }
+    }
+
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) throws JobPersistenceException {
+        synchronized (lock) {
+            List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
+
+            for (OperableTrigger trigger : firedTriggers) {
+                TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+                // 触发器已被删除
+                if (tw == null) {
+                    continue;
+                }
+                // 触发器不再处于已获取的状态
+                if (tw.state != TriggerWrapper.STATE_ACQUIRED) {
+                    continue;
+                }
+
+                Calendar cal = null;
+                if (tw.getCalendarName() != null) {
+                    cal = retrieveCalendar(tw.getCalendarName());
+                    if (cal == null)
+                        continue;
+                }
+                Date prevFireTime = trigger.getPreviousFireTime();
+                timeTriggers.remove(tw);
+                OperableTrigger stored = tw.getTrigger();
+                stored.triggered(cal);
+                tw.writeBack(stored);
+                trigger.triggered(cal);
+                tw.state = TriggerWrapper.STATE_WAITING;
+                triggerChanged(tw);
+
+                JobWrapper jw = jobsById.get(tw.jobId);
+                TriggerFiredBundle bndle = new TriggerFiredBundle((JobDetail) jw.getJobDetail().clone(), trigger, cal,
+                        false, new Date(), trigger.getPreviousFireTime(), prevFireTime,
+                        trigger.getNextFireTime());
+
+                JobDetail job = bndle.getJobDetail();
+
+                if (job.isConcurrentExectionDisallowed()) {
+                    ArrayList<TriggerWrapper> trigs = getTriggerWrappersForJob(jw);
+                    for (TriggerWrapper ttw : trigs) {
+                        if (ttw.state == TriggerWrapper.STATE_WAITING) {
+                            ttw.state = TriggerWrapper.STATE_BLOCKED;
+                        }
+                        if (ttw.state == TriggerWrapper.STATE_PAUSED) {
+                            ttw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+                        }
+                        timeTriggers.remove(ttw);
+                    }
+                    blockedJobs.add(jw.id);
+                } else if (tw.getNextFireTimeMillis() != OperableTrigger.NO_FIRE_TIME) {
+                    timeTriggers.add(tw);
+                }
+
+                results.add(new TriggerFiredResult(bndle));
+            }
+            return results;
+        }
+    }
+
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+                                     Trigger.CompletedExecutionInstruction triggerInstCode) {
+        synchronized (lock) {
+            JobWrapper jw = jobsByKey.get(jobDetail.getKey());
+            TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+
+            // 作业任务仍然存在
+            if (jw != null) {
+                JobDetail jd = jw.getJobDetail();
+
+                if (jd.isPersistJobDataAfterExecution()) {
+                    JobDataMap newData = jobDetail.getJobDataMap();
+                    if (newData != null) {
+                        newData = (JobDataMap) newData.clone();
+                        newData.clearDirtyFlag();
+                    }
+                    jd = jd.getJobBuilder().setJobData(newData).build();
+                    jw.setJobDetail(jd);
+                    jobChanged(jw);
+                }
+                if (jd.isConcurrentExectionDisallowed()) {
+                    blockedJobs.remove(jw.id);
+                    ArrayList<TriggerWrapper> trigs = getTriggerWrappersForJob(jw);
+                    for (TriggerWrapper ttw : trigs) {
+                        if (ttw.state == TriggerWrapper.STATE_BLOCKED) {
+                            ttw.state = TriggerWrapper.STATE_WAITING;
+                            timeTriggers.add(ttw);
+                        }
+                        if (ttw.state == TriggerWrapper.STATE_PAUSED_BLOCKED) {
+                            ttw.state = TriggerWrapper.STATE_PAUSED;
+                        }
+                    }
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+
+            // 触发器仍然存在
+            if (tw != null) {
+                if (triggerInstCode == Trigger.CompletedExecutionInstruction.DELETE_TRIGGER) {
+                    if (trigger.getNextFireTimeMillis() == OperableTrigger.NO_FIRE_TIME) {
+                        // 触发器执行期间可能被重新调度，只有存储中的触发器也不再触发时才删除
+                        if (tw.getNextFireTimeMillis() == OperableTrigger.NO_FIRE_TIME) {
+                            removeTrigger(trigger.getKey(), true);
+                        }
+                    } else {
+                        removeTrigger(trigger.getKey(), true);
+                        signaler.signalSchedulingChange(0L);
+                    }
+                } else if (triggerInstCode == Trigger.CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+                    tw.state = TriggerWrapper.STATE_COMPLETE;
+                    timeTriggers.remove(tw);
+                    triggerChanged(tw);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == Trigger.CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+                    logger.info("Trigger " + trigger.getKey() + " set to ERROR state.");
+                    tw.state = TriggerWrapper.STATE_ERROR;
+                    triggerChanged(tw);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == Trigger.CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                    logger.info("All triggers of Job " + trigger.getJobKey() + " set to ERROR state.");
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_ERROR);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == Trigger.CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_COMPLETE);
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+        }
+    }
+
+    protected void setAllTriggersOfJobToState(JobKey jobKey, int state) {
+        ArrayList<TriggerWrapper> tws = getTriggerWrappersForJob(jobKey);
+        for (TriggerWrapper tw : tws) {
+            tw.state = state;
+            if (state != TriggerWrapper.STATE_WAITING) {
+                timeTriggers.remove(tw);
+            }
+            triggerChanged(tw);
+        }
+    }
+
+    /** 分配作业任务的内部编号，用于从持久化的数据创建包装，调用方需持有存储锁 */
+    long allocateJobId() {
+        return jobIds.allocate();
+    }
+
+    /** 分配触发器的内部编号，用于从持久化的数据创建包装，调用方需持有存储锁 */
+    long allocateTriggerId() {
+        return triggerIds.allocate();
+    }
+
+    /** 加入从持久化的数据创建的作业任务包装，同名的作业任务不能已经存在，调用方需持有存储锁 */
+    void restoreJob(JobWrapper jw) {
+        indexJob(jw);
+    }
+
+    /** 加入从持久化的数据创建的触发器包装并恢复其状态，同名的触发器不能已经存在，所属作业任务必须已经存在，调用方需持有存储锁 */
+    void restoreTrigger(TriggerWrapper tw, int state) {
+        indexTrigger(tw, jobsById.get(tw.jobId));
+        tw.state = state;
+        if (state == TriggerWrapper.STATE_WAITING && tw.getNextFireTimeMillis() != OperableTrigger.NO_FIRE_TIME) {
+            timeTriggers.add(tw);
+        }
+    }
+
+    /**
+     * 恢复触发器在存储中的状态，用于从持久化的数据重建存储，调用方需持有存储锁
+     * 1. 只恢复持久的状态(等待、暂停、完成、错误)，等待状态的触发器重新加入索引。
+     */
+    void restoreTriggerState(TriggerKey triggerKey, int state) {
+        TriggerWrapper tw = triggersByKey.get(triggerKey);
+        if (tw == null) {
+            return;
+        }
+        timeTriggers.remove(tw);
+        tw.state = state;
+        if (state == TriggerWrapper.STATE_WAITING && tw.getNextFireTimeMillis() != OperableTrigger.NO_FIRE_TIME) {
+            timeTriggers.add(tw);
+        }
+    }
+
+    // 变更方法，在存储锁内调用
+    /** 触发器加入存储，或触发时间、状态发生变化 */
+    protected void triggerChanged(TriggerWrapper tw) {
+    }
+
+    /** 触发器移出存储 */
+    protected void triggerRemoved(TriggerKey triggerKey) {
+    }
+
+    /** 作业任务加入存储或作业任务描述被替换 */
+    protected void jobChanged(JobWrapper jw) {
+    }
+
+    /** 作业任务移出存储，其触发器已经先行移出 */
+    protected void jobRemoved(JobKey jobKey) {
+    }
+
+    protected void calendarChanged(String name, Calendar calendar) {
+    }
+
+    protected void calendarRemoved(String name) {
+    }
+
+    /** 触发器分组暂停或恢复 */
+    protected void triggerGroupPauseChanged(String group, boolean paused) {
+    }
+
+    /** 作业任务分组暂停或恢复 */
+    protected void jobGroupPauseChanged(String group, boolean paused) {
+    }
+
+    /** 按触发器的下一次触发时间、优先级、唯一标识排序 */
+    static class TriggerWrapperComparator implements Comparator<TriggerWrapper>, java.io.Serializable {
+
+        private static final long serialVersionUID = 8809557142191514261L;
+
+        /** 与Trigger.TriggerTimeComparator的顺序一致，比较加入索引时记录的毫秒值及优先级，不访问触发器 */
+        public int compare(TriggerWrapper trig1, TriggerWrapper trig2) {
+            long nft1 = trig1.indexedFireTime;
+            long nft2 = trig2.indexedFireTime;
+            if (nft1 != nft2) {
+                if (nft1 == OperableTrigger.NO_FIRE_TIME) {
+                    return 1;
+                }
+                if (nft2 == OperableTrigger.NO_FIRE_TIME) {
+                    return -1;
+                }
+                return nft1 < nft2 ? -1 : 1;
+            }
+
+            int comp = trig2.indexedPriority - trig1.indexedPriority;
+            if (comp != 0) {
+                return comp;
+            }
+
+            return trig1.key.compareTo(trig2.key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return (obj instanceof TriggerWrapperComparator);
+        }
+
+        @Override
+        public int hashCode() {
+            return super.hashCode();
+        }
+    }
+}
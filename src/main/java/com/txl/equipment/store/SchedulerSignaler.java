@@ -0,0 +1,29 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.trigger.Trigger;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 09:52
+ * 调度器信号
+ * 1. 作业存储通过该接口向调度器反馈触发器误触发、结束等事件
+ * 2. 作业存储中的调度数据发生变化时，通知调度线程重新获取触发器
+ */
+public interface SchedulerSignaler {
+
+    /** 触发器误触发 */
+    void notifyTriggerListenersMisfired(Trigger trigger);
+
+    /** 触发器结束触发 */
+    void notifySchedulerListenersFinalized(Trigger trigger);
+
+    /** 作业任务已删除 */
+    void notifySchedulerListenersJobDeleted(JobKey jobKey);
+
+    /** 调度数据发生变化，candidateNewNextFireTime为变化后可能的最早触发时间，未知时为0 */
+    void signalSchedulingChange(long candidateNewNextFireTime);
+
+    /** 调度器中发生严重错误 */
+    void notifySchedulerListenersError(String string, SchedulerException jpe);
+}
@@ -0,0 +1,227 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.trigger.OperableTrigger;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Created by TangXiangLin on 2023-03-01 10:05
+ * 基于分层时间轮的触发器索引
+ * 1. 以下一次触发时间换算出的刻度(tick)为键，共LEVELS层，每层64个槽位，每层用一个long记录槽位是否为空。
+ *    刻度与游标(cursor)最高的不同位落在第几组6位，触发器就放在第几层，因此加入、移出的复杂度是O(1)。
+ * 2. 刻度不晚于游标的触发器已到期，放入按触发时间、优先级、唯一标识排序的就绪集合；
+ *    超出时间轮范围(64^LEVELS个刻度)的触发器放入溢出集合。
+ * 3. 取出时先取就绪集合；就绪集合为空时，通过位扫描找到最低层最早的非空槽位，
+ *    将游标推进到该槽位并把其中的触发器降级重新放置，直到有触发器到期。
+ * 4. 槽位中的触发器通过TriggerWrapper上的侵入式双向链表相连，移出时不需要查找。
+ */
+class TimingWheelTriggerIndex implements TriggerIndex {
+
+    /** 不在索引中 */
+    static final int NOT_INDEXED = -1;
+
+    /** 在就绪集合中 */
+    static final int IN_READY = -2;
+
+    /** 在溢出集合中 */
+    static final int IN_OVERFLOW = -3;
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int LEVELS = 4;
+
+    /** 每个刻度的毫秒数 */
+    private final long tickMillis;
+
+    /** 各层槽位中链表的表头 */
+    private final TriggerWrapper[][] wheels = new TriggerWrapper[LEVELS][WHEEL_SIZE];
+
+    /** 各层非空槽位的位图 */
+    private final long[] occupied = new long[LEVELS];
+
+    private final TreeSet<TriggerWrapper> ready = new TreeSet<TriggerWrapper>(new RAMJobStore.TriggerWrapperComparator());
+
+    private final TreeSet<TriggerWrapper> overflow = new TreeSet<TriggerWrapper>(new RAMJobStore.TriggerWrapperComparator());
+
+    /** 游标，时间轮中的触发器刻度都大于游标 */
+    private long cursor;
+
+    private int size;
+
+    TimingWheelTriggerIndex() {
+        this(1L);
+    }
+
+    TimingWheelTriggerIndex(long tickMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick millis must be larger than 0");
+        }
+        this.tickMillis = tickMillis;
+        this.cursor = System.currentTimeMillis() / tickMillis;
+    }
+
+    public boolean add(TriggerWrapper tw) {
+        if (tw.wheelLevel != NOT_INDEXED) {
+            return false;
+        }
+        tw.snapshotSchedule();
+        place(tw);
+        size++;
+        return true;
+    }
+
+    public void addAll(Collection<TriggerWrapper> tws) {
+        for (TriggerWrapper tw : tws) {
+            add(tw);
+        }
+    }
+
+    public boolean remove(TriggerWrapper tw) {
+        int level = tw.wheelLevel;
+        if (level == NOT_INDEXED) {
+            return false;
+        }
+
+        if (level == IN_READY) {
+            ready.remove(tw);
+        } else if (level == IN_OVERFLOW) {
+            overflow.remove(tw);
+        } else {
+            unlink(tw);
+        }
+        tw.wheelLevel = NOT_INDEXED;
+        size--;
+        return true;
+    }
+
+    public TriggerWrapper pollFirst() {
+        while (size > 0) {
+            TriggerWrapper tw = ready.pollFirst();
+            if (tw != null) {
+                tw.wheelLevel = NOT_INDEXED;
+                size--;
+                return tw;
+            }
+
+            if (!advance()) {
+                // 时间轮为空，从溢出集合中取
+                TriggerWrapper first = overflow.first();
+                long tick = tickOf(first);
+                if (tick == Long.MAX_VALUE) {
+                    overflow.pollFirst();
+                    first.wheelLevel = NOT_INDEXED;
+                    size--;
+                    return first;
+                }
+                cursor = tick;
+                while (!overflow.isEmpty()) {
+                    TriggerWrapper next = overflow.first();
+                    if (levelOf(tickOf(next)) >= LEVELS) {
+                        break;
+                    }
+                    overflow.pollFirst();
+                    place(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** 将游标推进到最低层最早的非空槽位，并将槽位中的触发器重新放置；时间轮为空时返回false */
+    private boolean advance() {
+        for (int level = 0; level < LEVELS; level++) {
+            long bits = occupied[level];
+            if (bits == 0L) {
+                continue;
+            }
+
+            int slot = Long.numberOfTrailingZeros(bits);
+            int shift = level * WHEEL_BITS;
+            long high = (cursor >>> (shift + WHEEL_BITS)) << (shift + WHEEL_BITS);
+            cursor = high | ((long) slot << shift);
+
+            TriggerWrapper tw = wheels[level][slot];
+            wheels[level][slot] = null;
+            occupied[level] &= ~(1L << slot);
+            while (tw != null) {
+                TriggerWrapper next = tw.wheelNext;
+                tw.wheelPrev = null;
+                tw.wheelNext = null;
+                place(tw);
+                tw = next;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void place(TriggerWrapper tw) {
+        long tick = tickOf(tw);
+        if (tick <= cursor) {
+            ready.add(tw);
+            tw.wheelLevel = IN_READY;
+            return;
+        }
+
+        int level = levelOf(tick);
+        if (level >= LEVELS) {
+            overflow.add(tw);
+            tw.wheelLevel = IN_OVERFLOW;
+            return;
+        }
+
+        int slot = (int) ((tick >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+        TriggerWrapper head = wheels[level][slot];
+        tw.wheelPrev = null;
+        tw.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = tw;
+        }
+        wheels[level][slot] = tw;
+        occupied[level] |= 1L << slot;
+        tw.wheelLevel = level;
+        tw.wheelSlot = slot;
+    }
+
+    private void unlink(TriggerWrapper tw) {
+        int level = tw.wheelLevel;
+        int slot = tw.wheelSlot;
+        if (tw.wheelPrev != null) {
+            tw.wheelPrev.wheelNext = tw.wheelNext;
+        } else {
+            wheels[level][slot] = tw.wheelNext;
+            if (tw.wheelNext == null) {
+                occupied[level] &= ~(1L << slot);
+            }
+        }
+        if (tw.wheelNext != null) {
+            tw.wheelNext.wheelPrev = tw.wheelPrev;
+        }
+        tw.wheelPrev = null;
+        tw.wheelNext = null;
+    }
+
+    /** 刻度与游标最高的不同位所在的层 */
+    private int levelOf(long tick) {
+        return (63 - Long.numberOfLeadingZeros(tick ^ cursor)) / WHEEL_BITS;
+    }
+
+    /** 触发器的刻度，不再触发的触发器排在最后 */
+    private long tickOf(TriggerWrapper tw) {
+        long nft = tw.indexedFireTime;
+        return nft == OperableTrigger.NO_FIRE_TIME ? Long.MAX_VALUE : nft / tickMillis;
+    }
+}
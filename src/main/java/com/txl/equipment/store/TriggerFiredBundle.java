@@ -0,0 +1,80 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.calendar.Calendar;
+import com.txl.equipment.job.JobDetail;
+import com.txl.equipment.trigger.OperableTrigger;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 10:05
+ * 触发器触发的数据包
+ * 1. 由作业存储在触发器触发时生成，包含执行作业任务所需的全部数据
+ */
+public class TriggerFiredBundle implements Serializable {
+
+    private static final long serialVersionUID = -6414106108306999816L;
+
+    /** 作业任务描述 */
+    private final JobDetail job;
+    /** 触发的触发器 */
+    private final OperableTrigger trigger;
+    /** 触发器关联的日历 */
+    private final Calendar cal;
+    /** 是否为恢复执行 */
+    private final boolean jobIsRecovering;
+    /** 实际的触发时间 */
+    private final Date fireTime;
+    /** 计划的触发时间 */
+    private final Date scheduledFireTime;
+    /** 上一次的触发时间 */
+    private final Date prevFireTime;
+    /** 下一次的触发时间 */
+    private final Date nextFireTime;
+
+    public TriggerFiredBundle(JobDetail job, OperableTrigger trigger, Calendar cal,
+                              boolean jobIsRecovering, Date fireTime, Date scheduledFireTime,
+                              Date prevFireTime, Date nextFireTime) {
+        this.job = job;
+        this.trigger = trigger;
+        this.cal = cal;
+        this.jobIsRecovering = jobIsRecovering;
+        this.fireTime = fireTime;
+        this.scheduledFireTime = scheduledFireTime;
+        this.prevFireTime = prevFireTime;
+        this.nextFireTime = nextFireTime;
+    }
+
+    public JobDetail getJobDetail() {
+        return job;
+    }
+
+    public OperableTrigger getTrigger() {
+        return trigger;
+    }
+
+    public Calendar getCalendar() {
+        return cal;
+    }
+
+    public boolean isRecovering() {
+        return jobIsRecovering;
+    }
+
+    public Date getFireTime() {
+        return fireTime;
+    }
+
+    public Date getScheduledFireTime() {
+        return scheduledFireTime;
+    }
+
+    public Date getPrevFireTime() {
+        return prevFireTime;
+    }
+
+    public Date getNextFireTime() {
+        return nextFireTime;
+    }
+}
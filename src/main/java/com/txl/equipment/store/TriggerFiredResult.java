@@ -0,0 +1,30 @@
+package com.txl.equipment.store;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 10:08
+ * 触发器触发的结果
+ * 1. 触发成功时包含触发的数据包，失败时包含失败的原因
+ */
+public class TriggerFiredResult {
+
+    /** 触发的数据包 */
+    private TriggerFiredBundle triggerFiredBundle;
+    /** 触发失败的原因 */
+    private Exception exception;
+
+    public TriggerFiredResult(TriggerFiredBundle triggerFiredBundle) {
+        this.triggerFiredBundle = triggerFiredBundle;
+    }
+
+    public TriggerFiredResult(Exception exception) {
+        this.exception = exception;
+    }
+
+    public TriggerFiredBundle getTriggerFiredBundle() {
+        return triggerFiredBundle;
+    }
+
+    public Exception getException() {
+        return exception;
+    }
+}
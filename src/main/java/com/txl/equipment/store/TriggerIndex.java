@@ -0,0 +1,29 @@
+package com.txl.equipment.store;
+
+import java.util.Collection;
+
+/**
+ * Created by TangXiangLin on 2023-03-01 09:40
+ * 等待触发的触发器索引
+ * 1. 按触发器的下一次触发时间、优先级、唯一标识排序，调度线程从中依次取出最早触发的触发器。
+ * 2. 索引中的触发器不允许修改下一次触发时间及优先级，修改前必须先移出。
+ * 3. 实现不要求线程安全，调用方需持有存储锁。
+ */
+interface TriggerIndex {
+
+    /** 加入触发器，已在索引中时返回false */
+    boolean add(TriggerWrapper tw);
+
+    /** 批量加入触发器 */
+    void addAll(Collection<TriggerWrapper> tws);
+
+    /** 移出触发器，不在索引中时返回false */
+    boolean remove(TriggerWrapper tw);
+
+    /** 取出最早触发的触发器，索引为空时返回null */
+    TriggerWrapper pollFirst();
+
+    boolean isEmpty();
+
+    int size();
+}
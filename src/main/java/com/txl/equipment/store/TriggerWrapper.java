@@ -0,0 +1,140 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.TriggerKey;
+
+/**
+ * Created by TangXiangLin on 2023-02-27 10:20
+ * 内存作业存储中触发器的包装，记录触发器在存储中的状态
+ * 1. 存储为每个触发器分配内部编号，并记录所属作业任务的内部编号。
+ * 2. 加入等待触发的索引时记录下一次触发时间及优先级，索引排序时不需要访问触发器。
+ * 3. 存储通过包装访问触发器：getTrigger获取的触发器修改后调用writeBack写回；
+ *    触发器保存在堆外时(OffHeapTriggerWrapper)，getTrigger每次物化新的触发器。
+ */
+class TriggerWrapper {
+
+    static final int STATE_WAITING = 0;
+
+    static final int STATE_ACQUIRED = 1;
+
+    static final int STATE_EXECUTING = 2;
+
+    static final int STATE_COMPLETE = 3;
+
+    static final int STATE_PAUSED = 4;
+
+    static final int STATE_BLOCKED = 5;
+
+    static final int STATE_PAUSED_BLOCKED = 6;
+
+    static final int STATE_ERROR = 7;
+
+    /** 触发器的唯一标识 */
+    final TriggerKey key;
+
+    /** 触发器关联的作业任务标识 */
+    final JobKey jobKey;
+
+    /** 存储分配的内部编号 */
+    final long id;
+
+    /** 所属作业任务的内部编号 */
+    final long jobId;
+
+    /** 触发器，保存在堆外时为null */
+    private final OperableTrigger trigger;
+
+    /** 触发器在存储中的状态，写操作在存储锁内进行，读操作可以不加锁 */
+    volatile int state = STATE_WAITING;
+
+    /** 加入索引时的下一次触发时间及优先级，仅由索引在存储锁内维护 */
+    long indexedFireTime;
+
+    int indexedPriority;
+
+    /** 是否在OrderedTriggerIndex中，仅由该索引在存储锁内维护 */
+    boolean inOrderedIndex;
+
+    /** 触发器在时间轮中的层、槽位及链表指针，仅由TimingWheelTriggerIndex在存储锁内维护 */
+    int wheelLevel = TimingWheelTriggerIndex.NOT_INDEXED;
+
+    int wheelSlot;
+
+    TriggerWrapper wheelPrev;
+
+    TriggerWrapper wheelNext;
+
+    TriggerWrapper(OperableTrigger trigger, long id, long jobId) {
+        if(trigger == null)
+            throw new IllegalArgumentException("Trigger cannot be null!");
+        this.trigger = trigger;
+        this.key = trigger.getKey();
+        this.jobKey = trigger.getJobKey();
+        this.id = id;
+        this.jobId = jobId;
+    }
+
+    /** 供不在堆内保存触发器的子类使用 */
+    protected TriggerWrapper(TriggerKey key, JobKey jobKey, long id, long jobId) {
+        this.trigger = null;
+        this.key = key;
+        this.jobKey = jobKey;
+        this.id = id;
+        this.jobId = jobId;
+    }
+
+    /** 记录下一次触发时间及优先级，加入索引前调用 */
+    void snapshotSchedule() {
+        indexedFireTime = getNextFireTimeMillis();
+        indexedPriority = getPriority();
+    }
+
+    /** 获取存储中的触发器，修改后需调用writeBack */
+    OperableTrigger getTrigger() {
+        return trigger;
+    }
+
+    /** 将getTrigger获取的触发器的修改写回存储 */
+    void writeBack(OperableTrigger trigger) {
+    }
+
+    /** 获取触发器的副本，可以交给存储外部使用 */
+    OperableTrigger copyTrigger() {
+        return (OperableTrigger) trigger.clone();
+    }
+
+    long getNextFireTimeMillis() {
+        return trigger.getNextFireTimeMillis();
+    }
+
+    int getPriority() {
+        return trigger.getPriority();
+    }
+
+    int getMisfireInstruction() {
+        return trigger.getMisfireInstruction();
+    }
+
+    String getCalendarName() {
+        return trigger.getCalendarName();
+    }
+
+    void setFireInstanceId(String fireInstanceId) {
+        trigger.setFireInstanceId(fireInstanceId);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof TriggerWrapper) {
+            TriggerWrapper tw = (TriggerWrapper) obj;
+            return tw.key.equals(this.key);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+}
@@ -0,0 +1,391 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.exception.JobPersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Created by TangXiangLin on 2023-03-10 09:30
+ * 作业存储的预写日志
+ * 1. 日志由编号递增的分段文件(wal-编号.log)组成，只追加不修改；每条记录为 [长度][CRC32][内容]，快照文件使用同样的格式。
+ * 2. 写入方在存储锁内调用append，记录先进入内存缓冲区并得到日志位置；写线程把缓冲区整批写入文件后只调用一次fsync，
+ *    再唤醒等待的写入方(组提交)，并发的修改越多，每次fsync提交的记录越多。
+ * 3. syncOnCommit为false时写入方不等待，写线程每隔flushIntervalMillis写入并fsync一次，崩溃时最多丢失一个周期的记录。
+ * 4. 生成快照前调用rollover切换到新的分段，快照完成后由存储删除之前的分段。
+ */
+final class WriteAheadLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final String SEGMENT_PREFIX = "wal-";
+
+    static final String SEGMENT_SUFFIX = ".log";
+
+    /** 记录头：长度及CRC32 */
+    static final int HEADER_SIZE = 8;
+
+    /** 单条记录的最大长度，读取时超过该值按损坏处理 */
+    static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+    private final File directory;
+
+    private final boolean syncOnCommit;
+
+    private final long flushIntervalMillis;
+
+    private final Thread writer;
+
+    // 以下字段由this保护
+    /** 等待写入的记录，写线程取走后与spare交换 */
+    private byte[] pending = new byte[64 * 1024];
+
+    private int pendingSize;
+
+    private byte[] spare = new byte[64 * 1024];
+
+    /** 已追加的字节数(跨分段累计)，即最后一条记录结束的日志位置 */
+    private long appendedPosition;
+
+    /** 已写入文件并fsync的日志位置 */
+    private long durablePosition;
+
+    private IOException failure;
+
+    private boolean closed;
+
+    private final CRC32 crc = new CRC32();
+
+    // 以下字段由ioLock保护
+    private final Object ioLock = new Object();
+
+    private FileChannel channel;
+
+    private long segment;
+
+    /** 当前分段的字节数 */
+    private volatile long segmentSize;
+
+    WriteAheadLog(File directory, long firstSegment, boolean syncOnCommit, long flushIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.syncOnCommit = syncOnCommit;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.segment = firstSegment;
+        this.channel = openSegment(firstSegment);
+        this.writer = new Thread(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        }, "JobStore_WalWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** 追加一条记录，返回记录结束的日志位置，可据此等待记录落盘 */
+    long append(byte[] payload, int length) throws IOException {
+        synchronized (this) {
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+            if (closed) {
+                throw new IOException("Write-ahead log is closed");
+            }
+            int required = pendingSize + HEADER_SIZE + length;
+            if (required > pending.length) {
+                byte[] grown = new byte[Math.max(required, pending.length * 2)];
+                System.arraycopy(pending, 0, grown, 0, pendingSize);
+                pending = grown;
+            }
+            crc.reset();
+            crc.update(payload, 0, length);
+            putInt(pending, pendingSize, length);
+            putInt(pending, pendingSize + 4, (int) crc.getValue());
+            System.arraycopy(payload, 0, pending, pendingSize + HEADER_SIZE, length);
+            boolean wasEmpty = pendingSize == 0;
+            pendingSize = required;
+            appendedPosition += HEADER_SIZE + length;
+            if (wasEmpty) {
+                notifyAll();
+            }
+            return appendedPosition;
+        }
+    }
+
+    /** 等待给定位置之前的记录落盘 */
+    void await(long position) throws IOException {
+        synchronized (this) {
+            boolean interrupted = false;
+            while (durablePosition < position && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durablePosition < position) {
+                throw new IOException("Write-ahead log failed", failure);
+            }
+        }
+    }
+
+    /** 最后一条记录结束的日志位置 */
+    synchronized long appendedPosition() {
+        return appendedPosition;
+    }
+
+    /** 当前分段的字节数(不含未写入的记录) */
+    long segmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * 切换到新的分段，返回新分段的编号
+     * 1. 调用方需持有存储锁，保证切换期间没有新的记录；已追加的记录先全部落盘。
+     */
+    long rollover() throws IOException {
+        await(appendedPosition());
+        synchronized (ioLock) {
+            channel.force(true);
+            channel.close();
+            segment++;
+            channel = openSegment(segment);
+            segmentSize = 0;
+            return segment;
+        }
+    }
+
+    /** 停止写线程，已追加的记录全部落盘后关闭文件 */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close write-ahead log segment " + segment, e);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            byte[] batch;
+            int batchSize;
+            long batchEnd;
+            boolean exit;
+            synchronized (this) {
+                while (pendingSize == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+                if (!syncOnCommit && !closed) {
+                    // 不等待提交时按周期攒批
+                    try {
+                        wait(flushIntervalMillis);
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+                batch = pending;
+                batchSize = pendingSize;
+                batchEnd = appendedPosition;
+                pending = spare;
+                pendingSize = 0;
+                exit = closed;
+            }
+
+            try {
+                if (batchSize > 0) {
+                    synchronized (ioLock) {
+                        ByteBuffer buf = ByteBuffer.wrap(batch, 0, batchSize);
+                        while (buf.hasRemaining()) {
+                            channel.write(buf);
+                        }
+                        channel.force(false);
+                        segmentSize += batchSize;
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Failed to write the write-ahead log, store changes are no longer persisted.", e);
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                spare = batch;
+                durablePosition = batchEnd;
+                notifyAll();
+            }
+            if (exit) {
+                return;
+            }
+        }
+    }
+
+    /** 新建分段，目录项落盘后才写入记录，之后删除旧分段时不会出现新分段丢失而旧分段已删除 */
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentFile(directory, number).toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            syncDirectory(directory);
+        } catch (IOException e) {
+            segmentChannel.close();
+            throw e;
+        }
+        return segmentChannel;
+    }
+
+    /**
+     * 将目录中新建、改名的文件项落盘
+     * 1. 文件的force只保证内容，目录项需要单独对目录force，否则崩溃后新建或改名可能丢失而删除已生效。
+     * 2. 不能以读方式打开目录的平台(Windows)跳过，由文件系统保证元数据的顺序。
+     */
+    static void syncDirectory(File directory) throws IOException {
+        FileChannel dirChannel;
+        try {
+            dirChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            dirChannel.force(true);
+        } finally {
+            dirChannel.close();
+        }
+    }
+
+    static File segmentFile(File directory, long number) {
+        return new File(directory, String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /** 目录中日志分段的编号，按升序排列 */
+    static List<Long> listSegments(File directory) {
+        return listNumbered(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    static List<Long> listNumbered(File directory, String prefix, String suffix) {
+        List<Long> numbers = new ArrayList<Long>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                    } catch (NumberFormatException ignore) {
+                    }
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /** 按记录格式写出一条记录 */
+    static void writeRecord(OutputStream out, byte[] payload, int length, CRC32 crc) throws IOException {
+        crc.reset();
+        crc.update(payload, 0, length);
+        byte[] header = new byte[HEADER_SIZE];
+        putInt(header, 0, length);
+        putInt(header, 4, (int) crc.getValue());
+        out.write(header);
+        out.write(payload, 0, length);
+    }
+
+    /** 读取记录的回调 */
+    interface RecordHandler {
+        void handle(ByteBuffer payload) throws JobPersistenceException;
+    }
+
+    /**
+     * 依次读取文件中的记录，返回最后一条完整记录结束的位置
+     * 1. 长度越界、CRC不一致或文件在记录中间结束时停止读取，调用方据返回值判断文件末尾是否有不完整的记录。
+     */
+    static long readRecords(File file, RecordHandler handler) throws IOException, JobPersistenceException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            CRC32 crc = new CRC32();
+            byte[] payload = new byte[256];
+            long position = 0;
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    return position;
+                }
+                if (length < 0 || length > MAX_RECORD_LENGTH) {
+                    return position;
+                }
+                if (length > payload.length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                try {
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    return position;
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return position;
+                }
+                handler.handle(ByteBuffer.wrap(payload, 0, length));
+                position += HEADER_SIZE + length;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /** 截断文件末尾不完整的记录 */
+    static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+            raf.getFD().sync();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void putInt(byte[] buf, int off, int v) {
+        buf[off] = (byte) (v >>> 24);
+        buf[off + 1] = (byte) (v >>> 16);
+        buf[off + 2] = (byte) (v >>> 8);
+        buf[off + 3] = (byte) v;
+    }
+}
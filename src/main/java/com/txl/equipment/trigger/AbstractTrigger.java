@@ -24,6 +24,12 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
 
     private static final long serialVersionUID = -3904243490805975570L;
 
+    /** 向天再借100年　*/
+    protected static final int YEAR_TO_GIVEUP_SCHEDULING_AT = java.util.Calendar.getInstance().get(java.util.Calendar.YEAR) + 100;
+
+    /** 放弃调度的时间点(毫秒)，即YEAR_TO_GIVEUP_SCHEDULING_AT的下一年年初，循环中不再逐次创建Calendar */
+    protected static final long GIVEUP_SCHEDULING_AT_MILLIS = giveupSchedulingAtMillis();
+
     /** 触发器名称 */
     protected String name;
 
@@ -61,6 +67,9 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
     /** 触发器的唯一标识 */
     private transient TriggerKey key = null;
 
+    /** 作业任务的唯一标识，修改作业任务名称或组时清空 */
+    private transient JobKey jobKey = null;
+
     // 1. Constructors
     public AbstractTrigger() {
     }
@@ -114,6 +123,7 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
         }
 
         this.jobName = jobName;
+        this.jobKey = null;
     }
 
     public void setJobGroup(String jobGroup) {
@@ -127,6 +137,7 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
         }
 
         this.jobGroup = jobGroup;
+        this.jobKey = null;
     }
 
     public void setVolatility(boolean volatility) {
@@ -140,12 +151,13 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
     public void setKey(TriggerKey key) {
         setName(key.getName());
         setGroup(key.getGroup());
-        this.key = key;
+        this.key = TriggerKey.intern(key);
     }
 
     public void setJobKey(JobKey key) {
         setJobName(key.getName());
         setJobGroup(key.getGroup());
+        this.jobKey = JobKey.intern(key);
     }
 
     public void setDescription(String description) {
@@ -231,17 +243,20 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
         if(key == null) {
             if(getName() == null)
                 return null;
-            key = new TriggerKey(getName(), getGroup());
+            key = TriggerKey.triggerKey(getName(), getGroup());
         }
 
         return key;
     }
 
     public JobKey getJobKey() {
-        if(getJobName() == null)
-            return null;
+        if(jobKey == null) {
+            if(getJobName() == null)
+                return null;
+            jobKey = JobKey.jobKey(getJobName(), getJobGroup());
+        }
 
-        return new JobKey(getJobName(), getJobGroup());
+        return jobKey;
     }
 
     public String getFullJobName() {
@@ -327,6 +342,47 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
 
 
     // 5。General method
+    /** 获取触发器下一次的触发时间(毫秒)，没有时返回NO_FIRE_TIME */
+    public long getNextFireTimeMillis() {
+        Date nft = getNextFireTime();
+        return nft == null ? NO_FIRE_TIME : nft.getTime();
+    }
+
+    /** 返回给定时间(毫秒)之后触发器将激发的下一个时间(毫秒)，不再触发时返回NO_FIRE_TIME */
+    public long getFireTimeAfterMillis(long afterTime) {
+        Date ft = getFireTimeAfter(new Date(afterTime));
+        return ft == null ? NO_FIRE_TIME : ft.getTime();
+    }
+
+    private static long giveupSchedulingAtMillis() {
+        java.util.Calendar c = java.util.Calendar.getInstance();
+        c.clear();
+        c.set(YEAR_TO_GIVEUP_SCHEDULING_AT + 1, java.util.Calendar.JANUARY, 1);
+        return c.getTimeInMillis();
+    }
+
+    /**
+     * 跳过日历排除的时间，超过放弃调度的时间点时返回NO_FIRE_TIME
+     * 1. 触发时间被排除时，由日历给出下一个被包含的时间，直接定位到该时间及之后的第一个触发时间，
+     *    每段被排除的时间只需计算一次，不再按重复间隔逐次尝试。
+     * 2. 日历给不出更晚的时间时，退化为取下一个触发时间。
+     */
+    protected long skipExcluded(long fireTime, Calendar calendar) {
+        while (fireTime != NO_FIRE_TIME && calendar != null
+                && !calendar.isTimeIncluded(fireTime)) {
+            long included = calendar.getNextIncludedTime(fireTime);
+            if (included <= 0) {
+                return NO_FIRE_TIME;
+            }
+            fireTime = included > fireTime ? getFireTimeAfterMillis(included - 1) : getFireTimeAfterMillis(fireTime);
+            //avoid infinite loop
+            if (fireTime >= GIVEUP_SCHEDULING_AT_MILLIS) {
+                return NO_FIRE_TIME;
+            }
+        }
+        return fireTime;
+    }
+
     /** 获取触发器的构造者 */
     public TriggerBuilder<? extends Trigger> getTriggerBuilder() {
         return TriggerBuilder.newTrigger()
@@ -409,9 +465,10 @@ public abstract class AbstractTrigger<T extends Trigger>  implements OperableTri
         try {
             copy = (AbstractTrigger<?>) super.clone();
 
-            // Shallow copy the jobDataMap.  Note that this means that if a user
-            // modifies a value object in this map from the cloned Trigger
-            // they will also be modifying this Trigger.
+            // Copy-on-write copy of the jobDataMap: both maps share storage
+            // until either side is modified.  Value objects are still shared,
+            // so if a user modifies a value object in this map from the cloned
+            // Trigger they will also be modifying this Trigger.
             if (jobDataMap != null) {
                 copy.jobDataMap = (JobDataMap)jobDataMap.clone();
             }
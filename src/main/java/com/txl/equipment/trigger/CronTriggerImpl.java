@@ -0,0 +1,305 @@
+package com.txl.equipment.trigger;
+
+import com.txl.equipment.calendar.Calendar;
+import com.txl.equipment.date.CronExpression;
+import com.txl.equipment.date.CronExpressionCache;
+import com.txl.equipment.exception.LinkageIllegalArgumentException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.schedule.CronScheduleBuilder;
+import com.txl.equipment.schedule.ScheduleBuilder;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Created by TangXiangLin on 2023-03-03 10:20
+ * Cron触发器
+ * 1. 按Cron表达式触发作业任务，常用于按班次定义的设备联动
+ * 2. 下一次触发时间由编译后的Cron表达式通过位扫描计算
+ */
+public class CronTriggerImpl extends AbstractTrigger<CronTrigger> implements CronTrigger, CoreTrigger {
+    protected static final long serialVersionUID = -8644953146451592766L;
+    /** Cron表达式 */
+    private CronExpression cronEx = null;
+    /** 触发器的生命周期 - 开始时间 */
+    private Date startTime = null;
+    /** 触发器的生命周期 - 结束时间 */
+    private Date endTime = null;
+    /** 触发器下一次触发的时间 */
+    private Date nextFireTime = null;
+    /** 触发器上一次触发的时间 */
+    private Date previousFireTime = null;
+    /** 时区 */
+    private transient TimeZone timeZone = null;
+
+    // 1. Constructor
+    public CronTriggerImpl() {
+        super();
+        setStartTime(new Date());
+        setTimeZone(TimeZone.getDefault());
+    }
+
+    // 2. Implements
+    /** 设置Cron表达式，相同的表达式和时区共享缓存中的编译结果 */
+    public void setCronExpression(String cronExpression) throws ParseException {
+        TimeZone origTz = getTimeZone();
+        this.cronEx = CronExpressionCache.get(cronExpression, origTz);
+    }
+
+    /** 设置Cron表达式 */
+    public void setCronExpression(CronExpression cronExpression) {
+        this.cronEx = cronExpression;
+        this.timeZone = null;
+    }
+
+    /** 获取Cron表达式 */
+    public String getCronExpression() {
+        return cronEx == null ? null : cronEx.getCronExpression();
+    }
+
+    /** 获取编译后的Cron表达式 */
+    public CronExpression getCronExpressionObject() {
+        return cronEx;
+    }
+
+    /** 获取时区 */
+    public TimeZone getTimeZone() {
+        if (cronEx != null) {
+            return cronEx.getTimeZone();
+        }
+        if (timeZone == null) {
+            timeZone = TimeZone.getDefault();
+        }
+        return timeZone;
+    }
+
+    /** 设置时区 */
+    public void setTimeZone(TimeZone timeZone) {
+        if (cronEx != null) {
+            cronEx = CronExpressionCache.withTimeZone(cronEx, timeZone);
+        } else {
+            this.timeZone = timeZone;
+        }
+    }
+
+    /** 获取触发器的生命周期 - 开始时间 */
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    /** 设置触发器的生命周期 - 开始时间，精确到秒 */
+    public void setStartTime(Date startTime) {
+        if (startTime == null) {
+            throw new LinkageIllegalArgumentException("Start time cannot be null");
+        }
+        Date eTime = getEndTime();
+        if (eTime != null && eTime.before(startTime)) {
+            throw new LinkageIllegalArgumentException(
+                    "End time cannot be before start time");
+        }
+        long millis = startTime.getTime();
+        this.startTime = new Date(millis - Math.floorMod(millis, 1000L));
+    }
+
+    /** 获取触发器的生命周期 - 结束时间 */
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    /** 设置触发器的生命周期 - 结束时间 */
+    public void setEndTime(Date endTime) {
+        Date sTime = getStartTime();
+        if (sTime != null && endTime != null && sTime.after(endTime)) {
+            throw new LinkageIllegalArgumentException(
+                    "End time cannot be before start time");
+        }
+        this.endTime = endTime;
+    }
+
+    /** 获取触发器下一次触发的时间 */
+    public Date getNextFireTime() {
+        return nextFireTime;
+    }
+
+    /** 获取触发器下一次触发的时间(毫秒) */
+    public long getNextFireTimeMillis() {
+        return nextFireTime == null ? NO_FIRE_TIME : nextFireTime.getTime();
+    }
+
+    /** 设置触发器下一次触发的时间 */
+    public void setNextFireTime(Date nextFireTime) {
+        this.nextFireTime = nextFireTime;
+    }
+
+    /** 获取触发器上一次触发的时间 */
+    public Date getPreviousFireTime() {
+        return previousFireTime;
+    }
+
+    /** 设置触发器上一次触发的时间 */
+    public void setPreviousFireTime(Date previousFireTime) {
+        this.previousFireTime = previousFireTime;
+    }
+
+    /** 返回给定时间之后触发器将激发的下一个时间。如果触发器在给定时间后不会触发，则返回null。 */
+    public Date getFireTimeAfter(Date afterTime) {
+        long afterMillis = (afterTime == null) ? System.currentTimeMillis() : afterTime.getTime();
+        long time = getFireTimeAfterMillis(afterMillis);
+        return time == NO_FIRE_TIME ? null : new Date(time);
+    }
+
+    /** 返回给定时间(毫秒)之后触发器将激发的下一个时间(毫秒)，不再触发时返回NO_FIRE_TIME */
+    public long getFireTimeAfterMillis(long afterMillis) {
+        if (cronEx == null) {
+            return NO_FIRE_TIME;
+        }
+        if (startTime.getTime() > afterMillis) {
+            afterMillis = startTime.getTime() - 1000L;
+        }
+        if (endTime != null && afterMillis >= endTime.getTime()) {
+            return NO_FIRE_TIME;
+        }
+        long pot = cronEx.getTimeAfter(afterMillis);
+        if (pot < 0 || (endTime != null && pot > endTime.getTime())) {
+            return NO_FIRE_TIME;
+        }
+        return pot;
+    }
+
+    /** 返回给定时间之前触发器最近一次激发的时间。 */
+    public Date getFireTimeBefore(Date end) {
+        if (cronEx == null) {
+            return null;
+        }
+        Date before = cronEx.getTimeBefore(end);
+        if (before != null && before.before(getStartTime())) {
+            return null;
+        }
+        return before;
+    }
+
+    /** 返回触发器将激发的最后时间，没有结束时间且表达式不限定年份时返回null。 */
+    public Date getFinalFireTime() {
+        if (cronEx == null) {
+            return null;
+        }
+        Date resultTime;
+        if (getEndTime() != null) {
+            resultTime = cronEx.getTimeBefore(new Date(getEndTime().getTime() + 1L));
+        } else {
+            resultTime = cronEx.getFinalFireTime();
+        }
+        if (resultTime != null && getStartTime() != null && resultTime.before(getStartTime())) {
+            return null;
+        }
+        return resultTime;
+    }
+
+    /** 获取表达式的摘要 */
+    public String getExpressionSummary() {
+        return cronEx == null ? null : cronEx.getExpressionSummary();
+    }
+
+    /** 验证触发器适配策略 */
+    protected boolean validateMisfireInstruction(int misfireInstruction) {
+        return misfireInstruction >= MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY
+                && misfireInstruction <= MISFIRE_INSTRUCTION_DO_NOTHING;
+    }
+
+    /** 调度器决定执行关联的作业时调用，并通知触发器的下一次触发（如果有）提供更新 */
+    public void triggered(Calendar calendar) {
+        previousFireTime = nextFireTime;
+        long after = (nextFireTime == null) ? System.currentTimeMillis() : nextFireTime.getTime();
+        nextFireTime = toDate(skipExcluded(getFireTimeAfterMillis(after), calendar));
+    }
+
+    /** 由调度程序在触发器首次添加到调度程序时调用，以便使触发器基于任何相关日历计算其第一次激发时间 */
+    public Date computeFirstFireTime(Calendar calendar) {
+        nextFireTime = toDate(skipExcluded(getFireTimeAfterMillis(getStartTime().getTime() - 1000L), calendar));
+        return nextFireTime;
+    }
+
+    /** 触发器是否再次触发 */
+    public boolean mayFireAgain() {
+        return (getNextFireTime() != null);
+    }
+
+    /** 复写校验 */
+    public void validate() throws SchedulerException {
+        super.validate();
+        if (cronEx == null) {
+            throw new SchedulerException("Cron expression cannot be null.");
+        }
+    }
+
+    /** 扩展点 */
+    public boolean hasAdditionalProperties() {
+        return false;
+    }
+
+    /** 根据日历关联触发器，并更新触发器的更新状态（应更新状态，以便在给定日历的新设置的情况下，下次触发时间是合适的）*/
+    public void updateWithNewCalendar(Calendar calendar, long misfireThreshold) {
+        nextFireTime = getFireTimeAfter(previousFireTime);
+        if (nextFireTime == null || calendar == null) {
+            return;
+        }
+        Date now = new Date();
+        while (nextFireTime != null && !calendar.isTimeIncluded(nextFireTime.getTime())) {
+            nextFireTime = getFireTimeAfter(nextFireTime);
+            if (nextFireTime == null) break;
+            if (nextFireTime.getTime() >= GIVEUP_SCHEDULING_AT_MILLIS) {
+                nextFireTime = null;
+            }
+            if (nextFireTime != null && nextFireTime.before(now)) {
+                long diff = now.getTime() - nextFireTime.getTime();
+                if (diff >= misfireThreshold) {
+                    nextFireTime = getFireTimeAfter(nextFireTime);
+                }
+            }
+        }
+    }
+
+    /** 更新触发器的状态 */
+    public void updateAfterMisfire(Calendar cal) {
+        int instr = getMisfireInstruction();
+
+        if (instr == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY)
+            return;
+
+        if (instr == MISFIRE_INSTRUCTION_SMART_POLICY) {
+            instr = MISFIRE_INSTRUCTION_FIRE_ONCE_NOW;
+        }
+
+        if (instr == MISFIRE_INSTRUCTION_DO_NOTHING) {
+            setNextFireTime(toDate(skipExcluded(getFireTimeAfterMillis(System.currentTimeMillis()), cal)));
+        } else if (instr == MISFIRE_INSTRUCTION_FIRE_ONCE_NOW) {
+            setNextFireTime(new Date());
+        }
+    }
+
+    private static Date toDate(long millis) {
+        return millis == NO_FIRE_TIME ? null : new Date(millis);
+    }
+
+    /** 获取Cron调度器 */
+    public ScheduleBuilder<CronTrigger> getScheduleBuilder() {
+        CronScheduleBuilder cb = CronScheduleBuilder.cronSchedule(cronEx)
+                .inTimeZone(getTimeZone());
+        switch (getMisfireInstruction()) {
+            case MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY : cb.withMisfireHandlingInstructionIgnoreMisfires();
+                break;
+            case MISFIRE_INSTRUCTION_DO_NOTHING : cb.withMisfireHandlingInstructionDoNothing();
+                break;
+            case MISFIRE_INSTRUCTION_FIRE_ONCE_NOW : cb.withMisfireHandlingInstructionFireAndProceed();
+                break;
+        }
+        return cb;
+    }
+
+    /** 获取触发器的构造者 */
+    @SuppressWarnings("unchecked")
+    public TriggerBuilder<CronTrigger> getTriggerBuilder() {
+        return (TriggerBuilder<CronTrigger>) super.getTriggerBuilder();
+    }
+}
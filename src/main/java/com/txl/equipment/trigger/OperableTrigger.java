@@ -2,6 +2,7 @@ package com.txl.equipment.trigger;
 
 import com.txl.equipment.calendar.Calendar;
 import com.txl.equipment.exception.JobExecutionException;
+import com.txl.equipment.exception.SchedulerException;
 import com.txl.equipment.job.JobExecutionContext;
 
 import java.util.Date;
@@ -12,6 +13,9 @@ import java.util.Date;
  */
 public interface OperableTrigger extends MutableTrigger {
 
+    /** 没有下一次触发时间 */
+    long NO_FIRE_TIME = -1L;
+
     /** 下一次的触发器的更新 */
     void triggered(Calendar calendar);
 
@@ -19,4 +23,31 @@ public interface OperableTrigger extends MutableTrigger {
     Date computeFirstFireTime(Calendar calendar);
 
     CompletedExecutionInstruction executionComplete(JobExecutionContext context, JobExecutionException result);
+
+    /** 触发器误触发后，根据适配策略更新触发器的状态 */
+    void updateAfterMisfire(Calendar cal);
+
+    /** 关联的日历发生变更后，更新触发器的状态 */
+    void updateWithNewCalendar(Calendar cal, long misfireThreshold);
+
+    /** 触发器指令校验 */
+    void validate() throws SchedulerException;
+
+    /** 设置触发器实例id, 由作业存储在触发时分配 */
+    void setFireInstanceId(String id);
+
+    /** 获取触发器实例id */
+    String getFireInstanceId();
+
+    /** 设置触发器下一次的触发时间 */
+    void setNextFireTime(Date nextFireTime);
+
+    /** 设置触发器上一次的触发时间 */
+    void setPreviousFireTime(Date previousFireTime);
+
+    /** 获取触发器下一次的触发时间(毫秒)，没有时返回NO_FIRE_TIME */
+    long getNextFireTimeMillis();
+
+    /** 返回给定时间(毫秒)之后触发器将激发的下一个时间(毫秒)，不再触发时返回NO_FIRE_TIME */
+    long getFireTimeAfterMillis(long afterTime);
 }
@@ -6,7 +6,9 @@ import com.txl.equipment.exception.SchedulerException;
 import com.txl.equipment.schedule.ScheduleBuilder;
 import com.txl.equipment.schedule.SimpleScheduleBuilder;
 
-
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 import java.util.Date;
 
 /**
@@ -17,16 +19,14 @@ import java.util.Date;
  */
 public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements SimpleTrigger,CoreTrigger{
     protected static final long serialVersionUID = -3735980074222850397L;
-    /** 向天再借100年　*/
-    protected static final int YEAR_TO_GIVEUP_SCHEDULING_AT = java.util.Calendar.getInstance().get(java.util.Calendar.YEAR) + 100;
     /** 触发器的生命周期 - 开始时间 */
     protected Date startTime = null;
     /** 触发器的生命周期 - 结束时间 */
     protected Date endTime = null;
-    /** 触发器下一次触发的时间 */
-    protected Date nextFireTime = null;
-    /** 触发器上一次触发的时间 */
-    protected Date previousFireTime = null;
+    /** 触发器下一次触发的时间(毫秒) */
+    protected long nextFireTimeMillis = NO_FIRE_TIME;
+    /** 触发器上一次触发的时间(毫秒) */
+    protected long previousFireTimeMillis = NO_FIRE_TIME;
     /** 重复次数 */
     protected int repeatCount = 0;
     /** 重复间隔 */
@@ -40,6 +40,34 @@ public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements
     public SimpleTriggerImpl() {
     }
 
+    /**
+     * 兼容旧的序列化格式
+     * 1. 旧版本以Date字段nextFireTime、previousFireTime保存触发时间，流中没有毫秒字段；
+     *    直接读取会得到0(即1970年初的触发时间)，这里换算为毫秒，null换算为NO_FIRE_TIME。
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        startTime = (Date) fields.get("startTime", null);
+        endTime = (Date) fields.get("endTime", null);
+        repeatCount = fields.get("repeatCount", 0);
+        repeatInterval = fields.get("repeatInterval", 0L);
+        timesTriggered = fields.get("timesTriggered", 0);
+        complete = fields.get("complete", false);
+
+        ObjectStreamClass desc = fields.getObjectStreamClass();
+        if (desc.getField("nextFireTimeMillis") == null && desc.getField("nextFireTime") != null) {
+            nextFireTimeMillis = toMillis((Date) fields.get("nextFireTime", null));
+            previousFireTimeMillis = toMillis((Date) fields.get("previousFireTime", null));
+        } else {
+            nextFireTimeMillis = fields.get("nextFireTimeMillis", NO_FIRE_TIME);
+            previousFireTimeMillis = fields.get("previousFireTimeMillis", NO_FIRE_TIME);
+        }
+    }
+
+    private static long toMillis(Date date) {
+        return date == null ? NO_FIRE_TIME : date.getTime();
+    }
+
     // 2. Implements
     /** 获取触发器的生命周期 - 开始时间 */
     public Date getStartTime() {
@@ -115,55 +143,78 @@ public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements
 
     /** 获取触发器下一次触发的时间 */
     public Date getNextFireTime() {
-        return nextFireTime;
+        return nextFireTimeMillis == NO_FIRE_TIME ? null : new Date(nextFireTimeMillis);
+    }
+
+    /** 获取触发器下一次触发的时间(毫秒)，不创建对象 */
+    public long getNextFireTimeMillis() {
+        return nextFireTimeMillis;
     }
 
     /** 设置触发器下一次触发的时间 */
     public void setNextFireTime(Date nextFireTime) {
-        this.nextFireTime = nextFireTime;
+        this.nextFireTimeMillis = nextFireTime == null ? NO_FIRE_TIME : nextFireTime.getTime();
+    }
+
+    /** 设置触发器下一次触发的时间(毫秒)，NO_FIRE_TIME表示不再触发 */
+    public void setNextFireTimeMillis(long nextFireTimeMillis) {
+        this.nextFireTimeMillis = nextFireTimeMillis;
     }
 
     /** 获取触发器上一次触发的时间 */
     public Date getPreviousFireTime() {
-        return previousFireTime;
+        return previousFireTimeMillis == NO_FIRE_TIME ? null : new Date(previousFireTimeMillis);
+    }
+
+    /** 获取触发器上一次触发的时间(毫秒)，不创建对象 */
+    public long getPreviousFireTimeMillis() {
+        return previousFireTimeMillis;
     }
 
     /** 设置触发器上一次触发的时间 */
     public void setPreviousFireTime(Date previousFireTime) {
-        this.previousFireTime = previousFireTime;
+        this.previousFireTimeMillis = previousFireTime == null ? NO_FIRE_TIME : previousFireTime.getTime();
+    }
+
+    /** 设置触发器上一次触发的时间(毫秒)，NO_FIRE_TIME表示没有触发过 */
+    public void setPreviousFireTimeMillis(long previousFireTimeMillis) {
+        this.previousFireTimeMillis = previousFireTimeMillis;
     }
 
     /** 返回给定时间之后触发器将激发的下一个时间。如果触发器在给定时间后不会触发，则返回null。 */
     public Date getFireTimeAfter(Date afterTime) {
+        long afterMillis = (afterTime == null) ? System.currentTimeMillis() : afterTime.getTime();
+        long time = getFireTimeAfterMillis(afterMillis);
+        return time == NO_FIRE_TIME ? null : new Date(time);
+    }
+
+    /** 返回给定时间(毫秒)之后触发器将激发的下一个时间(毫秒)，不再触发时返回NO_FIRE_TIME，不创建对象 */
+    public long getFireTimeAfterMillis(long afterMillis) {
         if (complete) {
-            return null;
+            return NO_FIRE_TIME;
         }
         if ((timesTriggered > repeatCount) && (repeatCount != REPEAT_INDEFINITELY)) {
-            return null;
-        }
-        if (afterTime == null) {
-            afterTime = new Date();
+            return NO_FIRE_TIME;
         }
-        if (repeatCount == 0 && afterTime.compareTo(getStartTime()) >= 0) {
-            return null;
+        long startMillis = startTime.getTime();
+        if (repeatCount == 0 && afterMillis >= startMillis) {
+            return NO_FIRE_TIME;
         }
-        long startMillis = getStartTime().getTime();
-        long afterMillis = afterTime.getTime();
-        long endMillis = (getEndTime() == null) ? Long.MAX_VALUE : getEndTime().getTime();
+        long endMillis = (endTime == null) ? Long.MAX_VALUE : endTime.getTime();
         if (endMillis <= afterMillis) {
-            return null;
+            return NO_FIRE_TIME;
         }
         if (afterMillis < startMillis) {
-            return new Date(startMillis);
+            return startMillis;
         }
         long numberOfTimesExecuted = ((afterMillis - startMillis) / repeatInterval) + 1;
         if ((numberOfTimesExecuted > repeatCount) &&
                 (repeatCount != REPEAT_INDEFINITELY)) {
-            return null;
+            return NO_FIRE_TIME;
         }
-        Date time = new Date(startMillis + (numberOfTimesExecuted * repeatInterval));
-        if (endMillis <= time.getTime()) {
-            return null;
+        long time = startMillis + (numberOfTimesExecuted * repeatInterval);
+        if (endMillis <= time) {
+            return NO_FIRE_TIME;
         }
         return time;
     }
@@ -179,10 +230,14 @@ public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements
 
     /** 时间比较 */
     public int computeNumTimesFiredBetween(Date start, Date end) {
+        return computeNumTimesFiredBetween(start.getTime(), end.getTime());
+    }
+
+    private int computeNumTimesFiredBetween(long startMillis, long endMillis) {
         if(repeatInterval < 1) {
             return 0;
         }
-        long time = end.getTime() - start.getTime();
+        long time = endMillis - startMillis;
         return (int) (time / repeatInterval);
     }
 
@@ -213,46 +268,20 @@ public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements
     /** 调度器决定执行关联的作业时调用，并通知触发器的下一次触发（如果有）提供更新 */
     public void triggered(Calendar calendar) {
         timesTriggered++;
-        previousFireTime = nextFireTime;
-        nextFireTime = getFireTimeAfter(nextFireTime);
-
-        while (nextFireTime != null && calendar != null
-                && !calendar.isTimeIncluded(nextFireTime.getTime())) {
-
-            nextFireTime = getFireTimeAfter(nextFireTime);
-
-            if(nextFireTime == null)
-                break;
-
-            //avoid infinite loop
-            java.util.Calendar c = java.util.Calendar.getInstance();
-            c.setTime(nextFireTime);
-            if (c.get(java.util.Calendar.YEAR) > YEAR_TO_GIVEUP_SCHEDULING_AT) {
-                nextFireTime = null;
-            }
-        }
+        previousFireTimeMillis = nextFireTimeMillis;
+        long after = (nextFireTimeMillis == NO_FIRE_TIME) ? System.currentTimeMillis() : nextFireTimeMillis;
+        nextFireTimeMillis = skipExcluded(getFireTimeAfterMillis(after), calendar);
     }
 
     /** 由调度程序在触发器首次添加到调度程序时调用，以便使触发器基于任何相关日历计算其第一次激发时间 */
     public Date computeFirstFireTime(Calendar calendar) {
-        nextFireTime = getStartTime();
-        while (nextFireTime != null && calendar != null
-                && !calendar.isTimeIncluded(nextFireTime.getTime())) {
-            nextFireTime = getFireTimeAfter(nextFireTime);
-            if(nextFireTime == null) break;
-            //avoid infinite loop
-            java.util.Calendar c = java.util.Calendar.getInstance();
-            c.setTime(nextFireTime);
-            if (c.get(java.util.Calendar.YEAR) > YEAR_TO_GIVEUP_SCHEDULING_AT) {
-                return null;
-            }
-        }
-        return nextFireTime;
+        nextFireTimeMillis = skipExcluded(startTime.getTime(), calendar);
+        return getNextFireTime();
     }
 
     /** 触发器是否再次触发 */
     public boolean mayFireAgain() {
-        return (getNextFireTime() != null);
+        return (nextFireTimeMillis != NO_FIRE_TIME);
     }
 
     /** 复写校验 */
@@ -270,23 +299,22 @@ public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements
 
     /** 根据日历关联触发器，并更新触发器的更新状态（应更新状态，以便在给定日历的新设置的情况下，下次触发时间是合适的）*/
     public void updateWithNewCalendar(com.txl.equipment.calendar.Calendar calendar, long misfireThreshold) {
-        nextFireTime = getFireTimeAfter(previousFireTime);
-        if (nextFireTime == null || calendar == null) {
+        long after = (previousFireTimeMillis == NO_FIRE_TIME) ? System.currentTimeMillis() : previousFireTimeMillis;
+        nextFireTimeMillis = getFireTimeAfterMillis(after);
+        if (nextFireTimeMillis == NO_FIRE_TIME || calendar == null) {
             return;
         }
-        Date now = new Date();
-        while (nextFireTime != null && !calendar.isTimeIncluded(nextFireTime.getTime())) {
-            nextFireTime = getFireTimeAfter(nextFireTime);
-            if(nextFireTime == null) break;
-            java.util.Calendar c = java.util.Calendar.getInstance();
-            c.setTime(nextFireTime);
-            if (c.get(java.util.Calendar.YEAR) > YEAR_TO_GIVEUP_SCHEDULING_AT) {
-                nextFireTime = null;
+        long now = System.currentTimeMillis();
+        while (nextFireTimeMillis != NO_FIRE_TIME && !calendar.isTimeIncluded(nextFireTimeMillis)) {
+            nextFireTimeMillis = getFireTimeAfterMillis(nextFireTimeMillis);
+            if (nextFireTimeMillis == NO_FIRE_TIME) break;
+            if (nextFireTimeMillis >= GIVEUP_SCHEDULING_AT_MILLIS) {
+                nextFireTimeMillis = NO_FIRE_TIME;
             }
-            if(nextFireTime != null && nextFireTime.before(now)) {
-                long diff = now.getTime() - nextFireTime.getTime();
-                if(diff >= misfireThreshold) {
-                    nextFireTime = getFireTimeAfter(nextFireTime);
+            if (nextFireTimeMillis != NO_FIRE_TIME && nextFireTimeMillis < now) {
+                long diff = now - nextFireTimeMillis;
+                if (diff >= misfireThreshold) {
+                    nextFireTimeMillis = getFireTimeAfterMillis(nextFireTimeMillis);
                 }
             }
         }
@@ -312,66 +340,35 @@ public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements
             instr = MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_REMAINING_REPEAT_COUNT;
         }
 
+        long now = System.currentTimeMillis();
         if (instr == MISFIRE_INSTRUCTION_FIRE_NOW) {
-            setNextFireTime(new Date());
+            nextFireTimeMillis = now;
         } else if (instr == MISFIRE_INSTRUCTION_RESCHEDULE_NEXT_WITH_EXISTING_COUNT) {
-            Date newFireTime = getFireTimeAfter(new Date());
-            while (newFireTime != null && cal != null
-                    && !cal.isTimeIncluded(newFireTime.getTime())) {
-                newFireTime = getFireTimeAfter(newFireTime);
-
-                if(newFireTime == null)
-                    break;
-
-                //avoid infinite loop
-                java.util.Calendar c = java.util.Calendar.getInstance();
-                c.setTime(newFireTime);
-                if (c.get(java.util.Calendar.YEAR) > YEAR_TO_GIVEUP_SCHEDULING_AT) {
-                    newFireTime = null;
-                }
-            }
-            setNextFireTime(newFireTime);
+            nextFireTimeMillis = skipExcluded(getFireTimeAfterMillis(now), cal);
         } else if (instr == MISFIRE_INSTRUCTION_RESCHEDULE_NEXT_WITH_REMAINING_COUNT) {
-            Date newFireTime = getFireTimeAfter(new Date());
-            while (newFireTime != null && cal != null
-                    && !cal.isTimeIncluded(newFireTime.getTime())) {
-                newFireTime = getFireTimeAfter(newFireTime);
-
-                if(newFireTime == null)
-                    break;
-
-                //avoid infinite loop
-                java.util.Calendar c = java.util.Calendar.getInstance();
-                c.setTime(newFireTime);
-                if (c.get(java.util.Calendar.YEAR) > YEAR_TO_GIVEUP_SCHEDULING_AT) {
-                    newFireTime = null;
-                }
-            }
-            if (newFireTime != null) {
-                int timesMissed = computeNumTimesFiredBetween(nextFireTime,
+            long newFireTime = skipExcluded(getFireTimeAfterMillis(now), cal);
+            if (newFireTime != NO_FIRE_TIME) {
+                int timesMissed = computeNumTimesFiredBetween(nextFireTimeMillis,
                         newFireTime);
                 setTimesTriggered(getTimesTriggered() + timesMissed);
             }
 
-            setNextFireTime(newFireTime);
+            nextFireTimeMillis = newFireTime;
         } else if (instr == MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_EXISTING_REPEAT_COUNT) {
-            Date newFireTime = new Date();
             if (repeatCount != 0 && repeatCount != REPEAT_INDEFINITELY) {
                 setRepeatCount(getRepeatCount() - getTimesTriggered());
                 setTimesTriggered(0);
             }
 
-            if (getEndTime() != null && getEndTime().before(newFireTime)) {
-                setNextFireTime(null); // We are past the end time
+            if (getEndTime() != null && getEndTime().getTime() < now) {
+                nextFireTimeMillis = NO_FIRE_TIME; // We are past the end time
             } else {
-                setStartTime(newFireTime);
-                setNextFireTime(newFireTime);
+                setStartTime(new Date(now));
+                nextFireTimeMillis = now;
             }
         } else if (instr == MISFIRE_INSTRUCTION_RESCHEDULE_NOW_WITH_REMAINING_REPEAT_COUNT) {
-            Date newFireTime = new Date();
-
-            int timesMissed = computeNumTimesFiredBetween(nextFireTime,
-                    newFireTime);
+            int timesMissed = computeNumTimesFiredBetween(nextFireTimeMillis,
+                    now);
 
             if (repeatCount != 0 && repeatCount != REPEAT_INDEFINITELY) {
                 int remainingCount = getRepeatCount()
@@ -383,11 +380,11 @@ public class SimpleTriggerImpl extends AbstractTrigger<SimpleTrigger> implements
                 setTimesTriggered(0);
             }
 
-            if (getEndTime() != null && getEndTime().before(newFireTime)) {
-                setNextFireTime(null); // We are past the end time
+            if (getEndTime() != null && getEndTime().getTime() < now) {
+                nextFireTimeMillis = NO_FIRE_TIME; // We are past the end time
             } else {
-                setStartTime(newFireTime);
-                setNextFireTime(newFireTime);
+                setStartTime(new Date(now));
+                nextFireTimeMillis = now;
             }
         }
     }
@@ -54,7 +54,7 @@ public class TriggerBuilder<T extends Trigger> {
         trig.setStartTime(startTime);
         trig.setEndTime(endTime);
         if(key == null)
-            key = new TriggerKey(Key.createUniqueName(null), null);
+            key = TriggerKey.triggerKey(Key.createUniqueName(null), null);
         trig.setKey(key);
         if(jobKey != null)
             trig.setJobKey(jobKey);
@@ -68,13 +68,13 @@ public class TriggerBuilder<T extends Trigger> {
 
     /** 添加唯一标识 */
     public TriggerBuilder<T> withIdentity(String name) {
-        key = new TriggerKey(name, null);
+        key = TriggerKey.triggerKey(name, null);
         return this;
     }
 
     /** 添加唯一标识 */
     public TriggerBuilder<T> withIdentity(String name, String group) {
-        key = new TriggerKey(name, group);
+        key = TriggerKey.triggerKey(name, group);
         return this;
     }
 
@@ -135,13 +135,13 @@ public class TriggerBuilder<T extends Trigger> {
 
     /** 触发器添加作业任务 */
     public TriggerBuilder<T> forJob(String jobName) {
-        this.jobKey = new JobKey(jobName, null);
+        this.jobKey = JobKey.jobKey(jobName, null);
         return this;
     }
 
     /** 触发器添加作业任务 */
     public TriggerBuilder<T> forJob(String jobName, String jobGroup) {
-        this.jobKey = new JobKey(jobName, jobGroup);
+        this.jobKey = JobKey.jobKey(jobName, jobGroup);
         return this;
     }
 
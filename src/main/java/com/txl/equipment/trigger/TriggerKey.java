@@ -1,17 +1,26 @@
 package com.txl.equipment.trigger;
 
 import com.txl.equipment.key.Key;
+import com.txl.equipment.key.KeyPool;
 
 /**
  * Created by TangXiangLin on 2023-02-13 11:06
  * 触发器的唯一标识
  * 1. 唯一标识由名称 + 组, 并且同一组中的名称是唯一的。
  * 2. 未指定组时，按默认的组名称，即：DEFAULT
+ * 3. triggerKey()及intern()返回驻留的实例，相等的唯一标识共用同一个实例。
  */
 public final class TriggerKey extends Key<TriggerKey> {
 
     private static final long serialVersionUID = 8070357886703449660L;
 
+    private static final KeyPool<TriggerKey> POOL = new KeyPool<TriggerKey>() {
+        @Override
+        protected TriggerKey create(String name, String group) {
+            return new TriggerKey(name, group);
+        }
+    };
+
     public TriggerKey(String name) {
         super(name, null);
     }
@@ -21,10 +30,15 @@ public final class TriggerKey extends Key<TriggerKey> {
     }
 
     public static TriggerKey triggerKey(String name) {
-        return new TriggerKey(name, null);
+        return POOL.intern(new TriggerKey(name, null));
     }
 
     public static TriggerKey triggerKey(String name, String group) {
-        return new TriggerKey(name, group);
+        return POOL.intern(new TriggerKey(name, group));
+    }
+
+    /** 获取与给定唯一标识相等的驻留实例 */
+    public static TriggerKey intern(TriggerKey key) {
+        return POOL.intern(key);
     }
 }
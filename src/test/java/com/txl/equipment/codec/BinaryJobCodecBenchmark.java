@@ -0,0 +1,218 @@
+package com.txl.equipment.codec;
+
+import com.txl.equipment.exception.JobExecutionException;
+import com.txl.equipment.job.Job;
+import com.txl.equipment.job.JobDataMap;
+import com.txl.equipment.job.JobDetailImpl;
+import com.txl.equipment.job.JobExecutionContext;
+import com.txl.equipment.trigger.SimpleTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Created by TangXiangLin on 2023-03-08 14:00
+ * 二进制编解码的往返校验及吞吐量对比
+ * 1. 生成作业任务及简单触发器(各带10个参数)，分别用BinaryJobCodec的ByteBuffer接口、流接口
+ *    和ObjectOutputStream编码、解码，校验往返后字段一致，输出每条记录的字节数及耗时。
+ * 2. 运行：java -cp target/classes:target/test-classes com.txl.equipment.codec.BinaryJobCodecBenchmark [记录数]
+ */
+public class BinaryJobCodecBenchmark {
+
+    public static class SampleJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        List<Object> records = createRecords(count);
+        BinaryJobCodec codec = new BinaryJobCodec();
+
+        verifyRoundTrip(codec, records);
+        System.out.println("round trip ok: " + records.size() + " records");
+
+        for (int round = 0; round < 5; round++) {
+            boolean report = round >= 3;
+            benchmarkByteBuffer(codec, records, report);
+            benchmarkStream(codec, records, report);
+            benchmarkObjectStreamPerRecord(records, report);
+            benchmarkObjectStream(records, report);
+        }
+    }
+
+    private static List<Object> createRecords(int count) {
+        List<Object> records = new ArrayList<Object>(count * 2);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            JobDetailImpl job = new JobDetailImpl("job-" + i, "plant" + (i % 8) + ".line" + (i % 32), SampleJob.class);
+            job.setDurability(i % 2 == 0);
+            job.setDescription(i % 4 == 0 ? "设备联动作业 " + i : null);
+            fillData(job.getJobDataMap(), i);
+            records.add(job);
+
+            SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+            trigger.setName("trigger-" + i);
+            trigger.setGroup(job.getGroup());
+            trigger.setJobName(job.getName());
+            trigger.setJobGroup(job.getGroup());
+            trigger.setStartTime(new Date(now + i));
+            trigger.setRepeatCount(i % 3 == 0 ? SimpleTrigger.REPEAT_INDEFINITELY : i % 100);
+            trigger.setRepeatInterval(1000L * (1 + i % 60));
+            trigger.setPriority(5 + i % 3);
+            trigger.setTimesTriggered(i % 17);
+            trigger.setNextFireTimeMillis(now + i + 1000L * (i % 17));
+            if (i % 5 == 0) {
+                trigger.setCalendarName("holidays");
+            }
+            fillData(trigger.getJobDataMap(), i);
+            records.add(trigger);
+        }
+        return records;
+    }
+
+    private static void fillData(JobDataMap data, int i) {
+        data.put("deviceId", i);
+        data.put("threshold", i * 0.5);
+        data.put("enabled", i % 2 == 0);
+        data.put("timeoutMillis", 30000L + i);
+        data.put("retries", 3);
+        data.putAsString("port", 8000 + i % 100);
+        data.put("mode", i % 2 == 0 ? "auto" : "manual");
+        data.put("channel", 'A');
+        data.put("ratio", 0.75f);
+        data.put("operator", "op-" + (i % 10));
+    }
+
+    private static void verifyRoundTrip(BinaryJobCodec codec, List<Object> records) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JobRecordOutputStream out = codec.newOutputStream(bytes);
+        for (Object record : records) {
+            check(record, codec.decode(codec.encode(record)));
+            out.writeRecord(record);
+        }
+        out.close();
+        JobRecordInputStream in = codec.newInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (Object record : records) {
+            check(record, in.readRecord());
+        }
+        if (in.readRecord() != null) {
+            throw new IllegalStateException("Unexpected trailing record");
+        }
+    }
+
+    private static void check(Object expected, Object actual) {
+        if (expected instanceof JobDetailImpl) {
+            JobDetailImpl a = (JobDetailImpl) expected;
+            JobDetailImpl b = (JobDetailImpl) actual;
+            same(a.getKey(), b.getKey());
+            same(a.getJobClass(), b.getJobClass());
+            same(a.getDescription(), b.getDescription());
+            same(a.isDurable(), b.isDurable());
+            same(a.requestsRecovery(), b.requestsRecovery());
+            same(a.getJobDataMap(), b.getJobDataMap());
+        } else {
+            SimpleTriggerImpl a = (SimpleTriggerImpl) expected;
+            SimpleTriggerImpl b = (SimpleTriggerImpl) actual;
+            same(a.getKey(), b.getKey());
+            same(a.getJobKey(), b.getJobKey());
+            same(a.getCalendarName(), b.getCalendarName());
+            same(a.getStartTime(), b.getStartTime());
+            same(a.getEndTime(), b.getEndTime());
+            same(a.getNextFireTimeMillis(), b.getNextFireTimeMillis());
+            same(a.getPreviousFireTimeMillis(), b.getPreviousFireTimeMillis());
+            same(a.getRepeatCount(), b.getRepeatCount());
+            same(a.getRepeatInterval(), b.getRepeatInterval());
+            same(a.getTimesTriggered(), b.getTimesTriggered());
+            same(a.getPriority(), b.getPriority());
+            same(a.getMisfireInstruction(), b.getMisfireInstruction());
+            same(a.getJobDataMap(), b.getJobDataMap());
+        }
+    }
+
+    private static void same(Object a, Object b) {
+        if (a == null ? b != null : !a.equals(b)) {
+            throw new IllegalStateException("Round trip mismatch: " + a + " != " + b);
+        }
+    }
+
+    private static void benchmarkByteBuffer(BinaryJobCodec codec, List<Object> records, boolean report) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(records.size() * 512);
+        long t0 = System.nanoTime();
+        for (Object record : records) {
+            codec.encode(record, buffer);
+        }
+        long t1 = System.nanoTime();
+        int size = buffer.position();
+        buffer.flip();
+        for (int i = 0; i < records.size(); i++) {
+            codec.decode(buffer);
+        }
+        long t2 = System.nanoTime();
+        print(report, "BinaryJobCodec ByteBuffer", records.size(), size, t1 - t0, t2 - t1);
+    }
+
+    private static void benchmarkStream(BinaryJobCodec codec, List<Object> records, boolean report) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() * 256);
+        long t0 = System.nanoTime();
+        JobRecordOutputStream out = codec.newOutputStream(bytes);
+        for (Object record : records) {
+            out.writeRecord(record);
+        }
+        out.close();
+        long t1 = System.nanoTime();
+        JobRecordInputStream in = codec.newInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        while (in.readRecord() != null) {
+        }
+        long t2 = System.nanoTime();
+        print(report, "BinaryJobCodec stream", records.size(), bytes.size(), t1 - t0, t2 - t1);
+    }
+
+    private static void benchmarkObjectStreamPerRecord(List<Object> records, boolean report) throws Exception {
+        List<byte[]> encoded = new ArrayList<byte[]>(records.size());
+        int size = 0;
+        long t0 = System.nanoTime();
+        for (Object record : records) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(record);
+            out.close();
+            encoded.add(bytes.toByteArray());
+            size += bytes.size();
+        }
+        long t1 = System.nanoTime();
+        for (byte[] bytes : encoded) {
+            new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+        }
+        long t2 = System.nanoTime();
+        print(report, "ObjectOutputStream per record", records.size(), size, t1 - t0, t2 - t1);
+    }
+
+    private static void benchmarkObjectStream(List<Object> records, boolean report) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() * 512);
+        long t0 = System.nanoTime();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        for (Object record : records) {
+            out.writeObject(record);
+        }
+        out.close();
+        long t1 = System.nanoTime();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (int i = 0; i < records.size(); i++) {
+            in.readObject();
+        }
+        long t2 = System.nanoTime();
+        print(report, "ObjectOutputStream stream", records.size(), bytes.size(), t1 - t0, t2 - t1);
+    }
+
+    private static void print(boolean report, String name, int count, int bytes, long encodeNanos, long decodeNanos) {
+        if (report) {
+            System.out.printf("%-30s %6.1f B/record  encode %7.0f ns/record  decode %7.0f ns/record%n",
+                    name, bytes / (double) count, encodeNanos / (double) count, decodeNanos / (double) count);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.calendar.BaseCalendar;
+import com.txl.equipment.exception.JobExecutionException;
+import com.txl.equipment.exception.JobPersistenceException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.Job;
+import com.txl.equipment.job.JobDetailImpl;
+import com.txl.equipment.job.JobExecutionContext;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.matcher.GroupMatcher;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.SimpleTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+import com.txl.equipment.trigger.Trigger;
+import com.txl.equipment.trigger.TriggerKey;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Created by TangXiangLin on 2023-03-10 16:00
+ * 持久化作业存储的恢复校验及吞吐量
+ * 1. 存储作业任务、触发器、日历并暂停分组、触发一批触发器后重新打开存储，校验恢复后的数据一致；
+ *    再分别校验从快照加日志恢复、日志末尾有不完整记录时的恢复。
+ *    另外校验不能持久化的作业任务不进入内存，日志写入失败后的修改被拒绝且不改变内存中的数据。
+ * 2. 多个线程并发存储触发器(等待落盘及不等待落盘)、批量触发，输出每秒的更新数。
+ * 3. 运行：java -cp target/classes:target/test-classes com.txl.equipment.store.FileJobStoreBenchmark [目录] [触发器数]
+ */
+public class FileJobStoreBenchmark {
+
+    public static class SampleJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+        }
+    }
+
+    /** 修改前的编码检查可以通过、写入日志时失败的参数，用于模拟日志写入失败 */
+    public static class FailsWhenLogged implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int writes;
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            if (++writes > 1) {
+                throw new NotSerializableException("simulated log failure");
+            }
+            out.defaultWriteObject();
+        }
+    }
+
+    private static final SchedulerSignaler NO_OP_SIGNALER = new SchedulerSignaler() {
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+        }
+
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+        }
+
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+        }
+
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+        }
+
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+            throw new IllegalStateException(string, jpe);
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        File root = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"), "file-job-store-bench");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        deleteRecursively(root);
+
+        verifyRecovery(new File(root, "recovery"));
+        System.out.println("recovery ok");
+        verifyUnpersistable(new File(root, "unpersistable"));
+        System.out.println("unpersistable ok");
+        verifyLogFailure(new File(root, "log-failure"));
+        System.out.println("log failure ok");
+
+        for (int threads : new int[]{1, 8, 32}) {
+            benchmarkStore(new File(root, "sync-" + threads), count, threads, true);
+        }
+        benchmarkStore(new File(root, "async"), count, 8, false);
+        benchmarkFire(new File(root, "fire"), count);
+        deleteRecursively(root);
+    }
+
+    private static void verifyRecovery(File dir) throws Exception {
+        long now = System.currentTimeMillis();
+        FileJobStore store = open(dir, true);
+        store.storeJob(createJob(), false);
+        store.storeCalendar("holidays", new BaseCalendar(), false, false);
+        for (int i = 0; i < 100; i++) {
+            store.storeTrigger(createTrigger(i, now), false);
+        }
+        store.pauseTriggers(GroupMatcher.triggerGroupEquals("plant1.line3"));
+        store.removeTrigger(new TriggerKey("channel-1", "plant1.line1"));
+        List<OperableTrigger> acquired = store.acquireNextTriggers(now + 60000L, 10, 0L);
+        store.triggersFired(acquired);
+        store.shutdown();
+
+        FileJobStore recovered = open(dir, true);
+        compare(store, recovered);
+
+        // 快照加之后的日志
+        recovered.snapshot();
+        for (int i = 100; i < 150; i++) {
+            recovered.storeTrigger(createTrigger(i, now), false);
+        }
+        recovered.resumeTriggers(GroupMatcher.triggerGroupEquals("plant1.line3"));
+        recovered.shutdown();
+        check(WriteAheadLog.listNumbered(dir, FileJobStore.SNAPSHOT_PREFIX, FileJobStore.SNAPSHOT_SUFFIX).size() == 1,
+                "snapshot file");
+
+        FileJobStore fromSnapshot = open(dir, true);
+        compare(recovered, fromSnapshot);
+        fromSnapshot.shutdown();
+
+        // 日志末尾的不完整记录被丢弃
+        List<Long> segments = WriteAheadLog.listSegments(dir);
+        FileOutputStream out = new FileOutputStream(WriteAheadLog.segmentFile(dir, segments.get(segments.size() - 1)), true);
+        out.write(new byte[]{0, 0, 0, 100, 1, 2, 3});
+        out.close();
+        FileJobStore torn = open(dir, true);
+        compare(fromSnapshot, torn);
+        torn.shutdown();
+    }
+
+    /** 不能编码的作业任务不进入存储，存储继续可用 */
+    private static void verifyUnpersistable(File dir) throws Exception {
+        FileJobStore store = open(dir, true);
+        JobDetailImpl job = createJob();
+        job.getJobDataMap().put("socket", new Object());
+        try {
+            store.storeJob(job, false);
+            throw new IllegalStateException("mismatch: stored unpersistable job");
+        } catch (JobPersistenceException expected) {
+        }
+        check(!store.checkExists(job.getKey()), "unpersistable job in memory");
+        store.storeJob(createJob(), false);
+        store.shutdown();
+
+        FileJobStore recovered = open(dir, true);
+        check(recovered.getNumberOfJobs() == 1, "job count");
+        recovered.shutdown();
+    }
+
+    private static void verifyLogFailure(File dir) throws Exception {
+        long now = System.currentTimeMillis();
+        FileJobStore store = open(dir, true);
+        store.storeJob(createJob(), false);
+        store.storeTrigger(createTrigger(1, now), false);
+        List<OperableTrigger> acquired = store.acquireNextTriggers(now + 60000L, 1, 0L);
+        check(acquired.size() == 1, "acquired");
+
+        JobDetailImpl job = new JobDetailImpl("broken-job", "plant1", SampleJob.class);
+        job.setDurability(true);
+        job.getJobDataMap().put("socket", new FailsWhenLogged());
+        try {
+            store.storeJob(job, false);
+            throw new IllegalStateException("mismatch: unlogged job reported as stored");
+        } catch (JobPersistenceException expected) {
+        }
+
+        TriggerKey key = acquired.get(0).getKey();
+        long nextFireTime = store.retrieveTrigger(key).getNextFireTimeMillis();
+        try {
+            store.triggersFired(acquired);
+            throw new IllegalStateException("mismatch: fired without a log");
+        } catch (JobPersistenceException expected) {
+        }
+        check(store.retrieveTrigger(key).getNextFireTimeMillis() == nextFireTime, "fired trigger advanced");
+        try {
+            store.pauseAll();
+            throw new IllegalStateException("mismatch: paused without a log");
+        } catch (JobPersistenceException expected) {
+        }
+        check(store.getPausedTriggerGroups().isEmpty(), "paused groups");
+        store.shutdown();
+    }
+
+    private static void compare(RAMJobStore expected, RAMJobStore actual) throws Exception {
+        check(expected.getNumberOfJobs() == actual.getNumberOfJobs(), "job count");
+        check(expected.getNumberOfTriggers() == actual.getNumberOfTriggers(), "trigger count");
+        check(expected.getNumberOfCalendars() == actual.getNumberOfCalendars(), "calendar count");
+        check(expected.getPausedTriggerGroups().equals(actual.getPausedTriggerGroups()), "paused groups");
+        for (TriggerKey key : expected.getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+            SimpleTriggerImpl e = (SimpleTriggerImpl) expected.retrieveTrigger(key);
+            SimpleTriggerImpl a = (SimpleTriggerImpl) actual.retrieveTrigger(key);
+            check(a != null, "missing trigger " + key);
+            check(e.getNextFireTimeMillis() == a.getNextFireTimeMillis(), "next fire time " + key);
+            check(e.getPreviousFireTimeMillis() == a.getPreviousFireTimeMillis(), "previous fire time " + key);
+            check(e.getTimesTriggered() == a.getTimesTriggered(), "times triggered " + key);
+            check(expected.getTriggerState(key) == actual.getTriggerState(key), "state " + key);
+        }
+    }
+
+    private static void benchmarkStore(File dir, final int count, int threads, boolean syncOnCommit) throws Exception {
+        final FileJobStore store = open(dir, syncOnCommit);
+        store.storeJob(createJob(), false);
+        final long now = System.currentTimeMillis();
+        final int perThread = count / threads;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final int base = t * perThread;
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = base; i < base + perThread; i++) {
+                            store.storeTrigger(createTrigger(i, now), false);
+                        }
+                    } catch (Exception e) {
+                        failure.set(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        done.await();
+        long nanos = System.nanoTime() - start;
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        store.shutdown();
+        System.out.printf("storeTrigger sync=%s threads=%d: %d updates in %d ms, %.0f updates/s%n",
+                syncOnCommit, threads, perThread * threads, nanos / 1000000L, perThread * threads * 1e9 / nanos);
+    }
+
+    private static void benchmarkFire(File dir, int count) throws Exception {
+        FileJobStore store = open(dir, true);
+        store.storeJob(createJob(), false);
+        store.storeCalendar("holidays", new BaseCalendar(), false, false);
+        long now = System.currentTimeMillis() - 1000L;
+        for (int i = 0; i < count; i++) {
+            SimpleTriggerImpl trigger = createTrigger(i, now);
+            trigger.setStartTime(new Date(now));
+            trigger.setMisfireInstruction(Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY);
+            trigger.computeFirstFireTime(null);
+            store.storeTrigger(trigger, false);
+        }
+
+        int fired = 0;
+        long start = System.nanoTime();
+        while (fired < count) {
+            List<OperableTrigger> acquired = store.acquireNextTriggers(now + 1000L, 500, Long.MAX_VALUE / 2);
+            if (acquired.isEmpty()) {
+                break;
+            }
+            store.triggersFired(acquired);
+            fired += acquired.size();
+        }
+        long nanos = System.nanoTime() - start;
+        store.shutdown();
+        System.out.printf("triggersFired batch=500: %d updates in %d ms, %.0f updates/s%n",
+                fired, nanos / 1000000L, fired * 1e9 / nanos);
+    }
+
+    private static FileJobStore open(File dir, boolean syncOnCommit) throws SchedulerException {
+        FileJobStore store = new FileJobStore();
+        store.setDirectory(dir.getAbsolutePath());
+        store.setSyncOnCommit(syncOnCommit);
+        store.setSnapshotIntervalMillis(0L);
+        store.initialize(NO_OP_SIGNALER);
+        return store;
+    }
+
+    private static JobDetailImpl createJob() {
+        JobDetailImpl job = new JobDetailImpl("sensor-job", "plant1", SampleJob.class);
+        job.setDurability(true);
+        job.getJobDataMap().put("site", "plant1");
+        return job;
+    }
+
+    private static SimpleTriggerImpl createTrigger(int i, long now) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setName("channel-" + i);
+        trigger.setGroup("plant1.line" + (i % 32));
+        trigger.setJobName("sensor-job");
+        trigger.setJobGroup("plant1");
+        trigger.setStartTime(new Date(now + 1000L + i));
+        trigger.setRepeatCount(i % 3 == 0 ? SimpleTrigger.REPEAT_INDEFINITELY : i % 100);
+        trigger.setRepeatInterval(1000L * (1 + i % 60));
+        if (i % 5 == 0) {
+            trigger.setCalendarName("holidays");
+        }
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + message);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,148 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.exception.JobExecutionException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.Job;
+import com.txl.equipment.job.JobDetailImpl;
+import com.txl.equipment.job.JobExecutionContext;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.SimpleTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+import com.txl.equipment.trigger.Trigger;
+import com.txl.equipment.trigger.TriggerKey;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Created by TangXiangLin on 2023-03-09 16:00
+ * 堆外触发器表的往返校验及堆占用对比
+ * 1. 分别以堆内、堆外模式存储同样的简单触发器，校验取回的触发器与存入的一致，获取、触发一批后校验调度状态已写回。
+ * 2. 输出每种模式下存储触发器后的堆占用及获取、触发的耗时。
+ * 3. 运行：java -cp target/classes:target/test-classes com.txl.equipment.store.OffHeapTriggerBenchmark [触发器数]
+ */
+public class OffHeapTriggerBenchmark {
+
+    public static class SampleJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+        }
+    }
+
+    private static final SchedulerSignaler NO_OP_SIGNALER = new SchedulerSignaler() {
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+        }
+
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+        }
+
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+        }
+
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+        }
+
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        long now = System.currentTimeMillis();
+
+        run(false, count, now);
+        run(true, count, now);
+    }
+
+    private static void run(boolean offHeap, int count, long now) throws Exception {
+        long baseline = usedHeap();
+
+        RAMJobStore store = new RAMJobStore();
+        store.setUseOffHeapTriggers(offHeap);
+        store.initialize(NO_OP_SIGNALER);
+
+        JobDetailImpl job = new JobDetailImpl("sensor-job", "plant1", SampleJob.class);
+        job.setDurability(true);
+        store.storeJob(job, false);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            store.storeTrigger(createTrigger(i, now), false);
+        }
+        long storeNanos = System.nanoTime() - start;
+        long heap = usedHeap() - baseline;
+
+        verifyStored(store, count, now);
+
+        start = System.nanoTime();
+        List<OperableTrigger> acquired = store.acquireNextTriggers(now + 60000L, 1000, 0L);
+        store.triggersFired(acquired);
+        for (OperableTrigger trigger : acquired) {
+            store.triggeredJobComplete(trigger, job, Trigger.CompletedExecutionInstruction.NOOP);
+        }
+        long fireNanos = System.nanoTime() - start;
+
+        verifyFired(store, acquired);
+
+        System.out.printf("%-8s triggers=%d heap=%.1f MB (%d bytes/trigger) store=%d ms acquire+fire %d=%d ms%n",
+                offHeap ? "off-heap" : "heap", count, heap / (1024.0 * 1024.0), heap / count,
+                storeNanos / 1000000L, acquired.size(), fireNanos / 1000000L);
+        store.clearAllSchedulingData();
+    }
+
+    private static SimpleTriggerImpl createTrigger(int i, long now) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setName("channel-" + i);
+        trigger.setGroup("plant1.line" + (i % 32));
+        trigger.setJobName("sensor-job");
+        trigger.setJobGroup("plant1");
+        trigger.setStartTime(new Date(now + 1000L + i));
+        trigger.setRepeatCount(i % 3 == 0 ? SimpleTrigger.REPEAT_INDEFINITELY : i % 100);
+        trigger.setRepeatInterval(1000L * (1 + i % 60));
+        trigger.setPriority(5 + i % 3);
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private static void verifyStored(RAMJobStore store, int count, long now) {
+        for (int i = 0; i < count; i += Math.max(1, count / 1000)) {
+            SimpleTriggerImpl expected = createTrigger(i, now);
+            SimpleTriggerImpl actual = (SimpleTriggerImpl) store.retrieveTrigger(expected.getKey());
+            check(actual != null, "missing trigger " + expected.getKey());
+            check(actual.getJobKey().equals(expected.getJobKey()), "job key " + expected.getKey());
+            check(actual.getStartTime().equals(expected.getStartTime()), "start time " + expected.getKey());
+            check(actual.getRepeatCount() == expected.getRepeatCount(), "repeat count " + expected.getKey());
+            check(actual.getRepeatInterval() == expected.getRepeatInterval(), "repeat interval " + expected.getKey());
+            check(actual.getPriority() == expected.getPriority(), "priority " + expected.getKey());
+            check(actual.getNextFireTimeMillis() == expected.getNextFireTimeMillis(), "next fire time " + expected.getKey());
+        }
+    }
+
+    private static void verifyFired(RAMJobStore store, List<OperableTrigger> fired) {
+        for (OperableTrigger trigger : fired) {
+            TriggerKey key = trigger.getKey();
+            SimpleTriggerImpl stored = (SimpleTriggerImpl) store.retrieveTrigger(key);
+            if (stored == null) {
+                // 不再触发的触发器在完成后被删除
+                continue;
+            }
+            check(stored.getTimesTriggered() == 1, "times triggered " + key);
+            check(stored.getPreviousFireTimeMillis() == ((SimpleTriggerImpl) trigger).getPreviousFireTimeMillis(), "previous fire time " + key);
+            check(stored.getNextFireTimeMillis() == trigger.getNextFireTimeMillis(), "next fire time " + key);
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + message);
+        }
+    }
+}
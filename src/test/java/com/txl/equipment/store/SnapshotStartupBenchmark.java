@@ -0,0 +1,221 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.exception.JobExecutionException;
+import com.txl.equipment.exception.SchedulerException;
+import com.txl.equipment.job.Job;
+import com.txl.equipment.job.JobDataMap;
+import com.txl.equipment.job.JobDetailImpl;
+import com.txl.equipment.job.JobExecutionContext;
+import com.txl.equipment.job.JobKey;
+import com.txl.equipment.matcher.GroupMatcher;
+import com.txl.equipment.trigger.OperableTrigger;
+import com.txl.equipment.trigger.SimpleTrigger;
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+import com.txl.equipment.trigger.Trigger;
+import com.txl.equipment.trigger.TriggerKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Created by TangXiangLin on 2023-03-13 15:00
+ * 快照启动时间与触发器数量的关系
+ * 1. 按不同的触发器数量(每10个触发器一个作业任务，各带5个参数)生成快照，分别以顺序解码和内存映射两种方式恢复，
+ *    输出恢复(initialize)耗时及恢复后第一次获取、触发100个触发器的耗时。
+ * 2. 校验两种方式恢复的数据一致；内存映射恢复后暂停一个分组再生成快照(未解码的记录原样复制)，重新恢复后校验状态。
+ * 3. 运行：java -cp target/classes:target/test-classes com.txl.equipment.store.SnapshotStartupBenchmark [目录] [触发器数...]
+ */
+public class SnapshotStartupBenchmark {
+
+    public static class SampleJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+        }
+    }
+
+    private static final SchedulerSignaler NO_OP_SIGNALER = new SchedulerSignaler() {
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+        }
+
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+        }
+
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+        }
+
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+        }
+
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+            throw new IllegalStateException(string, jpe);
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        File root = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"), "snapshot-startup-bench");
+        int[] counts = {10000, 50000, 100000, 200000};
+        if (args.length > 1) {
+            counts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                counts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+        deleteRecursively(root);
+
+        for (int count : counts) {
+            // 两种方式各用一份快照，互不读取对方触发后写入的日志
+            File eagerDir = new File(root, count + "-read");
+            File mappedDir = new File(root, count + "-mapped");
+            long now = System.currentTimeMillis();
+            createSnapshot(eagerDir, count, now);
+            copyDirectory(eagerDir, mappedDir);
+
+            // 预热一轮，再测量
+            open(eagerDir, false).shutdown();
+            open(mappedDir, true).shutdown();
+
+            long start = System.nanoTime();
+            FileJobStore eager = open(eagerDir, false);
+            long eagerNanos = System.nanoTime() - start;
+            long eagerFireNanos = fireFirstBatch(eager, now);
+
+            start = System.nanoTime();
+            FileJobStore mapped = open(mappedDir, true);
+            long mappedNanos = System.nanoTime() - start;
+            long mappedFireNanos = fireFirstBatch(mapped, now);
+
+            compare(eager, mapped);
+            eager.shutdown();
+            mapped.shutdown();
+
+            System.out.printf("triggers=%d: read startup=%d ms first batch=%.1f ms | mapped startup=%d ms first batch=%.1f ms%n",
+                    count, eagerNanos / 1000000L, eagerFireNanos / 1e6, mappedNanos / 1000000L, mappedFireNanos / 1e6);
+        }
+
+        verifyRawCopy(new File(root, "raw-copy"));
+        System.out.println("raw copy ok");
+        deleteRecursively(root);
+    }
+
+    private static void createSnapshot(File dir, int count, long now) throws Exception {
+        FileJobStore store = new FileJobStore();
+        store.setDirectory(dir.getAbsolutePath());
+        store.setSyncOnCommit(false);
+        store.setSnapshotIntervalMillis(0L);
+        store.initialize(NO_OP_SIGNALER);
+        for (int j = 0; j < (count + 9) / 10; j++) {
+            store.storeJob(createJob(j), false);
+        }
+        for (int i = 0; i < count; i++) {
+            store.storeTrigger(createTrigger(i, now), false);
+        }
+        store.snapshot();
+        store.shutdown();
+    }
+
+    /** 获取并触发最早的100个触发器，返回耗时(纳秒) */
+    private static long fireFirstBatch(FileJobStore store, long now) throws Exception {
+        long start = System.nanoTime();
+        List<OperableTrigger> acquired = store.acquireNextTriggers(now + 3600000L, 100, Long.MAX_VALUE / 2);
+        store.triggersFired(acquired);
+        long nanos = System.nanoTime() - start;
+        check(acquired.size() == 100, "acquired " + acquired.size());
+        return nanos;
+    }
+
+    private static void verifyRawCopy(File dir) throws Exception {
+        long now = System.currentTimeMillis();
+        createSnapshot(dir, 1000, now);
+        FileJobStore mapped = open(dir, true);
+        mapped.pauseTriggers(GroupMatcher.triggerGroupEquals("plant1.line3"));
+        mapped.snapshot();
+        mapped.shutdown();
+
+        FileJobStore eager = open(dir, false);
+        compare(mapped, eager);
+        for (TriggerKey key : eager.getTriggerKeys(GroupMatcher.triggerGroupEquals("plant1.line3"))) {
+            check(eager.getTriggerState(key) == Trigger.TriggerState.PAUSED, "paused " + key);
+        }
+        eager.shutdown();
+    }
+
+    private static void compare(RAMJobStore expected, RAMJobStore actual) throws Exception {
+        check(expected.getNumberOfJobs() == actual.getNumberOfJobs(), "job count");
+        check(expected.getNumberOfTriggers() == actual.getNumberOfTriggers(), "trigger count");
+        int step = Math.max(1, expected.getNumberOfTriggers() / 1000);
+        int i = 0;
+        for (TriggerKey key : expected.getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+            if (i++ % step != 0) {
+                continue;
+            }
+            SimpleTriggerImpl e = (SimpleTriggerImpl) expected.retrieveTrigger(key);
+            SimpleTriggerImpl a = (SimpleTriggerImpl) actual.retrieveTrigger(key);
+            check(a != null, "missing trigger " + key);
+            check(e.getNextFireTimeMillis() == a.getNextFireTimeMillis(), "next fire time " + key);
+            check(e.getTimesTriggered() == a.getTimesTriggered(), "times triggered " + key);
+            check(expected.getTriggerState(key) == actual.getTriggerState(key), "state " + key);
+            check(expected.retrieveJob(e.getJobKey()).getJobDataMap().equals(
+                    actual.retrieveJob(a.getJobKey()).getJobDataMap()), "job data " + e.getJobKey());
+        }
+    }
+
+    private static FileJobStore open(File dir, boolean mapSnapshot) throws SchedulerException {
+        FileJobStore store = new FileJobStore();
+        store.setDirectory(dir.getAbsolutePath());
+        store.setMapSnapshot(mapSnapshot);
+        store.setSnapshotIntervalMillis(0L);
+        store.initialize(NO_OP_SIGNALER);
+        return store;
+    }
+
+    private static JobDetailImpl createJob(int j) {
+        JobDetailImpl job = new JobDetailImpl("sensor-job-" + j, "plant1", SampleJob.class);
+        job.setDurability(true);
+        JobDataMap data = job.getJobDataMap();
+        data.put("deviceId", j);
+        data.put("threshold", j * 0.5);
+        data.put("site", "plant1");
+        data.put("line", "line" + (j % 32));
+        data.put("enabled", j % 2 == 0);
+        return job;
+    }
+
+    private static SimpleTriggerImpl createTrigger(int i, long now) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setName("channel-" + i);
+        trigger.setGroup("plant1.line" + (i % 32));
+        trigger.setJobName("sensor-job-" + (i / 10));
+        trigger.setJobGroup("plant1");
+        trigger.setStartTime(new Date(now + 60000L + i));
+        trigger.setRepeatCount(SimpleTrigger.REPEAT_INDEFINITELY);
+        trigger.setRepeatInterval(1000L * (1 + i % 60));
+        trigger.setPriority(5 + i % 3);
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + message);
+        }
+    }
+
+    private static void copyDirectory(File from, File to) throws IOException {
+        to.mkdirs();
+        for (File file : from.listFiles()) {
+            Files.copy(file.toPath(), new File(to, file.getName()).toPath());
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,144 @@
+package com.txl.equipment.store;
+
+import com.txl.equipment.trigger.SimpleTriggerImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Created by TangXiangLin on 2023-03-01 15:30
+ * 时间轮索引与跳表索引的顺序校验及吞吐量
+ * 1. 以同样的随机序列(加入、移出、取出后推迟重新加入，触发时间含已到期、相同时间不同优先级、超出时间轮范围)
+ *    操作两种索引，校验每次取出的触发器相同。
+ * 2. 按不同的触发器数量，每次取出最早的触发器并推迟50毫秒重新加入，输出每秒的取出次数(tick)。
+ * 3. 运行：java -cp target/classes:target/test-classes com.txl.equipment.store.TimingWheelBenchmark [触发器数...]
+ */
+public class TimingWheelBenchmark {
+
+    /** 每个触发器数量测量的时长(毫秒) */
+    private static final long MEASURE_MILLIS = 1000L;
+
+    public static void main(String[] args) {
+        int[] counts = {10000, 100000, 200000, 1000000};
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for (long seed = 1; seed <= 20; seed++) {
+            verifyOrder(seed, now);
+        }
+        System.out.println("order ok");
+
+        for (int count : counts) {
+            double ordered = measure(new OrderedTriggerIndex(), count, now);
+            double wheel = measure(new TimingWheelTriggerIndex(), count, now);
+            System.out.printf("triggers=%d: skip-list %.2fM ticks/s | timing wheel %.2fM ticks/s%n",
+                    count, ordered / 1e6, wheel / 1e6);
+        }
+    }
+
+    private static void verifyOrder(long seed, long now) {
+        Random random = new Random(seed);
+        TriggerIndex expected = new OrderedTriggerIndex();
+        TriggerIndex actual = new TimingWheelTriggerIndex();
+        // 两种索引的侵入式字段不同，仍各用一份包装
+        List<TriggerWrapper> expectedWrappers = new ArrayList<TriggerWrapper>();
+        List<TriggerWrapper> actualWrappers = new ArrayList<TriggerWrapper>();
+
+        for (int op = 0; op < 20000; op++) {
+            int kind = random.nextInt(10);
+            if (kind < 5 || expectedWrappers.isEmpty()) {
+                int i = expectedWrappers.size();
+                long fireTime = randomFireTime(random, now);
+                int priority = random.nextInt(3);
+                expectedWrappers.add(createWrapper(i, fireTime, priority));
+                actualWrappers.add(createWrapper(i, fireTime, priority));
+                check(expected.add(expectedWrappers.get(i)) == actual.add(actualWrappers.get(i)), "add " + i);
+            } else if (kind < 7) {
+                int i = random.nextInt(expectedWrappers.size());
+                check(expected.remove(expectedWrappers.get(i)) == actual.remove(actualWrappers.get(i)), "remove " + i);
+            } else {
+                TriggerWrapper e = expected.pollFirst();
+                TriggerWrapper a = actual.pollFirst();
+                check(e == null ? a == null : a != null && e.key.equals(a.key), "poll seed=" + seed + " op=" + op);
+                if (e != null && random.nextBoolean()) {
+                    long later = e.indexedFireTime + 1 + random.nextInt(5000);
+                    setNextFireTime(e, later);
+                    setNextFireTime(a, later);
+                    expected.add(e);
+                    actual.add(a);
+                }
+            }
+            check(expected.isEmpty() == actual.isEmpty(), "empty op=" + op);
+        }
+
+        while (true) {
+            TriggerWrapper e = expected.pollFirst();
+            TriggerWrapper a = actual.pollFirst();
+            check(e == null ? a == null : a != null && e.key.equals(a.key), "drain seed=" + seed);
+            if (e == null) {
+                break;
+            }
+        }
+    }
+
+    /** 多数在一分钟以内，少数已到期、时间相同或超出时间轮范围 */
+    private static long randomFireTime(Random random, long now) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return now - random.nextInt(10000);
+            case 1:
+                return now + 1000L;
+            case 2:
+                return now + 24L * 3600 * 1000 + random.nextInt(3600 * 1000);
+            default:
+                return now + random.nextInt(60000);
+        }
+    }
+
+    private static double measure(TriggerIndex index, int count, long now) {
+        Random random = new Random(count);
+        for (int i = 0; i < count; i++) {
+            index.add(createWrapper(i, now + random.nextInt(60000), 5));
+        }
+
+        long ticks = 0;
+        long start = System.nanoTime();
+        long deadline = start + MEASURE_MILLIS * 1000000L;
+        do {
+            for (int i = 0; i < 1000; i++) {
+                TriggerWrapper tw = index.pollFirst();
+                setNextFireTime(tw, tw.indexedFireTime + 50L);
+                index.add(tw);
+            }
+            ticks += 1000;
+        } while (System.nanoTime() < deadline);
+        return ticks * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static TriggerWrapper createWrapper(int i, long fireTime, int priority) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setName("channel-" + i);
+        trigger.setGroup("plant1.line" + (i % 32));
+        trigger.setJobName("sensor-job");
+        trigger.setJobGroup("plant1");
+        trigger.setPriority(priority);
+        trigger.setNextFireTimeMillis(fireTime);
+        return new TriggerWrapper(trigger, i, 0L);
+    }
+
+    private static void setNextFireTime(TriggerWrapper tw, long fireTime) {
+        ((SimpleTriggerImpl) tw.getTrigger()).setNextFireTimeMillis(fireTime);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("mismatch: " + message);
+        }
+    }
+}